@@ -0,0 +1,317 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.processor;
+
+import com.codingrodent.InMemoryRecordStore.core.IMemoryStore;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Generate the source of a codec for one record class. Every field is read and written directly at a bit offset
+ * fixed at compile time, so no reflection or descriptor lookups happen at run time.
+ */
+class CodecGenerator {
+
+    private final String packageName;
+    private final String codecName;
+    private final String recordName;
+    private final boolean constructible;
+    private final int byteLength;
+    private final long layoutSignature;
+    private final List<FieldModel> fields;
+    private final StringBuilder source = new StringBuilder();
+
+    /**
+     * Set up a generator
+     *
+     * @param packageName     Package of record and codec, empty for the default package
+     * @param codecName       Simple name of the codec class
+     * @param recordName      Canonical name of the record class
+     * @param constructible   True if the codec can create and populate records
+     * @param byteLength      Length of a packed record in bytes
+     * @param layoutSignature Layout signature, matching RecordDescriptor.getLayoutSignature()
+     * @param fields          Fields in layout order, already placed
+     */
+    CodecGenerator(final String packageName, final String codecName, final String recordName, final boolean constructible, final int byteLength, final long
+            layoutSignature, final List<FieldModel> fields) {
+        this.packageName = packageName;
+        this.codecName = codecName;
+        this.recordName = recordName;
+        this.constructible = constructible;
+        this.byteLength = byteLength;
+        this.layoutSignature = layoutSignature;
+        this.fields = fields;
+    }
+
+    /**
+     * Generate the codec
+     *
+     * @return Java source
+     */
+    String generate() {
+        if (!packageName.isEmpty()) {
+            line("package " + packageName + ";");
+            line("");
+        }
+        line("import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;");
+        line("import com.codingrodent.InMemoryRecordStore.record.RecordCodec;");
+        line("import com.codingrodent.InMemoryRecordStore.utility.*;");
+        line("");
+        line("/**");
+        line(" * Codec for " + recordName + ". Generated by PackRecordProcessor - do not edit.");
+        line(" */");
+        line("public final class " + codecName + " implements RecordCodec<" + recordName + "> {");
+        line("");
+        line("    public static final int BYTE_LENGTH = " + byteLength + ";");
+        line("    public static final long LAYOUT_SIGNATURE = 0x" + Long.toHexString(layoutSignature).toUpperCase() + "L;");
+        line("");
+        layoutTable();
+        line("    @Override");
+        line("    public int getByteLength() {");
+        line("        return BYTE_LENGTH;");
+        line("    }");
+        line("");
+        line("    @Override");
+        line("    public long getLayoutSignature() {");
+        line("        return LAYOUT_SIGNATURE;");
+        line("    }");
+        line("");
+        read();
+        line("");
+        write();
+        line("}");
+        return source.toString();
+    }
+
+    /**
+     * Emit the static layout table and its accessors
+     */
+    private void layoutTable() {
+        line("    // Field name, type, bit offset, bit width (per element), elements");
+        line("    private static final String[] NAMES = {" + join(f -> "\"" + f.getFieldName() + "\"") + "};");
+        line("    private static final String[] TYPES = {" + join(f -> "\"" + f.getType() + "\"") + "};");
+        line("    private static final int[] BIT_OFFSETS = {" + join(f -> Integer.toString(f.getBitOffset())) + "};");
+        line("    private static final int[] BIT_WIDTHS = {" + join(f -> Integer.toString(f.getSlotBits())) + "};");
+        line("    private static final int[] ELEMENTS = {" + join(f -> Integer.toString(f.getElements())) + "};");
+        line("");
+        line("    public static int getFieldCount() {");
+        line("        return NAMES.length;");
+        line("    }");
+        line("");
+        line("    public static String getFieldName(final int field) {");
+        line("        return NAMES[field];");
+        line("    }");
+        line("");
+        line("    public static String getFieldType(final int field) {");
+        line("        return TYPES[field];");
+        line("    }");
+        line("");
+        line("    public static int getBitOffset(final int field) {");
+        line("        return BIT_OFFSETS[field];");
+        line("    }");
+        line("");
+        line("    public static int getBitWidth(final int field) {");
+        line("        return BIT_WIDTHS[field];");
+        line("    }");
+        line("");
+        line("    public static int getElements(final int field) {");
+        line("        return ELEMENTS[field];");
+        line("    }");
+        line("");
+    }
+
+    /**
+     * Emit the read methods. Reading into an existing record keeps its arrays, and strings and UUIDs that have not
+     * changed.
+     */
+    private void read() {
+        line("    @Override");
+        line("    public " + recordName + " read(final byte[] buffer) {");
+        if (constructible)
+            line("        return read(buffer, new " + recordName + "());");
+        else
+            line("        throw new RecordStoreException(\"Unable to populate record\");");
+        line("    }");
+        line("");
+        line("    @Override");
+        line("    public " + recordName + " read(final byte[] buffer, final " + recordName + " record) {");
+        if (!constructible) {
+            line("        throw new RecordStoreException(\"Unable to populate record\");");
+            line("    }");
+            return;
+        }
+        for (FieldModel field : fields) {
+            String name = "record." + field.getFieldName();
+            int pos = field.getBitOffset();
+            int bits = field.getSlotBits();
+            switch (field.getType()) {
+                case Bit:
+                    line("        " + name + " = 1 == " + get(pos, bits) + ";");
+                    break;
+                case Byte8:
+                    line("        " + name + " = (byte) BitTwiddling.extend(" + get(pos, bits) + ", " + bits + ");");
+                    break;
+                case Short16:
+                    line("        " + name + " = (short) BitTwiddling.extend(" + get(pos, bits) + ", " + bits + ");");
+                    break;
+                case Word32:
+                    line("        " + name + " = (int) BitTwiddling.extend(" + get(pos, bits) + ", " + bits + ");");
+                    break;
+                case Word64:
+                    line("        " + name + " = BitTwiddling.extend(" + get(pos, bits) + ", " + bits + ");");
+                    break;
+                case Char16:
+                    line("        " + name + " = (char) " + get(pos, bits) + ";");
+                    break;
+                case Void:
+                    break;
+                case UUID:
+                    line("        {");
+                    line("            long msb = " + get(pos, 64) + ";");
+                    line("            long lsb = " + get(pos + 64, 64) + ";");
+                    line("            if ((null == " + name + ") || (" + name + ".getMostSignificantBits() != msb) || (" + name + ".getLeastSignificantBits() != lsb))");
+                    line("                " + name + " = new java.util.UUID(msb, lsb);");
+                    line("        }");
+                    break;
+                case booleanArray:
+                case BooleanArray: {
+                    String element = field.getType() == IMemoryStore.Type.booleanArray ? "boolean" : "Boolean";
+                    line("        {");
+                    line("            " + element + "[] v = " + name + ";");
+                    line("            if ((null == v) || (v.length != " + field.getElements() + "))");
+                    line("                v = new " + element + "[" + field.getElements() + "];");
+                    line("            for (int i = 0; i < v.length; i++)");
+                    line("                v[i] = 0 != BitPacking.get(buffer, " + pos + " + i * " + bits + ", " + bits + ");");
+                    line("            " + name + " = v;");
+                    line("        }");
+                    break;
+                }
+                case FixedString:
+                    line("        {");
+                    line("            int length = (int) " + get(pos, 32) + ";");
+                    line("            boolean same = (null != " + name + ") && (" + name + ".length() == length);");
+                    line("            for (int i = 0; same && (i < length); i++)");
+                    line("                same = " + name + ".charAt(i) == (char) BitPacking.get(buffer, " + (pos + 32) + " + i * " + bits + ", " + bits + ");");
+                    line("            if (!same) {");
+                    line("                char[] chars = new char[Math.max(length, 0)];");
+                    line("                for (int i = 0; i < chars.length; i++)");
+                    line("                    chars[i] = (char) BitPacking.get(buffer, " + (pos + 32) + " + i * " + bits + ", " + bits + ");");
+                    line("                " + name + " = new String(chars);");
+                    line("            }");
+                    line("        }");
+                    break;
+                case Double:
+                    line("        " + name + " = Double.longBitsToDouble(" + get(pos, 64) + ");");
+                    break;
+                case Float:
+                    line("        " + name + " = Float.intBitsToFloat((int) " + get(pos, 32) + ");");
+                    break;
+            }
+        }
+        line("        return record;");
+        line("    }");
+    }
+
+    /**
+     * Emit the write method
+     */
+    private void write() {
+        line("    @Override");
+        line("    public void write(final " + recordName + " record, final byte[] buffer) {");
+        for (FieldModel field : fields) {
+            String name = "record." + field.getFieldName();
+            int pos = field.getBitOffset();
+            int bits = field.getSlotBits();
+            if (!field.isPrimitive() && (field.getType() != IMemoryStore.Type.Void)) {
+                line("        if (null == " + name + ")");
+                line("            throw new IllegalArgumentException(\"Field (" + field.getFieldName() + ") is null. Unable to pack\");");
+            }
+            switch (field.getType()) {
+                case Bit:
+                    line("        " + put(pos, bits, name + " ? 1 : 0") + ";");
+                    break;
+                case Byte8:
+                case Short16:
+                case Word32:
+                case Word64:
+                case Char16:
+                    line("        " + put(pos, bits, name) + ";");
+                    break;
+                case Void:
+                    line("        " + put(pos, bits, "0") + ";");
+                    break;
+                case UUID:
+                    line("        " + put(pos, 64, name + ".getMostSignificantBits()") + ";");
+                    line("        " + put(pos + 64, 64, name + ".getLeastSignificantBits()") + ";");
+                    break;
+                case booleanArray:
+                case BooleanArray:
+                    line("        if (" + name + ".length != " + field.getElements() + ")");
+                    line("            throw new IllegalArgumentException(\"Array size does not match. Should be " + field.getElements() + "\");");
+                    line("        for (int i = 0; i < " + field.getElements() + "; i++)");
+                    line("            BitPacking.put(buffer, " + pos + " + i * " + bits + ", " + bits + ", " + name + "[i] ? 1 : 0);");
+                    break;
+                case FixedString:
+                    line("        if (" + name + ".length() > " + field.getElements() + ")");
+                    line("            throw new IllegalArgumentException(\"String too long. Maximum length is " + field.getElements() + "\");");
+                    line("        " + put(pos, 32, name + ".length()") + ";");
+                    line("        for (int i = 0; i < " + name + ".length(); i++)");
+                    line("            BitPacking.put(buffer, " + (pos + 32) + " + i * " + bits + ", " + bits + ", " + name + ".charAt(i));");
+                    line("        for (int i = " + name + ".length(); i < " + field.getElements() + "; i++)");
+                    line("            BitPacking.put(buffer, " + (pos + 32) + " + i * " + bits + ", " + bits + ", 0);");
+                    break;
+                case Double:
+                    line("        " + put(pos, 64, "Double.doubleToRawLongBits(" + name + ")") + ";");
+                    break;
+                case Float:
+                    line("        " + put(pos, 32, "Float.floatToRawIntBits(" + name + ")") + ";");
+                    break;
+            }
+        }
+        line("    }");
+    }
+
+    private String get(final int pos, final int bits) {
+        return "BitPacking.get(buffer, " + pos + ", " + bits + ")";
+    }
+
+    private String put(final int pos, final int bits, final String value) {
+        return "BitPacking.put(buffer, " + pos + ", " + bits + ", " + value + ")";
+    }
+
+    private String join(final Function<FieldModel, String> item) {
+        StringBuilder sb = new StringBuilder();
+        for (FieldModel field : fields) {
+            if (sb.length() > 0)
+                sb.append(", ");
+            sb.append(item.apply(field));
+        }
+        return sb.toString();
+    }
+
+    private void line(final String text) {
+        source.append(text).append('\n');
+    }
+}
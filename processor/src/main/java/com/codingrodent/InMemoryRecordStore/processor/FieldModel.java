@@ -0,0 +1,189 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.processor;
+
+import com.codingrodent.InMemoryRecordStore.core.IMemoryStore;
+
+/**
+ * Compile time description of one packed field. Type mapping and size limits follow RecordDescriptor.FieldDetails in
+ * the runtime library so that generated codecs have exactly the same layout.
+ */
+class FieldModel {
+
+    private final IMemoryStore.Type type;
+    private final String fieldName;
+    private final int order;
+    private final int bitLength;
+    private final int byteLength;
+    private final int elements;
+    private final boolean primitive;
+    private int bitOffset;
+    private int slotBits;
+
+    /**
+     * Create details for one annotated field
+     *
+     * @param typeName  Class of field, as returned by Class.getName()
+     * @param fieldName Name of field
+     * @param order     Position in packing order
+     * @param bits      Length in bits the field
+     * @param elements  Array size (if applicable)
+     * @param primitive True if the field can't be null
+     */
+    FieldModel(final String typeName, final String fieldName, final int order, int bits, final int elements, final boolean primitive) {
+        if (bits < 1)
+            throw new IllegalArgumentException("Bit packing target length must be at least 1");
+        if (elements < 1)
+            throw new IllegalArgumentException("@PackArray / @PackString Number of elements must be at least 1");
+        switch (typeName) {
+            case "boolean":
+            case "java.lang.Boolean":
+                type = IMemoryStore.Type.Bit;
+                bits = bits > 8 ? 8 : bits;
+                break;
+            case "byte":
+            case "java.lang.Byte":
+                type = IMemoryStore.Type.Byte8;
+                bits = bits > 8 ? 8 : bits;
+                break;
+            case "short":
+            case "java.lang.Short":
+                type = IMemoryStore.Type.Short16;
+                bits = bits > 16 ? 16 : bits;
+                break;
+            case "int":
+            case "java.lang.Integer":
+                type = IMemoryStore.Type.Word32;
+                bits = bits > 32 ? 32 : bits;
+                break;
+            case "long":
+            case "java.lang.Long":
+                type = IMemoryStore.Type.Word64;
+                bits = bits > 64 ? 64 : bits;
+                break;
+            case "char":
+            case "java.lang.Character":
+                type = IMemoryStore.Type.Char16;
+                bits = bits > 16 ? 16 : bits;
+                break;
+            case "java.lang.Void":
+                type = IMemoryStore.Type.Void;
+                bits = bits > 64 ? 64 : bits;
+                break;
+            case "java.util.UUID":
+                type = IMemoryStore.Type.UUID;
+                bits = 128;
+                break;
+            case "[Z":
+                type = IMemoryStore.Type.booleanArray;
+                bits = bits > 8 ? 8 : bits; // element length
+                break;
+            case "[Ljava.lang.Boolean;":
+                type = IMemoryStore.Type.BooleanArray;
+                bits = bits > 8 ? 8 : bits; // element length
+                break;
+            case "java.lang.String":
+                type = IMemoryStore.Type.FixedString;
+                bits = bits > 16 ? 16 : bits; // element length
+                break;
+            case "java.lang.Double":
+            case "double":
+                type = IMemoryStore.Type.Double;
+                bits = 64;
+                break;
+            case "java.lang.Float":
+            case "float":
+                type = IMemoryStore.Type.Float;
+                bits = 32;
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unsupported packing type. " + typeName);
+        }
+        this.fieldName = fieldName;
+        this.order = order;
+        this.bitLength = bits;
+        this.byteLength = ((bits - 1) >> 3) + 1;
+        this.elements = elements;
+        this.primitive = primitive;
+    }
+
+    /**
+     * Fix the position of the field in the record
+     *
+     * @param bitOffset        Offset of the field from the start of the record in bits
+     * @param fieldByteAligned Field alignment
+     * @return Offset of the next field
+     */
+    int place(final int bitOffset, final boolean fieldByteAligned) {
+        this.bitOffset = bitOffset;
+        this.slotBits = fieldByteAligned ? byteLength * 8 : bitLength;
+        int length = slotBits * elements;
+        if (type == IMemoryStore.Type.FixedString)
+            length = length + 32; // Element count for stored strings held as int32 at start
+        return bitOffset + length;
+    }
+
+    IMemoryStore.Type getType() {
+        return type;
+    }
+
+    String getFieldName() {
+        return fieldName;
+    }
+
+    int getOrder() {
+        return order;
+    }
+
+    int getBitLength() {
+        return bitLength;
+    }
+
+    int getElements() {
+        return elements;
+    }
+
+    boolean isPrimitive() {
+        return primitive;
+    }
+
+    /**
+     * Offset of the field from the start of the record
+     *
+     * @return Offset in bits
+     */
+    int getBitOffset() {
+        return bitOffset;
+    }
+
+    /**
+     * Width of the field, or of each element for arrays and strings, as stored
+     *
+     * @return Width in bits
+     */
+    int getSlotBits() {
+        return slotBits;
+    }
+}
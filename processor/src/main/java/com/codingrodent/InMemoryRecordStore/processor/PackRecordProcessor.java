@@ -0,0 +1,276 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.processor;
+
+import com.codingrodent.InMemoryRecordStore.annotations.*;
+import com.codingrodent.InMemoryRecordStore.record.RecordCodec;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.*;
+import javax.tools.Diagnostic;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Annotation processor generating a codec for each class annotated with @PackRecord. Layout errors that
+ * RecordDescriptor would report at run time are reported as compile errors instead.
+ * <p>
+ * Records which can't be reached from a class in the same package (private or local classes) are skipped and
+ * handled by reflection at run time.
+ */
+@SupportedAnnotationTypes("com.codingrodent.InMemoryRecordStore.annotations.PackRecord")
+public class PackRecordProcessor extends AbstractProcessor {
+
+    private final static String VOID = "java.lang.Void";
+    private final static String STRING = "java.lang.String";
+
+    private Elements elements;
+    private Messager messager;
+    private Filer filer;
+
+    @Override
+    public synchronized void init(final ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.messager = processingEnv.getMessager();
+        this.filer = processingEnv.getFiler();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(PackRecord.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                processRecord((TypeElement) element);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check the layout of one record class and generate its codec
+     *
+     * @param type Record class
+     */
+    private void processRecord(final TypeElement type) {
+        if (!isReachable(type)) {
+            messager.printMessage(Diagnostic.Kind.NOTE, "No codec generated for " + type + ". Reflection will be used", type);
+            return;
+        }
+        PackRecord annotation = type.getAnnotation(PackRecord.class);
+        boolean fieldByteAligned = annotation.fieldByteAligned();
+        boolean constructible = isConstructible(type);
+        boolean valid = true;
+        List<FieldModel> fields = new ArrayList<>();
+        Map<Integer, VariableElement> orders = new HashMap<>();
+        for (VariableElement field : publicFields(type)) {
+            try {
+                FieldModel model = fieldModel(field);
+                if (null != model) {
+                    VariableElement previous = orders.put(model.getOrder(), field);
+                    if (null != previous)
+                        throw new IllegalArgumentException("Two fields with the same order value. " + previous.getSimpleName() + " and " + field.getSimpleName());
+                    if (field.getModifiers().contains(Modifier.FINAL))
+                        constructible = false;
+                    fields.add(model);
+                }
+            } catch (IllegalArgumentException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), field);
+                valid = false;
+            }
+        }
+        if (!valid)
+            return;
+        fields.sort(Comparator.comparing(FieldModel::getOrder));
+        int lengthInBits = 0;
+        for (FieldModel field : fields) {
+            lengthInBits = field.place(lengthInBits, fieldByteAligned);
+        }
+        int lengthInBytes = ((lengthInBits - 1) >> 3) + 1;
+        //
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String codecName = RecordCodec.codecName(elements.getBinaryName(type).toString());
+        String simpleName = packageName.isEmpty() ? codecName : codecName.substring(packageName.length() + 1);
+        String source = new CodecGenerator(packageName, simpleName, type.getQualifiedName().toString(), constructible, lengthInBytes, signature(fieldByteAligned,
+                annotation.columnar(), fields), fields).generate();
+        try (Writer writer = filer.createSourceFile(codecName, type).openWriter()) {
+            writer.write(source);
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Unable to write codec " + codecName + " - " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Build the model for an annotated field, checking it as RecordDescriptor would
+     *
+     * @param field Field
+     * @return Field model or null if the field is not packed
+     */
+    private FieldModel fieldModel(final VariableElement field) {
+        String name = field.getSimpleName().toString();
+        String typeName = typeName(field.asType());
+        boolean primitive = field.asType().getKind().isPrimitive();
+        PackField packField = field.getAnnotation(PackField.class);
+        if (null != packField) {
+            if (typeName.equals(VOID))
+                throw new IllegalArgumentException("@Pack cannot be used on Void fields");
+            if (typeName.startsWith("["))
+                throw new IllegalArgumentException("@Pack cannot be used on arrays");
+            if (typeName.equals(STRING))
+                throw new IllegalArgumentException("@Pack cannot be used on Strings. Use @PackString");
+            return new FieldModel(typeName, name, packField.order(), packField.bits(), 1, primitive);
+        }
+        Padding padding = field.getAnnotation(Padding.class);
+        if (null != padding) {
+            if (!typeName.equals(VOID))
+                throw new IllegalArgumentException("@Padding can only be used on Void fields");
+            return new FieldModel(typeName, name, padding.order(), padding.bits(), 1, primitive);
+        }
+        PackString packString = field.getAnnotation(PackString.class);
+        if (null != packString) {
+            if (!typeName.equals(STRING))
+                throw new IllegalArgumentException("@PackString must be used on Strings only");
+            return new FieldModel(typeName, name, packString.order(), packString.bits(), packString.elements(), primitive);
+        }
+        PackArray packArray = field.getAnnotation(PackArray.class);
+        if (null != packArray) {
+            if (!typeName.startsWith("["))
+                throw new IllegalArgumentException("@PackArray must be used on arrays only");
+            return new FieldModel(typeName, name, packArray.order(), packArray.bits(), packArray.elements(), primitive);
+        }
+        return null;
+    }
+
+    /**
+     * Get the name of a type as Class.getName() would return it
+     *
+     * @param type Type
+     * @return Type name
+     */
+    private String typeName(final TypeMirror type) {
+        switch (type.getKind()) {
+            case ARRAY: {
+                TypeMirror component = ((ArrayType) type).getComponentType();
+                if (component.getKind() == TypeKind.BOOLEAN)
+                    return "[Z";
+                if (component.getKind() == TypeKind.DECLARED)
+                    return "[L" + typeName(component) + ";";
+                return "[" + component;
+            }
+            case DECLARED:
+                return elements.getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+            default:
+                return type.toString();
+        }
+    }
+
+    /**
+     * Find all public fields of a class, including inherited ones, as Class.getFields() would
+     *
+     * @param type Class
+     * @return Public fields
+     */
+    private List<VariableElement> publicFields(final TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        TypeElement current = type;
+        while (null != current) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.PUBLIC))
+                    fields.add(field);
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return fields;
+    }
+
+    /**
+     * Can the generated codec, in the same package, name the record class
+     *
+     * @param type Record class
+     * @return True if reachable
+     */
+    private boolean isReachable(final TypeElement type) {
+        if (!type.getTypeParameters().isEmpty())
+            return false;
+        Element current = type;
+        while (current.getKind().isClass() || current.getKind().isInterface()) {
+            TypeElement element = (TypeElement) current;
+            if (element.getNestingKind() == NestingKind.LOCAL || element.getNestingKind() == NestingKind.ANONYMOUS)
+                return false;
+            if (element.getModifiers().contains(Modifier.PRIVATE))
+                return false;
+            current = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * Can the generated codec create records, i.e. is there a no argument constructor it can call
+     *
+     * @param type Record class
+     * @return True if records can be created
+     */
+    private boolean isConstructible(final TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT))
+            return false;
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))
+            return false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Generate the layout signature. Must produce the same value as RecordDescriptor.getLayoutSignature().
+     *
+     * @param fieldByteAligned Field alignment
+     * @param columnar         Storage layout
+     * @param fields           Fields in layout order
+     * @return Layout signature
+     */
+    static long signature(final boolean fieldByteAligned, final boolean columnar, final List<FieldModel> fields) {
+        StringBuilder layout = new StringBuilder(fieldByteAligned ? "byte" : "bit");
+        if (columnar)
+            layout.append(";columnar");
+        for (FieldModel field : fields) {
+            layout.append(';').append(field.getFieldName()).append(':').append(field.getType()).append(':').append(field.getBitLength()).append(':').append(field
+                    .getElements());
+        }
+        long hash = 0xCBF2_9CE4_8422_2325L;
+        for (int i = 0; i < layout.length(); i++) {
+            hash = (hash ^ layout.charAt(i)) * 0x0000_0100_0000_01B3L;
+        }
+        return hash;
+    }
+}
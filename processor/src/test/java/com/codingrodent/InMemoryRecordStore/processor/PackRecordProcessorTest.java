@@ -0,0 +1,283 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.processor;
+
+import com.codingrodent.InMemoryRecordStore.core.*;
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+import com.codingrodent.InMemoryRecordStore.record.*;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compile the sample records with and without the processor and check the generated codecs pack exactly as the
+ * reflective reader and writer do.
+ */
+public class PackRecordProcessorTest {
+
+    private final static String[] SAMPLES = {"ByteRecord", "BitRecord", "WriteOnlyRecord"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ClassLoader generated;
+    private ClassLoader reflective;
+
+    @Before
+    public void setUp() throws Exception {
+        generated = compile(true, SAMPLES);
+        reflective = compile(false, SAMPLES);
+    }
+
+    @Test
+    public void codecFound() throws Exception {
+        assertNotNull(new RecordDescriptor<>(generated.loadClass("sample.ByteRecord")).getCodec());
+        assertNotNull(new RecordDescriptor<>(generated.loadClass("sample.BitRecord")).getCodec());
+        assertNotNull(new RecordDescriptor<>(generated.loadClass("sample.WriteOnlyRecord$Nested$Inner")).getCodec());
+        assertNotNull(generated.loadClass("sample.WriteOnlyRecord_Nested_InnerPackCodec"));
+        assertNull(new RecordDescriptor<>(reflective.loadClass("sample.ByteRecord")).getCodec());
+    }
+
+    @Test
+    public void byteAligned() throws Exception {
+        sameAsReflection("sample.ByteRecord");
+    }
+
+    @Test
+    public void bitAligned() throws Exception {
+        sameAsReflection("sample.BitRecord");
+    }
+
+    @Test
+    public void layoutTable() throws Exception {
+        Class<?> codec = generated.loadClass("sample.ByteRecordPackCodec");
+        RecordDescriptor<?> descriptor = new RecordDescriptor<>(generated.loadClass("sample.ByteRecord"));
+        assertEquals(descriptor.getByteLength(), codec.getField("BYTE_LENGTH").getInt(null));
+        assertEquals(descriptor.getLayoutSignature(), codec.getField("LAYOUT_SIGNATURE").getLong(null));
+        assertEquals(descriptor.getFieldNames().size(), codec.getMethod("getFieldCount").invoke(null));
+        assertEquals("v1", codec.getMethod("getFieldName", int.class).invoke(null, 3));
+        assertEquals("Void", codec.getMethod("getFieldType", int.class).invoke(null, 3));
+        assertEquals(56, codec.getMethod("getBitOffset", int.class).invoke(null, 3));
+        assertEquals(16, codec.getMethod("getBitWidth", int.class).invoke(null, 3));
+        assertEquals(12, codec.getMethod("getElements", int.class).invoke(null, 9));
+    }
+
+    @Test
+    public void writeOnly() throws Exception {
+        Class<?> clazz = generated.loadClass("sample.WriteOnlyRecord");
+        Object record = clazz.getConstructor(byte.class, int.class).newInstance((byte) -3, 0x0ABC);
+        RecordCodec<Object> codec = codec(clazz);
+        byte[] buffer = new byte[codec.getByteLength()];
+        codec.write(record, buffer);
+        assertArrayEquals(new byte[]{(byte) 0xFD, 0x55, (byte) 0xE0}, buffer);
+        try {
+            codec.read(buffer);
+            fail("Read of record with final fields should fail");
+        } catch (RecordStoreException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void nullField() throws Exception {
+        Class<?> clazz = generated.loadClass("sample.ByteRecord");
+        Object record = clazz.newInstance();
+        clazz.getMethod("fill").invoke(record);
+        clazz.getField("a").set(record, null);
+        try {
+            codec(clazz).write(record, new byte[200]);
+            fail("Null field should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field (a) is null. Unable to pack", e.getMessage());
+        }
+    }
+
+    @Test
+    public void stringTooLong() throws Exception {
+        Class<?> clazz = generated.loadClass("sample.ByteRecord");
+        Object record = clazz.newInstance();
+        clazz.getMethod("fill").invoke(record);
+        clazz.getField("p").set(record, "ABCD");
+        try {
+            codec(clazz).write(record, new byte[200]);
+            fail("Over long string should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("String too long. Maximum length is 3", e.getMessage());
+        }
+        IMemoryStore store = new ArrayMemoryStore(1024);
+        Writer<Object> writer = new Writer<>(store, descriptor(clazz));
+        try {
+            writer.putRecord(0, record);
+            fail("Over long string should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("String too long. Maximum length is 3", e.getMessage());
+        }
+        for (int i = 0; i < store.getBytes(); i++) {
+            assertEquals("Byte " + i, 0, store.getByte(i));
+        }
+    }
+
+    @Test
+    public void layoutErrors() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertFalse(run(true, diagnostics, folder.newFolder(), "BadRecord"));
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                errors.add(diagnostic.getMessage(Locale.ENGLISH));
+        }
+        assertTrue(errors.contains("Two fields with the same order value. a and b"));
+        assertTrue(errors.contains("@Pack cannot be used on Strings. Use @PackString"));
+    }
+
+    /**
+     * Write a sample record with the generated codec and by reflection, then compare the bytes and read it back
+     *
+     * @param name Record class name
+     * @throws Exception If anything fails
+     */
+    private void sameAsReflection(final String name) throws Exception {
+        Class<?> fastClass = generated.loadClass(name);
+        Class<?> slowClass = reflective.loadClass(name);
+        IMemoryStore fastStore = new ArrayMemoryStore(1024);
+        IMemoryStore slowStore = new ArrayMemoryStore(1024);
+        RecordDescriptor<Object> fastDescriptor = descriptor(fastClass);
+        RecordDescriptor<Object> slowDescriptor = descriptor(slowClass);
+        assertNotNull(fastDescriptor.getCodec());
+        assertNull(slowDescriptor.getCodec());
+        assertEquals(slowDescriptor.getByteLength(), fastDescriptor.getCodec().getByteLength());
+        //
+        Object fast = fastClass.newInstance();
+        fastClass.getMethod("fill").invoke(fast);
+        Object slow = slowClass.newInstance();
+        slowClass.getMethod("fill").invoke(slow);
+        new Writer<>(fastStore, fastDescriptor).putRecord(3, fast);
+        new Writer<>(slowStore, slowDescriptor).putRecord(3, slow);
+        for (int i = 0; i < fastStore.getBytes(); i++) {
+            assertEquals("Byte " + i, slowStore.getByte(i), fastStore.getByte(i));
+        }
+        //
+        Object read = new Reader<>(fastStore, fastDescriptor).getRecord(3);
+        Object expected = new Reader<>(slowStore, slowDescriptor).getRecord(3);
+        for (Field field : fastClass.getFields()) {
+            Object wanted = slowClass.getField(field.getName()).get(expected);
+            assertSameValue(field.getName(), wanted, field.get(read));
+            assertSameValue(field.getName(), field.get(fast), field.get(read));
+        }
+        //
+        // Read into existing records
+        Object fastReuse = fastClass.newInstance();
+        Object slowReuse = slowClass.newInstance();
+        assertSame(fastReuse, new Reader<>(fastStore, fastDescriptor).getRecord(3, fastReuse));
+        assertSame(slowReuse, new Reader<>(slowStore, slowDescriptor).getRecord(3, slowReuse));
+        for (Field field : fastClass.getFields()) {
+            assertSameValue(field.getName(), field.get(fast), field.get(fastReuse));
+            assertSameValue(field.getName(), slowClass.getField(field.getName()).get(slow), slowClass.getField(field.getName()).get(slowReuse));
+        }
+        //
+        // Bulk writes and reads through the codec
+        new Writer<>(fastStore, fastDescriptor).putRecords(4, Arrays.asList(fast, fast));
+        new Writer<>(slowStore, slowDescriptor).putRecords(4, Arrays.asList(slow, slow));
+        for (int i = 0; i < fastStore.getBytes(); i++) {
+            assertEquals("Byte " + i, slowStore.getByte(i), fastStore.getByte(i));
+        }
+        List<Object> bulk = new ArrayList<>();
+        new Reader<>(fastStore, fastDescriptor).getRecords(3, 3, bulk::add);
+        assertEquals(3, bulk.size());
+        for (Object record : bulk) {
+            for (Field field : fastClass.getFields()) {
+                assertSameValue(field.getName(), field.get(fast), field.get(record));
+            }
+        }
+    }
+
+    private static void assertSameValue(final String name, final Object expected, final Object actual) {
+        if (null != expected && expected.getClass().isArray()) {
+            int length = Array.getLength(expected);
+            assertEquals(name, length, Array.getLength(actual));
+            for (int i = 0; i < length; i++)
+                assertEquals(name, Array.get(expected, i), Array.get(actual, i));
+        } else {
+            assertEquals(name, expected, actual);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RecordDescriptor<Object> descriptor(final Class<?> clazz) {
+        return new RecordDescriptor<>((Class<Object>) clazz);
+    }
+
+    private static RecordCodec<Object> codec(final Class<?> clazz) {
+        return descriptor(clazz).getCodec();
+    }
+
+    /**
+     * Compile sample records into a new class loader
+     *
+     * @param process Run the annotation processor
+     * @param names   Sample records
+     * @return Class loader for the compiled records
+     * @throws Exception If compilation fails
+     */
+    private ClassLoader compile(final boolean process, final String... names) throws Exception {
+        File output = folder.newFolder();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertTrue(diagnostics.getDiagnostics().toString(), run(process, diagnostics, output, names));
+        return new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private boolean run(final boolean process, final DiagnosticCollector<JavaFileObject> diagnostics, final File output, final String... names) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ENGLISH, null);
+        List<File> sources = new ArrayList<>();
+        for (String name : names) {
+            File source = new File(folder.getRoot(), "sample/" + name + ".java");
+            if (!source.exists()) {
+                Files.createDirectories(source.toPath().getParent());
+                try (InputStream in = getClass().getResourceAsStream("/records/sample/" + name + ".java")) {
+                    Files.copy(in, source.toPath());
+                }
+            }
+            sources.add(source);
+        }
+        List<String> options = new ArrayList<>(Arrays.asList("-d", output.getPath(), "-s", output.getPath(), "-classpath", System.getProperty("java.class.path")));
+        if (!process)
+            options.add("-proc:none");
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(sources));
+        if (process)
+            task.setProcessors(Collections.singletonList(new PackRecordProcessor()));
+        boolean result = task.call();
+        fileManager.close();
+        return result;
+    }
+}
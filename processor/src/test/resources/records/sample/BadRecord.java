@@ -0,0 +1,13 @@
+package sample;
+
+import com.codingrodent.InMemoryRecordStore.annotations.*;
+
+@PackRecord
+public class BadRecord {
+    @PackField(order = 0, bits = 8)
+    public int a;
+    @PackField(order = 0, bits = 8)
+    public int b;
+    @PackField(order = 1, bits = 8)
+    public String c;
+}
@@ -0,0 +1,62 @@
+package sample;
+
+import com.codingrodent.InMemoryRecordStore.annotations.*;
+
+import java.util.UUID;
+
+@PackRecord(fieldByteAligned = false)
+public class BitRecord {
+    @PackField(order = 0, bits = 25)
+    public Integer a;
+    @PackField(order = 1, bits = 15)
+    public int b;
+    @PackField(order = 2)
+    public boolean c;
+    @Padding(order = 3, bits = 12)
+    public Void v1;
+    @PackField(order = 4, bits = 46)
+    public Long d;
+    @PackField(order = 5, bits = 4)
+    public Boolean e;
+    @PackField(order = 6)
+    public UUID f;
+    @PackArray(order = 7, elements = 10)
+    public boolean[] g;
+    @PackArray(order = 8, bits = 3, elements = 5)
+    public Boolean[] h;
+    @PackString(order = 9, bits = 7, elements = 12)
+    public String i;
+    @PackField(order = 10, bits = 16)
+    public short j;
+    @PackField(order = 11, bits = 6)
+    public Short k;
+    @PackField(order = 12, bits = 8)
+    public byte l;
+    @PackField(order = 13, bits = 12)
+    public Character m;
+    @PackField(order = 14)
+    public double n;
+    @PackField(order = 15)
+    public Float o;
+    @PackString(order = 16, bits = 16, elements = 3)
+    public String p;
+
+    public void fill() {
+        a = -1234567;
+        b = -16000;
+        c = true;
+        d = -0x1234_5678_9ABCL;
+        e = true;
+        f = new UUID(0x8000_7000_6000_5000L, 0x4000_3000_2000_1001L);
+        g = new boolean[]{true, false, true, true, false, false, false, true, true, false};
+        h = new Boolean[]{false, true, true, false, true};
+        i = "Packed";
+        j = (short) 0xFEDC;
+        k = -17;
+        l = -128;
+        m = 'Z';
+        n = -1.0e100;
+        o = 3.25f;
+        p = "\u20AC\u00A3";
+    }
+}
@@ -0,0 +1,24 @@
+package sample;
+
+import com.codingrodent.InMemoryRecordStore.annotations.*;
+
+@PackRecord(fieldByteAligned = false)
+public class WriteOnlyRecord {
+    @PackField(order = 0, bits = 8)
+    public final Byte a;
+    @PackField(order = 1, bits = 13)
+    public final int b;
+
+    public WriteOnlyRecord(byte a, int b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    public static class Nested {
+        @PackRecord
+        public static class Inner {
+            @PackField(order = 0, bits = 3)
+            public int x = 3;
+        }
+    }
+}
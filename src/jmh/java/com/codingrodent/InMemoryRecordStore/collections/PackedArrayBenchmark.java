@@ -0,0 +1,74 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.collections;
+
+import com.codingrodent.InMemoryRecordStore.record.records.NarrowBitRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterate over every record in a PackedArray, summing one field, with a new record or one reused record per read.
+ * Results are per record visited.
+ * <p>
+ * Run with: gradlew jmh -PjmhArgs='PackedArrayBenchmark'
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackedArrayBenchmark {
+
+    private final static int RECORDS = 4096;
+
+    private final NarrowBitRecord reuse = new NarrowBitRecord();
+    private PackedArray<NarrowBitRecord> packedArray;
+
+    @Setup
+    public void setUp() {
+        packedArray = new PackedArray<>(NarrowBitRecord.class, RECORDS);
+        for (int i = 0; i < RECORDS; i++)
+            packedArray.putRecord(i, new NarrowBitRecord(i & 0x7FF, -i & 0x7FF, (short) (i & 0xFF), 0 == (i & 1)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long iterate() {
+        long sum = 0;
+        for (NarrowBitRecord record : packedArray)
+            sum = sum + record.a;
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long iterateReuse() {
+        long sum = 0;
+        for (int i = 0; i < RECORDS; i++)
+            sum = sum + packedArray.getRecord(i, reuse).a;
+        return sum;
+    }
+}
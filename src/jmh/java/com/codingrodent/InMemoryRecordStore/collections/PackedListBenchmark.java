@@ -0,0 +1,75 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.collections;
+
+import com.codingrodent.InMemoryRecordStore.record.records.NarrowBitRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deque operations on a PackedList held half full. Each operation adds one record and removes one, so the list size
+ * stays constant.
+ * <p>
+ * Run with: gradlew jmh -PjmhArgs='PackedListBenchmark'
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackedListBenchmark {
+
+    private final static int RECORDS = 1024;
+
+    private final NarrowBitRecord record = new NarrowBitRecord(0x123, -0x456, (short) -200, true);
+    private PackedList<NarrowBitRecord> packedList;
+
+    @Setup
+    public void setUp() {
+        packedList = new PackedList<>(NarrowBitRecord.class, RECORDS);
+        for (int i = 0; i < RECORDS / 2; i++)
+            packedList.addLast(record);
+    }
+
+    @Benchmark
+    public NarrowBitRecord queue() {
+        packedList.addLast(record);
+        return packedList.removeFirst();
+    }
+
+    @Benchmark
+    public NarrowBitRecord stack() {
+        packedList.push(record);
+        return packedList.pop();
+    }
+
+    @Benchmark
+    public void peekBothEnds(final Blackhole blackhole) {
+        blackhole.consume(packedList.peekFirst());
+        blackhole.consume(packedList.peekLast());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Word access to an ArrayMemoryStore. Offset 0 is word aligned, 1 to 3 are unaligned and need two words of the
+ * backing array. Each operation is a single access, stepping through the store. The bulk operations move a 200 byte
+ * block.
+ * <p>
+ * Run with: gradlew jmh -PjmhArgs='ArrayMemoryStoreBenchmark -p offset=0,1'
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayMemoryStoreBenchmark {
+
+    private final static int ACCESSES = 1024;
+    private final static int BLOCK = 200;
+
+    @Param({"0", "1", "2", "3"})
+    public int offset;
+
+    private final ArrayMemoryStore memoryStore = new ArrayMemoryStore(ACCESSES * 2 + 2);
+    private int address;
+    private int value;
+    private final byte[] block = new byte[BLOCK];
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < memoryStore.getWords(); i++)
+            memoryStore.setWord(i * 4, i * 0x1234_5679);
+    }
+
+    private int next() {
+        address = (address + 8) & (ACCESSES * 8 - 1);
+        return address + offset;
+    }
+
+    @Benchmark
+    public int getWord() {
+        return memoryStore.getWord(next());
+    }
+
+    @Benchmark
+    public void setWord() {
+        memoryStore.setWord(next(), value++);
+    }
+
+    @Benchmark
+    public long getLongWord() {
+        return memoryStore.getLongWord(next());
+    }
+
+    @Benchmark
+    public void setLongWord() {
+        memoryStore.setLongWord(next(), value++);
+    }
+
+    @Benchmark
+    public byte[] getBytes() {
+        memoryStore.getBytes(next(), block, 0, BLOCK);
+        return block;
+    }
+
+    @Benchmark
+    public void setBytes() {
+        memoryStore.setBytes(next(), block, 0, BLOCK);
+    }
+
+    @Benchmark
+    public void copy() {
+        memoryStore.copy(next(), next(), BLOCK);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.NarrowByteRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A read mostly mix on a shared ConcurrentRecordManager, comparing read locks with optimistic (seqlock) reads. Three
+ * threads read records while one writes, each stepping through the store from a different point.
+ * <p>
+ * Run with: gradlew jmh -PjmhArgs='ConcurrentRecordManagerBenchmark -p readMode=OPTIMISTIC'
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentRecordManagerBenchmark {
+
+    private final static int RECORDS = 1024;
+
+    @Param({"LOCKING", "OPTIMISTIC"})
+    public ConcurrentRecordManager.ReadMode readMode;
+
+    private ConcurrentRecordManager<NarrowByteRecord> recordManager;
+
+    @Setup
+    public void setUp() {
+        RecordDescriptor<NarrowByteRecord> descriptor = new RecordDescriptor<>(NarrowByteRecord.class);
+        recordManager = new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, descriptor, ConcurrentRecordManager.DEFAULT_STRIPES, readMode);
+        for (int i = 0; i < RECORDS; i++)
+            recordManager.putRecord(i, new NarrowByteRecord(i, -i, (short) 0, true));
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final NarrowByteRecord record = new NarrowByteRecord(0x123, -0x456, (short) -200, true);
+        private int location = (int) (Thread.currentThread().getId() * 257);
+
+        private int next() {
+            location = (location + 1) & (RECORDS - 1);
+            return location;
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public NarrowByteRecord read(final Cursor cursor) {
+        return recordManager.getRecord(cursor.next(), cursor.record);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public void write(final Cursor cursor) {
+        recordManager.putRecord(cursor.next(), cursor.record);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the bit reader and writer with the original bit at a time implementation. Each operation reads or writes a
+ * field of the given width at every bit offset from 0 to 63.
+ * <p>
+ * Run one width with: gradlew jmh -PjmhArgs='BitReaderWriterBenchmark -p bits=13'
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitReaderWriterBenchmark {
+
+    private final static int OFFSETS = 64;
+    private final static int[] BIT_SET = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80};
+    private final static int[] BIT_TEST = {0x80, 0x40, 0x20, 0x10, 0x08, 0x04, 0x02, 0x01};
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "23", "24", "25", "26", "27", "28", "29", "30", "31", "32", "33", "34", "35", "36", "37", "38", "39", "40", "41", "42", "43", "44", "45", "46", "47", "48", "49", "50", "51", "52", "53", "54", "55", "56", "57", "58", "59", "60", "61", "62", "63", "64"})
+    public int bits;
+
+    private final BitReader bitReader = new BitReader();
+    private final BitWriter bitWriter = new BitWriter();
+    private final byte[] buffer = new byte[24];
+    private final long[] values = new long[OFFSETS];
+    private final byte[][] sources = new byte[OFFSETS][8];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        random.nextBytes(buffer);
+        for (int i = 0; i < OFFSETS; i++) {
+            values[i] = random.nextLong();
+            for (int b = 0; b < 8; b++)
+                sources[i][b] = (byte) (values[i] >>> (56 - 8 * b));
+        }
+    }
+
+    @Benchmark
+    public long unpack() {
+        long sum = 0;
+        for (int offset = 0; offset < OFFSETS; offset++)
+            sum = sum + bitReader.unpackLong(buffer, offset, bits);
+        return sum;
+    }
+
+    @Benchmark
+    public long unpackOriginal() {
+        long sum = 0;
+        for (int offset = 0; offset < OFFSETS; offset++) {
+            if (bits <= 32) {
+                sum = sum + (originalUnpack(buffer, offset, bits) & 0xFFFF_FFFFL);
+            } else {
+                long upper = originalUnpack(buffer, offset, bits - 32) & 0xFFFF_FFFFL;
+                sum = sum + ((upper << 32) | (originalUnpack(buffer, offset + bits - 32, 32) & 0xFFFF_FFFFL));
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public byte[] insert() {
+        for (int offset = 0; offset < OFFSETS; offset++)
+            bitWriter.insert(values[offset], buffer, offset, bits);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] insertOriginal() {
+        for (int offset = 0; offset < OFFSETS; offset++)
+            originalInsertBits(sources[offset], buffer, offset, bits);
+        return buffer;
+    }
+
+    private static int originalUnpack(byte[] sourceArray, int readBitPosition, final int bitLength) {
+        int target = 0;
+        for (int i = 0; i < bitLength; i++) {
+            int readByte = sourceArray[readBitPosition >> 3];
+            int readMask = BIT_TEST[readBitPosition & 0x07];
+            target = target << 1;
+            if (0 != (readByte & readMask)) {
+                target = target | 0x01;
+            }
+            readBitPosition++;
+        }
+        return target;
+    }
+
+    private static void originalInsertBits(final byte[] sourceArray, final byte[] targetArray, int writeBitPosition, final int bitLength) {
+        final int byteArrayOffset = sourceArray.length - 1;
+        for (int bit = bitLength - 1; bit >= 0; bit--) {
+            int readBit = bit & 0x07;
+            int readByte = byteArrayOffset - (bit >> 3);
+            int readMask = BIT_SET[readBit];
+            int val = (sourceArray[readByte] & readMask);
+            if (0 != val) {
+                int writeBit = 7 - (writeBitPosition & 0x07);
+                int writeByte = writeBitPosition >> 3;
+                targetArray[writeByte] = (byte) (targetArray[writeByte] | BIT_SET[writeBit]);
+            }
+            writeBitPosition++;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import com.codingrodent.InMemoryRecordStore.record.records.WideByteRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set and get the four primitive fields (long, long, int, double) of a record. Compares boxed reflection
+ * (Field.set / Field.get) with the unboxed typed access of the reflective and method handle field accessors. Run with
+ * the GC profiler to see the allocation from boxing.
+ * <p>
+ * Run with: gradlew jmh -PjmhArgs='FieldAccessBenchmark'
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAccessBenchmark {
+
+    private final WideByteRecord record = new WideByteRecord();
+    private Field[] fields;
+    private FieldAccessor[] reflective;
+    private FieldAccessor[] methodHandle;
+    private long value = 1_000_000;
+
+    @Setup
+    public void setUp() throws Exception {
+        fields = new Field[]{WideByteRecord.class.getField("a"), WideByteRecord.class.getField("b"), WideByteRecord.class.getField("c"), WideByteRecord.class
+                .getField("d")};
+        reflective = new FieldAccessor[fields.length];
+        methodHandle = new FieldAccessor[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            reflective[i] = new ReflectiveFieldAccessor(fields[i]);
+            methodHandle[i] = new MethodHandleFieldAccessor(fields[i]);
+        }
+    }
+
+    @Benchmark
+    public double boxedReflection() throws Exception {
+        value++;
+        fields[0].set(record, value);
+        fields[1].set(record, value);
+        fields[2].set(record, (int) value);
+        fields[3].set(record, (double) value);
+        return (Long) fields[0].get(record) + (Long) fields[1].get(record) + (Integer) fields[2].get(record) + (Double) fields[3].get(record);
+    }
+
+    @Benchmark
+    public double typedReflection() {
+        return typed(reflective);
+    }
+
+    @Benchmark
+    public double typedMethodHandle() {
+        return typed(methodHandle);
+    }
+
+    private double typed(final FieldAccessor[] accessors) {
+        value++;
+        accessors[0].setLong(record, value);
+        accessors[1].setLong(record, value);
+        accessors[2].setInt(record, (int) value);
+        accessors[3].setDouble(record, value);
+        return accessors[0].getLong(record) + accessors[1].getLong(record) + accessors[2].getInt(record) + accessors[3].getDouble(record);
+    }
+}
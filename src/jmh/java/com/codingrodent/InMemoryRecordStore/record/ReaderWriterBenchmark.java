@@ -0,0 +1,94 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import com.codingrodent.InMemoryRecordStore.core.ArrayMemoryStore;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read and write whole records, comparing byte aligned and bit aligned layouts of a narrow (4 field) and a wide (6
+ * field, including a string) record. Each operation reads or writes one record, stepping through the store.
+ * <p>
+ * Run with: gradlew jmh -PjmhArgs='ReaderWriterBenchmark -p layout=narrowByte,narrowBit'
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderWriterBenchmark {
+
+    private final static int RECORDS = 1024;
+
+    @Param({"narrowByte", "narrowBit", "wideByte", "wideBit"})
+    public String layout;
+
+    private Reader<Object> reader;
+    private Writer<Object> writer;
+    private Object record;
+    private int location;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        switch (layout) {
+            case "narrowByte":
+                record = new NarrowByteRecord(0x123, -0x456, (short) -200, true);
+                break;
+            case "narrowBit":
+                record = new NarrowBitRecord(0x123, -0x456, (short) -200, true);
+                break;
+            case "wideByte":
+                record = new WideByteRecord(0x12_3456_789AL, -1L, 0x1234_5678, 3.25, -0x1234_5678_9ABCL, "record");
+                break;
+            case "wideBit":
+                record = new WideBitRecord(0x12_3456_789AL, -1L, 0x1234_5678, 3.25, -0x1234_5678_9ABCL, "record");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown layout " + layout);
+        }
+        RecordDescriptor<Object> descriptor = new RecordDescriptor<>((Class<Object>) record.getClass());
+        ArrayMemoryStore memoryStore = new ArrayMemoryStore((descriptor.getByteLength() * RECORDS + 3) / 4);
+        reader = new Reader<>(memoryStore, descriptor);
+        writer = new Writer<>(memoryStore, descriptor);
+        for (int i = 0; i < RECORDS; i++)
+            writer.putRecord(i, record);
+    }
+
+    @Benchmark
+    public Object getRecord() {
+        location = (location + 1) & (RECORDS - 1);
+        return reader.getRecord(location);
+    }
+
+    @Benchmark
+    public void putRecord() {
+        location = (location + 1) & (RECORDS - 1);
+        writer.putRecord(location, record);
+    }
+}
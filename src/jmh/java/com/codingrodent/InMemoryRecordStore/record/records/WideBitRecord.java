@@ -0,0 +1,63 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record.records;
+
+import com.codingrodent.InMemoryRecordStore.annotations.*;
+
+/**
+ * Benchmark record. Wider fields including a string, bit aligned
+ */
+@PackRecord(fieldByteAligned = false)
+public class WideBitRecord {
+
+    @PackField(order = 0, bits = 40)
+    public long a;
+
+    @PackField(order = 1)
+    public long b;
+
+    @PackField(order = 2, bits = 31)
+    public int c;
+
+    @PackField(order = 3)
+    public double d;
+
+    @PackField(order = 4, bits = 48)
+    public Long e;
+
+    @PackString(order = 5, elements = 8, bits = 7)
+    public String f;
+
+    public WideBitRecord() {
+    }
+
+    public WideBitRecord(final long a, final long b, final int c, final double d, final Long e, final String f) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.e = e;
+        this.f = f;
+    }
+}
@@ -34,4 +34,7 @@ import java.lang.annotation.*;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface PackRecord {
     boolean fieldByteAligned() default true;
+
+    // Store each field of every record in its own contiguous column, rather than each record in one row
+    boolean columnar() default false;
 }
@@ -26,7 +26,10 @@ package com.codingrodent.InMemoryRecordStore.collections;
 import com.codingrodent.InMemoryRecordStore.core.*;
 import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class PackedArray<E> implements Iterable<E> {
 
@@ -56,6 +59,17 @@ public class PackedArray<E> implements Iterable<E> {
         return recordManager.getRecord(location);
     }
 
+    /**
+     * Read a record at the specified location into an existing record object, to avoid allocating a new one
+     *
+     * @param location Location
+     * @param reuse    Record object to populate
+     * @return Record, normally reuse
+     */
+    public E getRecord(final int location, final E reuse) {
+        return recordManager.getRecord(location, reuse);
+    }
+
     /**
      * Write a record at the specified location
      *
@@ -66,6 +80,103 @@ public class PackedArray<E> implements Iterable<E> {
         recordManager.putRecord(location, record);
     }
 
+    /**
+     * Write records to consecutive locations. All records are checked before anything is written.
+     *
+     * @param start   Location of the first record
+     * @param records Records
+     */
+    public void putRecords(final int start, final List<? extends E> records) {
+        recordManager.putRecords(start, records);
+    }
+
+    /**
+     * Write records to consecutive locations. All records are checked before anything is written.
+     *
+     * @param start   Location of the first record
+     * @param records Records
+     */
+    public void putRecords(final int start, final E[] records) {
+        recordManager.putRecords(start, records);
+    }
+
+    /**
+     * Read records from consecutive locations, passing each to a consumer in order
+     *
+     * @param start    Location of the first record
+     * @param count    Number of records
+     * @param consumer Receives each record
+     */
+    public void getRecords(final int start, final int count, final Consumer<? super E> consumer) {
+        recordManager.getRecords(start, count, consumer);
+    }
+
+    /**
+     * Copy the packed bytes of a range of records out to a byte array
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param target Target array
+     * @param offset Offset of the first byte in the target array
+     */
+    public void copyRecordsTo(final int start, final int count, final byte[] target, final int offset) {
+        recordManager.copyRecordsTo(start, count, target, offset);
+    }
+
+    /**
+     * Copy the packed bytes of a range of records out to a byte buffer, at its position
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param target Target buffer
+     */
+    public void copyRecordsTo(final int start, final int count, final ByteBuffer target) {
+        recordManager.copyRecordsTo(start, count, target);
+    }
+
+    /**
+     * Copy packed records into a range of locations from a byte array
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param source Source array
+     * @param offset Offset of the first byte in the source array
+     */
+    public void copyRecordsFrom(final int start, final int count, final byte[] source, final int offset) {
+        recordManager.copyRecordsFrom(start, count, source, offset);
+    }
+
+    /**
+     * Copy packed records into a range of locations from a byte buffer, at its position
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param source Source buffer
+     */
+    public void copyRecordsFrom(final int start, final int count, final ByteBuffer source) {
+        recordManager.copyRecordsFrom(start, count, source);
+    }
+
+    /**
+     * Find the records matching a filter, without decoding any records
+     *
+     * @param filter Filter on the fields of a record, e.g. RecordFilter.field("qty").gt(100)
+     * @return Locations of matching records
+     */
+    public RecordBitmap select(final RecordFilter filter) {
+        return recordManager.select(filter);
+    }
+
+    /**
+     * Read the records matching a filter, in location order. Only matching records are decoded.
+     *
+     * @param filter   Filter on the fields of a record
+     * @param consumer Receives each matching record
+     */
+    public void scan(final RecordFilter filter, final Consumer<? super E> consumer) {
+        recordManager.scan(filter, consumer);
+    }
+
     /**
      * Get the array size
      *
@@ -80,6 +191,34 @@ public class PackedArray<E> implements Iterable<E> {
         return new ArrayIterator();
     }
 
+    /**
+     * Create a sized spliterator over all records, splitting on ranges of record locations
+     *
+     * @return Spliterator
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return recordManager.spliterator();
+    }
+
+    /**
+     * Stream all records in location order
+     *
+     * @return Sequential stream
+     */
+    public Stream<E> stream() {
+        return recordManager.stream();
+    }
+
+    /**
+     * Stream all records in location order, allowing ranges of records to be decoded in parallel
+     *
+     * @return Parallel stream
+     */
+    public Stream<E> parallelStream() {
+        return recordManager.parallelStream();
+    }
+
     // Iterator inner class
     private class ArrayIterator implements Iterator<E> {
         private int pos;
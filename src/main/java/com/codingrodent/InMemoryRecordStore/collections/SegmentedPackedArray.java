@@ -0,0 +1,133 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.collections;
+
+import com.codingrodent.InMemoryRecordStore.core.*;
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * A packed array addressed by long index, able to hold more than 2GB of records
+ *
+ * @param <E> Record type
+ */
+public class SegmentedPackedArray<E> implements Iterable<E> {
+
+    private final SegmentedRecordManager<E> recordManager;
+    private final long records;
+
+    /**
+     * Simple constructor using default (heap) storage
+     *
+     * @param clazz   Class of record type
+     * @param records Maximum records to store
+     */
+    public SegmentedPackedArray(final Class<E> clazz, final long records) {
+        this(clazz, records, ArrayMemoryStore::new);
+    }
+
+    /**
+     * Constructor with a choice of storage for each segment
+     *
+     * @param clazz          Class of record type
+     * @param records        Maximum records to store
+     * @param segmentFactory Source of empty segments, e.g. DirectMemoryStore::new
+     */
+    public SegmentedPackedArray(final Class<E> clazz, final long records, final Supplier<IMemoryStore> segmentFactory) {
+        RecordDescriptor<E> descriptor = new RecordDescriptor<>(clazz);
+        this.recordManager = new SegmentedRecordManager<>(new SegmentedMemoryStore(segmentFactory), records, descriptor);
+        this.records = records;
+    }
+
+    /**
+     * Read a record at the specified location
+     *
+     * @param location Location
+     * @return Record
+     */
+    public E getRecord(final long location) {
+        return recordManager.getRecord(location);
+    }
+
+    /**
+     * Read a record at the specified location into an existing record object, to avoid allocating a new one
+     *
+     * @param location Location
+     * @param reuse    Record object to populate
+     * @return Record, normally reuse
+     */
+    public E getRecord(final long location, final E reuse) {
+        return recordManager.getRecord(location, reuse);
+    }
+
+    /**
+     * Write a record at the specified location
+     *
+     * @param location Location
+     * @param record   Record
+     */
+    public void putRecord(final long location, final E record) {
+        recordManager.putRecord(location, record);
+    }
+
+    /**
+     * Get the array size
+     *
+     * @return Size
+     */
+    public long getSize() {
+        return records;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new ArrayIterator();
+    }
+
+    // Iterator inner class
+    private class ArrayIterator implements Iterator<E> {
+        private long pos;
+
+        public ArrayIterator() {
+            pos = 0;
+        }
+
+        public boolean hasNext() {
+            return pos < records;
+        }
+
+        public E next() {
+            if (this.hasNext())
+                return getRecord(pos++);
+            else
+                throw new NoSuchElementException();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -23,7 +23,9 @@
 */
 package com.codingrodent.InMemoryRecordStore.core;
 
-import com.codingrodent.InMemoryRecordStore.utility.Utilities;
+import com.codingrodent.InMemoryRecordStore.utility.*;
+
+import static com.codingrodent.InMemoryRecordStore.utility.UnsafeAccess.UNSAFE;
 
 /**
  * This class simulates a block of RAM via the use of an array of int's. Facilities are supplied to
@@ -38,6 +40,8 @@ public class ArrayMemoryStore implements IMemoryStore {
     private final static int STORAGE_LIMIT = 0x7FFF_FFFC;
     private final static int MAX_WORDS = STORAGE_LIMIT / 4;
     private final static long LSLW = 0x0000_0000_FFFF_FFFFL;
+    // Long word aligned addresses can only be read and written as one long if the array data is long word aligned
+    private final static boolean LONG_ALIGNED = 0 == (UnsafeAccess.INT_ARRAY_BASE & 0x07);
 
     private int[] core = null;
     private int bytes = 0;
@@ -141,17 +145,26 @@ public class ArrayMemoryStore implements IMemoryStore {
     }
 
     /**
-     * Return a long word of memory from any address. This operation is potentially slower than a
-     * long word aligned fetch. Note that long word alignment is 32 bit based, not 64 bit.
+     * Return a long word of memory from any address. A long word aligned fetch is a single native 64 bit load, a word
+     * aligned fetch reads two array elements and an unaligned fetch three.
      *
      * @param address Address to be fetched from (Will wrap if too large)
      * @return The long word of memory requested
      */
     @Override
     public long getLongWord(final int address) {
-        long v1 = ((long) getWord(address)) << 32;
-        long v2 = (((long) getWord(address + 4)) & LSLW);
-        return v1 | v2;
+        final int word0 = validateAndWrapAddress(address);
+        final int shift = (address & 0x03) << 3;
+        if ((0 == shift) && (0 == (word0 & 0x01)) && LONG_ALIGNED && (word0 < words - 1)) {
+            return toNative(UNSAFE.getLong(core, UnsafeAccess.INT_ARRAY_BASE + ((long) word0 << 2)));
+        }
+        final int word1 = (word0 + 1 == words) ? 0 : word0 + 1;
+        final long high = ((long) core[word0] << 32) | (core[word1] & LSLW);
+        if (0 == shift) {
+            return high;
+        }
+        final int word2 = (word1 + 1 == words) ? 0 : word1 + 1;
+        return (high << shift) | ((core[word2] & LSLW) >>> (32 - shift));
     }
 
     /**
@@ -248,12 +261,57 @@ public class ArrayMemoryStore implements IMemoryStore {
      */
     public byte[] getByteArray(int address, final int length) {
         byte[] data = new byte[length];
-        for (int i = 0; i < length; i++) {
-            data[i] = getByte(address++);
-        }
+        getBytes(address, data, 0, length);
         return data;
     }
 
+    /**
+     * Read bytes from any address into an existing array. Whole words are moved where possible, with only the
+     * unaligned head and tail handled a byte at a time.
+     *
+     * @param address Address to be read from (Will wrap if too large)
+     * @param dst     Target array
+     * @param off     Offset of the first byte in the target array
+     * @param len     Bytes to be read from memory
+     */
+    @Override
+    public void getBytes(final int address, final byte[] dst, int off, int len) {
+        IMemoryStore.checkRange(dst, off, len);
+        int offset = validateAndWrapAddress(address) << 2 | (address & 0x03);
+        while (len > 0) {
+            final int chunk = Math.min(len, bytes - offset);
+            getBytesInRange(offset, dst, off, chunk);
+            off = off + chunk;
+            len = len - chunk;
+            offset = 0;
+        }
+    }
+
+    /**
+     * Read bytes that do not run past the end of memory
+     *
+     * @param offset Wrapped byte address
+     * @param dst    Target array
+     * @param off    Offset of the first byte in the target array
+     * @param len    Bytes to be read, no more than remain in memory
+     */
+    private void getBytesInRange(int offset, final byte[] dst, int off, final int len) {
+        final int end = off + len;
+        for (; (0 != (offset & 0x03)) && (off < end); offset++, off++) {
+            dst[off] = getByteInWord(offset);
+        }
+        for (int word = offset >> 2; off <= end - 4; word++, off = off + 4, offset = offset + 4) {
+            final int value = core[word];
+            dst[off] = (byte) (value >>> 24);
+            dst[off + 1] = (byte) (value >>> 16);
+            dst[off + 2] = (byte) (value >>> 8);
+            dst[off + 3] = (byte) value;
+        }
+        for (; off < end; offset++, off++) {
+            dst[off] = getByteInWord(offset);
+        }
+    }
+
     /**
      * Write a word of memory to a any address. his operation is always treated as unaligned
      *
@@ -298,16 +356,30 @@ public class ArrayMemoryStore implements IMemoryStore {
     }
 
     /**
-     * Write a long word of memory to a any address. his operation is always treated as unaligned
+     * Write a long word of memory to a any address. A long word aligned write is a single native 64 bit store, a word
+     * aligned write stores two array elements and an unaligned write merges into three.
      *
      * @param address Address to be written to (Will wrap if too large)
      * @param value   Long word to be written to memory
      */
     @Override
     public void setLongWord(final int address, final long value) {
-        setWord(address, (int) (value >>> 32));
-        setWord(address + 4, (int) (value & LSLW));
-
+        final int word0 = validateAndWrapAddress(address);
+        final int shift = (address & 0x03) << 3;
+        if ((0 == shift) && (0 == (word0 & 0x01)) && LONG_ALIGNED && (word0 < words - 1)) {
+            UNSAFE.putLong(core, UnsafeAccess.INT_ARRAY_BASE + ((long) word0 << 2), toNative(value));
+            return;
+        }
+        final int word1 = (word0 + 1 == words) ? 0 : word0 + 1;
+        if (0 == shift) {
+            core[word0] = (int) (value >>> 32);
+            core[word1] = (int) value;
+            return;
+        }
+        final int word2 = (word1 + 1 == words) ? 0 : word1 + 1;
+        core[word0] = (core[word0] & ~(-1 >>> shift)) | (int) (value >>> (32 + shift));
+        core[word1] = (int) (value >>> shift);
+        core[word2] = (core[word2] & (-1 >>> shift)) | ((int) value << (32 - shift));
     }
 
     /**
@@ -429,11 +501,281 @@ public class ArrayMemoryStore implements IMemoryStore {
      */
     @Override
     public void setByteArray(int address, final byte[] byteValues) {
-        for (byte byteValue : byteValues) {
-            setByte(address++, byteValue);
+        setBytes(address, byteValues, 0, byteValues.length);
+    }
+
+    /**
+     * Write part of a byte array to memory at any address. Whole words are moved where possible, with only the
+     * unaligned head and tail handled a byte at a time.
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param src     Source array
+     * @param off     Offset of the first byte in the source array
+     * @param len     Bytes to be written to memory
+     */
+    @Override
+    public void setBytes(final int address, final byte[] src, int off, int len) {
+        IMemoryStore.checkRange(src, off, len);
+        int offset = validateAndWrapAddress(address) << 2 | (address & 0x03);
+        while (len > 0) {
+            final int chunk = Math.min(len, bytes - offset);
+            setBytesInRange(offset, src, off, chunk);
+            off = off + chunk;
+            len = len - chunk;
+            offset = 0;
         }
     }
 
+    /**
+     * Write bytes that do not run past the end of memory
+     *
+     * @param offset Wrapped byte address
+     * @param src    Source array
+     * @param off    Offset of the first byte in the source array
+     * @param len    Bytes to be written, no more than remain in memory
+     */
+    private void setBytesInRange(int offset, final byte[] src, int off, final int len) {
+        final int end = off + len;
+        for (; (0 != (offset & 0x03)) && (off < end); offset++, off++) {
+            setByteInWord(offset, src[off]);
+        }
+        for (int word = offset >> 2; off <= end - 4; word++, off = off + 4, offset = offset + 4) {
+            core[word] = (src[off] << 24) | ((src[off + 1] & 0xFF) << 16) | ((src[off + 2] & 0xFF) << 8) | (src[off + 3] & 0xFF);
+        }
+        for (; off < end; offset++, off++) {
+            setByteInWord(offset, src[off]);
+        }
+    }
+
+    /**
+     * Write one byte of a word, with no address checks
+     *
+     * @param offset Wrapped byte address
+     * @param value  Byte to be written
+     */
+    private void setByteInWord(final int offset, final byte value) {
+        final int shift = 24 - ((offset & 0x03) << 3);
+        core[offset >> 2] = (core[offset >> 2] & ~(0xFF << shift)) | ((value & 0xFF) << shift);
+    }
+
+    /**
+     * Copy bytes from one address to another within the store. When source and destination have the same alignment
+     * and neither wraps, the whole words are moved with a single array copy.
+     *
+     * @param srcAddress Address to be copied from (Will wrap if too large)
+     * @param dstAddress Address to be copied to (Will wrap if too large)
+     * @param length     Bytes to be copied
+     */
+    @Override
+    public void copy(final int srcAddress, final int dstAddress, final int length) {
+        final int src = validateAndWrapAddress(srcAddress) << 2 | (srcAddress & 0x03);
+        final int dst = validateAndWrapAddress(dstAddress) << 2 | (dstAddress & 0x03);
+        if ((length < 0) || (length > bytes)) {
+            throw new IllegalArgumentException("Length out of range");
+        }
+        if (((src & 0x03) != (dst & 0x03)) || (src > bytes - length) || (dst > bytes - length)) {
+            IMemoryStore.super.copy(srcAddress, dstAddress, length);
+            return;
+        }
+        // Bytes before the first and after the last whole word
+        final int head = Math.min(length, (4 - (src & 0x03)) & 0x03);
+        final int words = (length - head) >> 2;
+        final int tail = length - head - (words << 2);
+        if (dst <= src) {
+            for (int i = 0; i < head; i++) {
+                setByteInWord(dst + i, getByteInWord(src + i));
+            }
+            System.arraycopy(core, (src + head) >> 2, core, (dst + head) >> 2, words);
+            for (int i = length - tail; i < length; i++) {
+                setByteInWord(dst + i, getByteInWord(src + i));
+            }
+        } else {
+            for (int i = length - 1; i >= length - tail; i--) {
+                setByteInWord(dst + i, getByteInWord(src + i));
+            }
+            System.arraycopy(core, (src + head) >> 2, core, (dst + head) >> 2, words);
+            for (int i = head - 1; i >= 0; i--) {
+                setByteInWord(dst + i, getByteInWord(src + i));
+            }
+        }
+    }
+
+    /**
+     * Read one byte of a word, with no address checks
+     *
+     * @param offset Wrapped byte address
+     * @return Byte
+     */
+    private byte getByteInWord(final int offset) {
+        return (byte) (core[offset >> 2] >>> (24 - ((offset & 0x03) << 3)));
+    }
+
+    /**
+     * Read a bit field straight from the backing array, with no address checks. The field is taken from the one, two
+     * or three words holding it.
+     *
+     * @param bitAddress Address of the first (most significant) bit of the field
+     * @param bits       Width of the field in bits
+     * @return Field value, zero extended
+     */
+    @Override
+    public long getBitsUnchecked(final long bitAddress, final int bits) {
+        final int word = (int) (bitAddress >>> 5);
+        final int start = (int) (bitAddress & 0x1F);
+        final int end = start + bits;
+        if (end <= 32) {
+            return ((core[word] & LSLW) << (32 + start)) >>> (64 - bits);
+        }
+        long window = ((long) core[word] << 32) | (core[word + 1] & LSLW);
+        if (end <= 64) {
+            return (window << start) >>> (64 - bits);
+        }
+        // Field runs into a third word
+        return ((window << start) | ((core[word + 2] & LSLW) >>> (32 - start))) >>> (64 - bits);
+    }
+
+    /**
+     * Write a bit field straight into the backing array, with no address checks. Only the one, two or three words
+     * holding the field are written.
+     *
+     * @param bitAddress Address of the first (most significant) bit of the field
+     * @param bits       Width of the field in bits
+     * @param value      Value, held in the lowest bits. Higher bits are ignored
+     */
+    @Override
+    public void setBitsUnchecked(final long bitAddress, final int bits, final long value) {
+        final int word = (int) (bitAddress >>> 5);
+        final int start = (int) (bitAddress & 0x1F);
+        final int end = start + bits;
+        if (end <= 32) {
+            final int mask = (int) ((-1L >>> (64 - bits)) << (32 - end));
+            core[word] = (core[word] & ~mask) | ((int) (value << (32 - end)) & mask);
+            return;
+        }
+        long window = ((long) core[word] << 32) | (core[word + 1] & LSLW);
+        if (end <= 64) {
+            final long mask = (-1L >>> (64 - bits)) << (64 - end);
+            window = (window & ~mask) | ((value << (64 - end)) & mask);
+        } else {
+            // Field runs into a third word, which takes its lowest bits
+            final int low = end - 64;
+            final long mask = -1L >>> start;
+            window = (window & ~mask) | ((value >>> low) & mask);
+            final int lowMask = -1 << (32 - low);
+            core[word + 2] = (core[word + 2] & ~lowMask) | ((int) value << (32 - low));
+        }
+        core[word] = (int) (window >>> 32);
+        core[word + 1] = (int) window;
+    }
+
+    // ******************************************************************************
+    // Atomic and ordered access, via Unsafe on the backing array. Long words are only
+    // atomic if the array elements are long aligned, otherwise the store is locked.
+    // ******************************************************************************
+
+    /**
+     * Offset of an aligned value in the backing array, for use with Unsafe
+     *
+     * @param address   Byte address
+     * @param alignment Size of the value, 4 or 8 bytes
+     * @return Unsafe offset
+     */
+    private long offset(final int address, final int alignment) {
+        return UnsafeAccess.INT_ARRAY_BASE + validateAlignedAddress(address, alignment);
+    }
+
+    /**
+     * Convert between a long word and its layout in memory. The first (most significant) word of a long word is held
+     * in the lower array element, which a native little endian long would see as the least significant.
+     *
+     * @param value Long word
+     * @return Long word with halves swapped on a little endian machine
+     */
+    private static long toNative(final long value) {
+        return UnsafeAccess.NATIVE_BIG_ENDIAN ? value : Long.rotateLeft(value, 32);
+    }
+
+    @Override
+    public int getWordVolatile(final int address) {
+        return UNSAFE.getIntVolatile(core, offset(address, 4));
+    }
+
+    @Override
+    public void setWordVolatile(final int address, final int value) {
+        UNSAFE.putIntVolatile(core, offset(address, 4), value);
+    }
+
+    @Override
+    public int getWordAcquire(final int address) {
+        return UNSAFE.getIntVolatile(core, offset(address, 4));
+    }
+
+    @Override
+    public void setWordRelease(final int address, final int value) {
+        UNSAFE.putOrderedInt(core, offset(address, 4), value);
+    }
+
+    @Override
+    public boolean compareAndSetWord(final int address, final int expected, final int value) {
+        return UNSAFE.compareAndSwapInt(core, offset(address, 4), expected, value);
+    }
+
+    @Override
+    public int getAndAddWord(final int address, final int delta) {
+        return UNSAFE.getAndAddInt(core, offset(address, 4), delta);
+    }
+
+    @Override
+    public long getLongWordVolatile(final int address) {
+        if (!LONG_ALIGNED)
+            return IMemoryStore.super.getLongWordVolatile(address);
+        return toNative(UNSAFE.getLongVolatile(core, offset(address, 8)));
+    }
+
+    @Override
+    public void setLongWordVolatile(final int address, final long value) {
+        if (!LONG_ALIGNED) {
+            IMemoryStore.super.setLongWordVolatile(address, value);
+            return;
+        }
+        UNSAFE.putLongVolatile(core, offset(address, 8), toNative(value));
+    }
+
+    @Override
+    public long getLongWordAcquire(final int address) {
+        if (!LONG_ALIGNED)
+            return IMemoryStore.super.getLongWordAcquire(address);
+        return toNative(UNSAFE.getLongVolatile(core, offset(address, 8)));
+    }
+
+    @Override
+    public void setLongWordRelease(final int address, final long value) {
+        if (!LONG_ALIGNED) {
+            IMemoryStore.super.setLongWordRelease(address, value);
+            return;
+        }
+        UNSAFE.putOrderedLong(core, offset(address, 8), toNative(value));
+    }
+
+    @Override
+    public boolean compareAndSetLongWord(final int address, final long expected, final long value) {
+        if (!LONG_ALIGNED)
+            return IMemoryStore.super.compareAndSetLongWord(address, expected, value);
+        return UNSAFE.compareAndSwapLong(core, offset(address, 8), toNative(expected), toNative(value));
+    }
+
+    @Override
+    public long getAndAddLongWord(final int address, final long delta) {
+        if (!LONG_ALIGNED)
+            return IMemoryStore.super.getAndAddLongWord(address, delta);
+        final long offset = offset(address, 8);
+        long current;
+        do {
+            current = toNative(UNSAFE.getLongVolatile(core, offset));
+        } while (!UNSAFE.compareAndSwapLong(core, offset, toNative(current), toNative(current + delta)));
+        return current;
+    }
+
     // ******************************************************************************
     // ******************************************************************************
     // ******************************************************************************
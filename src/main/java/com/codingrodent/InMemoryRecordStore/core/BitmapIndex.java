@@ -0,0 +1,151 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.*;
+
+import java.util.*;
+
+/**
+ * A bitmap index on a boolean or integer field, for filtering on fields with few distinct values such as flags and
+ * small enums. Created by {@link IndexedRecordManager#addBitmapIndex(String)} and kept in step with every write to the
+ * manager.
+ * <p>
+ * There is one compressed {@link RecordBitmap} of record locations for each distinct value held by a record in use. A
+ * bitmap is dropped when its last record is removed or changes value. Filters across
+ * several fields are answered by combining bitmaps with and, or, andNot and not, without reading any records.
+ * <p>
+ * The bitmaps returned are new, so don't change with later writes. Combining them creates new bitmaps.
+ */
+public class BitmapIndex<T> extends SecondaryIndex {
+
+    private final RecordView<T> view;
+    private final int field;
+    private final String fieldName;
+    private final boolean bit;
+    private final Map<Long, RecordBitmap> bitmaps = new HashMap<>();
+
+    /**
+     * Create an empty index
+     *
+     * @param view             View onto the records of the manager
+     * @param recordDescriptor Field type information
+     * @param fieldName        Name of the boolean or integer field to index
+     */
+    BitmapIndex(final RecordView<T> view, final RecordDescriptor<T> recordDescriptor, final String fieldName) {
+        this.field = recordDescriptor.getFieldId(fieldName);
+        switch (recordDescriptor.getFieldType(field)) {
+            case Bit:
+                this.bit = true;
+                break;
+            case Byte8:
+            case Short16:
+            case Char16:
+            case Word32:
+            case Word64:
+                this.bit = false;
+                break;
+            default:
+                throw new IllegalArgumentException("Bitmap index field (" + fieldName + ") must be a boolean or integer field");
+        }
+        this.fieldName = fieldName;
+        this.view = view;
+    }
+
+    /**
+     * Get the name of the indexed field
+     *
+     * @return Field name
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Get the distinct values held by records in use
+     *
+     * @return Values in ascending order
+     */
+    public SortedSet<Long> getValues() {
+        return new TreeSet<>(bitmaps.keySet());
+    }
+
+    /**
+     * Get the locations of records with a value
+     *
+     * @param value Field value
+     * @return New bitmap, empty if no record has the value
+     */
+    public RecordBitmap equalTo(final long value) {
+        RecordBitmap bitmap = bitmaps.get(value);
+        return null == bitmap ? new RecordBitmap() : bitmap.copy();
+    }
+
+    /**
+     * Get the locations of records with a value
+     *
+     * @param value Field value
+     * @return New bitmap, empty if no record has the value
+     */
+    public RecordBitmap equalTo(final boolean value) {
+        return equalTo(value ? 1 : 0);
+    }
+
+    /**
+     * Get the locations of records with any of a set of values
+     *
+     * @param values Field values
+     * @return New bitmap
+     */
+    public RecordBitmap in(final long... values) {
+        RecordBitmap result = new RecordBitmap();
+        for (long value : values) {
+            RecordBitmap bitmap = bitmaps.get(value);
+            if (null != bitmap)
+                result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    @Override
+    void add(final int location) {
+        bitmaps.computeIfAbsent(value(location), value -> new RecordBitmap()).add(location);
+    }
+
+    @Override
+    void remove(final int location) {
+        final long value = value(location);
+        RecordBitmap bitmap = bitmaps.get(value);
+        if (null != bitmap) {
+            bitmap.remove(location);
+            if (bitmap.isEmpty())
+                bitmaps.remove(value);
+        }
+    }
+
+    private long value(final int location) {
+        view.moveTo(location);
+        return bit ? (view.getBoolean(field) ? 1 : 0) : view.getLong(field);
+    }
+}
@@ -0,0 +1,609 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.utility.*;
+
+import java.nio.*;
+
+import static com.codingrodent.InMemoryRecordStore.utility.UnsafeAccess.*;
+
+/**
+ * This class simulates a block of RAM via the use of a byte buffer. Facilities are supplied to read and write the
+ * 'RAM' via methods using all supported types. Subclasses decide where the buffer comes from.
+ * <p>
+ * Data is held big endian so the layout in memory is identical to that of the ArrayMemoryStore.
+ * <p>
+ * All reads and writes are performed as single native width absolute accesses. Only accesses that run off the
+ * end of the store, and so wrap back to address zero, are broken down into individual bytes.
+ */
+public abstract class ByteBufferMemoryStore implements IMemoryStore {
+
+    protected final static int STORAGE_LIMIT = 0x7FFF_FFFC;
+    protected final static int MAX_WORDS = STORAGE_LIMIT / 4;
+
+    private ByteBuffer core = null;
+    private int bytes = 0;
+    private int words = 0;
+    // Unsafe view of the buffer for atomic access. Base is null for a direct buffer
+    private Object unsafeBase = null;
+    private long unsafeOffset = 0;
+    // Long words can only be accessed atomically if the buffer memory is long aligned, otherwise the store is locked
+    private boolean longAligned = false;
+
+    /**
+     * Attach the storage buffer. Called by subclasses once the buffer has been allocated
+     *
+     * @param core  Buffer of exactly words * 4 bytes, positioned at zero
+     * @param words Length in 32 bit words
+     */
+    protected void setCore(final ByteBuffer core, final int words) {
+        this.core = core.order(ByteOrder.BIG_ENDIAN);
+        this.bytes = words * 4;
+        this.words = words;
+        if (core.isDirect()) {
+            this.unsafeBase = null;
+            this.unsafeOffset = UnsafeAccess.address(core);
+        } else {
+            this.unsafeBase = core.array();
+            this.unsafeOffset = BYTE_ARRAY_BASE + core.arrayOffset();
+        }
+        this.longAligned = 0 == (unsafeOffset & 0x07);
+    }
+
+    /**
+     * Validate a requested storage length
+     *
+     * @param words Length in 32 bit words
+     * @throws IllegalArgumentException Thrown if the requested storage length if out of range
+     */
+    protected void validateWords(final int words) {
+        if ((words < 1) || (words > MAX_WORDS)) {
+            throw new IllegalArgumentException("The number of words requested was out of range");
+        }
+    }
+
+    /**
+     * Clear down all memory cells to zero
+     */
+    @Override
+    public void reset() {
+        int address = 0;
+        for (; address <= bytes - 8; address = address + 8) {
+            core.putLong(address, 0L);
+        }
+        for (; address < bytes; address = address + 4) {
+            core.putInt(address, 0);
+        }
+    }
+
+    /**
+     * Get the number of words of memory allocated
+     *
+     * @return Memory length allocated in 32 bit words
+     */
+    @Override
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * Get the number of bytes of memory allocated
+     *
+     * @return Memory length allocated in 8 bit bytes
+     */
+    @Override
+    public int getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Return a word of memory from any address.
+     *
+     * @param address Byte address to be fetched from (Will wrap if to large)
+     * @return The word of memory requested
+     */
+    @Override
+    public int getWord(final int address) {
+        final int offset = wrap(address);
+        if (offset <= bytes - 4) {
+            return core.getInt(offset);
+        }
+        return (int) getWrapped(offset, 4);
+    }
+
+    /**
+     * Return a long word of memory from any address.
+     *
+     * @param address Address to be fetched from (Will wrap if too large)
+     * @return The long word of memory requested
+     */
+    @Override
+    public long getLongWord(final int address) {
+        final int offset = wrap(address);
+        if (offset <= bytes - 8) {
+            return core.getLong(offset);
+        }
+        return getWrapped(offset, 8);
+    }
+
+    /**
+     * Return a 24 bit word of memory from any address.
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @return The word of memory requested
+     */
+    @Override
+    public int getWord24(final int address) {
+        final int offset = wrap(address);
+        if (offset <= bytes - 3) {
+            return ((core.getShort(offset) & 0x0000FFFF) << 8) | (core.get(offset + 2) & 0x000000FF);
+        }
+        return (int) getWrapped(offset, 3);
+    }
+
+    /**
+     * Return a short word of memory from any address.
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @return The short word of memory requested
+     */
+    @Override
+    public short getShortWord(final int address) {
+        final int offset = wrap(address);
+        if (offset <= bytes - 2) {
+            return core.getShort(offset);
+        }
+        return (short) getWrapped(offset, 2);
+    }
+
+    /**
+     * Return a byte of memory from any address.
+     *
+     * @param address The byte address to be fetched from (Will wrap if too large)
+     * @return The byte of memory requested
+     */
+    @Override
+    public byte getByte(final int address) {
+        return core.get(wrap(address));
+    }
+
+    /**
+     * Read a  byte array from any address
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param length  Bytes to be read from memory
+     * @return Memory array at address
+     */
+    @Override
+    public byte[] getByteArray(final int address, final int length) {
+        byte[] data = new byte[length];
+        getBytes(address, data, 0, length);
+        return data;
+    }
+
+    /**
+     * Read bytes from any address into an existing array. Each run up to the end of memory is copied in one bulk
+     * operation.
+     *
+     * @param address Address to be read from (Will wrap if too large)
+     * @param dst     Target array
+     * @param off     Offset of the first byte in the target array
+     * @param len     Bytes to be read from memory
+     */
+    @Override
+    public void getBytes(final int address, final byte[] dst, int off, int len) {
+        IMemoryStore.checkRange(dst, off, len);
+        int offset = wrap(address);
+        while (len > 0) {
+            final int chunk = Math.min(len, bytes - offset);
+            UNSAFE.copyMemory(unsafeBase, unsafeOffset + offset, dst, BYTE_ARRAY_BASE + off, chunk);
+            off = off + chunk;
+            len = len - chunk;
+            offset = 0;
+        }
+    }
+
+    /**
+     * Write a word of memory to a any address.
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param value   Word to be written to memory
+     */
+    @Override
+    public void setWord(final int address, final int value) {
+        final int offset = wrap(address);
+        if (offset <= bytes - 4) {
+            core.putInt(offset, value);
+        } else {
+            setWrapped(offset, 4, value);
+        }
+    }
+
+    /**
+     * Write a long word of memory to a any address.
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param value   Long word to be written to memory
+     */
+    @Override
+    public void setLongWord(final int address, final long value) {
+        final int offset = wrap(address);
+        if (offset <= bytes - 8) {
+            core.putLong(offset, value);
+        } else {
+            setWrapped(offset, 8, value);
+        }
+    }
+
+    /**
+     * Write a 24 bit word of memory to a any address. Due to Java not having a 24 bit type, the 32 bit type is used
+     * instead with the bits 24..31 masked out.
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param value   Word to be written to memory
+     */
+    @Override
+    public void setWord24(final int address, final int value) {
+        final int offset = wrap(address);
+        if (offset <= bytes - 3) {
+            core.putShort(offset, (short) (value >>> 8));
+            core.put(offset + 2, (byte) value);
+        } else {
+            setWrapped(offset, 3, value);
+        }
+    }
+
+    /**
+     * Write a short word of memory to a any address.
+     *
+     * @param address    Address to be written to (Will wrap if too large)
+     * @param shortValue Short word to be written to memory
+     */
+    @Override
+    public void setShort(final int address, final short shortValue) {
+        final int offset = wrap(address);
+        if (offset <= bytes - 2) {
+            core.putShort(offset, shortValue);
+        } else {
+            setWrapped(offset, 2, shortValue);
+        }
+    }
+
+    /**
+     * Write a byte of memory to a any address.
+     *
+     * @param address   Address to be written to (Will wrap if too large)
+     * @param byteValue Byte to be written to memory
+     */
+    @Override
+    public void setByte(final int address, final byte byteValue) {
+        core.put(wrap(address), byteValue);
+    }
+
+    /**
+     * Write a byte array to memory to any address
+     *
+     * @param address    Address to be written to (Will wrap if too large)
+     * @param byteValues Bytes to be written to memory
+     */
+    @Override
+    public void setByteArray(final int address, final byte[] byteValues) {
+        setBytes(address, byteValues, 0, byteValues.length);
+    }
+
+    /**
+     * Write part of a byte array to memory at any address. Each run up to the end of memory is copied in one bulk
+     * operation.
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param src     Source array
+     * @param off     Offset of the first byte in the source array
+     * @param len     Bytes to be written to memory
+     */
+    @Override
+    public void setBytes(final int address, final byte[] src, int off, int len) {
+        IMemoryStore.checkRange(src, off, len);
+        int offset = wrap(address);
+        while (len > 0) {
+            final int chunk = Math.min(len, bytes - offset);
+            UNSAFE.copyMemory(src, BYTE_ARRAY_BASE + off, unsafeBase, unsafeOffset + offset, chunk);
+            off = off + chunk;
+            len = len - chunk;
+            offset = 0;
+        }
+    }
+
+    /**
+     * Copy bytes from one address to another within the store. If neither range wraps the copy is a single bulk
+     * operation, which allows for overlap.
+     *
+     * @param srcAddress Address to be copied from (Will wrap if too large)
+     * @param dstAddress Address to be copied to (Will wrap if too large)
+     * @param length     Bytes to be copied
+     */
+    @Override
+    public void copy(final int srcAddress, final int dstAddress, final int length) {
+        final int src = wrap(srcAddress);
+        final int dst = wrap(dstAddress);
+        if ((length < 0) || (length > bytes)) {
+            throw new IllegalArgumentException("Length out of range");
+        }
+        if ((src > bytes - length) || (dst > bytes - length)) {
+            IMemoryStore.super.copy(srcAddress, dstAddress, length);
+            return;
+        }
+        UNSAFE.copyMemory(unsafeBase, unsafeOffset + src, unsafeBase, unsafeOffset + dst, length);
+    }
+
+    /**
+     * Read a bit field with no address wrapping. The same windows as {@link #getBits(long, int)} are read, straight
+     * from the buffer. A field whose window would pass the end of memory is read the checked way.
+     *
+     * @param bitAddress Address of the first (most significant) bit of the field
+     * @param bits       Width of the field in bits
+     * @return Field value, zero extended
+     */
+    @Override
+    public long getBitsUnchecked(final long bitAddress, final int bits) {
+        final int address = (int) (bitAddress >>> 3);
+        final int end = (int) (bitAddress & 0x07) + bits;
+        if (address > bytes - 9) {
+            return getBits(bitAddress, bits);
+        }
+        final long value = (core.getLong(address) << (end - bits)) >>> (64 - bits);
+        if (end > 64) {
+            // Field runs into a ninth byte
+            return value | ((core.get(address + 8) & 0x00FF) >>> (72 - end));
+        }
+        return value;
+    }
+
+    /**
+     * Write a bit field with no address wrapping. The same windows as {@link #setBits(long, int, long)} are written,
+     * straight into the buffer, so no more memory is touched. A field whose window would pass the end of memory is
+     * written the checked way.
+     *
+     * @param bitAddress Address of the first (most significant) bit of the field
+     * @param bits       Width of the field in bits
+     * @param value      Value, held in the lowest bits. Higher bits are ignored
+     */
+    @Override
+    public void setBitsUnchecked(final long bitAddress, final int bits, final long value) {
+        final int address = (int) (bitAddress >>> 3);
+        final int end = (int) (bitAddress & 0x07) + bits;
+        if (address > bytes - 9) {
+            setBits(bitAddress, bits, value);
+            return;
+        }
+        if (end > 64) {
+            // Field runs into a ninth byte, write the low bits there first
+            final int low = end - 64;
+            final int mask = (0x00FF << (8 - low)) & 0x00FF;
+            core.put(address + 8, (byte) ((core.get(address + 8) & ~mask) | (((int) value << (8 - low)) & mask)));
+            final long high = -1L >>> (end - bits);
+            core.putLong(address, (core.getLong(address) & ~high) | ((value >>> low) & high));
+            return;
+        }
+        final int width = end <= 8 ? 8 : end <= 16 ? 16 : end <= 24 ? 24 : end <= 32 ? 32 : 64;
+        final long mask = (-1L >>> (64 - bits)) << (width - end);
+        final long window = (value << (width - end)) & mask;
+        switch (width) {
+            case 8:
+                core.put(address, (byte) (window | (core.get(address) & ~mask)));
+                break;
+            case 16:
+                core.putShort(address, (short) (window | (core.getShort(address) & ~mask)));
+                break;
+            case 24:
+                core.putShort(address, (short) ((window >>> 8) | (core.getShort(address) & ~(mask >>> 8))));
+                core.put(address + 2, (byte) (window | (core.get(address + 2) & ~mask)));
+                break;
+            case 32:
+                core.putInt(address, (int) (window | (core.getInt(address) & ~mask)));
+                break;
+            default:
+                core.putLong(address, window | (core.getLong(address) & ~mask));
+        }
+    }
+
+    // ******************************************************************************
+    // Atomic and ordered access, via Unsafe on the buffer memory
+    // ******************************************************************************
+
+    /**
+     * Offset of an aligned value in the buffer, for use with Unsafe
+     *
+     * @param address   Byte address
+     * @param alignment Size of the value, 4 or 8 bytes
+     * @return Unsafe offset
+     */
+    private long offset(final int address, final int alignment) {
+        return unsafeOffset + validateAlignedAddress(address, alignment);
+    }
+
+    @Override
+    public int getWordVolatile(final int address) {
+        return toNative(UNSAFE.getIntVolatile(unsafeBase, offset(address, 4)));
+    }
+
+    @Override
+    public void setWordVolatile(final int address, final int value) {
+        UNSAFE.putIntVolatile(unsafeBase, offset(address, 4), toNative(value));
+    }
+
+    @Override
+    public int getWordAcquire(final int address) {
+        return toNative(UNSAFE.getIntVolatile(unsafeBase, offset(address, 4)));
+    }
+
+    @Override
+    public void setWordRelease(final int address, final int value) {
+        UNSAFE.putOrderedInt(unsafeBase, offset(address, 4), toNative(value));
+    }
+
+    @Override
+    public boolean compareAndSetWord(final int address, final int expected, final int value) {
+        return UNSAFE.compareAndSwapInt(unsafeBase, offset(address, 4), toNative(expected), toNative(value));
+    }
+
+    @Override
+    public int getAndAddWord(final int address, final int delta) {
+        // The add has to happen in big endian order, so loop on CAS rather than use a native fetch and add
+        final long offset = offset(address, 4);
+        int current;
+        do {
+            current = UNSAFE.getIntVolatile(unsafeBase, offset);
+        } while (!UNSAFE.compareAndSwapInt(unsafeBase, offset, current, toNative(toNative(current) + delta)));
+        return toNative(current);
+    }
+
+    @Override
+    public long getLongWordVolatile(final int address) {
+        if (!longAligned)
+            return IMemoryStore.super.getLongWordVolatile(address);
+        return toNative(UNSAFE.getLongVolatile(unsafeBase, offset(address, 8)));
+    }
+
+    @Override
+    public void setLongWordVolatile(final int address, final long value) {
+        if (!longAligned) {
+            IMemoryStore.super.setLongWordVolatile(address, value);
+            return;
+        }
+        UNSAFE.putLongVolatile(unsafeBase, offset(address, 8), toNative(value));
+    }
+
+    @Override
+    public long getLongWordAcquire(final int address) {
+        if (!longAligned)
+            return IMemoryStore.super.getLongWordAcquire(address);
+        return toNative(UNSAFE.getLongVolatile(unsafeBase, offset(address, 8)));
+    }
+
+    @Override
+    public void setLongWordRelease(final int address, final long value) {
+        if (!longAligned) {
+            IMemoryStore.super.setLongWordRelease(address, value);
+            return;
+        }
+        UNSAFE.putOrderedLong(unsafeBase, offset(address, 8), toNative(value));
+    }
+
+    @Override
+    public boolean compareAndSetLongWord(final int address, final long expected, final long value) {
+        if (!longAligned)
+            return IMemoryStore.super.compareAndSetLongWord(address, expected, value);
+        return UNSAFE.compareAndSwapLong(unsafeBase, offset(address, 8), toNative(expected), toNative(value));
+    }
+
+    @Override
+    public long getAndAddLongWord(final int address, final long delta) {
+        if (!longAligned)
+            return IMemoryStore.super.getAndAddLongWord(address, delta);
+        final long offset = offset(address, 8);
+        long current;
+        do {
+            current = UNSAFE.getLongVolatile(unsafeBase, offset);
+        } while (!UNSAFE.compareAndSwapLong(unsafeBase, offset, current, toNative(toNative(current) + delta)));
+        return toNative(current);
+    }
+
+    // ******************************************************************************
+    // ******************************************************************************
+    // ******************************************************************************
+
+    /**
+     * Validate an address, and if OK wrap on the length of the memory allocated
+     *
+     * @param address Address to be checked
+     * @return Wrapped byte offset into the buffer
+     * @throws IllegalArgumentException Thrown if the address is illegal, i.e. Not +ve
+     */
+    private int wrap(final int address) {
+        if (address < 0) {
+            throw new IllegalArgumentException("Address out of range");
+        }
+        return address % bytes;
+    }
+
+    /**
+     * Move on one byte, wrapping at the end of memory
+     *
+     * @param offset Current byte offset
+     * @return Next byte offset
+     */
+    private int next(final int offset) {
+        return (offset + 1) == bytes ? 0 : offset + 1;
+    }
+
+    /**
+     * Read a big endian value that wraps around the end of memory a byte at a time
+     *
+     * @param offset Wrapped byte offset to start reading from
+     * @param length Number of bytes to read (1..8)
+     * @return Value right aligned in a long
+     */
+    private long getWrapped(int offset, final int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (core.get(offset) & 0x00FF);
+            offset = next(offset);
+        }
+        return value;
+    }
+
+    /**
+     * Write a big endian value that wraps around the end of memory a byte at a time
+     *
+     * @param offset Wrapped byte offset to start writing to
+     * @param length Number of bytes to write (1..8)
+     * @param value  Value right aligned in a long
+     */
+    private void setWrapped(int offset, final int length, final long value) {
+        for (int i = length - 1; i >= 0; i--) {
+            core.put(offset, (byte) (value >>> (i * 8)));
+            offset = next(offset);
+        }
+    }
+
+    /**
+     * Dump memory for debug purposes
+     *
+     * @param length Number of words of memory to dump from the core store
+     */
+    public void dump(int length) {
+        for (int i = 0; i < length; i++) {
+            if (0 == (i % 4)) {
+                System.out.println();
+                System.out.print(Utilities.getShort(i * 4) + "  ");
+            }
+            for (int j = 0; j < 4; j++) {
+                System.out.print(Utilities.getByte(core.get(i * 4 + j)) + " ");
+            }
+        }
+        System.out.println("------------------------------------");
+    }
+
+}
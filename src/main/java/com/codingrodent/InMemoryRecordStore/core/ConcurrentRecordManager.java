@@ -0,0 +1,553 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.*;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.*;
+
+import static com.codingrodent.InMemoryRecordStore.utility.UnsafeAccess.UNSAFE;
+
+/**
+ * A record manager that can be shared between threads. Unaligned writes to a memory store read, modify and write whole
+ * words, so two threads writing adjacent records can corrupt each other's bytes where the records share a word.
+ * <p>
+ * Memory is split into granules of at least one record, each guarded by one of a set of striped read / write locks. A
+ * record operation locks the granules covering every word it can touch, so writers to records in different granules
+ * run in parallel, and readers never see a partly written record. Locks are always taken in stripe order so
+ * operations spanning several stripes cannot deadlock.
+ * <p>
+ * In {@link ReadMode#OPTIMISTIC} mode each stripe also has a sequence counter (a seqlock). Writers make the counter
+ * odd while they write and even again after. Readers take no lock. They copy the record bytes, then check the counters
+ * are even and unchanged, and retry if not. Readers never write shared memory or block, which suits read mostly
+ * workloads.
+ * <p>
+ * Views from {@link #newView()} are not covered by the locks.
+ */
+public class ConcurrentRecordManager<T> extends RecordManager<T> {
+
+    public final static int DEFAULT_STRIPES = 64;
+    private final static int MAX_STRIPES = 64;
+    // A field write can use a long word window that runs up to three bytes past the end of its record
+    private final static int WRITE_OVERHANG = 3;
+    // Sequence counters are spaced a cache line apart so writers to different stripes don't contend
+    private final static int SEQUENCE_SPACING = 8;
+    // Optimistic bulk reads give up and lock after this many attempts
+    private final static int OPTIMISTIC_ATTEMPTS = 8;
+    // Locking bulk reads decode this many records under the read locks before passing them on
+    private final static int LOCKED_BATCH = 256;
+
+    /**
+     * How readers are kept from seeing partly written records
+     */
+    public enum ReadMode {
+        /**
+         * Readers take a read lock on the stripes of the record
+         */
+        LOCKING,
+        /**
+         * Readers take no lock. They copy the record and retry if a writer was active on its stripes.
+         */
+        OPTIMISTIC
+    }
+
+    private final ReentrantReadWriteLock[] locks;
+    private final int recordBytes;
+    private final int storeBytes;
+    private final int granuleShift;
+    private final ReadMode readMode;
+    private final AtomicLongArray sequences;
+    private final RecordDescriptor<T> recordDescriptor;
+    private final Reader<T> reader;
+    private final ThreadLocal<byte[]> scratch;
+
+    /**
+     * Create a new thread safe record manager with the default number of lock stripes, where readers take read locks
+     *
+     * @param memoryStore      Data storage structure
+     * @param records          The records of the memory core in records
+     * @param recordDescriptor Field type information
+     */
+    public ConcurrentRecordManager(final IMemoryStore memoryStore, final int records, final RecordDescriptor<T> recordDescriptor) {
+        this(memoryStore, records, recordDescriptor, DEFAULT_STRIPES, ReadMode.LOCKING);
+    }
+
+    /**
+     * Create a new thread safe record manager where readers take read locks
+     *
+     * @param memoryStore      Data storage structure
+     * @param records          The records of the memory core in records
+     * @param recordDescriptor Field type information
+     * @param stripes          Number of locks to stripe over, 1 to 64
+     */
+    public ConcurrentRecordManager(final IMemoryStore memoryStore, final int records, final RecordDescriptor<T> recordDescriptor, final int stripes) {
+        this(memoryStore, records, recordDescriptor, stripes, ReadMode.LOCKING);
+    }
+
+    /**
+     * Create a new thread safe record manager
+     *
+     * @param memoryStore      Data storage structure
+     * @param records          The records of the memory core in records
+     * @param recordDescriptor Field type information
+     * @param stripes          Number of locks to stripe over, 1 to 64
+     * @param readMode         How readers are kept from seeing partly written records
+     */
+    public ConcurrentRecordManager(final IMemoryStore memoryStore, final int records, final RecordDescriptor<T> recordDescriptor, final int stripes,
+                                   final ReadMode readMode) {
+        super(memoryStore, records, recordDescriptor);
+        if (recordDescriptor.isColumnar()) {
+            // Locks are striped over the bytes of each record, which columns scatter across the store
+            throw new IllegalArgumentException("Records with a columnar layout can't be managed concurrently");
+        }
+        if ((stripes < 1) || (stripes > MAX_STRIPES)) {
+            throw new IllegalArgumentException("The number of lock stripes must be between 1 and " + MAX_STRIPES);
+        }
+        this.locks = new ReentrantReadWriteLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        this.recordBytes = recordDescriptor.getByteLength();
+        this.storeBytes = memoryStore.getBytes();
+        // Granules are a power of two bytes, at least a word and at least a record, so a record touches at most three
+        this.granuleShift = 32 - Integer.numberOfLeadingZeros(Math.max(4, recordBytes) - 1);
+        this.readMode = readMode;
+        this.sequences = new AtomicLongArray(stripes * SEQUENCE_SPACING);
+        this.recordDescriptor = recordDescriptor;
+        this.reader = new Reader<>(memoryStore, recordDescriptor);
+        this.scratch = ThreadLocal.withInitial(() -> new byte[recordBytes]);
+    }
+
+    /**
+     * Read a record at the specified location
+     *
+     * @param location Location
+     * @return Record
+     */
+    @Override
+    public T getRecord(final int location) throws IllegalArgumentException {
+        final long stripes = stripes(location);
+        if (ReadMode.OPTIMISTIC == readMode) {
+            return reader.unpack(copyRecord(location, stripes));
+        }
+        lockRead(stripes);
+        try {
+            return super.getRecord(location);
+        } finally {
+            unlockRead(stripes);
+        }
+    }
+
+    /**
+     * Read a record at the specified location into an existing record object, to avoid allocating a new one
+     *
+     * @param location Location
+     * @param reuse    Record object to populate
+     * @return Record, normally reuse
+     */
+    @Override
+    public T getRecord(final int location, final T reuse) throws IllegalArgumentException {
+        final long stripes = stripes(location);
+        if (ReadMode.OPTIMISTIC == readMode) {
+            return reader.unpack(copyRecord(location, stripes), reuse);
+        }
+        lockRead(stripes);
+        try {
+            return super.getRecord(location, reuse);
+        } finally {
+            unlockRead(stripes);
+        }
+    }
+
+    /**
+     * Write a record at the specified location
+     *
+     * @param location Location
+     * @param record   Record
+     */
+    @Override
+    public void putRecord(final int location, final T record) throws IllegalArgumentException {
+        write(stripes(location), () -> super.putRecord(location, record));
+    }
+
+    /**
+     * Write records to consecutive locations, holding the locks for the whole range
+     *
+     * @param start   Location of the first record
+     * @param records Records
+     */
+    @Override
+    public void putRecords(final int start, final List<? extends T> records) throws IllegalArgumentException {
+        write(stripes(start, records.size()), () -> super.putRecords(start, records));
+    }
+
+    /**
+     * Read records from consecutive locations, passing each to a consumer in order. In locking mode records are decoded
+     * a batch at a time under the read locks, which are released before the batch is passed to the consumer, so the
+     * consumer may write to this manager.
+     *
+     * @param start    Location of the first record
+     * @param count    Number of records
+     * @param consumer Receives each record
+     */
+    @Override
+    public void getRecords(final int start, final int count, final Consumer<? super T> consumer) throws IllegalArgumentException {
+        checkRange(start, count);
+        if (ReadMode.OPTIMISTIC == readMode) {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(getRecord(start + i));
+            }
+            return;
+        }
+        final List<T> batch = new ArrayList<>(Math.min(count, LOCKED_BATCH));
+        for (int done = 0; done < count; ) {
+            final int first = start + done;
+            final int n = Math.min(LOCKED_BATCH, count - done);
+            final long stripes = stripes(first, n);
+            lockRead(stripes);
+            try {
+                super.getRecords(first, n, batch::add);
+            } finally {
+                unlockRead(stripes);
+            }
+            batch.forEach(consumer);
+            batch.clear();
+            done = done + n;
+        }
+    }
+
+    /**
+     * Test every record against a filter. In optimistic mode each record is copied out with no lock, as by
+     * {@link #getRecord(int)}, then tested through a view onto a private copy and decoded from the copy if it matches.
+     *
+     * @param filter Filter on the fields of a record
+     * @param decode True to decode matching records, otherwise null is passed for each record
+     * @param action Receives each matching record and its location
+     */
+    @Override
+    void forEachMatch(final RecordFilter filter, final boolean decode, final ObjIntConsumer<T> action) {
+        if (ReadMode.OPTIMISTIC != readMode) {
+            super.forEachMatch(filter, decode, action);
+            return;
+        }
+        final Predicate<RecordView<T>> predicate = filter.compile(recordDescriptor);
+        // Room for a long word read from the last byte of the record, so field reads never wrap
+        final IMemoryStore copy = new ArrayMemoryStore((recordBytes + 3) / 4 + 2);
+        final RecordView<T> view = new RecordView<>(copy, recordDescriptor);
+        for (int location = 0; location < getRecords(); location++) {
+            final byte[] buffer = copyRecord(location, stripes(location));
+            copy.setBytes(0, buffer, 0, recordBytes);
+            if (predicate.test(view.moveTo(0)))
+                action.accept(decode ? reader.unpack(buffer) : null, location);
+        }
+    }
+
+    /**
+     * Test one record against a compiled filter in locking mode. The record is tested, and decoded if it matches, under
+     * a read lock on its stripes, so is never seen partly written.
+     *
+     * @param predicate Compiled filter
+     * @param view      View to test the record through
+     * @param location  Location
+     * @param decode    True to decode the record if it matches
+     * @param action    Receives the record and its location if it matches
+     */
+    @Override
+    void match(final Predicate<RecordView<T>> predicate, final RecordView<T> view, final int location, final boolean decode, final ObjIntConsumer<T> action) {
+        final long stripes = stripes(location);
+        final T record;
+        lockRead(stripes);
+        try {
+            if (!predicate.test(view.moveTo(location)))
+                return;
+            record = decode ? reader.getRecord(location) : null;
+        } finally {
+            unlockRead(stripes);
+        }
+        action.accept(record, location);
+    }
+
+    /**
+     * Copy the packed bytes of a range of records out to a byte array, with no unpacking
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param target Target array
+     * @param offset Offset of the first byte in the target array
+     */
+    @Override
+    public void copyRecordsTo(final int start, final int count, final byte[] target, final int offset) throws IllegalArgumentException {
+        read(stripes(start, count), () -> super.copyRecordsTo(start, count, target, offset), () -> {
+        });
+    }
+
+    /**
+     * Copy the packed bytes of a range of records out to a byte buffer, with no unpacking
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param target Target buffer
+     */
+    @Override
+    public void copyRecordsTo(final int start, final int count, final ByteBuffer target) throws IllegalArgumentException {
+        final int position = target.position();
+        read(stripes(start, count), () -> super.copyRecordsTo(start, count, target), () -> target.position(position));
+    }
+
+    /**
+     * Copy packed records into a range of locations from a byte array
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param source Source array
+     * @param offset Offset of the first byte in the source array
+     */
+    @Override
+    public void copyRecordsFrom(final int start, final int count, final byte[] source, final int offset) throws IllegalArgumentException {
+        write(stripes(start, count), () -> super.copyRecordsFrom(start, count, source, offset));
+    }
+
+    /**
+     * Copy packed records into a range of locations from a byte buffer
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param source Source buffer
+     */
+    @Override
+    public void copyRecordsFrom(final int start, final int count, final ByteBuffer source) throws IllegalArgumentException {
+        write(stripes(start, count), () -> super.copyRecordsFrom(start, count, source));
+    }
+
+    /**
+     * Get the number of lock stripes
+     *
+     * @return Stripe count
+     */
+    public int getStripes() {
+        return locks.length;
+    }
+
+    /**
+     * Get the read mode
+     *
+     * @return How readers are kept from seeing partly written records
+     */
+    public ReadMode getReadMode() {
+        return readMode;
+    }
+
+    /**
+     * Run a write holding the write locks of a set of stripes, and in optimistic mode marking the write on their
+     * sequence counters
+     *
+     * @param stripes Bit set of stripe numbers
+     * @param write   Write to make
+     */
+    private void write(final long stripes, final Runnable write) {
+        lockWrite(stripes);
+        try {
+            if (ReadMode.OPTIMISTIC == readMode) {
+                beginWrite(stripes);
+                try {
+                    write.run();
+                } finally {
+                    endWrite(stripes);
+                }
+            } else {
+                write.run();
+            }
+        } finally {
+            unlockWrite(stripes);
+        }
+    }
+
+    /**
+     * Run a bulk read. In optimistic mode the read is tried a few times with no lock, and is undone and retried if a
+     * writer was active. Reads of ranges that writers keep interfering with fall back to the read locks.
+     *
+     * @param stripes Bit set of stripe numbers
+     * @param read    Read to make
+     * @param undo    Undo any side effect of a failed read
+     */
+    private void read(final long stripes, final Runnable read, final Runnable undo) {
+        if (ReadMode.OPTIMISTIC == readMode) {
+            for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+                final long before = sequence(stripes);
+                if (before >= 0) {
+                    read.run();
+                    UNSAFE.loadFence();
+                    if (before == sequence(stripes)) {
+                        return;
+                    }
+                    undo.run();
+                }
+            }
+        }
+        lockRead(stripes);
+        try {
+            read.run();
+        } finally {
+            unlockRead(stripes);
+        }
+    }
+
+    /**
+     * Copy a record out of memory with no lock, retrying until no writer was active on its stripes during the copy
+     *
+     * @param location Record location
+     * @param stripes  Bit set of stripe numbers guarding the record
+     * @return Thread local buffer holding a consistent copy of the record
+     */
+    private byte[] copyRecord(final int location, final long stripes) {
+        final byte[] buffer = scratch.get();
+        int attempts = 0;
+        while (true) {
+            final long before = sequence(stripes);
+            if (before >= 0) {
+                reader.copyRecord(location, buffer);
+                // Keep the copy from being reordered after the second read of the counters
+                UNSAFE.loadFence();
+                if (before == sequence(stripes)) {
+                    return buffer;
+                }
+            }
+            if (0 == (++attempts & 0x3F)) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Read the sequence counters of a set of stripes. Counters only ever increase, so their sum changes if any do.
+     *
+     * @param stripes Bit set of stripe numbers
+     * @return Sum of the counters, or -1 if a writer is active on any of them
+     */
+    private long sequence(final long stripes) {
+        long sum = 0;
+        for (long remaining = stripes; 0 != remaining; remaining = remaining & (remaining - 1)) {
+            final long sequence = sequences.get(Long.numberOfTrailingZeros(remaining) * SEQUENCE_SPACING);
+            if (0 != (sequence & 1)) {
+                return -1;
+            }
+            sum = sum + sequence;
+        }
+        return sum;
+    }
+
+    /**
+     * Mark a write as started by making the stripe counters odd. Must hold the write locks.
+     *
+     * @param stripes Bit set of stripe numbers
+     */
+    private void beginWrite(final long stripes) {
+        for (long remaining = stripes; 0 != remaining; remaining = remaining & (remaining - 1)) {
+            // Volatile increment, so the record writes can't move ahead of it
+            sequences.incrementAndGet(Long.numberOfTrailingZeros(remaining) * SEQUENCE_SPACING);
+        }
+    }
+
+    /**
+     * Mark a write as finished by making the stripe counters even. Must hold the write locks.
+     *
+     * @param stripes Bit set of stripe numbers
+     */
+    private void endWrite(final long stripes) {
+        for (long remaining = stripes; 0 != remaining; remaining = remaining & (remaining - 1)) {
+            final int index = Long.numberOfTrailingZeros(remaining) * SEQUENCE_SPACING;
+            // Release store, so the record writes are visible before the counter
+            sequences.lazySet(index, sequences.get(index) + 1);
+        }
+    }
+
+    /**
+     * Work out which stripes guard a record
+     *
+     * @param location Record location
+     * @return Bit set of stripe numbers
+     */
+    long stripes(final int location) {
+        return stripes(location, 1);
+    }
+
+    /**
+     * Work out which stripes guard a range of records. Covers every word the records share, plus the bytes a long word
+     * write can run past the end of the last one, which wrap to the start of memory for the last record in the store.
+     *
+     * @param start Location of the first record
+     * @param count Number of records
+     * @return Bit set of stripe numbers
+     */
+    long stripes(final int start, final int count) {
+        checkRange(start, count);
+        if (0 == count) {
+            return 0;
+        }
+        final int first = start * recordBytes;
+        final long last = (long) first + (long) count * recordBytes - 1 + WRITE_OVERHANG;
+        final int lastGranule = (int) (Math.min(last, storeBytes - 1) >>> granuleShift);
+        long stripes = 0;
+        if (lastGranule - (first >>> granuleShift) >= locks.length - 1) {
+            stripes = -1L >>> (64 - locks.length);
+        } else {
+            for (int granule = first >>> granuleShift; granule <= lastGranule; granule++) {
+                stripes = stripes | (1L << (granule % locks.length));
+            }
+        }
+        if (last >= storeBytes) {
+            stripes = stripes | 1L;
+        }
+        return stripes;
+    }
+
+    private void lockRead(final long stripes) {
+        for (long remaining = stripes; 0 != remaining; remaining = remaining & (remaining - 1)) {
+            locks[Long.numberOfTrailingZeros(remaining)].readLock().lock();
+        }
+    }
+
+    private void unlockRead(final long stripes) {
+        for (long remaining = stripes; 0 != remaining; remaining = remaining & (remaining - 1)) {
+            locks[Long.numberOfTrailingZeros(remaining)].readLock().unlock();
+        }
+    }
+
+    private void lockWrite(final long stripes) {
+        for (long remaining = stripes; 0 != remaining; remaining = remaining & (remaining - 1)) {
+            locks[Long.numberOfTrailingZeros(remaining)].writeLock().lock();
+        }
+    }
+
+    private void unlockWrite(final long stripes) {
+        for (long remaining = stripes; 0 != remaining; remaining = remaining & (remaining - 1)) {
+            locks[Long.numberOfTrailingZeros(remaining)].writeLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class simulates a block of RAM via the use of a direct (off heap) byte buffer. Facilities are supplied to
+ * read and write the 'RAM' via methods using all supported types
+ * <p>
+ * As the storage is not part of the Java heap it is neither scanned nor copied by the garbage collector.
+ */
+public class DirectMemoryStore extends ByteBufferMemoryStore {
+
+    /**
+     * Create an empty store structure.
+     */
+    public DirectMemoryStore() {
+    }
+
+    /**
+     * Create a new memory core for storage.
+     *
+     * @param words Length of the memory block requested. The range is 1 to 2**29 - 1 32 bit words (2GB)
+     * @throws IllegalArgumentException Thrown if the requested storage length if out of range
+     */
+    public DirectMemoryStore(final int words) {
+        build(words);
+    }
+
+    /**
+     * Build the storage. Direct buffers are zero filled on allocation.
+     *
+     * @param words Length in 32 bit words
+     */
+    @Override
+    public void build(int words) {
+        validateWords(words);
+        setCore(ByteBuffer.allocateDirect(words * 4), words);
+    }
+
+}
@@ -108,6 +108,23 @@ public interface IMemoryStore {
      */
     byte[] getByteArray(int address, final int length);
 
+    /**
+     * Read bytes from any address into an existing array, with no allocation. The default implementation reads a byte
+     * at a time, the bundled stores override it with word wide transfers.
+     *
+     * @param address Address to be read from (Will wrap if too large)
+     * @param dst     Target array
+     * @param off     Offset of the first byte in the target array
+     * @param len     Bytes to be read from memory
+     * @throws IndexOutOfBoundsException Thrown if the target array range is invalid
+     */
+    default void getBytes(final int address, final byte[] dst, final int off, final int len) {
+        checkRange(dst, off, len);
+        for (int i = 0; i < len; i++) {
+            dst[off + i] = getByte(address + i);
+        }
+    }
+
     /**
      * Write a word of memory to a any address. his operation is always treated as unaligned
      *
@@ -158,6 +175,317 @@ public interface IMemoryStore {
      */
     void setByteArray(int address, final byte[] byteValues);
 
+    /**
+     * Write part of a byte array to memory at any address. The default implementation writes a byte at a time, the
+     * bundled stores override it with word wide transfers.
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param src     Source array
+     * @param off     Offset of the first byte in the source array
+     * @param len     Bytes to be written to memory
+     * @throws IndexOutOfBoundsException Thrown if the source array range is invalid
+     */
+    default void setBytes(final int address, final byte[] src, final int off, final int len) {
+        checkRange(src, off, len);
+        for (int i = 0; i < len; i++) {
+            setByte(address + i, src[off + i]);
+        }
+    }
+
+    /**
+     * Copy bytes from one address to another within the store. Overlapping ranges are handled, the result is as if the
+     * source was first copied to a temporary array.
+     *
+     * @param srcAddress Address to be copied from (Will wrap if too large)
+     * @param dstAddress Address to be copied to (Will wrap if too large)
+     * @param length     Bytes to be copied
+     */
+    default void copy(final int srcAddress, final int dstAddress, final int length) {
+        setByteArray(dstAddress, getByteArray(srcAddress, length));
+    }
+
+    // Atomic and ordered access. Addresses must be aligned on the size of the value, so it lies within one word or
+    // long word of memory, and must not run past the end of memory. The default implementations lock the store, so are
+    // only atomic with respect to each other. The bundled stores override them with lock free access.
+
+    /**
+     * Read a word with volatile semantics
+     *
+     * @param address Word aligned byte address (Will wrap if too large)
+     * @return The word of memory requested
+     */
+    default int getWordVolatile(final int address) {
+        final int aligned = validateAlignedAddress(address, 4);
+        synchronized (this) {
+            return getWord(aligned);
+        }
+    }
+
+    /**
+     * Write a word with volatile semantics
+     *
+     * @param address Word aligned byte address (Will wrap if too large)
+     * @param value   Word to be written to memory
+     */
+    default void setWordVolatile(final int address, final int value) {
+        final int aligned = validateAlignedAddress(address, 4);
+        synchronized (this) {
+            setWord(aligned, value);
+        }
+    }
+
+    /**
+     * Read a word with acquire semantics. No later read or write can be reordered before it.
+     *
+     * @param address Word aligned byte address (Will wrap if too large)
+     * @return The word of memory requested
+     */
+    default int getWordAcquire(final int address) {
+        final int aligned = validateAlignedAddress(address, 4);
+        synchronized (this) {
+            return getWord(aligned);
+        }
+    }
+
+    /**
+     * Write a word with release semantics. No earlier read or write can be reordered after it.
+     *
+     * @param address Word aligned byte address (Will wrap if too large)
+     * @param value   Word to be written to memory
+     */
+    default void setWordRelease(final int address, final int value) {
+        final int aligned = validateAlignedAddress(address, 4);
+        synchronized (this) {
+            setWord(aligned, value);
+        }
+    }
+
+    /**
+     * Atomically set a word if it holds the expected value
+     *
+     * @param address  Word aligned byte address (Will wrap if too large)
+     * @param expected Expected value
+     * @param value    New value
+     * @return True if the word was updated
+     */
+    default boolean compareAndSetWord(final int address, final int expected, final int value) {
+        final int aligned = validateAlignedAddress(address, 4);
+        synchronized (this) {
+            if (getWord(aligned) != expected)
+                return false;
+            setWord(aligned, value);
+            return true;
+        }
+    }
+
+    /**
+     * Atomically add to a word
+     *
+     * @param address Word aligned byte address (Will wrap if too large)
+     * @param delta   Value to add
+     * @return The previous value
+     */
+    default int getAndAddWord(final int address, final int delta) {
+        final int aligned = validateAlignedAddress(address, 4);
+        synchronized (this) {
+            final int current = getWord(aligned);
+            setWord(aligned, current + delta);
+            return current;
+        }
+    }
+
+    /**
+     * Read a long word with volatile semantics
+     *
+     * @param address Long word (8 byte) aligned byte address (Will wrap if too large)
+     * @return The long word of memory requested
+     */
+    default long getLongWordVolatile(final int address) {
+        final int aligned = validateAlignedAddress(address, 8);
+        synchronized (this) {
+            return getLongWord(aligned);
+        }
+    }
+
+    /**
+     * Write a long word with volatile semantics
+     *
+     * @param address Long word (8 byte) aligned byte address (Will wrap if too large)
+     * @param value   Long word to be written to memory
+     */
+    default void setLongWordVolatile(final int address, final long value) {
+        final int aligned = validateAlignedAddress(address, 8);
+        synchronized (this) {
+            setLongWord(aligned, value);
+        }
+    }
+
+    /**
+     * Read a long word with acquire semantics. No later read or write can be reordered before it.
+     *
+     * @param address Long word (8 byte) aligned byte address (Will wrap if too large)
+     * @return The long word of memory requested
+     */
+    default long getLongWordAcquire(final int address) {
+        final int aligned = validateAlignedAddress(address, 8);
+        synchronized (this) {
+            return getLongWord(aligned);
+        }
+    }
+
+    /**
+     * Write a long word with release semantics. No earlier read or write can be reordered after it.
+     *
+     * @param address Long word (8 byte) aligned byte address (Will wrap if too large)
+     * @param value   Long word to be written to memory
+     */
+    default void setLongWordRelease(final int address, final long value) {
+        final int aligned = validateAlignedAddress(address, 8);
+        synchronized (this) {
+            setLongWord(aligned, value);
+        }
+    }
+
+    /**
+     * Atomically set a long word if it holds the expected value
+     *
+     * @param address  Long word (8 byte) aligned byte address (Will wrap if too large)
+     * @param expected Expected value
+     * @param value    New value
+     * @return True if the long word was updated
+     */
+    default boolean compareAndSetLongWord(final int address, final long expected, final long value) {
+        final int aligned = validateAlignedAddress(address, 8);
+        synchronized (this) {
+            if (getLongWord(aligned) != expected)
+                return false;
+            setLongWord(aligned, value);
+            return true;
+        }
+    }
+
+    /**
+     * Atomically add to a long word
+     *
+     * @param address Long word (8 byte) aligned byte address (Will wrap if too large)
+     * @param delta   Value to add
+     * @return The previous value
+     */
+    default long getAndAddLongWord(final int address, final long delta) {
+        final int aligned = validateAlignedAddress(address, 8);
+        synchronized (this) {
+            final long current = getLongWord(aligned);
+            setLongWord(aligned, current + delta);
+            return current;
+        }
+    }
+
+    /**
+     * Read a bit field of 1 to 64 bits from any bit address. Bit 0 of a byte is its most significant bit. The smallest
+     * word operation covering the field is used (byte, short, 24 bit, word or long word).
+     *
+     * @param bitAddress Address of the first (most significant) bit of the field (Will wrap if too large)
+     * @param bits       Width of the field in bits
+     * @return Field value, zero extended
+     */
+    default long getBits(final long bitAddress, final int bits) {
+        final int address = (int) (bitAddress >>> 3);
+        final int end = (int) (bitAddress & 0x07) + bits;
+        long window;
+        if (end <= 8)
+            window = (long) getByte(address) << 56;
+        else if (end <= 16)
+            window = (long) getShortWord(address) << 48;
+        else if (end <= 24)
+            window = (long) getWord24(address) << 40;
+        else if (end <= 32)
+            window = (long) getWord(address) << 32;
+        else
+            window = getLongWord(address);
+        long value = (window << (end - bits)) >>> (64 - bits);
+        if (end > 64) {
+            // Field runs into a ninth byte
+            value = value | ((getByte(address + 8) & 0x00FF) >>> (72 - end));
+        }
+        return value;
+    }
+
+    /**
+     * Write a bit field of 1 to 64 bits to any bit address. Bits outside the field are left unchanged. The smallest
+     * word operation covering the field is used, with no read needed when the field fills it exactly.
+     *
+     * @param bitAddress Address of the first (most significant) bit of the field (Will wrap if too large)
+     * @param bits       Width of the field in bits
+     * @param value      Value to write, held in the lowest bits. Higher bits are ignored
+     */
+    default void setBits(final long bitAddress, final int bits, final long value) {
+        final int address = (int) (bitAddress >>> 3);
+        final int end = (int) (bitAddress & 0x07) + bits;
+        if (end > 64) {
+            // Field runs into a ninth byte, write the low bits there first
+            final int low = end - 64;
+            final int mask = (0x00FF << (8 - low)) & 0x00FF;
+            setByte(address + 8, (byte) ((getByte(address + 8) & ~mask) | (((int) value << (8 - low)) & mask)));
+            setBits(bitAddress, bits - low, value >>> low);
+            return;
+        }
+        final int width = end <= 8 ? 8 : end <= 16 ? 16 : end <= 24 ? 24 : end <= 32 ? 32 : 64;
+        final long mask = (-1L >>> (64 - bits)) << (width - end);
+        long window = (value << (width - end)) & mask;
+        switch (width) {
+            case 8:
+                if (8 != bits)
+                    window = window | (getByte(address) & ~mask & 0x00FF);
+                setByte(address, (byte) window);
+                break;
+            case 16:
+                if (16 != bits)
+                    window = window | (getShortWord(address) & ~mask & 0x00FFFF);
+                setShort(address, (short) window);
+                break;
+            case 24:
+                if (24 != bits)
+                    window = window | (getWord24(address) & ~mask & 0x00FF_FFFF);
+                setWord24(address, (int) window);
+                break;
+            case 32:
+                if (32 != bits)
+                    window = window | (getWord(address) & ~mask & 0xFFFF_FFFFL);
+                setWord(address, (int) window);
+                break;
+            default:
+                if (64 != bits)
+                    window = window | (getLongWord(address) & ~mask);
+                setLongWord(address, window);
+        }
+    }
+
+    /**
+     * Read a bit field of 1 to 64 bits, for callers that have already checked the whole field lies within memory. The
+     * address is neither validated nor wrapped, which saves a division per access. Stores with no faster path read the
+     * field with {@link #getBits(long, int)}.
+     *
+     * @param bitAddress Address of the first (most significant) bit of the field
+     * @param bits       Width of the field in bits
+     * @return Field value, zero extended
+     */
+    default long getBitsUnchecked(final long bitAddress, final int bits) {
+        return getBits(bitAddress, bits);
+    }
+
+    /**
+     * Write a bit field of 1 to 64 bits, for callers that have already checked the whole field lies within memory. The
+     * address is neither validated nor wrapped. No more memory is written than by setBits(). Stores with no faster path
+     * write the field with {@link #setBits(long, int, long)}.
+     *
+     * @param bitAddress Address of the first (most significant) bit of the field
+     * @param bits       Width of the field in bits
+     * @param value      Value, held in the lowest bits. Higher bits are ignored
+     */
+    default void setBitsUnchecked(final long bitAddress, final int bits, final long value) {
+        setBits(bitAddress, bits, value);
+    }
+
     /**
      * Validate an address, and if OK wrap on the length of the memory allocated
      *
@@ -172,6 +500,43 @@ public interface IMemoryStore {
         return (address % getBytes()) >> 2;
     }
 
+    /**
+     * Check a range of an array passed to a bulk transfer
+     *
+     * @param array  Array
+     * @param offset Offset of the first byte
+     * @param length Number of bytes
+     * @throws IndexOutOfBoundsException Thrown if the range is not within the array
+     */
+    static void checkRange(final byte[] array, final int offset, final int length) {
+        if ((offset < 0) || (length < 0) || (offset > array.length - length)) {
+            throw new IndexOutOfBoundsException("Array range out of bounds");
+        }
+    }
+
+    /**
+     * Validate an address for atomic access, and if OK wrap on the length of the memory allocated
+     *
+     * @param address   Address to be checked
+     * @param alignment Size of the value, 4 or 8 bytes
+     * @return Wrapped byte address
+     * @throws IllegalArgumentException Thrown if the address is not +ve, not aligned or the value runs past the end of
+     *                                  memory
+     */
+    default int validateAlignedAddress(final int address, final int alignment) {
+        if (address < 0) {
+            throw new IllegalArgumentException("Address out of range");
+        }
+        final int wrapped = address % getBytes();
+        if (0 != (wrapped & (alignment - 1))) {
+            throw new IllegalArgumentException("Address must be " + alignment + " byte aligned");
+        }
+        if (wrapped > getBytes() - alignment) {
+            throw new IllegalArgumentException("Address out of range");
+        }
+        return wrapped;
+    }
+
     enum Type {
         Bit, Byte8, Short16, Word32, Word64, Char16, Void, UUID, BooleanArray, booleanArray, FixedString, Double, Float
     }
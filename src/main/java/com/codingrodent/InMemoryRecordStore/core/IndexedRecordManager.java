@@ -0,0 +1,637 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+import com.codingrodent.InMemoryRecordStore.record.*;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A record manager with a primary key index, so records can be found by the value of a key field as well as by
+ * location. The key field must be an integer or UUID field.
+ * <p>
+ * The index is an open addressing hash table with linear probing, held in its own memory store. Each slot is one long
+ * word, holding the low 32 bits of the hash of the key and the location of the record plus one, with zero marking an
+ * empty slot. Keys are not copied into the index, they are read from the record itself when a probe finds a slot with
+ * a matching hash. The table has at least twice as many slots as there are records, so is never more than half full
+ * and never grows. A bitmap after the table marks which locations hold an indexed record. Removal shifts later entries
+ * of a probe run back, so there are no tombstones and nothing is allocated per entry.
+ * <p>
+ * Secondary indexes can be added for range queries on integer fields, see {@link SortedIndex}, and for filters on
+ * fields with few distinct values, see {@link BitmapIndex}. They cover every location in use. Filters and streams
+ * also only visit locations in use.
+ * <p>
+ * Every write (putRecord, putRecords and copyRecordsFrom) keeps the index in step. A key written to a second location
+ * moves there and the first location is freed, so the last write of a key wins. Views from {@link #newView()} are not
+ * covered, so must not change key fields. Not thread safe.
+ */
+public class IndexedRecordManager<T> extends RecordManager<T> {
+
+    private final static long EMPTY = 0L;
+
+    private final IMemoryStore index;
+    private final RecordView<T> view;
+    private final RecordDescriptor<T> recordDescriptor;
+    private final int keyField;
+    private final boolean uuidKey;
+    private final int records;
+    private final int mask;
+    private final int bitmapAddress;
+    private final List<SecondaryIndex> secondaryIndexes = new ArrayList<>();
+    private int size = 0;
+    private int freeWord = 0;
+
+    /**
+     * Create a record manager with a primary key index held on the heap
+     *
+     * @param memoryStore      Data storage structure
+     * @param records          The records of the memory core in records
+     * @param recordDescriptor Field type information
+     * @param keyField         Name of the key field
+     */
+    public IndexedRecordManager(final IMemoryStore memoryStore, final int records, final RecordDescriptor<T> recordDescriptor, final String keyField) {
+        this(memoryStore, records, recordDescriptor, keyField, new ArrayMemoryStore());
+    }
+
+    /**
+     * Create a record manager with a primary key index
+     *
+     * @param memoryStore      Data storage structure
+     * @param records          The records of the memory core in records
+     * @param recordDescriptor Field type information
+     * @param keyField         Name of the key field
+     * @param indexStore       Storage for the index, e.g. a DirectMemoryStore to keep it off the heap
+     */
+    public IndexedRecordManager(final IMemoryStore memoryStore, final int records, final RecordDescriptor<T> recordDescriptor, final String keyField,
+                                final IMemoryStore indexStore) {
+        super(memoryStore, records, recordDescriptor);
+        this.keyField = recordDescriptor.getFieldId(keyField);
+        switch (recordDescriptor.getFieldType(this.keyField)) {
+            case Byte8:
+            case Short16:
+            case Char16:
+            case Word32:
+            case Word64:
+                this.uuidKey = false;
+                break;
+            case UUID:
+                this.uuidKey = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Key field (" + keyField + ") must be an integer or UUID field");
+        }
+        long slots = Long.highestOneBit((long) records * 2 - 1) << 1;
+        long bitmapWords = ((long) records + 31) >>> 5;
+        if (slots * 8 + bitmapWords * 4 > STORAGE_LIMIT) {
+            throw new IllegalArgumentException("Maximum index storage limit exceeded - " + STORAGE_LIMIT + " bytes");
+        }
+        this.mask = (int) slots - 1;
+        this.bitmapAddress = (int) slots * 8;
+        this.records = records;
+        this.recordDescriptor = recordDescriptor;
+        this.view = newView();
+        this.index = indexStore;
+        indexStore.build((int) (slots * 2 + bitmapWords));
+    }
+
+    // ******************************************************************************
+    // Key access
+    // ******************************************************************************
+
+    /**
+     * Read the record with a key
+     *
+     * @param key Key value
+     * @return Record or null if no record has the key
+     */
+    public T getByKey(final long key) {
+        final int location = locationOf(key);
+        return location < 0 ? null : getRecord(location);
+    }
+
+    /**
+     * Read the record with a key
+     *
+     * @param key Key value
+     * @return Record or null if no record has the key
+     */
+    public T getByKey(final UUID key) {
+        final int location = locationOf(key);
+        return location < 0 ? null : getRecord(location);
+    }
+
+    /**
+     * Find the location of the record with a key
+     *
+     * @param key Key value
+     * @return Location or -1 if no record has the key
+     */
+    public int locationOf(final long key) {
+        checkKeyType(false);
+        final int slot = find(hash(key), key, 0);
+        return slot < 0 ? -1 : location(index.getLongWord(slot << 3));
+    }
+
+    /**
+     * Find the location of the record with a key
+     *
+     * @param key Key value
+     * @return Location or -1 if no record has the key
+     */
+    public int locationOf(final UUID key) {
+        checkKeyType(true);
+        final int slot = find(hash(key.getMostSignificantBits(), key.getLeastSignificantBits()), key.getMostSignificantBits(), key.getLeastSignificantBits());
+        return slot < 0 ? -1 : location(index.getLongWord(slot << 3));
+    }
+
+    /**
+     * Write a record by its key. A record already held with the key is replaced, otherwise the record is written to
+     * the lowest free location.
+     *
+     * @param record Record
+     * @return Location written to
+     * @throws RecordStoreException If the key is new and every location is in use
+     */
+    public int putByKey(final T record) {
+        final Object key = recordDescriptor.getFieldValue(keyField, record);
+        if (null == key)
+            throw new IllegalArgumentException("Field (" + keyName() + ") is null. Unable to pack");
+        int location;
+        if (uuidKey)
+            location = locationOf((UUID) key);
+        else
+            location = locationOf(key instanceof Character ? (Character) key : ((Number) key).longValue());
+        if (location < 0)
+            location = freeLocation();
+        putRecord(location, record);
+        return location;
+    }
+
+    /**
+     * Remove a key from the index. The location of its record becomes free, but the record bytes are left in place.
+     *
+     * @param key Key value
+     * @return True if the key was present
+     */
+    public boolean removeByKey(final long key) {
+        checkKeyType(false);
+        return remove(find(hash(key), key, 0));
+    }
+
+    /**
+     * Remove a key from the index. The location of its record becomes free, but the record bytes are left in place.
+     *
+     * @param key Key value
+     * @return True if the key was present
+     */
+    public boolean removeByKey(final UUID key) {
+        checkKeyType(true);
+        return remove(find(hash(key.getMostSignificantBits(), key.getLeastSignificantBits()), key.getMostSignificantBits(), key.getLeastSignificantBits()));
+    }
+
+    /**
+     * Check if a location holds an indexed record
+     *
+     * @param location Location
+     * @return True if the location is in use
+     */
+    public boolean isOccupied(final int location) {
+        checkRange(location, 1);
+        return occupied(location);
+    }
+
+    /**
+     * Add a sorted index on an integer field, held on the heap. Records already in use are indexed straight away.
+     *
+     * @param fieldName Name of the field
+     * @return Index, kept in step with all later writes
+     */
+    public SortedIndex<T> addSortedIndex(final String fieldName) {
+        return addSortedIndex(fieldName, new ArrayMemoryStore());
+    }
+
+    /**
+     * Add a sorted index on an integer field. Records already in use are indexed straight away.
+     *
+     * @param fieldName  Name of the field
+     * @param indexStore Storage for the index, e.g. a DirectMemoryStore to keep it off the heap
+     * @return Index, kept in step with all later writes
+     */
+    public SortedIndex<T> addSortedIndex(final String fieldName, final IMemoryStore indexStore) {
+        return register(new SortedIndex<>(newView(), recordDescriptor, fieldName, records, indexStore));
+    }
+
+    /**
+     * Add a bitmap index on a boolean or integer field with few distinct values. Records already in use are indexed
+     * straight away.
+     *
+     * @param fieldName Name of the field
+     * @return Index, kept in step with all later writes
+     */
+    public BitmapIndex<T> addBitmapIndex(final String fieldName) {
+        return register(new BitmapIndex<>(newView(), recordDescriptor, fieldName));
+    }
+
+    /**
+     * Get the locations in use, the universe for filters built from bitmap indexes
+     *
+     * @return New bitmap
+     */
+    public RecordBitmap getLocationsInUse() {
+        RecordBitmap bitmap = new RecordBitmap();
+        for (int location = 0; location < records; location++) {
+            if (occupied(location))
+                bitmap.add(location);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Index the records in use, then keep the index in step with later writes
+     *
+     * @param secondary Empty index
+     * @param <I>       Index type
+     * @return The index
+     */
+    private <I extends SecondaryIndex> I register(final I secondary) {
+        for (int location = 0; location < records; location++) {
+            if (occupied(location))
+                secondary.add(location);
+        }
+        secondaryIndexes.add(secondary);
+        return secondary;
+    }
+
+    /**
+     * Get the number of keys in the index
+     *
+     * @return Key count
+     */
+    public int getKeyCount() {
+        return size;
+    }
+
+    // ******************************************************************************
+    // Filters and streams, over the locations in use
+    // ******************************************************************************
+
+    @Override
+    void forEachMatch(final RecordFilter filter, final boolean decode, final ObjIntConsumer<T> action) {
+        final Predicate<RecordView<T>> predicate = filter.compile(recordDescriptor);
+        final RecordView<T> view = newView();
+        for (int location = 0; location < records; location++) {
+            if (occupied(location))
+                match(predicate, view, location, decode, action);
+        }
+    }
+
+    /**
+     * Create a spliterator over the records in use in location order. Free locations are skipped, so the size is only
+     * an estimate.
+     *
+     * @return Spliterator
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new OccupiedSpliterator(0, records);
+    }
+
+    // ******************************************************************************
+    // Writes, with the index kept in step
+    // ******************************************************************************
+
+    @Override
+    public void putRecord(final int location, final T record) throws IllegalArgumentException {
+        update(location, 1, () -> super.putRecord(location, record));
+    }
+
+    @Override
+    public void putRecords(final int start, final List<? extends T> records) throws IllegalArgumentException {
+        update(start, records.size(), () -> super.putRecords(start, records));
+    }
+
+    @Override
+    public void copyRecordsFrom(final int start, final int count, final byte[] source, final int offset) throws IllegalArgumentException {
+        update(start, count, () -> super.copyRecordsFrom(start, count, source, offset));
+    }
+
+    @Override
+    public void copyRecordsFrom(final int start, final int count, final ByteBuffer source) throws IllegalArgumentException {
+        update(start, count, () -> super.copyRecordsFrom(start, count, source));
+    }
+
+    /**
+     * Write a range of records, taking their old keys out of the index first and adding the new keys after. If the
+     * write fails nothing has been written, so the old keys are put back.
+     *
+     * @param start Location of the first record
+     * @param count Number of records
+     * @param write Write operation
+     */
+    private void update(final int start, final int count, final Runnable write) {
+        checkRange(start, count);
+        final int end = start + count;
+        for (int location = start; location < end; location++) {
+            if (occupied(location))
+                unlink(location);
+        }
+        boolean written = false;
+        try {
+            write.run();
+            written = true;
+        } finally {
+            for (int location = start; location < end; location++) {
+                if (written || occupied(location))
+                    link(location);
+            }
+        }
+    }
+
+    // ******************************************************************************
+    // Hash table
+    // ******************************************************************************
+
+    /**
+     * Probe for a key
+     *
+     * @param hash Hash of the key
+     * @param high Key value, or the most significant bits of a UUID
+     * @param low  Least significant bits of a UUID
+     * @return Slot holding the key, or the one's complement of the empty slot ending the probe
+     */
+    private int find(final long hash, final long high, final long low) {
+        int slot = (int) hash & mask;
+        while (true) {
+            final long entry = index.getLongWord(slot << 3);
+            if (EMPTY == entry)
+                return ~slot;
+            if (((int) (entry >>> 32) == (int) hash) && matches(location(entry), high, low))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Compare the key of a stored record with a key value
+     *
+     * @param location Location of the record
+     * @param high     Key value, or the most significant bits of a UUID
+     * @param low      Least significant bits of a UUID
+     * @return True if the keys match
+     */
+    private boolean matches(final int location, final long high, final long low) {
+        view.moveTo(location);
+        if (uuidKey) {
+            UUID key = view.getUUID(keyField);
+            return (key.getMostSignificantBits() == high) && (key.getLeastSignificantBits() == low);
+        }
+        return view.getLong(keyField) == high;
+    }
+
+    /**
+     * Add the keys of a stored record to the indexes, moving the primary key if it was held for another location
+     *
+     * @param location Location of the record
+     */
+    private void link(final int location) {
+        view.moveTo(location);
+        final long high, low, hash;
+        if (uuidKey) {
+            UUID key = view.getUUID(keyField);
+            high = key.getMostSignificantBits();
+            low = key.getLeastSignificantBits();
+            hash = hash(high, low);
+        } else {
+            high = view.getLong(keyField);
+            low = 0;
+            hash = hash(high);
+        }
+        int slot = find(hash, high, low);
+        if (slot >= 0) {
+            free(location(index.getLongWord(slot << 3)));
+        } else {
+            slot = ~slot;
+            size++;
+        }
+        index.setLongWord(slot << 3, (hash << 32) | (location + 1L));
+        setOccupied(location, true);
+        for (SecondaryIndex secondary : secondaryIndexes) {
+            secondary.add(location);
+        }
+    }
+
+    /**
+     * Take the keys of a stored record out of the indexes, leaving the location marked in use
+     *
+     * @param location Location of the record
+     */
+    private void unlink(final int location) {
+        for (SecondaryIndex secondary : secondaryIndexes) {
+            secondary.remove(location);
+        }
+        view.moveTo(location);
+        final int slot;
+        if (uuidKey) {
+            UUID key = view.getUUID(keyField);
+            slot = find(hash(key.getMostSignificantBits(), key.getLeastSignificantBits()), key.getMostSignificantBits(), key.getLeastSignificantBits());
+        } else {
+            final long key = view.getLong(keyField);
+            slot = find(hash(key), key, 0);
+        }
+        if ((slot >= 0) && (location(index.getLongWord(slot << 3)) == location)) {
+            delete(slot);
+            size--;
+        }
+    }
+
+    /**
+     * Remove the entry in a slot and free its location
+     *
+     * @param slot Slot, or a negative value if the key was not found
+     * @return True if there was an entry to remove
+     */
+    private boolean remove(final int slot) {
+        if (slot < 0)
+            return false;
+        free(location(index.getLongWord(slot << 3)));
+        delete(slot);
+        size--;
+        return true;
+    }
+
+    /**
+     * Empty a slot, shifting back any later entries of the probe run that could no longer be found
+     *
+     * @param slot Slot to empty
+     */
+    private void delete(int slot) {
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            final long entry = index.getLongWord(next << 3);
+            if (EMPTY == entry)
+                break;
+            // Move the entry back if the hole is between its home slot and where it is now
+            final int home = (int) (entry >>> 32) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                index.setLongWord(slot << 3, entry);
+                slot = next;
+            }
+        }
+        index.setLongWord(slot << 3, EMPTY);
+    }
+
+    private static int location(final long entry) {
+        return (int) entry - 1;
+    }
+
+    private static long hash(final long key) {
+        long h = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long hash(final long high, final long low) {
+        return hash(high ^ hash(low));
+    }
+
+    private void checkKeyType(final boolean uuid) {
+        if (uuid != uuidKey)
+            throw new IllegalArgumentException("Key is the wrong type for field (" + keyName() + ")");
+    }
+
+    private String keyName() {
+        return recordDescriptor.getFieldNames().get(keyField);
+    }
+
+    // ******************************************************************************
+    // Bitmap of locations in use
+    // ******************************************************************************
+
+    private boolean occupied(final int location) {
+        return 0 != (index.getWord(bitmapAddress + ((location >>> 5) << 2)) & (1 << location));
+    }
+
+    private void setOccupied(final int location, final boolean occupied) {
+        final int address = bitmapAddress + ((location >>> 5) << 2);
+        final int word = index.getWord(address);
+        index.setWord(address, occupied ? word | (1 << location) : word & ~(1 << location));
+    }
+
+    /**
+     * Mark a location free, taking its record out of the secondary indexes
+     *
+     * @param location Location
+     */
+    private void free(final int location) {
+        for (SecondaryIndex secondary : secondaryIndexes) {
+            secondary.remove(location);
+        }
+        setOccupied(location, false);
+        freeWord = Math.min(freeWord, location >>> 5);
+    }
+
+    /**
+     * Find the lowest free location. Bitmap words before the free word are known to be full.
+     *
+     * @return Location
+     * @throws RecordStoreException If every location is in use
+     */
+    private int freeLocation() {
+        final int words = (records + 31) >>> 5;
+        for (; freeWord < words; freeWord++) {
+            final int word = index.getWord(bitmapAddress + (freeWord << 2));
+            if (-1 != word) {
+                final int location = (freeWord << 5) + Integer.numberOfTrailingZeros(~word);
+                if (location < records)
+                    return location;
+            }
+        }
+        throw new RecordStoreException("No free record location");
+    }
+
+    // Spliterator inner class, covering the locations in use from index up to but not including fence
+    private class OccupiedSpliterator implements Spliterator<T> {
+        private int index;
+        private final int fence;
+
+        OccupiedSpliterator(final int index, final int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            if (null == action)
+                throw new NullPointerException();
+            while (index < fence) {
+                final int location = index++;
+                if (occupied(location)) {
+                    action.accept(getRecord(location));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super T> action) {
+            if (null == action)
+                throw new NullPointerException();
+            // Runs of locations in use are read a block at a time
+            while (index < fence) {
+                final int start = index;
+                while ((index < fence) && (index - start < SPLIT_RECORDS) && occupied(index))
+                    index++;
+                if (index == start)
+                    index++;
+                else
+                    getRecords(start, index - start, action);
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final int remaining = fence - index;
+            if (remaining < 2 * SPLIT_RECORDS)
+                return null;
+            final int start = index;
+            index = start + (remaining >>> 1);
+            return new OccupiedSpliterator(start, index);
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
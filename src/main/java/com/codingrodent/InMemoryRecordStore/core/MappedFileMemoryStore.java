@@ -0,0 +1,188 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * This class simulates a block of RAM via a memory mapped file. Facilities are supplied to read and write the 'RAM'
+ * via methods using all supported types
+ * <p>
+ * The file starts with a small header recording the size of the store and the layout of the records held in it.
+ * When an existing file is opened its contents are used as is, so a store is usable as soon as the file is mapped.
+ * Reopening a file with a different record layout or size is rejected. Writes reach the file when the operating
+ * system flushes its page cache, or immediately on a call to force()
+ */
+public class MappedFileMemoryStore extends ByteBufferMemoryStore implements Closeable {
+
+    private final static int MAGIC = 0x494D_5253; // IMRS
+    private final static int VERSION = 1;
+    private final static int HEADER_BYTES = 32;
+    //
+    private final static int MAGIC_OFFSET = 0;
+    private final static int VERSION_OFFSET = 4;
+    private final static int WORDS_OFFSET = 8;
+    private final static int RECORD_LENGTH_OFFSET = 12;
+    private final static int SIGNATURE_OFFSET = 16;
+
+    private final Path path;
+    private final int recordByteLength;
+    private final long layoutSignature;
+    private FileChannel channel = null;
+    private MappedByteBuffer header = null;
+    private MappedByteBuffer data = null;
+    private boolean restored = false;
+
+    /**
+     * Create a store backed by a file. The file is not opened until the store is built
+     *
+     * @param path             File holding the store. Created if it does not exist
+     * @param recordDescriptor Description of the records to be held in the store
+     */
+    public MappedFileMemoryStore(final Path path, final RecordDescriptor<?> recordDescriptor) {
+        this.path = path;
+        this.recordByteLength = recordDescriptor.getByteLength();
+        this.layoutSignature = recordDescriptor.getLayoutSignature();
+    }
+
+    /**
+     * Build the storage by mapping the file. A new file is zero filled, an existing one keeps its contents
+     *
+     * @param words Length in 32 bit words
+     * @throws RecordStoreException Thrown if the file can't be mapped or holds a different store
+     */
+    @Override
+    public void build(final int words) {
+        validateWords(words);
+        close();
+        try {
+            channel = FileChannel.open(path, READ, WRITE, CREATE);
+            boolean exists = channel.size() > 0;
+            header = channel.map(READ_WRITE, 0, HEADER_BYTES);
+            if (exists) {
+                validateHeader(words);
+            }
+            data = channel.map(READ_WRITE, HEADER_BYTES, words * 4L);
+            if (!exists) {
+                writeHeader(words);
+            }
+            restored = exists;
+        } catch (IOException e) {
+            close();
+            throw new RecordStoreException("Unable to map store file " + path, e);
+        } catch (RecordStoreException e) {
+            close();
+            throw e;
+        }
+        setCore(data, words);
+    }
+
+    /**
+     * Check the header of an existing file matches this store
+     *
+     * @param words Length in 32 bit words
+     * @throws RecordStoreException Thrown if the header does not match
+     */
+    private void validateHeader(final int words) {
+        if ((MAGIC != header.getInt(MAGIC_OFFSET)) || (VERSION != header.getInt(VERSION_OFFSET))) {
+            throw new RecordStoreException("File is not a record store - " + path);
+        }
+        if ((recordByteLength != header.getInt(RECORD_LENGTH_OFFSET)) || (layoutSignature != header.getLong(SIGNATURE_OFFSET))) {
+            throw new RecordStoreException("Store layout does not match record descriptor - " + path);
+        }
+        if (words != header.getInt(WORDS_OFFSET)) {
+            throw new RecordStoreException("Store size does not match. Expected " + words + " words, found " + header.getInt(WORDS_OFFSET));
+        }
+    }
+
+    /**
+     * Write the header of a new file. The header is written last so a partially created file is never accepted
+     *
+     * @param words Length in 32 bit words
+     */
+    private void writeHeader(final int words) {
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(WORDS_OFFSET, words);
+        header.putInt(RECORD_LENGTH_OFFSET, recordByteLength);
+        header.putLong(SIGNATURE_OFFSET, layoutSignature);
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.force();
+    }
+
+    /**
+     * Force any changes to the store out to the file
+     */
+    public void force() {
+        if (null != data) {
+            data.force();
+        }
+    }
+
+    /**
+     * Force any changes out and close the file. The store must not be used after closing
+     */
+    @Override
+    public void close() {
+        try {
+            force();
+            if (null != channel) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new RecordStoreException("Unable to close store file " + path, e);
+        } finally {
+            channel = null;
+            header = null;
+            data = null;
+        }
+    }
+
+    /**
+     * Did the last build reopen an existing file rather than create a new one
+     *
+     * @return True if existing contents were restored
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * Get the file holding the store
+     *
+     * @return File path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+}
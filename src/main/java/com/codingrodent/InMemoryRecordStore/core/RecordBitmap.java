@@ -0,0 +1,475 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import java.util.*;
+
+/**
+ * A compressed set of record locations, in the style of a roaring bitmap. Locations are split into chunks of 65536 by
+ * their upper 16 bits. Each chunk in use has a container holding the lower 16 bits of its locations, either as a
+ * sorted array when there are at most {@value #ARRAY_LIMIT} of them, or as a 65536 bit bitmap when there are more. A
+ * sparse chunk costs two bytes a location and a dense one at most eight kilobytes, and empty chunks cost nothing.
+ * <p>
+ * Bitmaps held by a {@link BitmapIndex} are changed by writes to the manager. and, or, andNot and not create new
+ * bitmaps, so query results are unaffected by later writes. Not thread safe.
+ */
+public final class RecordBitmap {
+
+    final static int ARRAY_LIMIT = 4096;
+    private final static int CHUNK_WORDS = 1024;
+
+    private int chunks = 0;
+    private int[] keys = new int[4];
+    private Container[] containers = new Container[4];
+
+    /**
+     * Create an empty bitmap
+     */
+    public RecordBitmap() {
+    }
+
+    /**
+     * Create a bitmap of the locations given by an iterator, e.g. a range from a {@link SortedIndex}
+     *
+     * @param locations Record locations
+     * @return New bitmap
+     */
+    public static RecordBitmap of(final PrimitiveIterator.OfInt locations) {
+        RecordBitmap bitmap = new RecordBitmap();
+        locations.forEachRemaining((int location) -> bitmap.add(location));
+        return bitmap;
+    }
+
+    /**
+     * Check if a location is in the bitmap
+     *
+     * @param location Record location
+     * @return True if present
+     */
+    public boolean contains(final int location) {
+        final int chunk = find(location >>> 16);
+        return (chunk >= 0) && containers[chunk].contains(location & 0xFFFF);
+    }
+
+    /**
+     * Get the number of locations in the bitmap
+     *
+     * @return Location count
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < chunks; i++)
+            cardinality = cardinality + containers[i].count;
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return 0 == chunks;
+    }
+
+    /**
+     * Locations in both bitmaps
+     *
+     * @param other Other bitmap
+     * @return New bitmap
+     */
+    public RecordBitmap and(final RecordBitmap other) {
+        RecordBitmap result = new RecordBitmap();
+        int i = 0, j = 0;
+        while ((i < chunks) && (j < other.chunks)) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long[] words = containers[i].toWords();
+                other.containers[j].andInto(words);
+                result.append(keys[i], Container.of(words));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Locations in either bitmap
+     *
+     * @param other Other bitmap
+     * @return New bitmap
+     */
+    public RecordBitmap or(final RecordBitmap other) {
+        RecordBitmap result = new RecordBitmap();
+        int i = 0, j = 0;
+        while ((i < chunks) || (j < other.chunks)) {
+            if ((j == other.chunks) || ((i < chunks) && (keys[i] < other.keys[j]))) {
+                result.append(keys[i], containers[i].copy());
+                i++;
+            } else if ((i == chunks) || (keys[i] > other.keys[j])) {
+                result.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                long[] words = containers[i].toWords();
+                other.containers[j].orInto(words);
+                result.append(keys[i], Container.of(words));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Locations in this bitmap but not the other
+     *
+     * @param other Other bitmap
+     * @return New bitmap
+     */
+    public RecordBitmap andNot(final RecordBitmap other) {
+        RecordBitmap result = new RecordBitmap();
+        int j = 0;
+        for (int i = 0; i < chunks; i++) {
+            while ((j < other.chunks) && (other.keys[j] < keys[i]))
+                j++;
+            if ((j < other.chunks) && (other.keys[j] == keys[i])) {
+                long[] words = containers[i].toWords();
+                other.containers[j].andNotInto(words);
+                result.append(keys[i], Container.of(words));
+            } else {
+                result.append(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Locations from zero up to a limit that are not in this bitmap
+     *
+     * @param records Number of record locations, e.g. from {@link RecordManager#getRecords()}
+     * @return New bitmap
+     */
+    public RecordBitmap not(final int records) {
+        RecordBitmap result = new RecordBitmap();
+        final int lastKey = (records - 1) >>> 16;
+        int i = 0;
+        for (int key = 0; (records > 0) && (key <= lastKey); key++) {
+            long[] words = new long[CHUNK_WORDS];
+            final int bits = key < lastKey ? 65536 : records - (key << 16);
+            Arrays.fill(words, 0, bits >>> 6, -1L);
+            if (0 != (bits & 0x3F))
+                words[bits >>> 6] = -1L >>> (64 - (bits & 0x3F));
+            if ((i < chunks) && (keys[i] == key))
+                containers[i++].andNotInto(words);
+            result.append(key, Container.of(words));
+        }
+        return result;
+    }
+
+    /**
+     * Copy this bitmap
+     *
+     * @return New bitmap
+     */
+    public RecordBitmap copy() {
+        RecordBitmap result = new RecordBitmap();
+        for (int i = 0; i < chunks; i++)
+            result.append(keys[i], containers[i].copy());
+        return result;
+    }
+
+    /**
+     * Iterate over the locations in ascending order
+     *
+     * @return Record locations
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int chunk = 0;
+            private int pos = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk < chunks) {
+                    pos = containers[chunk].next(pos);
+                    if (pos >= 0)
+                        return true;
+                    chunk++;
+                    pos = 0;
+                }
+                return false;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return (keys[chunk] << 16) | pos++;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof RecordBitmap))
+            return false;
+        RecordBitmap other = (RecordBitmap) o;
+        if (chunks != other.chunks)
+            return false;
+        for (int i = 0; i < chunks; i++) {
+            if ((keys[i] != other.keys[i]) || !Arrays.equals(containers[i].toWords(), other.containers[i].toWords()))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < chunks; i++)
+            hash = 31 * hash + keys[i] * 17 + Arrays.hashCode(containers[i].toWords());
+        return hash;
+    }
+
+    // ******************************************************************************
+    // Maintenance, by the index
+    // ******************************************************************************
+
+    /**
+     * Add a location
+     *
+     * @param location Record location, not negative
+     */
+    void add(final int location) {
+        final int key = location >>> 16;
+        int chunk = find(key);
+        if (chunk < 0) {
+            chunk = ~chunk;
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, chunks * 2);
+                containers = Arrays.copyOf(containers, chunks * 2);
+            }
+            System.arraycopy(keys, chunk, keys, chunk + 1, chunks - chunk);
+            System.arraycopy(containers, chunk, containers, chunk + 1, chunks - chunk);
+            keys[chunk] = key;
+            containers[chunk] = new Container();
+            chunks++;
+        }
+        containers[chunk].add(location & 0xFFFF);
+    }
+
+    /**
+     * Remove a location
+     *
+     * @param location Record location
+     */
+    void remove(final int location) {
+        final int chunk = find(location >>> 16);
+        if (chunk < 0)
+            return;
+        containers[chunk].remove(location & 0xFFFF);
+        if (0 == containers[chunk].count) {
+            chunks--;
+            System.arraycopy(keys, chunk + 1, keys, chunk, chunks - chunk);
+            System.arraycopy(containers, chunk + 1, containers, chunk, chunks - chunk);
+            containers[chunks] = null;
+        }
+    }
+
+    private int find(final int key) {
+        return Arrays.binarySearch(keys, 0, chunks, key);
+    }
+
+    /**
+     * Add a chunk after all others, dropping it if empty
+     *
+     * @param key       Upper 16 bits of the chunk
+     * @param container Container
+     */
+    private void append(final int key, final Container container) {
+        if (0 == container.count)
+            return;
+        if (chunks == keys.length) {
+            keys = Arrays.copyOf(keys, chunks * 2);
+            containers = Arrays.copyOf(containers, chunks * 2);
+        }
+        keys[chunks] = key;
+        containers[chunks++] = container;
+    }
+
+    // Container inner class, for the lower 16 bits of the locations in one chunk. Exactly one of values and words is set.
+    private static final class Container {
+        private char[] values = new char[4];
+        private long[] words = null;
+        private int count = 0;
+
+        /**
+         * Create a container from a chunk bitmap, as an array if sparse enough
+         *
+         * @param words Chunk bitmap, kept by the container if it is used
+         * @return Container
+         */
+        static Container of(final long[] words) {
+            Container container = new Container();
+            int count = 0;
+            for (long word : words)
+                count = count + Long.bitCount(word);
+            container.count = count;
+            if (count > ARRAY_LIMIT) {
+                container.values = null;
+                container.words = words;
+            } else {
+                container.values = new char[Math.max(4, count)];
+                int n = 0;
+                for (int w = 0; w < CHUNK_WORDS; w++) {
+                    for (long word = words[w]; 0 != word; word = word & (word - 1))
+                        container.values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                }
+            }
+            return container;
+        }
+
+        Container copy() {
+            Container container = new Container();
+            container.count = count;
+            container.values = null == values ? null : values.clone();
+            container.words = null == words ? null : words.clone();
+            return container;
+        }
+
+        boolean contains(final int low) {
+            if (null != words)
+                return 0 != (words[low >>> 6] & (1L << low));
+            return Arrays.binarySearch(values, 0, count, (char) low) >= 0;
+        }
+
+        void add(final int low) {
+            if (null != words) {
+                if (0 == (words[low >>> 6] & (1L << low))) {
+                    words[low >>> 6] |= 1L << low;
+                    count++;
+                }
+                return;
+            }
+            int pos = Arrays.binarySearch(values, 0, count, (char) low);
+            if (pos >= 0)
+                return;
+            if (count == ARRAY_LIMIT) {
+                words = toWords();
+                values = null;
+                add(low);
+                return;
+            }
+            pos = ~pos;
+            if (count == values.length)
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, count * 2));
+            System.arraycopy(values, pos, values, pos + 1, count - pos);
+            values[pos] = (char) low;
+            count++;
+        }
+
+        void remove(final int low) {
+            if (null != words) {
+                if (0 != (words[low >>> 6] & (1L << low))) {
+                    words[low >>> 6] &= ~(1L << low);
+                    if (--count == ARRAY_LIMIT) {
+                        Container array = of(words);
+                        values = array.values;
+                        words = null;
+                    }
+                }
+                return;
+            }
+            final int pos = Arrays.binarySearch(values, 0, count, (char) low);
+            if (pos < 0)
+                return;
+            System.arraycopy(values, pos + 1, values, pos, count - pos - 1);
+            count--;
+        }
+
+        /**
+         * Find the first value not below a start
+         *
+         * @param from Start value
+         * @return Value, or -1 if there is none
+         */
+        int next(final int from) {
+            if (null != words) {
+                int w = from >>> 6;
+                if (w >= CHUNK_WORDS)
+                    return -1;
+                long word = words[w] & (-1L << from);
+                while (0 == word) {
+                    if (++w == CHUNK_WORDS)
+                        return -1;
+                    word = words[w];
+                }
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            int pos = Arrays.binarySearch(values, 0, count, (char) Math.min(from, 0xFFFF));
+            if (pos < 0)
+                pos = ~pos;
+            return (pos < count) && (from <= 0xFFFF) ? values[pos] : -1;
+        }
+
+        long[] toWords() {
+            if (null != words)
+                return words.clone();
+            long[] result = new long[CHUNK_WORDS];
+            for (int i = 0; i < count; i++)
+                result[values[i] >>> 6] |= 1L << values[i];
+            return result;
+        }
+
+        void andInto(final long[] target) {
+            if (null != words) {
+                for (int w = 0; w < CHUNK_WORDS; w++)
+                    target[w] &= words[w];
+            } else {
+                long[] mine = toWords();
+                for (int w = 0; w < CHUNK_WORDS; w++)
+                    target[w] &= mine[w];
+            }
+        }
+
+        void orInto(final long[] target) {
+            if (null != words) {
+                for (int w = 0; w < CHUNK_WORDS; w++)
+                    target[w] |= words[w];
+            } else {
+                for (int i = 0; i < count; i++)
+                    target[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+
+        void andNotInto(final long[] target) {
+            if (null != words) {
+                for (int w = 0; w < CHUNK_WORDS; w++)
+                    target[w] &= ~words[w];
+            } else {
+                for (int i = 0; i < count; i++)
+                    target[values[i] >>> 6] &= ~(1L << values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.*;
+
+import java.util.function.Predicate;
+
+/**
+ * A filter on the fields of a record, tested against the packed bytes of each record without decoding it. Filters are
+ * built from comparisons on named fields and combined with and, or and negate, e.g.
+ * <pre>
+ *     RecordFilter filter = RecordFilter.field("qty").gt(100).and(RecordFilter.field("flag").eq(true));
+ * </pre>
+ * A filter is compiled against a record layout, resolving each field to its id and checking its type once. The
+ * compiled test reads each field in place through a {@link RecordView}, at its precomputed bit offset. Filters are
+ * immutable, so can be shared and reused.
+ * <p>
+ * Integer fields are compared with long values, float and double fields with double values and boolean fields with
+ * boolean values.
+ */
+public abstract class RecordFilter {
+
+    private enum Op {
+        EQ, NE, LT, LE, GT, GE
+    }
+
+    /**
+     * Start a comparison on a field
+     *
+     * @param fieldName Name of the field
+     * @return Field to compare
+     */
+    public static Field field(final String fieldName) {
+        return new Field(fieldName);
+    }
+
+    /**
+     * Compile the filter for a record layout
+     *
+     * @param recordDescriptor Field type information
+     * @param <T>              Record type
+     * @return Test on a view positioned on a record
+     * @throws IllegalArgumentException If a field is missing or can't be compared with the value given
+     */
+    public abstract <T> Predicate<RecordView<T>> compile(RecordDescriptor<T> recordDescriptor);
+
+    /**
+     * Match records that match both filters
+     *
+     * @param other Other filter
+     * @return New filter
+     */
+    public RecordFilter and(final RecordFilter other) {
+        final RecordFilter first = this;
+        return new RecordFilter() {
+            @Override
+            public <T> Predicate<RecordView<T>> compile(final RecordDescriptor<T> recordDescriptor) {
+                return first.compile(recordDescriptor).and(other.compile(recordDescriptor));
+            }
+        };
+    }
+
+    /**
+     * Match records that match either filter
+     *
+     * @param other Other filter
+     * @return New filter
+     */
+    public RecordFilter or(final RecordFilter other) {
+        final RecordFilter first = this;
+        return new RecordFilter() {
+            @Override
+            public <T> Predicate<RecordView<T>> compile(final RecordDescriptor<T> recordDescriptor) {
+                return first.compile(recordDescriptor).or(other.compile(recordDescriptor));
+            }
+        };
+    }
+
+    /**
+     * Match records that don't match this filter
+     *
+     * @return New filter
+     */
+    public RecordFilter negate() {
+        final RecordFilter first = this;
+        return new RecordFilter() {
+            @Override
+            public <T> Predicate<RecordView<T>> compile(final RecordDescriptor<T> recordDescriptor) {
+                return first.compile(recordDescriptor).negate();
+            }
+        };
+    }
+
+    /**
+     * A field to compare
+     */
+    public static final class Field {
+        private final String fieldName;
+
+        private Field(final String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        public RecordFilter eq(final long value) {
+            return integral(Op.EQ, value);
+        }
+
+        public RecordFilter ne(final long value) {
+            return integral(Op.NE, value);
+        }
+
+        public RecordFilter lt(final long value) {
+            return integral(Op.LT, value);
+        }
+
+        public RecordFilter le(final long value) {
+            return integral(Op.LE, value);
+        }
+
+        public RecordFilter gt(final long value) {
+            return integral(Op.GT, value);
+        }
+
+        public RecordFilter ge(final long value) {
+            return integral(Op.GE, value);
+        }
+
+        /**
+         * Match an integer field in a range
+         *
+         * @param from Lowest value, inclusive
+         * @param to   Highest value, inclusive
+         * @return New filter
+         */
+        public RecordFilter between(final long from, final long to) {
+            return ge(from).and(le(to));
+        }
+
+        public RecordFilter eq(final double value) {
+            return real(Op.EQ, value);
+        }
+
+        public RecordFilter ne(final double value) {
+            return real(Op.NE, value);
+        }
+
+        public RecordFilter lt(final double value) {
+            return real(Op.LT, value);
+        }
+
+        public RecordFilter le(final double value) {
+            return real(Op.LE, value);
+        }
+
+        public RecordFilter gt(final double value) {
+            return real(Op.GT, value);
+        }
+
+        public RecordFilter ge(final double value) {
+            return real(Op.GE, value);
+        }
+
+        public RecordFilter eq(final boolean value) {
+            return new RecordFilter() {
+                @Override
+                public <T> Predicate<RecordView<T>> compile(final RecordDescriptor<T> recordDescriptor) {
+                    final int fieldId = fieldId(recordDescriptor, IMemoryStore.Type.Bit);
+                    return value ? view -> view.getBoolean(fieldId) : view -> !view.getBoolean(fieldId);
+                }
+            };
+        }
+
+        public RecordFilter ne(final boolean value) {
+            return eq(!value);
+        }
+
+        private RecordFilter integral(final Op op, final long value) {
+            return new RecordFilter() {
+                @Override
+                public <T> Predicate<RecordView<T>> compile(final RecordDescriptor<T> recordDescriptor) {
+                    final int fieldId = fieldId(recordDescriptor, IMemoryStore.Type.Byte8, IMemoryStore.Type.Short16, IMemoryStore.Type.Char16,
+                                                IMemoryStore.Type.Word32, IMemoryStore.Type.Word64);
+                    switch (op) {
+                        case EQ:
+                            return view -> view.getLong(fieldId) == value;
+                        case NE:
+                            return view -> view.getLong(fieldId) != value;
+                        case LT:
+                            return view -> view.getLong(fieldId) < value;
+                        case LE:
+                            return view -> view.getLong(fieldId) <= value;
+                        case GT:
+                            return view -> view.getLong(fieldId) > value;
+                        default:
+                            return view -> view.getLong(fieldId) >= value;
+                    }
+                }
+            };
+        }
+
+        private RecordFilter real(final Op op, final double value) {
+            return new RecordFilter() {
+                @Override
+                public <T> Predicate<RecordView<T>> compile(final RecordDescriptor<T> recordDescriptor) {
+                    final int fieldId = fieldId(recordDescriptor, IMemoryStore.Type.Float, IMemoryStore.Type.Double);
+                    if (IMemoryStore.Type.Float == recordDescriptor.getFieldType(fieldId)) {
+                        return compare(op, view -> view.getFloat(fieldId), value);
+                    }
+                    return compare(op, view -> view.getDouble(fieldId), value);
+                }
+            };
+        }
+
+        /**
+         * Find the field in a layout and check its type
+         *
+         * @param recordDescriptor Field type information
+         * @param types            Types the comparison can be made on
+         * @return Field id
+         */
+        private int fieldId(final RecordDescriptor<?> recordDescriptor, final IMemoryStore.Type... types) {
+            final int fieldId = recordDescriptor.getFieldId(fieldName);
+            final IMemoryStore.Type type = recordDescriptor.getFieldType(fieldId);
+            for (IMemoryStore.Type allowed : types) {
+                if (allowed == type)
+                    return fieldId;
+            }
+            throw new IllegalArgumentException("Field (" + fieldName + ") of type " + type + " can't be compared with this type");
+        }
+    }
+
+    /**
+     * Read a float or double field as a double
+     */
+    private interface RealField<T> {
+        double get(RecordView<T> view);
+    }
+
+    private static <T> Predicate<RecordView<T>> compare(final Op op, final RealField<T> field, final double value) {
+        switch (op) {
+            case EQ:
+                return view -> field.get(view) == value;
+            case NE:
+                return view -> field.get(view) != value;
+            case LT:
+                return view -> field.get(view) < value;
+            case LE:
+                return view -> field.get(view) <= value;
+            case GT:
+                return view -> field.get(view) > value;
+            default:
+                return view -> field.get(view) >= value;
+        }
+    }
+}
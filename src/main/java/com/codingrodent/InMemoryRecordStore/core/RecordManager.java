@@ -25,18 +25,28 @@ package com.codingrodent.InMemoryRecordStore.core;
 
 import com.codingrodent.InMemoryRecordStore.record.*;
 
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
 public class RecordManager<T> {
 
-    private final static long STORAGE_LIMIT = 0x7FFF_FFFC;
+    final static long STORAGE_LIMIT = 0x7FFF_FFFC;
+    // Ranges of fewer records are not split further, and bulk reads are made this many records at a time
+    final static int SPLIT_RECORDS = 1024;
 
     private final int lengthInBytes;
     private final int lengthInWords;
     private final int records;
     private final Reader<T> reader;
     private final Writer<T> writer;
+    private final IMemoryStore memoryStore;
+    private final RecordDescriptor<T> recordDescriptor;
 
     /**
-     * Create a new In Memory component descriptor
+     * Create a new In Memory component descriptor. Records are stored as rows, or as columns if the record descriptor
+     * has a columnar layout, with the same record level access either way.
      *
      * @param memoryStore      Data storage structure
      * @param records          The records of the memory core in records
@@ -46,15 +56,17 @@ public class RecordManager<T> {
         if (records < 8) {
             throw new IllegalArgumentException("The component must have at least eight records");
         }
-        long lengthInBytes = ((long) recordDescriptor.getByteLength()) * records;
+        long lengthInBytes = recordDescriptor.isColumnar() ? recordDescriptor.getStorageBytes(records) : ((long) recordDescriptor.getByteLength()) * records;
         if (lengthInBytes > STORAGE_LIMIT) {
             throw new IllegalArgumentException("Maximum storage limit exceeded - " + STORAGE_LIMIT + " bytes");
         }
         this.lengthInBytes = (int) lengthInBytes;
         this.lengthInWords = (int) (((lengthInBytes - 1) >> 2) + 1);
         this.records = records;
-        this.reader = new Reader<>(memoryStore, recordDescriptor);
-        this.writer = new Writer<>(memoryStore, recordDescriptor);
+        this.reader = new Reader<>(memoryStore, recordDescriptor, records);
+        this.writer = new Writer<>(memoryStore, recordDescriptor, records);
+        this.memoryStore = memoryStore;
+        this.recordDescriptor = recordDescriptor;
         memoryStore.build(lengthInWords);
     }
 
@@ -71,6 +83,20 @@ public class RecordManager<T> {
         return reader.getRecord(location);
     }
 
+    /**
+     * Read a record at the specified location into an existing record object, to avoid allocating a new one
+     *
+     * @param location Location
+     * @param reuse    Record object to populate
+     * @return Record, normally reuse
+     */
+    public T getRecord(final int location, final T reuse) throws IllegalArgumentException {
+        if ((location < 0) || (location >= records)) {
+            throw new IllegalArgumentException("Record location out of bounds");
+        }
+        return reader.getRecord(location, reuse);
+    }
+
     /**
      * Write a record at the specified location
      *
@@ -84,6 +110,228 @@ public class RecordManager<T> {
         writer.putRecord(location, record);
     }
 
+    /**
+     * Write records to consecutive locations. The range is checked once, and all records are checked before anything
+     * is written.
+     *
+     * @param start   Location of the first record
+     * @param records Records
+     */
+    public void putRecords(final int start, final List<? extends T> records) throws IllegalArgumentException {
+        checkRange(start, records.size());
+        writer.putRecords(start, records);
+    }
+
+    /**
+     * Write records to consecutive locations. The range is checked once, and all records are checked before anything
+     * is written.
+     *
+     * @param start   Location of the first record
+     * @param records Records
+     */
+    public void putRecords(final int start, final T[] records) throws IllegalArgumentException {
+        putRecords(start, Arrays.asList(records));
+    }
+
+    /**
+     * Read records from consecutive locations, passing each to a consumer in order
+     *
+     * @param start    Location of the first record
+     * @param count    Number of records
+     * @param consumer Receives each record
+     */
+    public void getRecords(final int start, final int count, final Consumer<? super T> consumer) throws IllegalArgumentException {
+        checkRange(start, count);
+        reader.getRecords(start, count, consumer);
+    }
+
+    /**
+     * Copy the packed bytes of a range of records out to a byte array, with no unpacking. The bytes are laid out as rows,
+     * so records held in columns are gathered into rows.
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param target Target array
+     * @param offset Offset of the first byte in the target array
+     */
+    public void copyRecordsTo(final int start, final int count, final byte[] target, final int offset) throws IllegalArgumentException {
+        checkRange(start, count);
+        final int length = count * recordDescriptor.getByteLength();
+        if ((offset < 0) || (offset > target.length - length)) {
+            throw new IllegalArgumentException("Array too small for records");
+        }
+        reader.copyRecords(start, count, target, offset);
+    }
+
+    /**
+     * Copy the packed bytes of a range of records out to a byte buffer, with no unpacking. The bytes are written at the
+     * position of the buffer, which is moved on past them.
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param target Target buffer
+     */
+    public void copyRecordsTo(final int start, final int count, final ByteBuffer target) throws IllegalArgumentException {
+        checkRange(start, count);
+        final int length = count * recordDescriptor.getByteLength();
+        if (target.remaining() < length) {
+            throw new IllegalArgumentException("Buffer too small for records");
+        }
+        if (target.hasArray()) {
+            reader.copyRecords(start, count, target.array(), target.arrayOffset() + target.position());
+            target.position(target.position() + length);
+        } else {
+            byte[] data = new byte[length];
+            reader.copyRecords(start, count, data, 0);
+            target.put(data);
+        }
+    }
+
+    /**
+     * Copy packed records into a range of locations from a byte array. The bytes must be laid out as rows, e.g. by
+     * {@link #copyRecordsTo(int, int, byte[], int)}, and are scattered into columns for records held in columns.
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param source Source array
+     * @param offset Offset of the first byte in the source array
+     */
+    public void copyRecordsFrom(final int start, final int count, final byte[] source, final int offset) throws IllegalArgumentException {
+        checkRange(start, count);
+        final int length = count * recordDescriptor.getByteLength();
+        if ((offset < 0) || (offset > source.length - length)) {
+            throw new IllegalArgumentException("Array too small for records");
+        }
+        writer.copyRecords(start, count, source, offset);
+    }
+
+    /**
+     * Copy packed records into a range of locations from a byte buffer. The bytes are read from the position of the
+     * buffer, which is moved on past them.
+     *
+     * @param start  Location of the first record
+     * @param count  Number of records
+     * @param source Source buffer
+     */
+    public void copyRecordsFrom(final int start, final int count, final ByteBuffer source) throws IllegalArgumentException {
+        checkRange(start, count);
+        final int length = count * recordDescriptor.getByteLength();
+        if (source.remaining() < length) {
+            throw new IllegalArgumentException("Buffer too small for records");
+        }
+        if (source.hasArray()) {
+            writer.copyRecords(start, count, source.array(), source.arrayOffset() + source.position());
+            source.position(source.position() + length);
+        } else {
+            byte[] data = new byte[length];
+            source.get(data);
+            writer.copyRecords(start, count, data, 0);
+        }
+    }
+
+    /**
+     * Check a range of record locations
+     *
+     * @param start Location of the first record
+     * @param count Number of records
+     */
+    void checkRange(final int start, final int count) {
+        if ((start < 0) || (count < 0) || ((long) start + count > records)) {
+            throw new IllegalArgumentException("Record location out of bounds");
+        }
+    }
+
+    /**
+     * Find the records matching a filter. Each record is tested in place, and none are decoded.
+     *
+     * @param filter Filter on the fields of a record
+     * @return Locations of matching records
+     */
+    public RecordBitmap select(final RecordFilter filter) {
+        final RecordBitmap locations = new RecordBitmap();
+        forEachMatch(filter, false, (record, location) -> locations.add(location));
+        return locations;
+    }
+
+    /**
+     * Read the records matching a filter, in location order. Each record is tested in place, and only matching records
+     * are decoded.
+     *
+     * @param filter   Filter on the fields of a record
+     * @param consumer Receives each matching record
+     */
+    public void scan(final RecordFilter filter, final Consumer<? super T> consumer) {
+        forEachMatch(filter, true, (record, location) -> consumer.accept(record));
+    }
+
+    /**
+     * Test every record against a filter
+     *
+     * @param filter Filter on the fields of a record
+     * @param decode True to decode matching records, otherwise null is passed for each record
+     * @param action Receives each matching record and its location
+     */
+    void forEachMatch(final RecordFilter filter, final boolean decode, final ObjIntConsumer<T> action) {
+        final Predicate<RecordView<T>> predicate = filter.compile(recordDescriptor);
+        final RecordView<T> view = newView();
+        for (int location = 0; location < records; location++) {
+            match(predicate, view, location, decode, action);
+        }
+    }
+
+    /**
+     * Test one record against a compiled filter
+     *
+     * @param predicate Compiled filter
+     * @param view      View to test the record through
+     * @param location  Location
+     * @param decode    True to decode the record if it matches
+     * @param action    Receives the record and its location if it matches
+     */
+    void match(final Predicate<RecordView<T>> predicate, final RecordView<T> view, final int location, final boolean decode, final ObjIntConsumer<T> action) {
+        if (predicate.test(view.moveTo(location)))
+            action.accept(decode ? reader.getRecord(location) : null, location);
+    }
+
+    /**
+     * Create a spliterator over all records in location order. It splits on ranges of record locations, so each part
+     * of a parallel traversal decodes its own range of the store. Records are read a block at a time when the
+     * remaining range is traversed.
+     *
+     * @return Sized spliterator
+     */
+    public Spliterator<T> spliterator() {
+        return new RecordSpliterator(0, records);
+    }
+
+    /**
+     * Stream all records in location order
+     *
+     * @return Sequential stream
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Stream all records in location order, allowing ranges of records to be decoded in parallel
+     *
+     * @return Parallel stream
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Create a view for reading and writing single fields of records in place. The view can be moved between records
+     * and reused.
+     *
+     * @return New view, not yet positioned on a record
+     */
+    public RecordView<T> newView() {
+        return new RecordView<>(memoryStore, recordDescriptor, records);
+    }
+
     /**
      * Return the length of a record in bytes
      *
@@ -112,4 +360,57 @@ public class RecordManager<T> {
         return records;
     }
 
+    // Spliterator inner class, covering locations from index up to but not including fence
+    private class RecordSpliterator implements Spliterator<T> {
+        private int index;
+        private final int fence;
+
+        RecordSpliterator(final int index, final int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            if (null == action)
+                throw new NullPointerException();
+            if (index >= fence)
+                return false;
+            action.accept(getRecord(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super T> action) {
+            if (null == action)
+                throw new NullPointerException();
+            while (index < fence) {
+                final int start = index;
+                final int count = Math.min(SPLIT_RECORDS, fence - start);
+                index = start + count;
+                getRecords(start, count, action);
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final int remaining = fence - index;
+            if (remaining < 2 * SPLIT_RECORDS)
+                return null;
+            final int start = index;
+            index = start + (remaining >>> 1);
+            return new RecordSpliterator(start, index);
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
 }
@@ -0,0 +1,431 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import java.util.function.Supplier;
+
+/**
+ * This class simulates a block of RAM larger than 2GB by splitting it into a number of fixed size segments, each an
+ * IMemoryStore in its own right. Facilities are supplied to read and write the 'RAM' via methods using all supported
+ * types with long (64 bit) byte addresses.
+ * <p>
+ * Accesses that lie within one segment are passed straight to that segment. Those that span two segments, or wrap
+ * at the end of memory, are broken down into individual bytes.
+ */
+public class SegmentedMemoryStore {
+
+    public final static int DEFAULT_SEGMENT_WORDS = 1 << 28;
+
+    private final Supplier<IMemoryStore> segmentFactory;
+    private IMemoryStore[] segments = new IMemoryStore[0];
+    private int segmentBytes = 0;
+    private long bytes = 0;
+    private long words = 0;
+
+    /**
+     * Create an empty store structure with heap based segments
+     */
+    public SegmentedMemoryStore() {
+        this(ArrayMemoryStore::new);
+    }
+
+    /**
+     * Create an empty store structure
+     *
+     * @param segmentFactory Source of empty segments, e.g. DirectMemoryStore::new
+     */
+    public SegmentedMemoryStore(final Supplier<IMemoryStore> segmentFactory) {
+        this.segmentFactory = segmentFactory;
+    }
+
+    /**
+     * Build the storage using segments of the default size. The final length is rounded up to a whole number of
+     * segments
+     *
+     * @param words Length in 32 bit words
+     * @throws IllegalArgumentException Thrown if the requested storage length if out of range
+     */
+    public void build(final long words) {
+        if (words < 1) {
+            throw new IllegalArgumentException("The number of words requested was out of range");
+        }
+        int segmentWords = (int) Math.min(words, DEFAULT_SEGMENT_WORDS);
+        long segments = ((words - 1) / segmentWords) + 1;
+        if (segments > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The number of words requested was out of range");
+        }
+        build(segmentWords, (int) segments);
+    }
+
+    /**
+     * Build the storage from a number of equally sized segments
+     *
+     * @param segmentWords Length of each segment in 32 bit words
+     * @param segments     Number of segments
+     * @throws IllegalArgumentException Thrown if the requested storage length if out of range
+     */
+    public void build(final int segmentWords, final int segments) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("At least one segment is required");
+        }
+        IMemoryStore[] built = new IMemoryStore[segments];
+        for (int i = 0; i < segments; i++) {
+            built[i] = segmentFactory.get();
+            built[i].build(segmentWords);
+        }
+        this.segments = built;
+        this.segmentBytes = segmentWords * 4;
+        this.words = ((long) segmentWords) * segments;
+        this.bytes = this.words * 4;
+    }
+
+    /**
+     * Clear down all memory cells to zero
+     */
+    public void reset() {
+        for (IMemoryStore segment : segments) {
+            segment.reset();
+        }
+    }
+
+    /**
+     * Get the number of words of memory allocated
+     *
+     * @return Memory length allocated in 32 bit words
+     */
+    public long getWords() {
+        return words;
+    }
+
+    /**
+     * Get the number of bytes of memory allocated
+     *
+     * @return Memory length allocated in 8 bit bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the number of segments allocated
+     *
+     * @return Segment count
+     */
+    public int getSegments() {
+        return segments.length;
+    }
+
+    /**
+     * Get the length of each segment
+     *
+     * @return Segment length in 8 bit bytes
+     */
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Get direct access to a segment. Addresses in the segment start at zero
+     *
+     * @param segment Segment number
+     * @return Segment storage
+     */
+    public IMemoryStore getSegment(final int segment) {
+        return segments[segment];
+    }
+
+    /**
+     * Return a word of memory from any address
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @return The word of memory requested
+     */
+    public int getWord(final long address) {
+        final long offset = wrap(address);
+        final int local = (int) (offset % segmentBytes);
+        if (local <= segmentBytes - 4) {
+            return segments[(int) (offset / segmentBytes)].getWord(local);
+        }
+        return (int) getSpanning(offset, 4);
+    }
+
+    /**
+     * Return a long word of memory from any address
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @return The long word of memory requested
+     */
+    public long getLongWord(final long address) {
+        final long offset = wrap(address);
+        final int local = (int) (offset % segmentBytes);
+        if (local <= segmentBytes - 8) {
+            return segments[(int) (offset / segmentBytes)].getLongWord(local);
+        }
+        return getSpanning(offset, 8);
+    }
+
+    /**
+     * Return a 24 bit word of memory from any address
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @return The word of memory requested
+     */
+    public int getWord24(final long address) {
+        final long offset = wrap(address);
+        final int local = (int) (offset % segmentBytes);
+        if (local <= segmentBytes - 3) {
+            return segments[(int) (offset / segmentBytes)].getWord24(local);
+        }
+        return (int) getSpanning(offset, 3);
+    }
+
+    /**
+     * Return a short word of memory from any address
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @return The short word of memory requested
+     */
+    public short getShortWord(final long address) {
+        final long offset = wrap(address);
+        final int local = (int) (offset % segmentBytes);
+        if (local <= segmentBytes - 2) {
+            return segments[(int) (offset / segmentBytes)].getShortWord(local);
+        }
+        return (short) getSpanning(offset, 2);
+    }
+
+    /**
+     * Return a byte of memory from any address
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @return The byte of memory requested
+     */
+    public byte getByte(final long address) {
+        final long offset = wrap(address);
+        return segments[(int) (offset / segmentBytes)].getByte((int) (offset % segmentBytes));
+    }
+
+    /**
+     * Read a byte array from any address. The array is copied a segment at a time
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @param length  Bytes to be read from memory
+     * @return Memory array at address
+     */
+    public byte[] getByteArray(final long address, final int length) {
+        byte[] data = new byte[length];
+        getBytes(address, data, 0, length);
+        return data;
+    }
+
+    /**
+     * Read bytes from any address into an existing array, with no allocation. The bytes are copied a segment at a time
+     *
+     * @param address Byte address to be fetched from (Will wrap if too large)
+     * @param dst     Target array
+     * @param off     Offset of the first byte in the target array
+     * @param len     Bytes to be read from memory
+     * @throws IndexOutOfBoundsException Thrown if the target array range is invalid
+     */
+    public void getBytes(final long address, final byte[] dst, final int off, final int len) {
+        IMemoryStore.checkRange(dst, off, len);
+        long offset = wrap(address);
+        int pos = 0;
+        while (pos < len) {
+            final int local = (int) (offset % segmentBytes);
+            final int chunk = chunk(offset, local, len - pos);
+            segments[(int) (offset / segmentBytes)].getBytes(local, dst, off + pos, chunk);
+            pos = pos + chunk;
+            offset = (offset + chunk) % bytes;
+        }
+    }
+
+    /**
+     * Write a word of memory to any address
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param value   Word to be written to memory
+     */
+    public void setWord(final long address, final int value) {
+        final long offset = wrap(address);
+        final int local = (int) (offset % segmentBytes);
+        if (local <= segmentBytes - 4) {
+            segments[(int) (offset / segmentBytes)].setWord(local, value);
+        } else {
+            setSpanning(offset, 4, value);
+        }
+    }
+
+    /**
+     * Write a long word of memory to any address
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param value   Long word to be written to memory
+     */
+    public void setLongWord(final long address, final long value) {
+        final long offset = wrap(address);
+        final int local = (int) (offset % segmentBytes);
+        if (local <= segmentBytes - 8) {
+            segments[(int) (offset / segmentBytes)].setLongWord(local, value);
+        } else {
+            setSpanning(offset, 8, value);
+        }
+    }
+
+    /**
+     * Write a 24 bit word of memory to any address. Bits 24..31 of the value are ignored
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param value   Word to be written to memory
+     */
+    public void setWord24(final long address, final int value) {
+        final long offset = wrap(address);
+        final int local = (int) (offset % segmentBytes);
+        if (local <= segmentBytes - 3) {
+            segments[(int) (offset / segmentBytes)].setWord24(local, value);
+        } else {
+            setSpanning(offset, 3, value);
+        }
+    }
+
+    /**
+     * Write a short word of memory to any address
+     *
+     * @param address    Address to be written to (Will wrap if too large)
+     * @param shortValue Short word to be written to memory
+     */
+    public void setShort(final long address, final short shortValue) {
+        final long offset = wrap(address);
+        final int local = (int) (offset % segmentBytes);
+        if (local <= segmentBytes - 2) {
+            segments[(int) (offset / segmentBytes)].setShort(local, shortValue);
+        } else {
+            setSpanning(offset, 2, shortValue);
+        }
+    }
+
+    /**
+     * Write a byte of memory to any address
+     *
+     * @param address   Address to be written to (Will wrap if too large)
+     * @param byteValue Byte to be written to memory
+     */
+    public void setByte(final long address, final byte byteValue) {
+        final long offset = wrap(address);
+        segments[(int) (offset / segmentBytes)].setByte((int) (offset % segmentBytes), byteValue);
+    }
+
+    /**
+     * Write a byte array to memory at any address. The array is copied a segment at a time
+     *
+     * @param address    Address to be written to (Will wrap if too large)
+     * @param byteValues Bytes to be written to memory
+     */
+    public void setByteArray(final long address, final byte[] byteValues) {
+        setBytes(address, byteValues, 0, byteValues.length);
+    }
+
+    /**
+     * Write part of a byte array to memory at any address. The bytes are copied a segment at a time
+     *
+     * @param address Address to be written to (Will wrap if too large)
+     * @param src     Source array
+     * @param off     Offset of the first byte in the source array
+     * @param len     Bytes to be written to memory
+     * @throws IndexOutOfBoundsException Thrown if the source array range is invalid
+     */
+    public void setBytes(final long address, final byte[] src, final int off, final int len) {
+        IMemoryStore.checkRange(src, off, len);
+        long offset = wrap(address);
+        int pos = 0;
+        while (pos < len) {
+            final int local = (int) (offset % segmentBytes);
+            final int chunk = chunk(offset, local, len - pos);
+            segments[(int) (offset / segmentBytes)].setBytes(local, src, off + pos, chunk);
+            pos = pos + chunk;
+            offset = (offset + chunk) % bytes;
+        }
+    }
+
+    // ******************************************************************************
+    // ******************************************************************************
+    // ******************************************************************************
+
+    /**
+     * Validate an address, and if OK wrap on the length of the memory allocated
+     *
+     * @param address Address to be checked
+     * @return Wrapped byte address
+     * @throws IllegalArgumentException Thrown if the address is illegal, i.e. Not +ve
+     */
+    private long wrap(final long address) {
+        if (address < 0) {
+            throw new IllegalArgumentException("Address out of range");
+        }
+        return address % bytes;
+    }
+
+    /**
+     * Work out how much of a block transfer can be made in one segment
+     *
+     * @param offset    Wrapped byte address
+     * @param local     Byte address within the segment
+     * @param remaining Bytes left to transfer
+     * @return Bytes to transfer to or from this segment
+     */
+    private int chunk(final long offset, final int local, final int remaining) {
+        return (int) Math.min(Math.min(remaining, segmentBytes - local), bytes - offset);
+    }
+
+    /**
+     * Read a big endian value that spans segments a byte at a time
+     *
+     * @param offset Wrapped byte address to start reading from
+     * @param length Number of bytes to read (1..8)
+     * @return Value right aligned in a long
+     */
+    private long getSpanning(long offset, final int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (getByte(offset) & 0x00FF);
+            offset = (offset + 1) % bytes;
+        }
+        return value;
+    }
+
+    /**
+     * Write a big endian value that spans segments a byte at a time
+     *
+     * @param offset Wrapped byte address to start writing to
+     * @param length Number of bytes to write (1..8)
+     * @param value  Value right aligned in a long
+     */
+    private void setSpanning(long offset, final int length, final long value) {
+        for (int i = length - 1; i >= 0; i--) {
+            setByte(offset, (byte) (value >>> (i * 8)));
+            offset = (offset + 1) % bytes;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.*;
+
+/**
+ * A record manager for more records than fit into 2GB. Records are held in a segmented store, with each segment holding
+ * a power of two number of records so that a record never spans two segments. Finding the segment for a record is a
+ * shift and a mask, and the record is then read or written by a reader / writer dedicated to that segment.
+ */
+public class SegmentedRecordManager<T> {
+
+    public final static int DEFAULT_SEGMENT_BYTES = 1 << 30;
+    private final static int SEGMENT_LIMIT = 0x7FFF_FFFC;
+
+    private final long records;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final long lengthInBytes;
+    private final Reader<T>[] readers;
+    private final Writer<T>[] writers;
+
+    /**
+     * Create a new In Memory component descriptor using segments of up to 1GB
+     *
+     * @param memoryStore      Data storage structure
+     * @param records          The records of the memory core in records
+     * @param recordDescriptor Field type information
+     */
+    public SegmentedRecordManager(final SegmentedMemoryStore memoryStore, final long records, final RecordDescriptor<T> recordDescriptor) {
+        this(memoryStore, records, recordDescriptor, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Create a new In Memory component descriptor
+     *
+     * @param memoryStore      Data storage structure
+     * @param records          The records of the memory core in records
+     * @param recordDescriptor Field type information
+     * @param maxSegmentBytes  Upper limit on the size of each segment in bytes, including the padding of a columnar layout
+     */
+    public SegmentedRecordManager(final SegmentedMemoryStore memoryStore, final long records, final RecordDescriptor<T> recordDescriptor, final int maxSegmentBytes) {
+        if (records < 8) {
+            throw new IllegalArgumentException("The component must have at least eight records");
+        }
+        final int byteLength = recordDescriptor.getByteLength();
+        if ((maxSegmentBytes < byteLength) || (maxSegmentBytes > SEGMENT_LIMIT)) {
+            throw new IllegalArgumentException("Segment size must be between one record and " + SEGMENT_LIMIT + " bytes");
+        }
+        // Records per segment is a power of two, no larger than needed for the whole store
+        long recordsPerSegment = Math.min(Integer.highestOneBit(maxSegmentBytes / byteLength), Long.highestOneBit(records - 1) << 1);
+        if (recordDescriptor.isColumnar()) {
+            // Columns are padded, so fewer records may fit
+            while ((recordsPerSegment > 1) && (recordDescriptor.getStorageBytes((int) recordsPerSegment) > maxSegmentBytes))
+                recordsPerSegment = recordsPerSegment >> 1;
+            if (recordDescriptor.getStorageBytes((int) recordsPerSegment) > maxSegmentBytes) {
+                throw new IllegalArgumentException("Segment size must be between one record and " + SEGMENT_LIMIT + " bytes");
+            }
+        }
+        this.segmentShift = Long.numberOfTrailingZeros(recordsPerSegment);
+        this.segmentMask = recordsPerSegment - 1;
+        long segments = ((records - 1) >> segmentShift) + 1;
+        if (segments > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maximum storage limit exceeded - " + Integer.MAX_VALUE + " segments");
+        }
+        // A columnar layout keeps its columns within each segment
+        final long segmentBytes = recordDescriptor.isColumnar() ? recordDescriptor.getStorageBytes((int) recordsPerSegment) : recordsPerSegment * byteLength;
+        final int segmentWords = (int) (((segmentBytes - 1) >> 2) + 1);
+        memoryStore.build(segmentWords, (int) segments);
+        //
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Reader<T>[] readers = new Reader[(int) segments];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Writer<T>[] writers = new Writer[(int) segments];
+        for (int i = 0; i < segments; i++) {
+            readers[i] = new Reader<>(memoryStore.getSegment(i), recordDescriptor, (int) recordsPerSegment);
+            writers[i] = new Writer<>(memoryStore.getSegment(i), recordDescriptor, (int) recordsPerSegment);
+        }
+        this.readers = readers;
+        this.writers = writers;
+        this.records = records;
+        this.lengthInBytes = memoryStore.getBytes();
+    }
+
+    /**
+     * Read a record at the specified location
+     *
+     * @param location Location
+     * @return Record
+     */
+    public T getRecord(final long location) throws IllegalArgumentException {
+        if ((location < 0) || (location >= records)) {
+            throw new IllegalArgumentException("Record location out of bounds");
+        }
+        return readers[(int) (location >>> segmentShift)].getRecord((int) (location & segmentMask));
+    }
+
+    /**
+     * Read a record at the specified location into an existing record object, to avoid allocating a new one
+     *
+     * @param location Location
+     * @param reuse    Record object to populate
+     * @return Record, normally reuse
+     */
+    public T getRecord(final long location, final T reuse) throws IllegalArgumentException {
+        if ((location < 0) || (location >= records)) {
+            throw new IllegalArgumentException("Record location out of bounds");
+        }
+        return readers[(int) (location >>> segmentShift)].getRecord((int) (location & segmentMask), reuse);
+    }
+
+    /**
+     * Write a record at the specified location
+     *
+     * @param location Location
+     * @param record   Record
+     */
+    public void putRecord(final long location, final T record) throws IllegalArgumentException {
+        if ((location < 0) || (location >= records)) {
+            throw new IllegalArgumentException("Record location out of bounds");
+        }
+        writers[(int) (location >>> segmentShift)].putRecord((int) (location & segmentMask), record);
+    }
+
+    /**
+     * Return the length of the storage in bytes, including any unused space at the end of each segment
+     *
+     * @return Byte length
+     */
+    public long getLengthInBytes() {
+        return lengthInBytes;
+    }
+
+    /**
+     * Get the number of records held in each segment
+     *
+     * @return Records per segment
+     */
+    public int getRecordsPerSegment() {
+        return (int) (segmentMask + 1);
+    }
+
+    /**
+     * Get the number of records allocated for storage
+     *
+     * @return Allocated storage
+     */
+    public long getRecords() {
+        return records;
+    }
+
+}
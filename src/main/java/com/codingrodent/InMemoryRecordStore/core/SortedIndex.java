@@ -0,0 +1,425 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.*;
+
+import java.util.*;
+
+/**
+ * A sorted secondary index on an integer field, for range queries. Created by
+ * {@link IndexedRecordManager#addSortedIndex(String)} and kept in step with every write to the manager.
+ * <p>
+ * Entries are (key, location) pairs in key order, with equal keys ordered by location so every entry is distinct. They
+ * are held in a memory store as a two level tree: fixed size blocks of up to {@value #BLOCK_ENTRIES} sorted entries, and
+ * a sorted array of fence entries holding the first entry and number of each block. A lookup binary searches the
+ * fences, then the block. A full block splits in two and a block less than half full is merged with, or takes entries
+ * from, a neighbour, so every block except a lone one is at least half full. Space for the most blocks that can ever
+ * be needed is allocated up front, and nothing is allocated per entry.
+ * <p>
+ * Iterators are not fail fast, and must not be used across writes to the manager.
+ */
+public class SortedIndex<T> extends SecondaryIndex {
+
+    final static int BLOCK_ENTRIES = 64;
+    private final static int FENCE_BYTES = 16;
+    // Block layout: count, next free block, keys, then locations
+    private final static int KEYS = 8;
+    private final static int LOCATIONS = KEYS + BLOCK_ENTRIES * 8;
+    private final static int BLOCK_BYTES = LOCATIONS + BLOCK_ENTRIES * 4;
+
+    private final IMemoryStore store;
+    private final RecordView<T> view;
+    private final int field;
+    private final String fieldName;
+    private final int blockBase;
+    private final int maxBlocks;
+    private int blocks = 0;
+    private int freeBlocks = -1;
+    private int unusedBlocks = 0;
+    private int size = 0;
+
+    /**
+     * Create an empty index
+     *
+     * @param view             View onto the records of the manager
+     * @param recordDescriptor Field type information
+     * @param fieldName        Name of the integer field to index
+     * @param records          Number of record locations, the most entries the index can hold
+     * @param store            Storage for the index
+     */
+    SortedIndex(final RecordView<T> view, final RecordDescriptor<T> recordDescriptor, final String fieldName, final int records, final IMemoryStore store) {
+        this.field = recordDescriptor.getFieldId(fieldName);
+        switch (recordDescriptor.getFieldType(field)) {
+            case Byte8:
+            case Short16:
+            case Char16:
+            case Word32:
+            case Word64:
+                break;
+            default:
+                throw new IllegalArgumentException("Sorted index field (" + fieldName + ") must be an integer field");
+        }
+        // Blocks other than a lone one are at least half full
+        long maxBlocks = (long) records * 2 / BLOCK_ENTRIES + 2;
+        long bytes = maxBlocks * (FENCE_BYTES + BLOCK_BYTES);
+        if (bytes > RecordManager.STORAGE_LIMIT) {
+            throw new IllegalArgumentException("Maximum index storage limit exceeded - " + RecordManager.STORAGE_LIMIT + " bytes");
+        }
+        this.maxBlocks = (int) maxBlocks;
+        this.blockBase = (int) maxBlocks * FENCE_BYTES;
+        this.fieldName = fieldName;
+        this.view = view;
+        this.store = store;
+        store.build((int) (bytes >>> 2));
+    }
+
+    /**
+     * Get the name of the indexed field
+     *
+     * @return Field name
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Get the number of entries in the index, one for each record in use
+     *
+     * @return Entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Iterate over the locations of records with a key in a range, in key order then location order
+     *
+     * @param from Lowest key, inclusive
+     * @param to   Highest key, inclusive
+     * @return Record locations
+     */
+    public PrimitiveIterator.OfInt range(final long from, final long to) {
+        int fence = 0;
+        int pos = 0;
+        if (blocks > 0) {
+            fence = findFence(from, Integer.MIN_VALUE);
+            pos = lowerBound(block(fence), from, Integer.MIN_VALUE);
+        }
+        return new RangeIterator(fence, pos, to);
+    }
+
+    /**
+     * Iterate over the locations of records with a key
+     *
+     * @param key Key value
+     * @return Record locations, in location order
+     */
+    public PrimitiveIterator.OfInt equalTo(final long key) {
+        return range(key, key);
+    }
+
+    // ******************************************************************************
+    // Maintenance, called by the manager
+    // ******************************************************************************
+
+    /**
+     * Add the record at a location
+     *
+     * @param location Location
+     */
+    @Override
+    void add(final int location) {
+        final long key = key(location);
+        if (0 == blocks) {
+            final int block = allocate();
+            insertFence(0, block);
+        }
+        int fence = findFence(key, location);
+        int block = block(fence);
+        if (BLOCK_ENTRIES == count(block)) {
+            // Split, moving the upper half to a new block after this one
+            final int upper = allocate();
+            final int half = BLOCK_ENTRIES / 2;
+            moveEntries(block, half, upper, 0, half);
+            setCount(block, half);
+            setCount(upper, half);
+            insertFence(fence + 1, upper);
+            if (compare(key, location, getKey(upper, 0), getLocation(upper, 0)) > 0) {
+                fence++;
+                block = upper;
+            }
+        }
+        final int count = count(block);
+        final int pos = lowerBound(block, key, location);
+        moveEntries(block, pos, block, pos + 1, count - pos);
+        setEntry(block, pos, key, location);
+        setCount(block, count + 1);
+        if (0 == pos)
+            setFence(fence, block);
+        size++;
+    }
+
+    /**
+     * Remove the record at a location, while it still holds the key it was added with
+     *
+     * @param location Location
+     */
+    @Override
+    void remove(final int location) {
+        final long key = key(location);
+        if (0 == blocks)
+            return;
+        final int fence = findFence(key, location);
+        final int block = block(fence);
+        final int count = count(block);
+        final int pos = lowerBound(block, key, location);
+        if ((pos == count) || (getKey(block, pos) != key) || (getLocation(block, pos) != location))
+            return;
+        moveEntries(block, pos + 1, block, pos, count - pos - 1);
+        setCount(block, count - 1);
+        size--;
+        if ((0 == pos) && (count > 1))
+            setFence(fence, block);
+        if ((count - 1 < BLOCK_ENTRIES / 2) && (blocks > 1)) {
+            // Rebalance with the next block, or the previous one for the last block
+            if (fence + 1 < blocks)
+                rebalance(fence);
+            else
+                rebalance(fence - 1);
+        }
+    }
+
+    /**
+     * Merge two neighbouring blocks if their entries fit in one, otherwise share the entries evenly between them
+     *
+     * @param fence Fence of the left block
+     */
+    private void rebalance(final int fence) {
+        final int left = block(fence);
+        final int right = block(fence + 1);
+        final int leftCount = count(left);
+        final int rightCount = count(right);
+        final int total = leftCount + rightCount;
+        if (total <= BLOCK_ENTRIES) {
+            moveEntries(right, 0, left, leftCount, rightCount);
+            setCount(left, total);
+            removeFence(fence + 1);
+            release(right);
+            if (0 == leftCount)
+                setFence(fence, left);
+            return;
+        }
+        final int target = total / 2;
+        if (leftCount < target) {
+            final int move = target - leftCount;
+            moveEntries(right, 0, left, leftCount, move);
+            moveEntries(right, move, right, 0, rightCount - move);
+            if (0 == leftCount)
+                setFence(fence, left);
+        } else {
+            final int move = leftCount - target;
+            moveEntries(right, 0, right, move, rightCount);
+            moveEntries(left, target, right, 0, move);
+        }
+        setCount(left, target);
+        setCount(right, total - target);
+        setFence(fence + 1, right);
+    }
+
+    private long key(final int location) {
+        return view.moveTo(location).getLong(field);
+    }
+
+    // ******************************************************************************
+    // Fences
+    // ******************************************************************************
+
+    /**
+     * Find the block that holds, or would hold, an entry
+     *
+     * @param key      Key
+     * @param location Location
+     * @return Index of the last fence not after the entry, or the first fence if there is none
+     */
+    private int findFence(final long key, final int location) {
+        int low = 1;
+        int high = blocks - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int address = mid * FENCE_BYTES;
+            if (compare(store.getLongWord(address), store.getWord(address + 8), key, location) <= 0)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return low - 1;
+    }
+
+    private int block(final int fence) {
+        return store.getWord(fence * FENCE_BYTES + 12);
+    }
+
+    /**
+     * Copy the first entry of a block to its fence
+     *
+     * @param fence Fence
+     * @param block Block
+     */
+    private void setFence(final int fence, final int block) {
+        final int address = fence * FENCE_BYTES;
+        store.setLongWord(address, getKey(block, 0));
+        store.setWord(address + 8, getLocation(block, 0));
+        store.setWord(address + 12, block);
+    }
+
+    private void insertFence(final int fence, final int block) {
+        store.copy(fence * FENCE_BYTES, (fence + 1) * FENCE_BYTES, (blocks - fence) * FENCE_BYTES);
+        blocks++;
+        setFence(fence, block);
+    }
+
+    private void removeFence(final int fence) {
+        store.copy((fence + 1) * FENCE_BYTES, fence * FENCE_BYTES, (blocks - fence - 1) * FENCE_BYTES);
+        blocks--;
+    }
+
+    // ******************************************************************************
+    // Blocks
+    // ******************************************************************************
+
+    private int allocate() {
+        if (freeBlocks >= 0) {
+            final int block = freeBlocks;
+            freeBlocks = store.getWord(address(block) + 4);
+            return block;
+        }
+        if (unusedBlocks == maxBlocks)
+            throw new IllegalStateException("Sorted index is full");
+        setCount(unusedBlocks, 0);
+        return unusedBlocks++;
+    }
+
+    private void release(final int block) {
+        setCount(block, 0);
+        store.setWord(address(block) + 4, freeBlocks);
+        freeBlocks = block;
+    }
+
+    private int address(final int block) {
+        return blockBase + block * BLOCK_BYTES;
+    }
+
+    private int count(final int block) {
+        return store.getWord(address(block));
+    }
+
+    private void setCount(final int block, final int count) {
+        store.setWord(address(block), count);
+    }
+
+    private long getKey(final int block, final int pos) {
+        return store.getLongWord(address(block) + KEYS + pos * 8);
+    }
+
+    private int getLocation(final int block, final int pos) {
+        return store.getWord(address(block) + LOCATIONS + pos * 4);
+    }
+
+    private void setEntry(final int block, final int pos, final long key, final int location) {
+        store.setLongWord(address(block) + KEYS + pos * 8, key);
+        store.setWord(address(block) + LOCATIONS + pos * 4, location);
+    }
+
+    /**
+     * Copy a run of entries, which may overlap
+     *
+     * @param from    Source block
+     * @param fromPos First source entry
+     * @param to      Target block
+     * @param toPos   First target entry
+     * @param entries Number of entries
+     */
+    private void moveEntries(final int from, final int fromPos, final int to, final int toPos, final int entries) {
+        if (entries > 0) {
+            store.copy(address(from) + KEYS + fromPos * 8, address(to) + KEYS + toPos * 8, entries * 8);
+            store.copy(address(from) + LOCATIONS + fromPos * 4, address(to) + LOCATIONS + toPos * 4, entries * 4);
+        }
+    }
+
+    /**
+     * Find the first entry of a block not before an entry
+     *
+     * @param block    Block
+     * @param key      Key
+     * @param location Location
+     * @return Position, the block count if every entry is before
+     */
+    private int lowerBound(final int block, final long key, final int location) {
+        int low = 0;
+        int high = count(block);
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(getKey(block, mid), getLocation(block, mid), key, location) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private static int compare(final long key1, final int location1, final long key2, final int location2) {
+        final int result = Long.compare(key1, key2);
+        return 0 != result ? result : Integer.compare(location1, location2);
+    }
+
+    // Range iterator inner class, walking the blocks in fence order
+    private class RangeIterator implements PrimitiveIterator.OfInt {
+        private int fence;
+        private int pos;
+        private final long to;
+
+        RangeIterator(final int fence, final int pos, final long to) {
+            this.fence = fence;
+            this.pos = pos;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((fence < blocks) && (pos >= count(block(fence)))) {
+                fence++;
+                pos = 0;
+            }
+            return (fence < blocks) && (getKey(block(fence), pos) <= to);
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return getLocation(block(fence), pos++);
+        }
+    }
+}
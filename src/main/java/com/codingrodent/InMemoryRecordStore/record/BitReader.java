@@ -23,8 +23,9 @@
 */
 package com.codingrodent.InMemoryRecordStore.record;
 
+import com.codingrodent.InMemoryRecordStore.utility.BitPacking;
+
 class BitReader {
-    private final static int[] BIT_TEST = {0x80, 0x40, 0x20, 0x10, 0x08, 0x04, 0x02, 0x01};
 
     /**
      * Create a new bit reader
@@ -35,53 +36,48 @@ class BitReader {
     /**
      * Unpack byte aligned field into the bit aligned field.  Byte fields are right aligned, bit fields left
      * <p>
-     * Very slow implementation  - optimize once test cases have good coverage
+     * The bytes covering the field are gathered into one long and the field extracted with a shift and mask
      *
      * @param sourceArray     The record array of byte fields data
      * @param readBitPosition Where to read  from in the source array
-     * @param bitLength       Size of field in bits
+     * @param bitLength       Size of field in bits (1 to 32)
      * @return Integer holding up to 32 bit value
      */
     public int unpack(byte[] sourceArray, int readBitPosition, final int bitLength) {
-        int target = 0;
-        for (int i = 0; i < bitLength; i++) {
-            int readByte = sourceArray[readBitPosition >> 3];
-            int readMask = BIT_TEST[readBitPosition & 0x07];
-            target = target << 1;
-            if (0 != (readByte & readMask)) {
-                target = target | 0x01;
-            }
-            readBitPosition++;
-        }
-        return target;
+        return (int) BitPacking.get(sourceArray, readBitPosition, bitLength);
     }
 
     /**
-     * Unpack byte aligned field into the bit aligned field.  Byte fields are right aligned, bit fields left
-     * <p>
-     * Very slow implementation  - optimize once test cases have good coverage
+     * Unpack a bit aligned field of up to 64 bits
+     *
+     * @param sourceArray     The record array of byte fields data
+     * @param readBitPosition Where to read  from in the source array
+     * @param bitLength       Size of field in bits (1 to 64)
+     * @return Long holding up to 64 bit value, zero extended
+     */
+    public long unpackLong(byte[] sourceArray, int readBitPosition, final int bitLength) {
+        return BitPacking.get(sourceArray, readBitPosition, bitLength);
+    }
+
+    /**
+     * Unpack a 32 bit field
      *
      * @param sourceArray     The record array of byte fields data
      * @param readBitPosition Where to read  from in the source array
      * @return Integer holding up to 32 bit value
      */
     public int unpack32(byte[] sourceArray, int readBitPosition) {
-        return unpack(sourceArray, readBitPosition, 32);
+        return (int) BitPacking.get(sourceArray, readBitPosition, 32);
     }
 
     /**
-     * Unpack byte aligned field into the bit aligned field.  Byte fields are right aligned, bit fields left
-     * <p>
-     * Very slow implementation  - optimize once test cases have good coverage
+     * Unpack a 64 bit field
      *
      * @param sourceArray     The record array of byte fields data
      * @param readBitPosition Where to read  from in the source array
-     * @return Integer holding up to 32 bit value
+     * @return Long holding 64 bit value
      */
     public long unpack64(byte[] sourceArray, int readBitPosition) {
-
-        long p0 = unpack32(sourceArray, readBitPosition);
-        long p1 = unpack32(sourceArray, readBitPosition + 32);
-        return (p0 << 32) | (p1 & 0x0000_0000_FFFF_FFFFL);
+        return BitPacking.get(sourceArray, readBitPosition, 64);
     }
-}
\ No newline at end of file
+}
@@ -23,13 +23,13 @@
 */
 package com.codingrodent.InMemoryRecordStore.record;
 
+import com.codingrodent.InMemoryRecordStore.utility.BitPacking;
+
 /**
  * This class contains functionality to convert a byte packed record into its bit packed equivalent
  */
 class BitWriter {
 
-    private final static int[] BIT_SET = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80};
-
     /**
      * Create a new bit  writer
      */
@@ -39,7 +39,7 @@ class BitWriter {
     /**
      * Pack one byte aligned field into the bit aligned field.  Byte fields are right aligned, bit fields left
      * <p>
-     * Very slow implementation  - optimize once test cases have good coverage
+     * Bits are merged (OR) into the target, up to 64 at a time
      *
      * @param sourceArray      The record array of byte fields data (Data in bits 0..n)
      * @param targetArray      The target bit field array (Data filled from left most bit first)
@@ -47,21 +47,28 @@ class BitWriter {
      * @param bitLength        Size of field in bits
      */
     public void insertBits(final byte[] sourceArray, final byte[] targetArray, int writeBitPosition, final int bitLength) {
-        final int byteArrayOffset = sourceArray.length - 1;
-        for (int bit = bitLength - 1; bit >= 0; bit--) {
-            int readBit = bit & 0x07;
-            int readByte = byteArrayOffset - (bit >> 3);
-            int readMask = BIT_SET[readBit];
-            //
-            int val = (sourceArray[readByte] & readMask);
-            if (0 != val) {
-                // Optimization - All bits start as zero, so only copy one's
-                int writeBit = 7 - (writeBitPosition & 0x07);
-                int writeByte = writeBitPosition >> 3;
-                targetArray[writeByte] = (byte) (targetArray[writeByte] | BIT_SET[writeBit]);
-            }
-            writeBitPosition++;
+        // Work from the right hand end of the source in chunks of up to 64 bits
+        int remaining = bitLength;
+        int sourceBit = sourceArray.length * 8;
+        while (remaining > 0) {
+            int chunk = remaining > 64 ? 64 : remaining;
+            sourceBit = sourceBit - chunk;
+            remaining = remaining - chunk;
+            long value = BitPacking.get(sourceArray, sourceBit, chunk) | BitPacking.get(targetArray, writeBitPosition + remaining, chunk);
+            BitPacking.put(targetArray, writeBitPosition + remaining, chunk, value);
         }
     }
 
+    /**
+     * Write a value of up to 64 bits into the bit aligned field. The field is overwritten, which gives the same result
+     * as insertBits() when the target starts out zeroed.
+     *
+     * @param value            Value, held in the lowest bits. Higher bits are ignored
+     * @param targetArray      The target bit field array (Data filled from left most bit first)
+     * @param writeBitPosition Where to write to in the target array
+     * @param bitLength        Size of field in bits (1 to 64)
+     */
+    public void insert(final long value, final byte[] targetArray, final int writeBitPosition, final int bitLength) {
+        BitPacking.put(targetArray, writeBitPosition, bitLength, value);
+    }
 }
@@ -0,0 +1,121 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import java.lang.reflect.Field;
+
+/**
+ * Typed access to one field of a record. Primitive values are passed unboxed, with any boxing or unboxing needed for
+ * wrapper fields (Integer, Long, ...) done by the accessor.
+ * <p>
+ * Each typed method may only be used on a field of the matching kind, e.g. getInt() on an int or Integer field.
+ */
+abstract class FieldAccessor {
+
+    /**
+     * Build the fastest accessor available for a field. Method handles are used where the field is accessible to
+     * them, otherwise reflection.
+     *
+     * @param field Field to be accessed
+     * @return Field accessor
+     */
+    static FieldAccessor of(final Field field) {
+        try {
+            return new MethodHandleFieldAccessor(field);
+        } catch (IllegalAccessException e) {
+            return new ReflectiveFieldAccessor(field);
+        }
+    }
+
+    /**
+     * Map a wrapper type onto its primitive
+     *
+     * @param type Field type
+     * @return Primitive type, the type itself if already primitive, or Object for all other types
+     */
+    static Class<?> kind(final Class<?> type) {
+        if (type.isPrimitive())
+            return type;
+        if (type == Boolean.class)
+            return boolean.class;
+        if (type == Byte.class)
+            return byte.class;
+        if (type == Short.class)
+            return short.class;
+        if (type == Character.class)
+            return char.class;
+        if (type == Integer.class)
+            return int.class;
+        if (type == Long.class)
+            return long.class;
+        if (type == Float.class)
+            return float.class;
+        if (type == Double.class)
+            return double.class;
+        return Object.class;
+    }
+
+    /**
+     * Can the field hold null
+     *
+     * @return True for primitive fields
+     */
+    abstract boolean isPrimitive();
+
+    abstract Object get(Object target);
+
+    abstract void set(Object target, Object value);
+
+    abstract boolean getBoolean(Object target);
+
+    abstract void setBoolean(Object target, boolean value);
+
+    abstract byte getByte(Object target);
+
+    abstract void setByte(Object target, byte value);
+
+    abstract short getShort(Object target);
+
+    abstract void setShort(Object target, short value);
+
+    abstract char getChar(Object target);
+
+    abstract void setChar(Object target, char value);
+
+    abstract int getInt(Object target);
+
+    abstract void setInt(Object target, int value);
+
+    abstract long getLong(Object target);
+
+    abstract void setLong(Object target, long value);
+
+    abstract float getFloat(Object target);
+
+    abstract void setFloat(Object target, float value);
+
+    abstract double getDouble(Object target);
+
+    abstract void setDouble(Object target, double value);
+}
@@ -0,0 +1,244 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+
+/**
+ * Field accessor built from method handles. The getter and setter are bound once, when the record descriptor is
+ * created, and adapted to take the unboxed primitive type of the field so no boxing occurs for primitive fields.
+ */
+class MethodHandleFieldAccessor extends FieldAccessor {
+
+    private final static MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final String fieldName;
+    private final boolean primitive;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final MethodHandle objectGetter;
+    private final MethodHandle objectSetter;
+
+    /**
+     * Build the handles for a field
+     *
+     * @param field Field to be accessed
+     * @throws IllegalAccessException If the field is not accessible, e.g. final or in a non public class
+     */
+    MethodHandleFieldAccessor(final Field field) throws IllegalAccessException {
+        Class<?> kind = kind(field.getType());
+        MethodHandle rawGetter = LOOKUP.unreflectGetter(field);
+        MethodHandle rawSetter = LOOKUP.unreflectSetter(field);
+        this.fieldName = field.getName();
+        this.primitive = field.getType().isPrimitive();
+        this.getter = rawGetter.asType(MethodType.methodType(kind, Object.class));
+        this.setter = rawSetter.asType(MethodType.methodType(void.class, Object.class, kind));
+        this.objectGetter = rawGetter.asType(MethodType.methodType(Object.class, Object.class));
+        this.objectSetter = rawSetter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+    }
+
+    /**
+     * Pass on unchecked exceptions, wrap anything else
+     *
+     * @param t Exception thrown by a method handle
+     * @return Exception to throw
+     */
+    private RuntimeException failure(final Throwable t) {
+        if (t instanceof RuntimeException)
+            return (RuntimeException) t;
+        if (t instanceof Error)
+            throw (Error) t;
+        return new RecordStoreException("Unable to access field " + fieldName, t);
+    }
+
+    @Override
+    boolean isPrimitive() {
+        return primitive;
+    }
+
+    @Override
+    Object get(final Object target) {
+        try {
+            return (Object) objectGetter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void set(final Object target, final Object value) {
+        try {
+            objectSetter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    boolean getBoolean(final Object target) {
+        try {
+            return (boolean) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void setBoolean(final Object target, final boolean value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    byte getByte(final Object target) {
+        try {
+            return (byte) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void setByte(final Object target, final byte value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    short getShort(final Object target) {
+        try {
+            return (short) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void setShort(final Object target, final short value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    char getChar(final Object target) {
+        try {
+            return (char) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void setChar(final Object target, final char value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    int getInt(final Object target) {
+        try {
+            return (int) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void setInt(final Object target, final int value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    long getLong(final Object target) {
+        try {
+            return (long) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void setLong(final Object target, final long value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    float getFloat(final Object target) {
+        try {
+            return (float) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void setFloat(final Object target, final float value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    double getDouble(final Object target) {
+        try {
+            return (double) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+
+    @Override
+    void setDouble(final Object target, final double value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw failure(t);
+        }
+    }
+}
@@ -27,320 +27,477 @@ import com.codingrodent.InMemoryRecordStore.core.IMemoryStore;
 import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
 import com.codingrodent.InMemoryRecordStore.utility.BitTwiddling;
 
-import java.lang.reflect.Field;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public class Reader<T> {
     private final RecordDescriptor<T> recordDescriptor;
     private final IMemoryStore memoryStore;
     private final BitReader bitReader;
+    private final BitWriter bitWriter;
+    private final RecordCodec<T> codec;
+    private final ThreadLocal<byte[]> scratch;
+    // Block buffer for getRecords, taken by a call while in use so that a consumer reading records gets its own
+    private final ThreadLocal<byte[]> blocks = new ThreadLocal<>();
+    private final int records;
+    private final long[] columns;
 
     /**
-     * Create a new record reader
+     * Create a new record reader for records stored as rows
      *
      * @param memoryStore      Data storage structure
      * @param recordDescriptor Field type information
+     * @throws IllegalArgumentException If the record has a columnar layout
      */
     public Reader(final IMemoryStore memoryStore, final RecordDescriptor<T> recordDescriptor) {
-        if (recordDescriptor.isFieldByteAligned()) {
-            this.bitReader = null;
-        } else {
-            this.bitReader = new BitReader();
-        }
+        this(memoryStore, recordDescriptor, -1);
+    }
+
+    /**
+     * Create a new record reader for a store holding a fixed number of records. The number of records places the
+     * columns of a columnar layout and is not used for records stored as rows.
+     *
+     * @param memoryStore      Data storage structure
+     * @param recordDescriptor Field type information
+     * @param records          Number of records in the store
+     * @throws IllegalArgumentException If the record has a columnar layout and the number of records is not given
+     */
+    public Reader(final IMemoryStore memoryStore, final RecordDescriptor<T> recordDescriptor, final int records) {
+        this.bitReader = new BitReader();
+        this.bitWriter = new BitWriter();
         this.recordDescriptor = recordDescriptor;
         this.memoryStore = memoryStore;
+        this.codec = recordDescriptor.getCodec();
+        this.scratch = ThreadLocal.withInitial(() -> new byte[recordDescriptor.getByteLength()]);
+        this.records = records;
+        if (recordDescriptor.isColumnar()) {
+            if (records < 0)
+                throw new IllegalArgumentException("A columnar record layout needs the number of records in the store");
+            this.columns = recordDescriptor.getColumnOffsets(records);
+        } else {
+            this.columns = null;
+        }
     }
 
     /**
-     * Read a record at the specified location
+     * Read a record at the specified location. Each field is read straight from the memory store at its bit offset,
+     * with no intermediate copy of the record.
      *
      * @param location Location of stored object in memory
      * @return Record object with fields populated
      * @throws RecordStoreException General error when reading record
      */
     public T getRecord(final int location) throws RecordStoreException {
+        if (null != columns)
+            return unpackColumns(recordDescriptor.newInstance(), checkColumns(location));
         final int byteLength = recordDescriptor.getByteLength();
-        int pos = 0;
-        int address = location * byteLength;
-        byte[] buffer = memoryStore.getByteArray(address, byteLength);
-        Class clazz = recordDescriptor.getClazz();
-        //
-        // Populate each field
-        try {
-            @SuppressWarnings("unchecked") T target = (T) clazz.newInstance();
-            for (String fieldName : recordDescriptor.getFieldNames()) {
-                RecordDescriptor.FieldDetails fieldDetails = recordDescriptor.getFieldDetails(fieldName);
-                if (recordDescriptor.isFieldByteAligned()) {
-                    pos = unpackFieldIntoObjectBytes(target, target.getClass().getDeclaredField(fieldName), pos, buffer, fieldDetails);
-                } else {
-                    pos = unpackFieldIntoObjectBits(target, target.getClass().getDeclaredField(fieldName), pos, buffer, fieldDetails);
-                }
-            }
-            return target;
-        } catch (IllegalAccessException | InstantiationException | NoSuchFieldException e) {
-            throw new RecordStoreException("Unable to populate record", e);
+        int address = checkLocation(location, byteLength);
+        if (null != codec) {
+            byte[] buffer = scratch.get();
+            memoryStore.getBytes(address, buffer, 0, byteLength);
+            return codec.read(buffer);
         }
+        return unpackRecord(recordDescriptor.newInstance(), (long) address << 3, null);
     }
 
     /**
-     * Unpack a field in a byte buffer back into a source object (Byte aligned)
+     * Read a record at the specified location into an existing record object. Arrays already held by the record are
+     * filled in place if the right size, and strings, UUIDs and boxed values are only replaced if they have changed,
+     * so scanning a store with one record object allocates nothing for unchanged values.
      *
-     * @param target       Object being constructed
-     * @param field        Field to be written to
-     * @param pos          Position in byte buffer
-     * @param buffer       Byte buffer
-     * @param fieldDetails Description of the field
-     * @return Next position in byte buffer
-     * @throws IllegalAccessException If introspection write fails
+     * @param location Location of stored object in memory
+     * @param reuse    Record object to populate
+     * @return The populated record, normally reuse. A generated codec without support for reuse returns a new record.
+     * @throws RecordStoreException General error when reading record
      */
-    private int unpackFieldIntoObjectBytes(Object target, final Field field, int pos, final byte[] buffer, final RecordDescriptor.FieldDetails fieldDetails) throws
-            IllegalAccessException {
-        IMemoryStore.Type type = fieldDetails.getType();
-        int byteLength = fieldDetails.getByteLength();
-        switch (type) {
-            case Bit: {
-                field.set(target, 0x01 == getUnsignedByte(buffer, pos++));
-                break;
-            }
-            case Byte8: {
-                field.set(target, buffer[pos++]);
-                break;
-            }
-            case Char16: {
-                char c;
-                if (1 == byteLength) {
-                    c = (char) (buffer[pos++] & 0x00FF);
-                } else {
-                    c = (char) ((getUnsignedByte(buffer, pos++) << 8) | getUnsignedByte(buffer, pos++));
-                }
-                field.set(target, c);
-                break;
+    public T getRecord(final int location, final T reuse) throws RecordStoreException {
+        if (!reuse.getClass().equals(recordDescriptor.getClazz())) {
+            throw new RecordStoreException("Object supplied to reader is of the wrong type");
+        }
+        if (null != columns)
+            return unpackColumns(reuse, checkColumns(location));
+        final int byteLength = recordDescriptor.getByteLength();
+        int address = checkLocation(location, byteLength);
+        if (null != codec) {
+            byte[] buffer = scratch.get();
+            memoryStore.getBytes(address, buffer, 0, byteLength);
+            return codec.read(buffer, reuse);
+        }
+        return unpackRecord(reuse, (long) address << 3, null);
+    }
+
+    /**
+     * Read records from consecutive locations. Records are copied out of the memory store a block at a time, in a single
+     * operation per block into a buffer kept for each thread, then unpacked and passed to the consumer in order.
+     *
+     * @param location Location of the first record
+     * @param count    Number of records
+     * @param consumer Receives each record
+     * @throws RecordStoreException General error when reading records
+     */
+    public void getRecords(final int location, final int count, final Consumer<? super T> consumer) throws RecordStoreException {
+        if (count <= 0)
+            return;
+        if (null != columns) {
+            checkColumns(location);
+            checkColumns(location + count - 1);
+            for (int i = 0; i < count; i++) {
+                consumer.accept(unpackColumns(recordDescriptor.newInstance(), location + i));
             }
-            case Short16: {
-                if (1 == byteLength) {
-                    field.set(target, (short) buffer[pos++]);
+            return;
+        }
+        final int byteLength = recordDescriptor.getByteLength();
+        final int perBlock = Math.max(1, Math.min(count, Writer.BLOCK_BYTES / byteLength));
+        final byte[] single = null == codec ? null : scratch.get();
+        byte[] block = blocks.get();
+        if (null == block)
+            block = new byte[Math.max(1, Writer.BLOCK_BYTES / byteLength) * byteLength];
+        blocks.set(null);
+        try {
+            readBlocks(location, count, consumer, perBlock, single, block);
+        } finally {
+            blocks.set(block);
+        }
+    }
+
+    private void readBlocks(final int location, final int count, final Consumer<? super T> consumer, final int perBlock, final byte[] single, final byte[] block) throws RecordStoreException {
+        final int byteLength = recordDescriptor.getByteLength();
+        long address = (long) location * byteLength;
+        for (int done = 0; done < count; ) {
+            int n = Math.min(perBlock, count - done);
+            memoryStore.getBytes((int) address, block, 0, n * byteLength);
+            for (int i = 0; i < n; i++) {
+                if (null == codec) {
+                    consumer.accept(unpackRecord(recordDescriptor.newInstance(), (long) i * byteLength << 3, block));
                 } else {
-                    field.set(target, (short) ((getUnsignedByte(buffer, pos++) << 8) | getUnsignedByte(buffer, pos++)));
-                }
-                break;
-            }
-            case Word32: {
-                int v = 0;
-                for (int i = 0; i < byteLength; i++) {
-                    v = (v << 8) | getUnsignedByte(buffer, pos++);
-                }
-                if (byteLength < 4) {
-                    v = BitTwiddling.extend(v, 8 * byteLength);
-                }
-                field.set(target, v);
-                break;
-            }
-            case Word64: {
-                long v = 0;
-                for (int i = 0; i < byteLength; i++) {
-                    v = (v << 8) | getUnsignedByte(buffer, pos++);
-                }
-                if (byteLength < 8) {
-                    v = BitTwiddling.extend(v, 8 * byteLength);
-                }
-                field.set(target, v);
-                break;
-            }
-            case Void: {
-                pos = pos + byteLength;
-                break;
-            }
-            case UUID: {
-                long raw0 = 0;
-                long raw1 = 0;
-                for (int i = 0; i < 8; i++)
-                    raw0 = (raw0 << 8) | getUnsignedByte(buffer, pos++);
-                for (int i = 0; i < 8; i++)
-                    raw1 = (raw1 << 8) | getUnsignedByte(buffer, pos++);
-                field.set(target, new UUID(raw0, raw1));
-                break;
-            }
-            case booleanArray: {
-                boolean[] v = new boolean[fieldDetails.getElements()];
-                for (int i = 0; i < v.length; i++)
-                    v[i] = 0 != getUnsignedByte(buffer, pos++);
-                field.set(target, v);
-                break;
-            }
-            case BooleanArray: {
-                Boolean[] v = new Boolean[fieldDetails.getElements()];
-                for (int i = 0; i < v.length; i++)
-                    v[i] = 0 != getUnsignedByte(buffer, pos++) ? Boolean.TRUE : Boolean.FALSE;
-                field.set(target, v);
-                break;
-            }
-            case FixedString: {
-                // Get length header
-                int stringLen = 0;
-                for (int i = 0; i < 4; i++) {
-                    stringLen = (stringLen << 8) | getUnsignedByte(buffer, pos++);
-                }
-                String ans = "";
-                int startPos = pos;
-                if (stringLen > 0) {
-                    StringBuilder sb = new StringBuilder(stringLen);
-                    for (int i = 0; i < stringLen; i++) {
-                        if (1 == byteLength) {
-                            sb.append((char) (buffer[pos++] & 0x00FF));
-                        } else {
-                            sb.append((char) ((getUnsignedByte(buffer, pos++) << 8) | getUnsignedByte(buffer, pos++)));
-                        }
-                    }
-                    ans = sb.toString();
+                    System.arraycopy(block, i * byteLength, single, 0, byteLength);
+                    consumer.accept(codec.read(single));
                 }
-                pos = startPos + fieldDetails.getElements() * byteLength; // String may be shorter than reserved space so skip
-                field.set(target, ans);
-                break;
             }
-            case Double: {
-                long raw0 = 0;
-                for (int i = 0; i < 8; i++)
-                    raw0 = (raw0 << 8) | getUnsignedByte(buffer, pos++);
-                field.set(target, Double.longBitsToDouble(raw0));
-                break;
-            }
-            case Float: {
-                int raw0 = 0;
-                for (int i = 0; i < 4; i++)
-                    raw0 = (raw0 << 8) | getUnsignedByte(buffer, pos++);
-                field.set(target, Float.intBitsToFloat(raw0));
-                break;
+            address = address + (long) n * byteLength;
+            done = done + n;
+        }
+    }
+
+    /**
+     * Unpack a record held in a byte array, e.g. one copied out of a memory store
+     *
+     * @param buffer Packed record
+     * @return Record object with fields populated
+     * @throws RecordStoreException General error when reading record
+     */
+    public T unpack(final byte[] buffer) throws RecordStoreException {
+        if (null != codec)
+            return codec.read(buffer);
+        return unpackRecord(recordDescriptor.newInstance(), 0, buffer);
+    }
+
+    /**
+     * Unpack a record held in a byte array into an existing record object, as {@link #getRecord(int, Object)}
+     *
+     * @param buffer Packed record
+     * @param reuse  Record object to populate
+     * @return The populated record, normally reuse
+     * @throws RecordStoreException General error when reading record
+     */
+    public T unpack(final byte[] buffer, final T reuse) throws RecordStoreException {
+        if (!reuse.getClass().equals(recordDescriptor.getClazz())) {
+            throw new RecordStoreException("Object supplied to reader is of the wrong type");
+        }
+        if (null != codec)
+            return codec.read(buffer, reuse);
+        return unpackRecord(reuse, 0, buffer);
+    }
+
+    /**
+     * Copy the packed bytes of a record out of the memory store without unpacking them. A record held in columns is
+     * gathered into the same bytes it would have as a row.
+     *
+     * @param location Location of stored object in memory
+     * @param buffer   Target buffer, at least one record long
+     */
+    public void copyRecord(final int location, final byte[] buffer) {
+        if (null != columns) {
+            gather(checkColumns(location), buffer);
+            return;
+        }
+        final int byteLength = recordDescriptor.getByteLength();
+        memoryStore.getBytes(location * byteLength, buffer, 0, byteLength);
+    }
+
+    /**
+     * Copy the packed bytes of records at consecutive locations out of the memory store without unpacking them. The
+     * bytes are laid out as rows whatever the layout of the store.
+     *
+     * @param location Location of the first record
+     * @param count    Number of records
+     * @param target   Target array
+     * @param offset   Offset of the first byte in the target array
+     */
+    public void copyRecords(final int location, final int count, final byte[] target, final int offset) {
+        final int byteLength = recordDescriptor.getByteLength();
+        if (null == columns) {
+            memoryStore.getBytes(location * byteLength, target, offset, count * byteLength);
+            return;
+        }
+        final byte[] buffer = scratch.get();
+        for (int i = 0; i < count; i++) {
+            gather(checkColumns(location + i), buffer);
+            System.arraycopy(buffer, 0, target, offset + i * byteLength, byteLength);
+        }
+    }
+
+    /**
+     * Populate every field of a record
+     *
+     * @param target Record object
+     * @param base   Bit position of the record
+     * @param buffer Byte buffer holding the record, or null to read from the memory store
+     * @return target
+     */
+    private T unpackRecord(final T target, final long base, final byte[] buffer) {
+        for (RecordDescriptor.FieldDetails fieldDetails : recordDescriptor.getFields()) {
+            unpackField(target, base + fieldDetails.getBitOffset(), buffer, fieldDetails);
+        }
+        return target;
+    }
+
+    /**
+     * Populate every field of a record held in columns
+     *
+     * @param target   Record object
+     * @param location Location of the record, already checked
+     * @return target
+     */
+    private T unpackColumns(final T target, final int location) {
+        for (RecordDescriptor.FieldDetails fieldDetails : recordDescriptor.getFields()) {
+            unpackField(target, columns[fieldDetails.getFieldId()] + (long) location * fieldDetails.getFieldBits(), null, fieldDetails);
+        }
+        return target;
+    }
+
+    /**
+     * Copy the fields of a record out of their columns into the bytes of a row, clearing any unused bits in the last
+     * byte
+     *
+     * @param location Location of the record, already checked
+     * @param buffer   Target buffer, at least one record long
+     */
+    private void gather(final int location, final byte[] buffer) {
+        for (RecordDescriptor.FieldDetails fieldDetails : recordDescriptor.getFields()) {
+            final long from = columns[fieldDetails.getFieldId()] + (long) location * fieldDetails.getFieldBits();
+            final int bits = fieldDetails.getFieldBits();
+            for (int done = 0; done < bits; done = done + 64) {
+                final int n = Math.min(64, bits - done);
+                bitWriter.insert(memoryStore.getBitsUnchecked(from + done, n), buffer, fieldDetails.getBitOffset() + done, n);
             }
         }
-        return pos;
+        int spare = recordDescriptor.getByteLength() * 8 - recordDescriptor.getBitLength();
+        if (spare > 0)
+            bitWriter.insert(0, buffer, recordDescriptor.getBitLength(), spare);
     }
 
     /**
-     * Unpack a field in a byte buffer back into a source object (Bit aligned)
+     * Unpack a field back into a source object. Byte aligned fields are treated as bit fields a whole number of bytes
+     * long. Values already held by the object are kept where they match, to avoid allocating.
      *
      * @param target       Object being constructed
-     * @param field        Field to be written to
-     * @param pos          Position in byte buffer (Bit location)
-     * @param buffer       Byte buffer
+     * @param position     Bit position of the field
+     * @param buffer       Byte buffer holding the record, or null to read from the memory store
      * @param fieldDetails Description of the field
-     * @return Next position in byte buffer
-     * @throws IllegalAccessException If introspection write fails
      */
-    private int unpackFieldIntoObjectBits(Object target, final Field field, int pos, final byte[] buffer, final RecordDescriptor.FieldDetails fieldDetails) throws
-            IllegalAccessException {
+    private void unpackField(final T target, final long position, final byte[] buffer, final RecordDescriptor.FieldDetails fieldDetails) {
+        FieldAccessor field = fieldDetails.getAccessor();
+        long pos = position;
+        int bitLength = fieldDetails.getSlotBits();
         IMemoryStore.Type type = fieldDetails.getType();
-        int bitLength = fieldDetails.getBitLength();
         switch (type) {
             case Bit: {
-                int raw = bitReader.unpack(buffer, pos, bitLength);
-                field.set(target, 0x01 == raw);
+                long v = 0x01 == read(buffer, pos, bitLength) ? 1 : 0;
+                if (field.isPrimitive() || !unchanged(field.get(target), type, v))
+                    field.setBoolean(target, 1 == v);
                 break;
             }
             case Byte8: {
-                int raw = bitReader.unpack(buffer, pos, bitLength);
-                field.set(target, (byte) BitTwiddling.extend(raw, bitLength));
+                long v = BitTwiddling.extend(read(buffer, pos, bitLength), bitLength);
+                if (field.isPrimitive() || !unchanged(field.get(target), type, v))
+                    field.setByte(target, (byte) v);
                 break;
             }
             case Char16: {
-                int raw = bitReader.unpack(buffer, pos, bitLength);
-                field.set(target, (char) (raw & 0x0000_FFFF));
+                long v = read(buffer, pos, bitLength);
+                if (field.isPrimitive() || !unchanged(field.get(target), type, v))
+                    field.setChar(target, (char) v);
                 break;
             }
             case Short16: {
-                int raw = bitReader.unpack(buffer, pos, bitLength);
-                field.set(target, (short) BitTwiddling.extend(raw, bitLength));
+                long v = BitTwiddling.extend(read(buffer, pos, bitLength), bitLength);
+                if (field.isPrimitive() || !unchanged(field.get(target), type, v))
+                    field.setShort(target, (short) v);
                 break;
             }
             case Word32: {
-                int raw = bitReader.unpack(buffer, pos, bitLength);
-                field.set(target, BitTwiddling.extend(raw, bitLength));
+                long v = BitTwiddling.extend(read(buffer, pos, bitLength), bitLength);
+                if (field.isPrimitive() || !unchanged(field.get(target), type, v))
+                    field.setInt(target, (int) v);
                 break;
             }
             case Word64: {
-                if (bitLength > 32) {
-                    int upperBits = bitLength - 32;
-                    long raw0 = bitReader.unpack(buffer, pos, upperBits);
-                    raw0 = raw0 << 32;
-                    long raw1 = bitReader.unpack(buffer, pos + upperBits, 32);
-                    raw1 = raw1 & 0x0000_0000_FFFF_FFFFL;
-                    field.set(target, BitTwiddling.extend(raw0 | raw1, bitLength));
-                } else {
-                    int raw = bitReader.unpack(buffer, pos, bitLength);
-                    field.set(target, (long) BitTwiddling.extend(raw, bitLength));
-                    break;
-                }
+                long v = BitTwiddling.extend(read(buffer, pos, bitLength), bitLength);
+                if (field.isPrimitive() || !unchanged(field.get(target), type, v))
+                    field.setLong(target, v);
                 break;
             }
             case Void: {
                 break;
             }
             case UUID: {
-                long raw0 = bitReader.unpack64(buffer, pos);
-                long raw1 = bitReader.unpack64(buffer, pos + 64);
-                field.set(target, new UUID(raw0, raw1));
+                long msb = read(buffer, pos, 64);
+                long lsb = read(buffer, pos + 64, 64);
+                UUID current = (UUID) field.get(target);
+                if ((null == current) || (current.getMostSignificantBits() != msb) || (current.getLeastSignificantBits() != lsb))
+                    field.set(target, new UUID(msb, lsb));
                 break;
             }
             case booleanArray: {
-                boolean[] v = new boolean[fieldDetails.getElements()];
+                boolean[] v = (boolean[]) field.get(target);
+                boolean fresh = (null == v) || (v.length != fieldDetails.getElements());
+                if (fresh)
+                    v = new boolean[fieldDetails.getElements()];
                 for (int i = 0; i < v.length; i++) {
-                    v[i] = 0 != bitReader.unpack(buffer, pos, bitLength);
+                    v[i] = 0 != read(buffer, pos, bitLength);
                     pos = pos + bitLength;
                 }
-                pos = pos - bitLength;
-                field.set(target, v);
+                if (fresh)
+                    field.set(target, v);
                 break;
             }
             case BooleanArray: {
-                Boolean[] v = new Boolean[fieldDetails.getElements()];
+                Boolean[] v = (Boolean[]) field.get(target);
+                boolean fresh = (null == v) || (v.length != fieldDetails.getElements());
+                if (fresh)
+                    v = new Boolean[fieldDetails.getElements()];
                 for (int i = 0; i < v.length; i++) {
-                    v[i] = 0 != bitReader.unpack(buffer, pos, bitLength);
+                    v[i] = 0 != read(buffer, pos, bitLength) ? Boolean.TRUE : Boolean.FALSE;
                     pos = pos + bitLength;
                 }
-                pos = pos - bitLength;
-                field.set(target, v);
+                if (fresh)
+                    field.set(target, v);
                 break;
             }
             case FixedString: {
                 // Get length header
-                int v = bitReader.unpack(buffer, pos, 32);
+                int stringLen = (int) read(buffer, pos, 32);
                 pos = pos + 32;
-                int startPos = pos;
-                String ans = "";
-                if (v > 0) {
-                    StringBuilder sb = new StringBuilder(v);
-                    for (int i = 0; i < v; i++) {
-                        int raw = bitReader.unpack(buffer, pos, bitLength);
-                        sb.append((char) (raw & 0x0000_FFFF));
-                        pos = pos + bitLength;
-                    }
-                    ans = sb.toString();
+                String current = (String) field.get(target);
+                if ((null != current) && (current.length() == stringLen) && sameChars(current, buffer, pos, bitLength))
+                    break;
+                char[] chars = new char[Math.max(stringLen, 0)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = (char) read(buffer, pos + (long) i * bitLength, bitLength);
                 }
-                pos = startPos + ((fieldDetails.getElements() - 1) * bitLength);// String may be shorter than reserved space so skip
-                field.set(target, ans);
+                field.set(target, new String(chars));
                 break;
             }
             case Double: {
-                long raw0 = bitReader.unpack64(buffer, pos);
-                field.set(target, Double.longBitsToDouble(raw0));
+                long v = read(buffer, pos, 64);
+                if (field.isPrimitive() || !unchanged(field.get(target), type, v))
+                    field.setDouble(target, Double.longBitsToDouble(v));
                 break;
             }
             case Float: {
-                int raw0 = bitReader.unpack32(buffer, pos);
-                field.set(target, Float.intBitsToFloat(raw0));
+                long v = read(buffer, pos, 32);
+                if (field.isPrimitive() || !unchanged(field.get(target), type, v))
+                    field.setFloat(target, Float.intBitsToFloat((int) v));
                 break;
             }
         }
-        return pos + bitLength;
     }
 
     /**
-     * Expand a byte from the buffer without sign extending it
+     * Does a boxed field already hold a value
+     *
+     * @param current Current field value, may be null
+     * @param type    Field type
+     * @param value   Value read, as a long (raw bits for floating point)
+     * @return True if the field can be left unchanged
+     */
+    private static boolean unchanged(final Object current, final IMemoryStore.Type type, final long value) {
+        if (null == current)
+            return false;
+        switch (type) {
+            case Bit:
+                return (Boolean) current == (0 != value);
+            case Char16:
+                return (Character) current == value;
+            case Float:
+                return Float.floatToRawIntBits((Float) current) == (int) value;
+            case Double:
+                return Double.doubleToRawLongBits((Double) current) == value;
+            default:
+                return ((Number) current).longValue() == value;
+        }
+    }
+
+    /**
+     * Compare a string with the characters stored for it
+     *
+     * @param current   String
+     * @param buffer    Byte buffer holding the record, or null to read from the memory store
+     * @param pos       Bit position of the first character
+     * @param bitLength Character width
+     * @return True if the same
+     */
+    private boolean sameChars(final String current, final byte[] buffer, final long pos, final int bitLength) {
+        for (int i = 0; i < current.length(); i++) {
+            if (current.charAt(i) != (char) read(buffer, pos + (long) i * bitLength, bitLength))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check a whole record lies within the memory store, so its fields can be read without further checks
+     *
+     * @param location   Location of stored object in memory
+     * @param byteLength Record length in bytes
+     * @return Byte address of the record
+     * @throws RecordStoreException If the record is not within the memory store
+     */
+    private int checkLocation(final int location, final int byteLength) throws RecordStoreException {
+        final long address = (long) location * byteLength;
+        if ((location < 0) || ((memoryStore.getBytes() - address) < byteLength)) {
+            throw new RecordStoreException("Read location beyond end of storage");
+        }
+        return (int) address;
+    }
+
+    /**
+     * Check a record held in columns lies within the memory store, so its fields can be read without further checks
+     *
+     * @param location Location of stored object in memory
+     * @return location
+     * @throws RecordStoreException If the record is not within the memory store
+     */
+    private int checkColumns(final int location) throws RecordStoreException {
+        if ((location < 0) || (location >= records) || (((long) memoryStore.getBytes() << 3) < columns[columns.length - 1])) {
+            throw new RecordStoreException("Read location beyond end of storage");
+        }
+        return location;
+    }
+
+    /**
+     * Read a bit field from the record buffer or memory store. The record has already been checked to lie within the
+     * memory store, so the field is read unchecked.
      *
-     * @param buffer Byte buffer
-     * @param pos    Position in buffer
-     * @return Unsigned byte value into integer
+     * @param buffer    Byte buffer, or null to read from the memory store
+     * @param pos       Bit position
+     * @param bitLength Field width (1 to 64)
+     * @return Field value, zero extended
      */
-    private int getUnsignedByte(byte[] buffer, int pos) {
-        return buffer[pos] & 0x00FF;
+    private long read(final byte[] buffer, final long pos, final int bitLength) {
+        if (null == buffer)
+            return memoryStore.getBitsUnchecked(pos, bitLength);
+        return bitReader.unpackLong(buffer, (int) pos, bitLength);
     }
 }
@@ -0,0 +1,89 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+/**
+ * A reader / writer for one record class, generated at compile time by the record annotation processor. When a codec
+ * is present for a record class it is used in place of the reflective reader and writer. The byte layout is the same.
+ * <p>
+ * Codecs are found by name. The codec for record class a.b.Record is a.b.RecordPackCodec; for a nested class
+ * a.b.Outer.Inner it is a.b.Outer_InnerPackCodec.
+ *
+ * @param <T> Record class
+ */
+public interface RecordCodec<T> {
+
+    String SUFFIX = "PackCodec";
+
+    /**
+     * Get the name of the codec class for a record class
+     *
+     * @param recordClassName Binary name of the record class
+     * @return Codec class name
+     */
+    static String codecName(final String recordClassName) {
+        return recordClassName.replace('$', '_') + SUFFIX;
+    }
+
+    /**
+     * Length of a packed record
+     *
+     * @return Length in bytes
+     */
+    int getByteLength();
+
+    /**
+     * Signature of the layout the codec was generated from. Must match the signature of the record descriptor.
+     *
+     * @return Layout signature
+     */
+    long getLayoutSignature();
+
+    /**
+     * Unpack a record
+     *
+     * @param buffer Packed record
+     * @return Record object with fields populated
+     */
+    T read(byte[] buffer);
+
+    /**
+     * Unpack a record into an existing record object. Codecs generated before this method existed create a new record.
+     *
+     * @param buffer Packed record
+     * @param reuse  Record object to populate
+     * @return The populated record
+     */
+    default T read(byte[] buffer, T reuse) {
+        return read(buffer);
+    }
+
+    /**
+     * Pack a record
+     *
+     * @param record Record to pack
+     * @param buffer Target buffer, at least getByteLength() bytes
+     */
+    void write(T record, byte[] buffer);
+}
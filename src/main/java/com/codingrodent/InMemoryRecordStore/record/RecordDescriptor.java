@@ -25,7 +25,9 @@ package com.codingrodent.InMemoryRecordStore.record;
 
 import com.codingrodent.InMemoryRecordStore.annotations.*;
 import com.codingrodent.InMemoryRecordStore.core.IMemoryStore;
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
 
+import java.lang.invoke.*;
 import java.lang.reflect.Field;
 import java.util.*;
 
@@ -37,10 +39,15 @@ import static com.codingrodent.InMemoryRecordStore.core.IMemoryStore.Type.FixedS
 public class RecordDescriptor<T> {
     private final Class<T> clazz;
     private final boolean fieldByteAligned;
+    private final boolean columnar;
     private final int lengthInBits;
     private final int lengthInBytes;
     private final HashMap<String, FieldDetails> fieldDetailsMap;
     private final List<String> fieldNames;
+    private final FieldDetails[] fields;
+    private final long layoutSignature;
+    private final MethodHandle constructor;
+    private final RecordCodec<T> codec;
 
     /**
      * Default constructor. Defines the record characteristics
@@ -56,6 +63,7 @@ public class RecordDescriptor<T> {
             throw new IllegalArgumentException("The record must contain a PackRecord annotation");
         }
         this.fieldByteAligned = annotation.fieldByteAligned();
+        this.columnar = annotation.columnar();
         //
         // Recover any field annotations and store in field list
         List<FieldDetails> fieldList = new LinkedList<>();
@@ -72,7 +80,8 @@ public class RecordDescriptor<T> {
                     throw new IllegalArgumentException("@Pack cannot be used on arrays");
                 if (typeName.equals(String.class.getTypeName()))
                     throw new IllegalArgumentException("@Pack cannot be used on Strings. Use @PackString");
-                FieldDetails fieldDetails = new FieldDetails(typeName, field.getName(), packFieldAnnotation.order(), packFieldAnnotation.bits(), 1);
+                FieldDetails fieldDetails = new FieldDetails(typeName, field.getName(), packFieldAnnotation.order(), packFieldAnnotation.bits(), 1,
+                        FieldAccessor.of(field));
                 fieldList.add(fieldDetails);
             }
             // Padding annotation
@@ -81,7 +90,7 @@ public class RecordDescriptor<T> {
                 String paddingClass = field.getType().getTypeName();
                 if (!paddingClass.equals(Void.class.getTypeName()))
                     throw new IllegalArgumentException("@Padding can only be used on Void fields");
-                FieldDetails fieldDetails = new FieldDetails(paddingClass, field.getName(), paddingFieldAnnotation.order(), paddingFieldAnnotation.bits(), 1);
+                FieldDetails fieldDetails = new FieldDetails(paddingClass, field.getName(), paddingFieldAnnotation.order(), paddingFieldAnnotation.bits(), 1, null);
                 fieldList.add(fieldDetails);
             }
             // Fixed String annotation
@@ -91,7 +100,7 @@ public class RecordDescriptor<T> {
                 if (!stringClass.equals(String.class.getTypeName()))
                     throw new IllegalArgumentException("@PackString must be used on Strings only");
                 FieldDetails fieldDetails = new FieldDetails(stringClass, field.getName(), stringFieldAnnotation.order(), stringFieldAnnotation.bits(), stringFieldAnnotation
-                        .elements());
+                        .elements(), FieldAccessor.of(field));
                 fieldList.add(fieldDetails);
             }
             // Array annotation
@@ -101,7 +110,7 @@ public class RecordDescriptor<T> {
                 if (!arrayClass.startsWith("["))
                     throw new IllegalArgumentException("@PackArray must be used on arrays only");
                 FieldDetails fieldDetails = new FieldDetails(arrayClass, field.getName(), arrayFieldAnnotation.order(), arrayFieldAnnotation.bits(), arrayFieldAnnotation
-                        .elements());
+                        .elements(), FieldAccessor.of(field));
                 fieldList.add(fieldDetails);
             }
         }
@@ -112,37 +121,160 @@ public class RecordDescriptor<T> {
         Arrays.sort(fieldDetails, Comparator.comparing(FieldDetails::getOrder));
         List<String> fieldNames = new ArrayList<>(fieldDetails.length);
         //
-        // Calculate storage requirements
+        // Calculate storage requirements, fixing the position of each field
         int lengthInBits = 0;
         HashMap<String, FieldDetails> fieldDetailsMap = new HashMap<>();
-        for (FieldDetails field : fieldDetails) {
+        for (int id = 0; id < fieldDetails.length; id++) {
+            FieldDetails field = new FieldDetails(fieldDetails[id], id, lengthInBits, fieldByteAligned);
+            fieldDetails[id] = field;
             fieldNames.add(field.getFieldName());
-            if (fieldByteAligned) {
-                // pack at byte level
-                lengthInBits = lengthInBits + field.getByteLength() * 8 * field.elements;
-            } else {
-                // pack at bit level
-                lengthInBits = lengthInBits + field.getBitLength() * field.elements;
-            }
-            if (field.getType() == FixedString) {
-                lengthInBits = lengthInBits + 32; // Element count for stored strings held as int32 at start
-            }
+            lengthInBits = lengthInBits + field.getFieldBits();
             fieldDetailsMap.put(field.getFieldName(), field);
         }
         this.lengthInBits = lengthInBits;
         this.lengthInBytes = ((lengthInBits - 1) >> 3) + 1;
         this.fieldDetailsMap = fieldDetailsMap;
         this.fieldNames = Collections.unmodifiableList(fieldNames);
+        this.fields = fieldDetails;
+        this.layoutSignature = signature(fieldByteAligned, columnar, fieldDetails);
+        this.constructor = findConstructor(clazz);
+        this.codec = findCodec(clazz, layoutSignature);
+    }
+
+    /**
+     * Look for a codec generated at compile time for the record class
+     *
+     * @param clazz           Class of record
+     * @param layoutSignature Signature of the record layout
+     * @param <T>             Record class
+     * @return Codec or null if none was generated
+     */
+    private static <T> RecordCodec<T> findCodec(final Class<T> clazz, final long layoutSignature) {
+        String codecName = RecordCodec.codecName(clazz.getName());
+        Class<?> codecClass;
+        try {
+            codecClass = Class.forName(codecName, true, clazz.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!RecordCodec.class.isAssignableFrom(codecClass))
+            return null;
+        try {
+            @SuppressWarnings("unchecked") RecordCodec<T> codec = (RecordCodec<T>) codecClass.newInstance();
+            if (codec.getLayoutSignature() != layoutSignature)
+                throw new IllegalArgumentException("Generated codec does not match the record layout. Rebuild " + codecName);
+            return codec;
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RecordStoreException("Unable to create codec " + codecName, e);
+        }
+    }
+
+    /**
+     * Find the no argument constructor of the record class as a method handle
+     *
+     * @param clazz Class of record
+     * @return Constructor handle or null if no accessible no argument constructor exists
+     */
+    private static MethodHandle findConstructor(final Class<?> clazz) {
+        try {
+            return MethodHandles.lookup().findConstructor(clazz, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create an empty record ready to be populated. Falls back to reflection if the constructor could not be bound to a
+     * method handle.
+     *
+     * @return New record
+     * @throws RecordStoreException If the record can't be created
+     */
+    @SuppressWarnings("unchecked")
+    T newInstance() throws RecordStoreException {
+        try {
+            if (null == constructor)
+                return clazz.newInstance();
+            return (T) (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RecordStoreException("Unable to populate record", t);
+        }
+    }
+
+    /**
+     * Generate a 64 bit FNV-1a hash of the record layout. Descriptors with the same alignment, the same storage layout
+     * and the same fields, in the same order, with the same types and sizes always generate the same signature.
+     *
+     * @param fieldByteAligned Field alignment
+     * @param columnar         Storage layout
+     * @param fieldDetails     Fields in layout order
+     * @return Layout signature
+     */
+    private static long signature(final boolean fieldByteAligned, final boolean columnar, final FieldDetails[] fieldDetails) {
+        StringBuilder layout = new StringBuilder(fieldByteAligned ? "byte" : "bit");
+        if (columnar)
+            layout.append(";columnar");
+        for (FieldDetails field : fieldDetails) {
+            layout.append(';').append(field.getFieldName()).append(':').append(field.getType()).append(':').append(field.getBitLength()).append(':').append(field
+                    .getElements());
+        }
+        long hash = 0xCBF2_9CE4_8422_2325L;
+        for (int i = 0; i < layout.length(); i++) {
+            hash = (hash ^ layout.charAt(i)) * 0x0000_0100_0000_01B3L;
+        }
+        return hash;
     }
 
     public boolean isFieldByteAligned() {
         return fieldByteAligned;
     }
 
+    /**
+     * Are records stored column by column, each field of every record held in its own contiguous region of the store
+     *
+     * @return True if columnar, false if each record is stored as one row
+     */
+    public boolean isColumnar() {
+        return columnar;
+    }
+
     public int getByteLength() {
         return lengthInBytes;
     }
 
+    /**
+     * Get the length of store needed to hold a number of records. Columns are padded out to a whole number of long
+     * words, so a columnar store can be a little longer than the same records stored as rows.
+     *
+     * @param records Number of records
+     * @return Length in bytes
+     */
+    public long getStorageBytes(final int records) {
+        if (columnar)
+            return getColumnOffsets(records)[fields.length] >>> 3;
+        return (long) lengthInBytes * records;
+    }
+
+    /**
+     * Get the position of each column of a columnar store. A column holds one field of every record, packed end to end
+     * in location order, and starts on a long word boundary so a scan of one field touches only that column.
+     *
+     * @param records Number of records in the store
+     * @return Bit position of each column, indexed by field id, followed by the total length in bits
+     */
+    long[] getColumnOffsets(final int records) {
+        long[] columns = new long[fields.length + 1];
+        long position = 0;
+        for (FieldDetails field : fields) {
+            columns[field.getFieldId()] = position;
+            position = position + ((((long) field.getFieldBits() * records + 63) >>> 6) << 6);
+        }
+        columns[fields.length] = position;
+        return columns;
+    }
+
     public int getBitLength() {
         return lengthInBits;
     }
@@ -155,18 +287,102 @@ public class RecordDescriptor<T> {
         return fieldNames;
     }
 
+    /**
+     * Get a signature identifying the layout of the record in memory. Used to check that previously stored data
+     * matches the record definition.
+     *
+     * @return Layout signature
+     */
+    public long getLayoutSignature() {
+        return layoutSignature;
+    }
+
+    /**
+     * Get the codec generated at compile time for this record, if any
+     *
+     * @return Codec or null if the record is handled by reflection
+     */
+    public RecordCodec<T> getCodec() {
+        return codec;
+    }
+
     public FieldDetails getFieldDetails(final String fieldName) {
         return fieldDetailsMap.get(fieldName);
     }
 
+    public FieldDetails getFieldDetails(final int fieldId) {
+        return fields[fieldId];
+    }
+
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    /**
+     * Get the layout of every field, in layout order and indexed by field id. The array is shared, so must not be
+     * modified.
+     *
+     * @return Field layouts
+     */
+    FieldDetails[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Get the id of a field, its position in layout order. Ids let field accessors skip the name lookup.
+     *
+     * @param fieldName Name of field
+     * @return Field id
+     * @throws IllegalArgumentException If the record has no such field
+     */
+    public int getFieldId(final String fieldName) {
+        FieldDetails field = fieldDetailsMap.get(fieldName);
+        if (null == field)
+            throw new IllegalArgumentException("Unknown field. " + fieldName);
+        return field.getFieldId();
+    }
+
+    /**
+     * Get the type a field is packed as
+     *
+     * @param fieldId Field id
+     * @return Packed type
+     */
+    public IMemoryStore.Type getFieldType(final int fieldId) {
+        return fields[fieldId].getType();
+    }
+
+    /**
+     * Read the value of a field from a record object
+     *
+     * @param fieldId Field id
+     * @param record  Record object
+     * @return Field value, boxed if primitive
+     * @throws IllegalArgumentException If the field is padding, so has no value
+     */
+    public Object getFieldValue(final int fieldId, final T record) {
+        FieldAccessor accessor = fields[fieldId].getAccessor();
+        if (null == accessor)
+            throw new IllegalArgumentException("Padding field has no value");
+        return accessor.get(record);
+    }
+
+    /**
+     * Layout of one field. Instances held by a descriptor are immutable and carry the position of the field in the
+     * record.
+     */
     static class FieldDetails {
 
-        private IMemoryStore.Type type;
-        private String fieldName;
-        private int order;
-        private int bitLength;
-        private int byteLength;
-        private int elements;
+        private final IMemoryStore.Type type;
+        private final String fieldName;
+        private final int order;
+        private final int bitLength;
+        private final int byteLength;
+        private final int elements;
+        private final FieldAccessor accessor;
+        private final int fieldId;
+        private final int bitOffset;
+        private final int slotBits;
 
         /**
          * Create details for one annotated field
@@ -176,8 +392,10 @@ public class RecordDescriptor<T> {
          * @param order     Position in packing order
          * @param bits    Length in bits the field
          * @param elements  Array size (if applicable)
+         * @param accessor  Access to the field value, null for padding
          */
-        FieldDetails(final String typeName, final String fieldName, final int order, int bits, final int elements) {
+        FieldDetails(final String typeName, final String fieldName, final int order, int bits, final int elements, final FieldAccessor accessor) {
+            final IMemoryStore.Type type;
             if (bits < 1)
                 throw new IllegalArgumentException("Bit packing target length must be at least 1");
             if (elements < 1)
@@ -247,11 +465,37 @@ public class RecordDescriptor<T> {
                 default:
                     throw new IllegalArgumentException("Unsupported packing type. " + typeName);
             }
+            this.type = type;
             this.fieldName = fieldName;
             this.order = order;
             this.bitLength = bits;
             this.byteLength = ((bits - 1) >> 3) + 1;
             this.elements = elements;
+            this.accessor = accessor;
+            this.fieldId = -1;
+            this.bitOffset = 0;
+            this.slotBits = bitLength;
+        }
+
+        /**
+         * Copy a field, fixing its position in the record
+         *
+         * @param field            Field details
+         * @param fieldId          Position of the field in layout order
+         * @param bitOffset        Offset of the field from the start of the record in bits
+         * @param fieldByteAligned Field alignment of the record
+         */
+        FieldDetails(final FieldDetails field, final int fieldId, final int bitOffset, final boolean fieldByteAligned) {
+            this.type = field.type;
+            this.fieldName = field.fieldName;
+            this.order = field.order;
+            this.bitLength = field.bitLength;
+            this.byteLength = field.byteLength;
+            this.elements = field.elements;
+            this.accessor = field.accessor;
+            this.fieldId = fieldId;
+            this.bitOffset = bitOffset;
+            this.slotBits = fieldByteAligned ? byteLength * 8 : bitLength;
         }
 
         IMemoryStore.Type getType() {
@@ -277,5 +521,52 @@ public class RecordDescriptor<T> {
         String getFieldName() {
             return fieldName;
         }
+
+        FieldAccessor getAccessor() {
+            return accessor;
+        }
+
+        int getFieldId() {
+            return fieldId;
+        }
+
+        /**
+         * Get the offset of the field from the start of the record
+         *
+         * @return Offset in bits
+         */
+        int getBitOffset() {
+            return bitOffset;
+        }
+
+        /**
+         * Get the offset of the byte holding the start of the field
+         *
+         * @return Offset in bytes
+         */
+        int getByteOffset() {
+            return bitOffset >>> 3;
+        }
+
+        /**
+         * Get the width of the field as stored, or of each element of an array or string
+         *
+         * @return Width in bits
+         */
+        int getSlotBits() {
+            return slotBits;
+        }
+
+        /**
+         * Get the width of the whole field as stored, including every element of an array or string
+         *
+         * @return Width in bits
+         */
+        int getFieldBits() {
+            int bits = slotBits * elements;
+            if (type == FixedString)
+                bits = bits + 32; // Element count for stored strings held as int32 at start
+            return bits;
+        }
     }
 }
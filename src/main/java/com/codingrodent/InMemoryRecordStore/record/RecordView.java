@@ -0,0 +1,357 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import com.codingrodent.InMemoryRecordStore.core.IMemoryStore;
+import com.codingrodent.InMemoryRecordStore.utility.BitTwiddling;
+
+import java.util.UUID;
+
+/**
+ * A reusable window onto one record in a memory store. Fields are read and written in place at their precomputed bit
+ * offsets, so touching a field costs the same whatever the size of the record and no record object is created.
+ * <p>
+ * Fields can be addressed by name or, faster, by the id returned from {@link RecordDescriptor#getFieldId(String)}.
+ * Integer values may be read into a wider type (e.g. a byte field read with getInt) but not a narrower one. Writes are
+ * truncated to the width of the field in the same way as {@link Writer}. A view is not thread safe.
+ */
+public class RecordView<T> {
+    private final IMemoryStore memoryStore;
+    private final RecordDescriptor<T> recordDescriptor;
+    private final RecordDescriptor.FieldDetails[] fields;
+    private final int byteLength;
+    private final int records;
+    private final long[] columns;
+    private int location = -1;
+    private long base;
+
+    /**
+     * Create a view onto records stored as rows in a memory store. The view must be moved to a record before use.
+     *
+     * @param memoryStore      Data storage structure
+     * @param recordDescriptor Field type information
+     * @throws IllegalArgumentException If the record has a columnar layout
+     */
+    public RecordView(final IMemoryStore memoryStore, final RecordDescriptor<T> recordDescriptor) {
+        this(memoryStore, recordDescriptor, -1);
+    }
+
+    /**
+     * Create a view onto a store holding a fixed number of records. The number of records places the columns of a
+     * columnar layout and is not used for records stored as rows. The view must be moved to a record before use.
+     *
+     * @param memoryStore      Data storage structure
+     * @param recordDescriptor Field type information
+     * @param records          Number of records in the store
+     * @throws IllegalArgumentException If the record has a columnar layout and the number of records is not given
+     */
+    public RecordView(final IMemoryStore memoryStore, final RecordDescriptor<T> recordDescriptor, final int records) {
+        this.memoryStore = memoryStore;
+        this.recordDescriptor = recordDescriptor;
+        this.byteLength = recordDescriptor.getByteLength();
+        this.fields = recordDescriptor.getFields();
+        this.records = records;
+        if (recordDescriptor.isColumnar()) {
+            if (records < 0)
+                throw new IllegalArgumentException("A columnar record layout needs the number of records in the store");
+            this.columns = recordDescriptor.getColumnOffsets(records);
+        } else {
+            this.columns = null;
+        }
+    }
+
+    /**
+     * Position the view on a record
+     *
+     * @param location Location
+     * @return This view
+     * @throws IllegalArgumentException If the location is outside the memory store, or past the last record of a view
+     *                                  for a fixed number of records
+     */
+    public RecordView<T> moveTo(final int location) {
+        if (null != columns) {
+            if ((location < 0) || (location >= records) || (((long) memoryStore.getBytes() << 3) < columns[columns.length - 1])) {
+                throw new IllegalArgumentException("Record location out of bounds");
+            }
+        } else if ((location < 0) || ((records >= 0) && (location >= records)) || (((long) location + 1) * byteLength > memoryStore.getBytes())) {
+            throw new IllegalArgumentException("Record location out of bounds");
+        }
+        this.location = location;
+        this.base = (long) location * byteLength << 3;
+        return this;
+    }
+
+    /**
+     * Get the location of the record the view is on
+     *
+     * @return Location or -1 if the view has not been positioned
+     */
+    public int getLocation() {
+        return location;
+    }
+
+    public RecordDescriptor<T> getRecordDescriptor() {
+        return recordDescriptor;
+    }
+
+    // Readers
+
+    public boolean getBoolean(final String fieldName) {
+        return getBoolean(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public boolean getBoolean(final int fieldId) {
+        return 0x01 == read(field(fieldId, IMemoryStore.Type.Bit));
+    }
+
+    public byte getByte(final String fieldName) {
+        return getByte(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public byte getByte(final int fieldId) {
+        return (byte) getIntegral(fieldId, 8);
+    }
+
+    public short getShort(final String fieldName) {
+        return getShort(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public short getShort(final int fieldId) {
+        return (short) getIntegral(fieldId, 16);
+    }
+
+    public char getChar(final String fieldName) {
+        return getChar(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public char getChar(final int fieldId) {
+        return (char) read(field(fieldId, IMemoryStore.Type.Char16));
+    }
+
+    public int getInt(final String fieldName) {
+        return getInt(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public int getInt(final int fieldId) {
+        return (int) getIntegral(fieldId, 32);
+    }
+
+    public long getLong(final String fieldName) {
+        return getLong(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public long getLong(final int fieldId) {
+        return getIntegral(fieldId, 64);
+    }
+
+    public float getFloat(final String fieldName) {
+        return getFloat(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public float getFloat(final int fieldId) {
+        return Float.intBitsToFloat((int) read(field(fieldId, IMemoryStore.Type.Float)));
+    }
+
+    public double getDouble(final String fieldName) {
+        return getDouble(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public double getDouble(final int fieldId) {
+        return Double.longBitsToDouble(read(field(fieldId, IMemoryStore.Type.Double)));
+    }
+
+    public UUID getUUID(final String fieldName) {
+        return getUUID(recordDescriptor.getFieldId(fieldName));
+    }
+
+    public UUID getUUID(final int fieldId) {
+        RecordDescriptor.FieldDetails fieldDetails = field(fieldId, IMemoryStore.Type.UUID);
+        long pos = position(fieldDetails);
+        return new UUID(memoryStore.getBitsUnchecked(pos, 64), memoryStore.getBitsUnchecked(pos + 64, 64));
+    }
+
+    // Writers
+
+    public void setBoolean(final String fieldName, final boolean value) {
+        setBoolean(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setBoolean(final int fieldId, final boolean value) {
+        write(field(fieldId, IMemoryStore.Type.Bit), value ? 0x01 : 0x00);
+    }
+
+    public void setByte(final String fieldName, final byte value) {
+        setByte(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setByte(final int fieldId, final byte value) {
+        setIntegral(fieldId, 8, value);
+    }
+
+    public void setShort(final String fieldName, final short value) {
+        setShort(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setShort(final int fieldId, final short value) {
+        setIntegral(fieldId, 16, value);
+    }
+
+    public void setChar(final String fieldName, final char value) {
+        setChar(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setChar(final int fieldId, final char value) {
+        write(field(fieldId, IMemoryStore.Type.Char16), value);
+    }
+
+    public void setInt(final String fieldName, final int value) {
+        setInt(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setInt(final int fieldId, final int value) {
+        setIntegral(fieldId, 32, value);
+    }
+
+    public void setLong(final String fieldName, final long value) {
+        setLong(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setLong(final int fieldId, final long value) {
+        setIntegral(fieldId, 64, value);
+    }
+
+    public void setFloat(final String fieldName, final float value) {
+        setFloat(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setFloat(final int fieldId, final float value) {
+        write(field(fieldId, IMemoryStore.Type.Float), Float.floatToRawIntBits(value));
+    }
+
+    public void setDouble(final String fieldName, final double value) {
+        setDouble(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setDouble(final int fieldId, final double value) {
+        write(field(fieldId, IMemoryStore.Type.Double), Double.doubleToRawLongBits(value));
+    }
+
+    public void setUUID(final String fieldName, final UUID value) {
+        setUUID(recordDescriptor.getFieldId(fieldName), value);
+    }
+
+    public void setUUID(final int fieldId, final UUID value) {
+        RecordDescriptor.FieldDetails fieldDetails = field(fieldId, IMemoryStore.Type.UUID);
+        long pos = position(fieldDetails);
+        memoryStore.setBitsUnchecked(pos, 64, value.getMostSignificantBits());
+        memoryStore.setBitsUnchecked(pos + 64, 64, value.getLeastSignificantBits());
+    }
+
+    /**
+     * Read a signed integer field into a type of the given width
+     *
+     * @param fieldId Field id
+     * @param width   Width of the Java type being read into
+     * @return Sign extended value
+     */
+    private long getIntegral(final int fieldId, final int width) {
+        RecordDescriptor.FieldDetails fieldDetails = integral(fieldId, width);
+        if (IMemoryStore.Type.Char16 == fieldDetails.getType())
+            return read(fieldDetails);
+        return BitTwiddling.extend(read(fieldDetails), fieldDetails.getSlotBits());
+    }
+
+    private void setIntegral(final int fieldId, final int width, final long value) {
+        write(integral(fieldId, width), value);
+    }
+
+    /**
+     * Find an integer field that fits in a Java type of the given width
+     *
+     * @param fieldId Field id
+     * @param width   Width of the Java type
+     * @return Field details
+     */
+    private RecordDescriptor.FieldDetails integral(final int fieldId, final int width) {
+        RecordDescriptor.FieldDetails fieldDetails = fields[fieldId];
+        int typeWidth;
+        switch (fieldDetails.getType()) {
+            case Byte8:
+                typeWidth = 8;
+                break;
+            case Short16:
+                typeWidth = 16;
+                break;
+            case Char16:
+                // Unsigned, so needs a wider type unless read as a char
+                typeWidth = 17;
+                break;
+            case Word32:
+                typeWidth = 32;
+                break;
+            case Word64:
+                typeWidth = 64;
+                break;
+            default:
+                typeWidth = Integer.MAX_VALUE;
+        }
+        if (typeWidth > width)
+            throw wrongType(fieldDetails);
+        return fieldDetails;
+    }
+
+    private RecordDescriptor.FieldDetails field(final int fieldId, final IMemoryStore.Type type) {
+        RecordDescriptor.FieldDetails fieldDetails = fields[fieldId];
+        if (type != fieldDetails.getType())
+            throw wrongType(fieldDetails);
+        return fieldDetails;
+    }
+
+    private IllegalArgumentException wrongType(final RecordDescriptor.FieldDetails fieldDetails) {
+        return new IllegalArgumentException("Field (" + fieldDetails.getFieldName() + ") of type " + fieldDetails.getType() + " can't be accessed as this type");
+    }
+
+    private long read(final RecordDescriptor.FieldDetails fieldDetails) {
+        return memoryStore.getBitsUnchecked(position(fieldDetails), fieldDetails.getSlotBits());
+    }
+
+    private void write(final RecordDescriptor.FieldDetails fieldDetails, final long value) {
+        memoryStore.setBitsUnchecked(position(fieldDetails), fieldDetails.getSlotBits(), value);
+    }
+
+    /**
+     * Find a field of the record the view is on. Rows hold the field at its offset in the record, columns at its place
+     * in the column for the field.
+     *
+     * @param fieldDetails Field details
+     * @return Bit position of the field
+     */
+    private long position(final RecordDescriptor.FieldDetails fieldDetails) {
+        if (location < 0)
+            throw new IllegalStateException("View has not been moved to a record");
+        if (null == columns)
+            return base + fieldDetails.getBitOffset();
+        return columns[fieldDetails.getFieldId()] + (long) location * fieldDetails.getFieldBits();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+
+import java.lang.reflect.Field;
+
+/**
+ * Field accessor using plain reflection. Used as a fallback where method handles can't be created for a field.
+ * Primitive fields use the typed Field methods (getInt, setInt, ...) so are not boxed. Wrapper fields are boxed on
+ * their way through.
+ */
+class ReflectiveFieldAccessor extends FieldAccessor {
+
+    private final Field field;
+    private final boolean primitive;
+
+    /**
+     * Create an accessor for a field
+     *
+     * @param field Field to be accessed
+     */
+    ReflectiveFieldAccessor(final Field field) {
+        this.field = field;
+        this.primitive = field.getType().isPrimitive();
+    }
+
+    /**
+     * Wrap a reflection failure
+     *
+     * @param e Exception thrown by reflection
+     * @return Exception to throw
+     */
+    private RecordStoreException failure(final IllegalAccessException e) {
+        return new RecordStoreException("Unable to access field " + field.getName(), e);
+    }
+
+    @Override
+    boolean isPrimitive() {
+        return primitive;
+    }
+
+    @Override
+    Object get(final Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void set(final Object target, final Object value) {
+        try {
+            field.set(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    boolean getBoolean(final Object target) {
+        if (!primitive)
+            return (Boolean) get(target);
+        try {
+            return field.getBoolean(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void setBoolean(final Object target, final boolean value) {
+        if (!primitive) {
+            set(target, value);
+            return;
+        }
+        try {
+            field.setBoolean(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    byte getByte(final Object target) {
+        if (!primitive)
+            return (Byte) get(target);
+        try {
+            return field.getByte(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void setByte(final Object target, final byte value) {
+        if (!primitive) {
+            set(target, value);
+            return;
+        }
+        try {
+            field.setByte(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    short getShort(final Object target) {
+        if (!primitive)
+            return (Short) get(target);
+        try {
+            return field.getShort(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void setShort(final Object target, final short value) {
+        if (!primitive) {
+            set(target, value);
+            return;
+        }
+        try {
+            field.setShort(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    char getChar(final Object target) {
+        if (!primitive)
+            return (Character) get(target);
+        try {
+            return field.getChar(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void setChar(final Object target, final char value) {
+        if (!primitive) {
+            set(target, value);
+            return;
+        }
+        try {
+            field.setChar(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    int getInt(final Object target) {
+        if (!primitive)
+            return (Integer) get(target);
+        try {
+            return field.getInt(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void setInt(final Object target, final int value) {
+        if (!primitive) {
+            set(target, value);
+            return;
+        }
+        try {
+            field.setInt(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    long getLong(final Object target) {
+        if (!primitive)
+            return (Long) get(target);
+        try {
+            return field.getLong(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void setLong(final Object target, final long value) {
+        if (!primitive) {
+            set(target, value);
+            return;
+        }
+        try {
+            field.setLong(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    float getFloat(final Object target) {
+        if (!primitive)
+            return (Float) get(target);
+        try {
+            return field.getFloat(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void setFloat(final Object target, final float value) {
+        if (!primitive) {
+            set(target, value);
+            return;
+        }
+        try {
+            field.setFloat(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    double getDouble(final Object target) {
+        if (!primitive)
+            return (Double) get(target);
+        try {
+            return field.getDouble(target);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    void setDouble(final Object target, final double value) {
+        if (!primitive) {
+            set(target, value);
+            return;
+        }
+        try {
+            field.setDouble(target, value);
+        } catch (IllegalAccessException e) {
+            throw failure(e);
+        }
+    }
+}
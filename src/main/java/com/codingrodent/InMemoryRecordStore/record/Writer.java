@@ -25,423 +25,400 @@ package com.codingrodent.InMemoryRecordStore.record;
 
 import com.codingrodent.InMemoryRecordStore.core.IMemoryStore;
 import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
-import com.codingrodent.InMemoryRecordStore.utility.BitTwiddling;
 
-import java.lang.reflect.*;
-import java.util.UUID;
+import java.lang.reflect.Array;
+import java.util.*;
 
 /**
  *
  */
 public class Writer<T> {
+    // Bulk writes are packed and copied in blocks of about this size
+    final static int BLOCK_BYTES = 64 * 1024;
+
     private final RecordDescriptor<T> recordDescriptor;
     private final IMemoryStore memoryStore;
     private final BitWriter bitWriter;
+    private final BitReader bitReader;
+    private final RecordCodec<T> codec;
+    private final ThreadLocal<byte[]> scratch;
+    private final ThreadLocal<byte[]> blocks;
+    private final int records;
+    private final long[] columns;
 
     /**
-     * Create a new record writer
+     * Create a new record writer for records stored as rows
      *
      * @param memoryStore      Data storage structure
      * @param recordDescriptor Field type information
+     * @throws IllegalArgumentException If the record has a columnar layout
      */
     public Writer(final IMemoryStore memoryStore, final RecordDescriptor<T> recordDescriptor) {
-        if (recordDescriptor.isFieldByteAligned()) {
-            this.bitWriter = null;
-        } else {
-            this.bitWriter = new BitWriter();
-        }
+        this(memoryStore, recordDescriptor, -1);
+    }
+
+    /**
+     * Create a new record writer for a store holding a fixed number of records. The number of records places the
+     * columns of a columnar layout and is not used for records stored as rows.
+     *
+     * @param memoryStore      Data storage structure
+     * @param recordDescriptor Field type information
+     * @param records          Number of records in the store
+     * @throws IllegalArgumentException If the record has a columnar layout and the number of records is not given
+     */
+    public Writer(final IMemoryStore memoryStore, final RecordDescriptor<T> recordDescriptor, final int records) {
+        this.bitWriter = new BitWriter();
+        this.bitReader = new BitReader();
         this.recordDescriptor = recordDescriptor;
         this.memoryStore = memoryStore;
+        this.codec = recordDescriptor.getCodec();
+        this.scratch = ThreadLocal.withInitial(() -> new byte[recordDescriptor.getByteLength()]);
+        this.blocks = ThreadLocal.withInitial(() -> new byte[Math.max(1, BLOCK_BYTES / recordDescriptor.getByteLength()) * recordDescriptor.getByteLength()]);
+        this.records = records;
+        if (recordDescriptor.isColumnar()) {
+            if (records < 0)
+                throw new IllegalArgumentException("A columnar record layout needs the number of records in the store");
+            this.columns = recordDescriptor.getColumnOffsets(records);
+        } else {
+            this.columns = null;
+        }
     }
 
     /**
-     * Write a record at the specified location
+     * Write a record at the specified location. Each field is written straight into the memory store at its bit offset,
+     * with no intermediate copy of the record. All fields are checked before anything is written.
      *
      * @param loc    Location
      * @param record Record
      * @throws RecordStoreException General error when writing record
      */
     public void putRecord(final int loc, final T record) throws RecordStoreException {
-        if (!record.getClass().equals(recordDescriptor.getClazz())) {
-            throw new RecordStoreException("Object supplied to writer is of the wrong type");
+        checkRecord(record);
+        if (null != columns) {
+            packColumns(record, checkColumns(loc));
+            return;
         }
-        // Write buffer to storage
         int byteLength = recordDescriptor.getByteLength();
-        int writeLocation = loc * byteLength;
-        if ((memoryStore.getBytes() - writeLocation) < byteLength) {
+        long writeLocation = (long) loc * byteLength;
+        if ((loc < 0) || ((memoryStore.getBytes() - writeLocation) < byteLength)) {
             throw new RecordStoreException("Write location beyond end of storage");
         }
-        // Find all fields and build byte buffer
-        Class clazz = record.getClass();
-        int bufferPosition = 0;
-        byte[] buffer = new byte[byteLength];
-        for (String fieldName : recordDescriptor.getFieldNames()) {
-            try {
-                RecordDescriptor.FieldDetails fieldDetails = recordDescriptor.getFieldDetails(fieldName);
-                IMemoryStore.Type type = fieldDetails.getType();
-                Field field = clazz.getDeclaredField(fieldName);
-                Object value = field.get(record);
-                if ((null == value) && !(type == IMemoryStore.Type.Void))
-                    throw new IllegalArgumentException("Field (" + field.getName() + ") is null. Unable to pack");
-                // If the field is an array, check its size
-                if (field.getType().isArray() && (Array.getLength(value) != fieldDetails.getElements())) {
-                    throw new IllegalArgumentException("Array size does not match. Should be " + fieldDetails.getElements());
-                }
-                //  Alignment ?
-                if (recordDescriptor.isFieldByteAligned()) {
-                    // Byte aligned
-                    bufferPosition = packFieldIntoBytes(bufferPosition, buffer, value, fieldDetails.getByteLength(), type, fieldDetails.getElements());
-                } else {
-                    // Bit aligned
-                    bufferPosition = packFieldIntoBits(bufferPosition, buffer, value, fieldDetails.getBitLength(), type, fieldDetails.getElements());
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new RecordStoreException(e);
-            }
+        if (null != codec) {
+            byte[] buffer = scratch.get();
+            codec.write(record, buffer);
+            memoryStore.setBytes((int) writeLocation, buffer, 0, byteLength);
+            return;
         }
-        // Write buffer into storage
-        memoryStore.setByteArray(writeLocation, buffer);
+        packRecord(record, writeLocation << 3, null);
     }
 
     /**
-     * Pack an annotated field into the byte storage for a record
+     * Write records to consecutive locations. All records are checked before anything is written. Records are then
+     * packed a block at a time into a buffer kept for each thread, and each block copied into the memory store in a
+     * single operation.
      *
-     * @param pos               Write position (byte)
-     * @param buffer            Byte buffer
-     * @param value             Object to be written. Actual type from record.
-     * @param byteLength        Length of target field in bytes
-     * @param type              Object type
-     * @param maxVariableLength Maximuj length for varibale length objects, e.g. Strings
-     * @return Next free byte in the buffer
+     * @param loc     Location of the first record
+     * @param records Records
+     * @throws RecordStoreException General error when writing records
      */
-    private int packFieldIntoBytes(int pos, final byte[] buffer, final Object value, final int byteLength, final IMemoryStore.Type type, final int maxVariableLength) {
-        //
-        // Don't forget - you can't make things longer !
-        switch (type) {
-            case Bit: {
-                buffer[pos++] = (byte) ((Boolean) value ? 0x01 : 0x00);
-                break;
-            }
-            case Byte8: {
-                buffer[pos++] = (Byte) value;
-                break;
+    public void putRecords(final int loc, final List<? extends T> records) throws RecordStoreException {
+        for (T record : records) {
+            checkRecord(record);
+        }
+        final int count = records.size();
+        if (0 == count)
+            return;
+        if (null != columns) {
+            checkColumns(loc);
+            checkColumns(loc + count - 1);
+            int location = loc;
+            for (T record : records) {
+                packColumns(record, location++);
             }
-            case Short16: {
-                short v = (Short) value;
-                if (1 == byteLength) {
-                    v = BitTwiddling.shrink(v, 8);
-                    buffer[pos++] = (byte) (v & 0x00FF);
+            return;
+        }
+        final int byteLength = recordDescriptor.getByteLength();
+        long writeLocation = (long) loc * byteLength;
+        if ((loc < 0) || ((memoryStore.getBytes() - writeLocation) < (long) count * byteLength)) {
+            throw new RecordStoreException("Write location beyond end of storage");
+        }
+        final int perBlock = Math.max(1, Math.min(count, BLOCK_BYTES / byteLength));
+        final byte[] block = blocks.get();
+        final byte[] single = null == codec ? null : scratch.get();
+        Iterator<? extends T> iterator = records.iterator();
+        for (int done = 0; done < count; ) {
+            int n = Math.min(perBlock, count - done);
+            for (int i = 0; i < n; i++) {
+                T record = iterator.next();
+                if (null == codec) {
+                    packRecord(record, (long) i * byteLength << 3, block);
                 } else {
-                    buffer[pos++] = (byte) (v >>> 8);
-                    buffer[pos++] = (byte) (v & 0x00FF);
-                    pos++;
-                }
-                break;
-            }
-            case Char16: {
-                char v = (Character) value;
-                pos = packByteAlignedChar(pos, buffer, byteLength, v);
-                break;
-            }
-            case Word32: {
-                int v = (Integer) value;
-                if (byteLength < 4)
-                    v = BitTwiddling.shrink(v, 8 * byteLength);
-                for (int i = byteLength - 1; i >= 0; i--) {
-                    buffer[pos + i] = (byte) (v & 0x00FF);
-                    v = v >>> 8;
+                    codec.write(record, single);
+                    System.arraycopy(single, 0, block, i * byteLength, byteLength);
                 }
-                pos = pos + byteLength;
-                break;
-            }
-            case Word64: {
-                long v = (Long) value;
-                if (byteLength < 8)
-                    v = BitTwiddling.shrink(v, 8 * byteLength);
-                for (int i = byteLength - 1; i >= 0; i--) {
-                    buffer[pos + i] = (byte) (v & 0x00FF);
-                    v = v >>> 8;
-                }
-                pos = pos + byteLength;
-                break;
             }
-            case Void: {
-                pos = pos + byteLength;
-                break;
-            }
-            case UUID: {
-                UUID v = (UUID) value;
-                pos = longToBuffer(pos, buffer, v.getMostSignificantBits());
-                pos = longToBuffer(pos, buffer, v.getLeastSignificantBits());
-                break;
-            }
-            case booleanArray: {
-                boolean[] v = (boolean[]) value;
-                for (boolean b : v)
-                    buffer[pos++] = (byte) (b ? 1 : 0);
-                break;
-            }
-            case BooleanArray: {
-                Boolean[] v = (Boolean[]) value;
-                for (boolean b : v)
-                    buffer[pos++] = (byte) (b ? 1 : 0);
-                break;
+            memoryStore.setBytes((int) writeLocation, block, 0, n * byteLength);
+            writeLocation = writeLocation + (long) n * byteLength;
+            done = done + n;
+        }
+    }
+
+    /**
+     * Pack a record into a byte array, laid out exactly as it would be in a memory store
+     *
+     * @param record Record
+     * @param buffer Target buffer, at least one record long
+     * @throws RecordStoreException General error when writing record
+     */
+    public void pack(final T record, final byte[] buffer) throws RecordStoreException {
+        checkRecord(record);
+        if (null != codec) {
+            codec.write(record, buffer);
+            return;
+        }
+        packRecord(record, 0, buffer);
+    }
+
+    /**
+     * Copy the packed bytes of a record into the memory store without unpacking them. The bytes are laid out as a row,
+     * e.g. by {@link #pack(Object, byte[])}, and a record held in columns is scattered into its columns.
+     *
+     * @param loc    Location
+     * @param buffer Packed record
+     * @throws RecordStoreException If the location is outside the memory store
+     */
+    public void copyRecord(final int loc, final byte[] buffer) throws RecordStoreException {
+        copyRecords(loc, 1, buffer, 0);
+    }
+
+    /**
+     * Copy the packed bytes of records into consecutive locations without unpacking them. The bytes are laid out as
+     * rows whatever the layout of the store.
+     *
+     * @param loc    Location of the first record
+     * @param count  Number of records
+     * @param source Source array
+     * @param offset Offset of the first byte in the source array
+     * @throws RecordStoreException If a location is outside the memory store
+     */
+    public void copyRecords(final int loc, final int count, final byte[] source, final int offset) throws RecordStoreException {
+        if (count <= 0)
+            return;
+        final int byteLength = recordDescriptor.getByteLength();
+        if (null == columns) {
+            long writeLocation = (long) loc * byteLength;
+            if ((loc < 0) || ((memoryStore.getBytes() - writeLocation) < (long) count * byteLength)) {
+                throw new RecordStoreException("Write location beyond end of storage");
             }
-            case FixedString: {
-                String v = (String) value;
-                // Insert length header value
-                int length = v.length();
-                pos = intToBuffer(pos, buffer, length);
-                // Add characters
-                for (int i = 0; i < v.length(); i++) {
-                    char c = v.charAt(i);
-                    pos = packByteAlignedChar(pos, buffer, byteLength, c);
+            memoryStore.setBytes((int) writeLocation, source, offset, count * byteLength);
+            return;
+        }
+        checkColumns(loc);
+        checkColumns(loc + count - 1);
+        final byte[] buffer = scratch.get();
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(source, offset + i * byteLength, buffer, 0, byteLength);
+            scatter(loc + i, buffer);
+        }
+    }
+
+    /**
+     * Check a record can be packed, so that a bad field doesn't leave a part written record behind
+     *
+     * @param record Record
+     * @throws RecordStoreException     If the record is of the wrong type
+     * @throws IllegalArgumentException If a field is null or the wrong size
+     */
+    private void checkRecord(final T record) {
+        if (!record.getClass().equals(recordDescriptor.getClazz())) {
+            throw new RecordStoreException("Object supplied to writer is of the wrong type");
+        }
+        for (RecordDescriptor.FieldDetails fieldDetails : recordDescriptor.getFields()) {
+            String fieldName = fieldDetails.getFieldName();
+            IMemoryStore.Type type = fieldDetails.getType();
+            FieldAccessor field = fieldDetails.getAccessor();
+            if ((type != IMemoryStore.Type.Void) && !field.isPrimitive()) {
+                Object value = field.get(record);
+                if (null == value)
+                    throw new IllegalArgumentException("Field (" + fieldName + ") is null. Unable to pack");
+                // If the field is an array, check its size
+                if (value.getClass().isArray() && (Array.getLength(value) != fieldDetails.getElements())) {
+                    throw new IllegalArgumentException("Array size does not match. Should be " + fieldDetails.getElements());
                 }
-                // Zero out any unused space
-                for (int i = v.length(); i < maxVariableLength; i++) {
-                    pos = packByteAlignedChar(pos, buffer, byteLength, (char) 0);
+                if ((type == IMemoryStore.Type.FixedString) && (((String) value).length() > fieldDetails.getElements())) {
+                    throw new IllegalArgumentException("String too long. Maximum length is " + fieldDetails.getElements());
                 }
-                break;
-            }
-            case Double: {
-                long p = Double.doubleToRawLongBits((Double) value);
-                pos = longToBuffer(pos, buffer, p);
-                break;
             }
-            case Float: {
-                int p = Float.floatToRawIntBits((Float) value);
-                pos = intToBuffer(pos, buffer, p);
-                break;
+        }
+    }
+
+    /**
+     * Pack every field of a record, then clear any unused bits in the last byte
+     *
+     * @param record Record
+     * @param base   Bit position of the record
+     * @param buffer Byte buffer, or null to write to the memory store
+     */
+    private void packRecord(final T record, final long base, final byte[] buffer) {
+        for (RecordDescriptor.FieldDetails fieldDetails : recordDescriptor.getFields()) {
+            packField(record, base + fieldDetails.getBitOffset(), buffer, fieldDetails);
+        }
+        int spare = recordDescriptor.getByteLength() * 8 - recordDescriptor.getBitLength();
+        if (spare > 0)
+            write(buffer, base + recordDescriptor.getBitLength(), spare, 0);
+    }
+
+    /**
+     * Pack every field of a record into its column
+     *
+     * @param record   Record
+     * @param location Location of the record, already checked
+     */
+    private void packColumns(final T record, final int location) {
+        for (RecordDescriptor.FieldDetails fieldDetails : recordDescriptor.getFields()) {
+            packField(record, columns[fieldDetails.getFieldId()] + (long) location * fieldDetails.getFieldBits(), null, fieldDetails);
+        }
+    }
+
+    /**
+     * Copy the fields of a record packed as a row out into their columns
+     *
+     * @param location Location of the record, already checked
+     * @param buffer   Byte buffer holding the row
+     */
+    private void scatter(final int location, final byte[] buffer) {
+        for (RecordDescriptor.FieldDetails fieldDetails : recordDescriptor.getFields()) {
+            final long to = columns[fieldDetails.getFieldId()] + (long) location * fieldDetails.getFieldBits();
+            final int from = fieldDetails.getBitOffset();
+            final int bits = fieldDetails.getFieldBits();
+            for (int done = 0; done < bits; done = done + 64) {
+                final int n = Math.min(64, bits - done);
+                memoryStore.setBitsUnchecked(to + done, n, bitReader.unpackLong(buffer, from + done, n));
             }
         }
-        return pos;
     }
 
     /**
-     * Pack an annotated field into the bit storage for a record
+     * Check a record held in columns lies within the memory store, so its fields can be written without further checks
      *
-     * @param pos               Write position (bit)
-     * @param buffer            Byte buffer
-     * @param value             Object to be written. Actual type from record.
-     * @param bitLength         Length of target field in bits
-     * @param type              Object type
-     * @param maxVariableLength Maximuj length for varibale length objects, e.g. Strings
-     * @return Next free bit in the buffer
+     * @param location Location
+     * @return location
+     * @throws RecordStoreException If the record is not within the memory store
      */
+    private int checkColumns(final int location) throws RecordStoreException {
+        if ((location < 0) || (location >= records) || (((long) memoryStore.getBytes() << 3) < columns[columns.length - 1])) {
+            throw new RecordStoreException("Write location beyond end of storage");
+        }
+        return location;
+    }
 
-    private int packFieldIntoBits(int pos, final byte[] buffer, final Object value, final int bitLength, final IMemoryStore.Type type, final int maxVariableLength) {
-        //
-        // Don't forget - you can't make things longer !
-        switch (type) {
+    /**
+     * Pack an annotated field into the storage for a record. Byte aligned fields are treated as bit fields a whole
+     * number of bytes long.
+     * <p>
+     * Don't forget - you can't make things longer ! Values are truncated to the width of the field.
+     *
+     * @param record       Record holding the field
+     * @param position     Bit position of the field
+     * @param buffer       Byte buffer, or null to write to the memory store
+     * @param fieldDetails Description of the field
+     */
+    private void packField(final T record, final long position, final byte[] buffer, final RecordDescriptor.FieldDetails fieldDetails) {
+        FieldAccessor field = fieldDetails.getAccessor();
+        long pos = position;
+        int bitLength = fieldDetails.getSlotBits();
+        switch (fieldDetails.getType()) {
             case Bit: {
-                byte[] booleanValue = {(byte) ((Boolean) value ? 0x01 : 0x00)};
-                bitWriter.insertBits(booleanValue, buffer, pos, bitLength);
+                write(buffer, pos, bitLength, field.getBoolean(record) ? 0x01 : 0x00);
                 break;
             }
             case Byte8: {
-                byte[] byteValue = {(Byte) value};
-                byteValue[0] = (byte) value;
-                bitWriter.insertBits(byteValue, buffer, pos, bitLength);
+                write(buffer, pos, bitLength, field.getByte(record));
                 break;
             }
             case Short16: {
-                short shrunkShort;
-                if (bitLength < 16)
-                    shrunkShort = BitTwiddling.shrink((Short) value, bitLength);
-                else
-                    shrunkShort = (Short) value;
-                byte[] shortValue;
-                if (bitLength <= 8) {
-                    shortValue = new byte[1];
-                    shortValue[0] = (byte) (shrunkShort & 0x00FF);
-                } else {
-                    shortValue = new byte[2];
-                    shortValue[0] = (byte) ((shrunkShort & 0xFF00) >>> 8);
-                    shortValue[1] = (byte) (shrunkShort & 0x00FF);
-                }
-                bitWriter.insertBits(shortValue, buffer, pos, bitLength);
+                write(buffer, pos, bitLength, field.getShort(record));
                 break;
             }
             case Char16: {
-                char c = (Character) value;
-                packBitAlignedChar(pos, buffer, bitLength, c);
+                write(buffer, pos, bitLength, field.getChar(record));
                 break;
             }
             case Word32: {
-                int shrunkInt;
-                if (bitLength < 32)
-                    shrunkInt = BitTwiddling.shrink((Integer) value, bitLength);
-                else
-                    shrunkInt = (Integer) value;
-                int size = ((bitLength - 1) >> 3) + 1;
-                byte[] integerValue = new byte[size];
-                for (int i = 1; i <= size; i++) {
-                    integerValue[size - i] = (byte) (shrunkInt & 0x00FF);
-                    shrunkInt = shrunkInt >>> 8;
-                }
-                bitWriter.insertBits(integerValue, buffer, pos, bitLength);
+                write(buffer, pos, bitLength, field.getInt(record));
                 break;
             }
             case Word64: {
-                long shrunkLong;
-                if (bitLength < 64)
-                    shrunkLong = BitTwiddling.shrink((Long) value, bitLength);
-                else
-                    shrunkLong = (Long) value;
-                int size = ((bitLength - 1) >> 3) + 1;
-                byte[] longValue = new byte[size];
-                for (int i = 1; i <= size; i++) {
-                    longValue[size - i] = (byte) (shrunkLong & 0x00FF);
-                    shrunkLong = shrunkLong >>> 8;
-                }
-                bitWriter.insertBits(longValue, buffer, pos, bitLength);
+                write(buffer, pos, bitLength, field.getLong(record));
                 break;
             }
             case Void: {
+                write(buffer, pos, bitLength, 0);
                 break;
             }
             case UUID: {
-                UUID v = (UUID) value;
-                byte[] longValue = new byte[8];
-                longToBuffer(0, longValue, v.getMostSignificantBits());
-                bitWriter.insertBits(longValue, buffer, pos, 64);
-                longToBuffer(0, longValue, v.getLeastSignificantBits());
-                bitWriter.insertBits(longValue, buffer, pos + 64, 64);
+                UUID v = (UUID) field.get(record);
+                write(buffer, pos, 64, v.getMostSignificantBits());
+                write(buffer, pos + 64, 64, v.getLeastSignificantBits());
                 break;
             }
             case booleanArray: {
-                boolean[] v = (boolean[]) value;
-                byte[] zero = {0};
-                byte[] one = {1};
+                boolean[] v = (boolean[]) field.get(record);
                 for (boolean b : v) {
-                    bitWriter.insertBits(b ? one : zero, buffer, pos, bitLength);
+                    write(buffer, pos, bitLength, b ? 1 : 0);
                     pos = pos + bitLength;
                 }
-                pos = pos - bitLength;
                 break;
             }
             case BooleanArray: {
-                Boolean[] v = (Boolean[]) value;
-                byte[] zero = {0};
-                byte[] one = {1};
+                Boolean[] v = (Boolean[]) field.get(record);
                 for (boolean b : v) {
-                    bitWriter.insertBits(b ? one : zero, buffer, pos, bitLength);
+                    write(buffer, pos, bitLength, b ? 1 : 0);
                     pos = pos + bitLength;
                 }
-                pos = pos - bitLength;
                 break;
             }
             case FixedString: {
-                String v = (String) value;
-                int length = v.length();
+                String v = (String) field.get(record);
                 // Insert length header value
-                byte[] integerValue = new byte[4];
-                for (int i = 1; i <= 4; i++) {
-                    integerValue[4 - i] = (byte) (length & 0x00FF);
-                    length = length >>> 8;
-                }
-                bitWriter.insertBits(integerValue, buffer, pos, 32);
+                write(buffer, pos, 32, v.length());
                 pos = pos + 32;
                 // Add characters
                 for (int i = 0; i < v.length(); i++) {
-                    char c = v.charAt(i);
-                    packBitAlignedChar(pos, buffer, bitLength, c);
+                    write(buffer, pos, bitLength, v.charAt(i));
                     pos = pos + bitLength;
                 }
                 // Zero out any unused space
-                for (int i = v.length(); i < maxVariableLength; i++) {
-                    packBitAlignedChar(pos, buffer, bitLength, (char) 0);
+                for (int i = v.length(); i < fieldDetails.getElements(); i++) {
+                    write(buffer, pos, bitLength, 0);
                     pos = pos + bitLength;
                 }
-                pos = pos - bitLength;
                 break;
             }
             case Double: {
-                byte[] longValue = new byte[8];
-                longToBuffer(0, longValue, Double.doubleToRawLongBits((Double) value));
-                bitWriter.insertBits(longValue, buffer, pos, 64);
+                write(buffer, pos, 64, Double.doubleToRawLongBits(field.getDouble(record)));
                 break;
             }
             case Float: {
-                byte[] integerValue = new byte[4];
-                intToBuffer(0, integerValue, Float.floatToRawIntBits((Float) value));
-                bitWriter.insertBits(integerValue, buffer, pos, 32);
+                write(buffer, pos, 32, Float.floatToRawIntBits(field.getFloat(record)));
                 break;
             }
         }
-        return pos + bitLength;
     }
 
     /**
-     * Pack away a character (bit aligned)
+     * Write a bit field into the record buffer or memory store. The record has already been checked to lie within the
+     * memory store, so the field is written unchecked.
      *
-     * @param pos       Write position (byte)
-     * @param buffer    Byte buffer
-     * @param bitLength Length of target field in bits
-     * @param c         Character to pack
+     * @param buffer    Byte buffer, or null to write to the memory store
+     * @param pos       Bit position
+     * @param bitLength Field width (1 to 64)
+     * @param value     Value, held in the lowest bits
      */
-    private void packBitAlignedChar(final int pos, final byte[] buffer, final int bitLength, final char c) {
-        byte[] charValue;
-        if (bitLength <= 8) {
-            charValue = new byte[1];
-            charValue[0] = (byte) (c & 0x00FF);
-        } else {
-            charValue = new byte[2];
-            charValue[0] = (byte) ((c & 0xFF00) >>> 8);
-            charValue[1] = (byte) (c & 0x00FF);
-        }
-        bitWriter.insertBits(charValue, buffer, pos, bitLength);
+    private void write(final byte[] buffer, final long pos, final int bitLength, final long value) {
+        if (null == buffer)
+            memoryStore.setBitsUnchecked(pos, bitLength, value);
+        else
+            bitWriter.insert(value, buffer, (int) pos, bitLength);
     }
-
-    /**
-     * Write an int into the record buffer
-     *
-     * @param pos    Start position in buffer
-     * @param buffer Buffer
-     * @param p      Value to write
-     * @return End position in buffer
-     */
-    private int intToBuffer(final int pos, final byte[] buffer, int p) {
-        for (int i = 3; i >= 0; i--) {
-            buffer[pos + i] = (byte) (p & 0x00FF);
-            p = p >>> 8;
-        }
-        return pos + 4;
-    }
-
-    /**
-     * Write a long into the record buffer
-     *
-     * @param pos    Start position in buffer
-     * @param buffer Buffer
-     * @param p      Value to write
-     * @return End position in buffer
-     */
-    private int longToBuffer(final int pos, final byte[] buffer, long p) {
-        for (int i = 7; i >= 0; i--) {
-            buffer[pos + i] = (byte) (p & 0x00FF);
-            p = p >>> 8;
-        }
-        return pos + 8;
-    }
-
-    /**
-     * Pack away a character (byte aligned)
-     *
-     * @param pos        Write position (byte)
-     * @param buffer     Byte buffer
-     * @param byteLength Length of target field in bytes
-     * @param c          Character to pack
-     * @return Updated position in byte buffer
-     */
-    private int packByteAlignedChar(int pos, final byte[] buffer, final int byteLength, final char c) {
-        if (1 == byteLength) {
-            buffer[pos++] = (byte) (c & 0x00FF);
-        } else {
-            buffer[pos++] = (byte) (c >>> 8);
-            buffer[pos++] = (byte) (c & 0x00FF);
-        }
-        return pos;
-    }
-
 }
@@ -0,0 +1,85 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.utility;
+
+/**
+ * Read and write bit fields of up to 64 bits held big endian in a byte array. Bit 0 of the array is the most
+ * significant bit of byte 0, matching the layout used for bit aligned records.
+ */
+public class BitPacking {
+
+    private BitPacking() {
+        // Stop creation
+    }
+
+    /**
+     * Read an unsigned bit field
+     *
+     * @param buffer      Byte buffer
+     * @param bitPosition Position of the first (most significant) bit of the field
+     * @param bits        Width of the field, 1 to 64 bits
+     * @return Field value, zero extended
+     */
+    public static long get(final byte[] buffer, final int bitPosition, final int bits) {
+        final int first = bitPosition >> 3;
+        final int last = (bitPosition + bits - 1) >> 3;
+        final int tail = ((bitPosition + bits - 1) & 0x07) + 1; // bits of the field in the last byte
+        if (first == last) {
+            return ((buffer[first] & 0x00FF) >>> (8 - tail)) & (0x00FF >>> (8 - bits));
+        }
+        long value = buffer[first] & (0x00FF >>> (bitPosition & 0x07));
+        for (int i = first + 1; i < last; i++) {
+            value = (value << 8) | (buffer[i] & 0x00FF);
+        }
+        return (value << tail) | ((buffer[last] & 0x00FF) >>> (8 - tail));
+    }
+
+    /**
+     * Write a bit field. Only the bits of the field are changed, any higher bits in the value are ignored.
+     *
+     * @param buffer      Byte buffer
+     * @param bitPosition Position of the first (most significant) bit of the field
+     * @param bits        Width of the field, 1 to 64 bits
+     * @param value       Value to write, held in the lowest bits
+     */
+    public static void put(final byte[] buffer, final int bitPosition, final int bits, long value) {
+        final int first = bitPosition >> 3;
+        final int last = (bitPosition + bits - 1) >> 3;
+        final int tail = ((bitPosition + bits - 1) & 0x07) + 1;
+        if (first == last) {
+            int mask = ((0x00FF >>> (8 - bits)) << (8 - tail));
+            buffer[first] = (byte) ((buffer[first] & ~mask) | (((int) value << (8 - tail)) & mask));
+            return;
+        }
+        int mask = (0x00FF << (8 - tail)) & 0x00FF;
+        buffer[last] = (byte) ((buffer[last] & ~mask) | (((int) value << (8 - tail)) & mask));
+        value = value >>> tail;
+        for (int i = last - 1; i > first; i--) {
+            buffer[i] = (byte) value;
+            value = value >>> 8;
+        }
+        mask = 0x00FF >>> (bitPosition & 0x07);
+        buffer[first] = (byte) ((buffer[first] & ~mask) | ((int) value & mask));
+    }
+}
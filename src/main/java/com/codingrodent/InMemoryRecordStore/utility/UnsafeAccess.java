@@ -0,0 +1,265 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.utility;
+
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.nio.*;
+
+/**
+ * Access to sun.misc.Unsafe, used for atomic and ordered access to memory store words. Java 8 has no VarHandles, so
+ * this is the only way to get compare and set or acquire / release semantics on an existing array or buffer.
+ * <p>
+ * The Unsafe class is looked up by name and its methods called through method handles, so no source file refers to
+ * the internal API and the build compiles without warnings. The handles are constants, so the JIT inlines them to the
+ * same code as direct calls. {@link #UNSAFE} has the methods used by the memory stores, named as on Unsafe.
+ * <p>
+ * Unsafe always works in the native byte order, while memory stores are big endian. Values must be passed through
+ * {@link #toNative(int)} / {@link #toNative(long)} on the way in and out.
+ */
+public final class UnsafeAccess {
+
+    public final static UnsafeAccess UNSAFE = new UnsafeAccess();
+    public final static boolean NATIVE_BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    public final static long INT_ARRAY_BASE;
+    public final static long BYTE_ARRAY_BASE;
+    private final static long BUFFER_ADDRESS;
+
+    private final static MethodHandle GET_INT_VOLATILE;
+    private final static MethodHandle PUT_INT_VOLATILE;
+    private final static MethodHandle PUT_ORDERED_INT;
+    private final static MethodHandle COMPARE_AND_SWAP_INT;
+    private final static MethodHandle GET_AND_ADD_INT;
+    private final static MethodHandle GET_LONG;
+    private final static MethodHandle PUT_LONG;
+    private final static MethodHandle GET_LONG_VOLATILE;
+    private final static MethodHandle PUT_LONG_VOLATILE;
+    private final static MethodHandle PUT_ORDERED_LONG;
+    private final static MethodHandle COMPARE_AND_SWAP_LONG;
+    private final static MethodHandle COPY_MEMORY;
+    private final static MethodHandle LOAD_FENCE;
+
+    static {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            INT_ARRAY_BASE = ((Number) unsafeClass.getMethod("arrayBaseOffset", Class.class).invoke(unsafe, int[].class)).longValue();
+            BYTE_ARRAY_BASE = ((Number) unsafeClass.getMethod("arrayBaseOffset", Class.class).invoke(unsafe, byte[].class)).longValue();
+            BUFFER_ADDRESS = (Long) unsafeClass.getMethod("objectFieldOffset", Field.class).invoke(unsafe, Buffer.class.getDeclaredField("address"));
+            //
+            GET_INT_VOLATILE = handle(unsafeClass, unsafe, "getIntVolatile", int.class, Object.class, long.class);
+            PUT_INT_VOLATILE = handle(unsafeClass, unsafe, "putIntVolatile", void.class, Object.class, long.class, int.class);
+            PUT_ORDERED_INT = handle(unsafeClass, unsafe, "putOrderedInt", void.class, Object.class, long.class, int.class);
+            COMPARE_AND_SWAP_INT = handle(unsafeClass, unsafe, "compareAndSwapInt", boolean.class, Object.class, long.class, int.class, int.class);
+            GET_AND_ADD_INT = handle(unsafeClass, unsafe, "getAndAddInt", int.class, Object.class, long.class, int.class);
+            GET_LONG = handle(unsafeClass, unsafe, "getLong", long.class, Object.class, long.class);
+            PUT_LONG = handle(unsafeClass, unsafe, "putLong", void.class, Object.class, long.class, long.class);
+            GET_LONG_VOLATILE = handle(unsafeClass, unsafe, "getLongVolatile", long.class, Object.class, long.class);
+            PUT_LONG_VOLATILE = handle(unsafeClass, unsafe, "putLongVolatile", void.class, Object.class, long.class, long.class);
+            PUT_ORDERED_LONG = handle(unsafeClass, unsafe, "putOrderedLong", void.class, Object.class, long.class, long.class);
+            COMPARE_AND_SWAP_LONG = handle(unsafeClass, unsafe, "compareAndSwapLong", boolean.class, Object.class, long.class, long.class, long.class);
+            COPY_MEMORY = handle(unsafeClass, unsafe, "copyMemory", void.class, Object.class, long.class, Object.class, long.class, long.class);
+            LOAD_FENCE = handle(unsafeClass, unsafe, "loadFence", void.class);
+        } catch (ReflectiveOperationException e) {
+            throw new RecordStoreException("Unable to access sun.misc.Unsafe", e);
+        }
+    }
+
+    private UnsafeAccess() {
+    }
+
+    /**
+     * Get a handle on an Unsafe method, bound to the Unsafe instance
+     *
+     * @param unsafeClass    The Unsafe class
+     * @param unsafe         The Unsafe instance
+     * @param name           Method name
+     * @param returnType     Return type
+     * @param parameterTypes Parameter types
+     * @return Bound method handle
+     * @throws ReflectiveOperationException If the method is not found
+     */
+    private static MethodHandle handle(final Class<?> unsafeClass, final Object unsafe, final String name, final Class<?> returnType, final Class<?>...
+            parameterTypes) throws ReflectiveOperationException {
+        return MethodHandles.lookup().findVirtual(unsafeClass, name, MethodType.methodType(returnType, parameterTypes)).bindTo(unsafe);
+    }
+
+    /**
+     * Pass on an exception from an Unsafe method. They throw no checked exceptions.
+     *
+     * @param e Exception
+     * @return Unchecked exception to throw
+     */
+    private static RuntimeException rethrow(final Throwable e) {
+        if (e instanceof RuntimeException)
+            return (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new RecordStoreException("Unsafe access failed", e);
+    }
+
+    /**
+     * Get the native address of the first byte of a direct buffer
+     *
+     * @param buffer Direct buffer
+     * @return Address
+     */
+    public static long address(final ByteBuffer buffer) {
+        if (!buffer.isDirect())
+            throw new IllegalArgumentException("Buffer is not direct");
+        return UNSAFE.getLong(buffer, BUFFER_ADDRESS);
+    }
+
+    /**
+     * Convert a big endian word to native order, or back
+     *
+     * @param value Word
+     * @return Word in the other byte order, unchanged on a big endian machine
+     */
+    public static int toNative(final int value) {
+        return NATIVE_BIG_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    /**
+     * Convert a big endian long word to native order, or back
+     *
+     * @param value Long word
+     * @return Long word in the other byte order, unchanged on a big endian machine
+     */
+    public static long toNative(final long value) {
+        return NATIVE_BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    // ******************************************************************************
+    // Unsafe methods. An object of null makes the offset an absolute address.
+    // ******************************************************************************
+
+    public int getIntVolatile(final Object o, final long offset) {
+        try {
+            return (int) GET_INT_VOLATILE.invokeExact(o, offset);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void putIntVolatile(final Object o, final long offset, final int x) {
+        try {
+            PUT_INT_VOLATILE.invokeExact(o, offset, x);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void putOrderedInt(final Object o, final long offset, final int x) {
+        try {
+            PUT_ORDERED_INT.invokeExact(o, offset, x);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public boolean compareAndSwapInt(final Object o, final long offset, final int expected, final int x) {
+        try {
+            return (boolean) COMPARE_AND_SWAP_INT.invokeExact(o, offset, expected, x);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public int getAndAddInt(final Object o, final long offset, final int delta) {
+        try {
+            return (int) GET_AND_ADD_INT.invokeExact(o, offset, delta);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public long getLong(final Object o, final long offset) {
+        try {
+            return (long) GET_LONG.invokeExact(o, offset);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void putLong(final Object o, final long offset, final long x) {
+        try {
+            PUT_LONG.invokeExact(o, offset, x);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public long getLongVolatile(final Object o, final long offset) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact(o, offset);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void putLongVolatile(final Object o, final long offset, final long x) {
+        try {
+            PUT_LONG_VOLATILE.invokeExact(o, offset, x);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void putOrderedLong(final Object o, final long offset, final long x) {
+        try {
+            PUT_ORDERED_LONG.invokeExact(o, offset, x);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public boolean compareAndSwapLong(final Object o, final long offset, final long expected, final long x) {
+        try {
+            return (boolean) COMPARE_AND_SWAP_LONG.invokeExact(o, offset, expected, x);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void copyMemory(final Object srcBase, final long srcOffset, final Object dstBase, final long dstOffset, final long bytes) {
+        try {
+            COPY_MEMORY.invokeExact(srcBase, srcOffset, dstBase, dstOffset, bytes);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
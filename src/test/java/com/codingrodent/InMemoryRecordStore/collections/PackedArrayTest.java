@@ -26,6 +26,7 @@ package com.codingrodent.InMemoryRecordStore.collections;
 import com.codingrodent.InMemoryRecordStore.record.records.*;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import static junit.framework.TestCase.fail;
@@ -48,6 +49,63 @@ public class PackedArrayTest {
         fail("IllegalArgumentException expected");
     }
 
+    @Test
+    public void getRecordReuse() {
+        PackedArray<TestRecordLong> array = new PackedArray<>(TestRecordLong.class, 16);
+        for (int i = 0; i < array.getSize(); i++)
+            array.putRecord(i, new TestRecordLong((long) i, -i, i * 2, i * 3L));
+        TestRecordLong reuse = new TestRecordLong();
+        for (int i = 0; i < array.getSize(); i++) {
+            assertSame(reuse, array.getRecord(i, reuse));
+            assertEquals(i * 3L, reuse.d);
+        }
+        try {
+            array.getRecord(16, reuse);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+    }
+
+    @Test
+    public void bulkRecords() {
+        PackedArray<TestRecordLong> array = new PackedArray<>(TestRecordLong.class, 16);
+        TestRecordLong[] records = new TestRecordLong[array.getSize()];
+        for (int i = 0; i < records.length; i++)
+            records[i] = new TestRecordLong((long) i, -i, i * 2, i * 3L);
+        array.putRecords(0, records);
+        List<TestRecordLong> read = new ArrayList<>();
+        array.getRecords(4, 8, read::add);
+        assertEquals(8, read.size());
+        for (int i = 0; i < read.size(); i++)
+            assertEquals((i + 4) * 3L, read.get(i).d);
+        //
+        byte[] bytes = new byte[15 * 2];
+        array.copyRecordsTo(14, 2, bytes, 0);
+        array.copyRecordsFrom(0, 2, bytes, 0);
+        assertEquals(14 * 3L, array.getRecord(0).d);
+        assertEquals(15 * 3L, array.getRecord(1).d);
+        array.putRecords(0, Arrays.asList(records).subList(0, 2));
+        ByteBuffer buffer = ByteBuffer.allocate(15 * 2);
+        array.copyRecordsTo(0, 2, buffer);
+        buffer.flip();
+        array.copyRecordsFrom(14, 2, buffer);
+        assertEquals(0L, array.getRecord(14).d);
+        assertEquals(3L, array.getRecord(15).d);
+    }
+
+    @Test
+    public void streamRecords() {
+        PackedArray<TestRecordLong> array = new PackedArray<>(TestRecordLong.class, RECORDS * 2);
+        for (int i = 0; i < array.getSize(); i++)
+            array.putRecord(i, new TestRecordLong((long) (i & 0x7F), -i, i, i * 3L));
+        assertEquals(array.getSize(), array.spliterator().getExactSizeIfKnown());
+        assertEquals(array.getSize(), array.stream().count());
+        assertEquals(array.stream().mapToLong(record -> record.d).sum(), array.parallelStream().mapToLong(record -> record.d).sum());
+        assertEquals(100, array.parallelStream().filter(record -> record.c % 40 == 0).count());
+        assertTrue(array.parallelStream().isParallel());
+    }
+
     @Test
     public void overLargeSize() {
         try {
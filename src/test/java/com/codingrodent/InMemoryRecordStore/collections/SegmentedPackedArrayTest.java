@@ -0,0 +1,81 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.collections;
+
+import com.codingrodent.InMemoryRecordStore.core.DirectMemoryStore;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SegmentedPackedArrayTest {
+
+    private final static long RECORDS = 2000;
+    private final Boolean[] booleanArray = {true, false, true, true, false};
+
+    @Test
+    public void negativeSize() {
+        try {
+            new SegmentedPackedArray<>(TestRecordBytePack.class, -1);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("The component must have"));
+        }
+    }
+
+    @Test
+    public void putGetRecordIterator() {
+        SegmentedPackedArray<TestRecordBytePack> array = new SegmentedPackedArray<>(TestRecordBytePack.class, RECORDS, DirectMemoryStore::new);
+        assertEquals(array.getSize(), RECORDS);
+        for (long i = 0; i < RECORDS; i++) {
+            array.putRecord(i, new TestRecordBytePack((int) i, 456, -123, true, -12345, false, new UUID(i, i + 1), new boolean[10], booleanArray));
+        }
+        assertEquals(array.getRecord(RECORDS - 1).getG(), new UUID(RECORDS - 1, RECORDS));
+        int pos = 0;
+        for (TestRecordBytePack record : array) {
+            assertEquals(record.getA(), Integer.valueOf(pos));
+            assertEquals(record.getG(), new UUID(pos, pos + 1));
+            pos++;
+        }
+        assertEquals(pos, RECORDS);
+        //
+        Iterator<TestRecordBytePack> it = array.iterator();
+        try {
+            it.remove();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iteratorEnd() {
+        Iterator<TestRecordBytePack> it = new SegmentedPackedArray<>(TestRecordBytePack.class, 8).iterator();
+        for (int i = 0; i <= 8; i++) {
+            it.next();
+        }
+    }
+}
@@ -23,9 +23,16 @@
 */
 package com.codingrodent.InMemoryRecordStore.core;
 
+import com.codingrodent.InMemoryRecordStore.utility.BitPacking;
 import org.junit.*;
 
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class ArrayMemoryStoreTest {
@@ -127,6 +134,30 @@ public class ArrayMemoryStoreTest {
         }
     }
 
+    @Test
+    public void testGetSetLongWordAnyAddress() {
+        Random random = new Random(4);
+        for (int words = 1; words <= 5; words++) {
+            core = new ArrayMemoryStore(words);
+            byte[] expected = new byte[core.getBytes()];
+            for (int address = 0; address < expected.length + 8; address++) {
+                long value = random.nextLong();
+                core.setLongWord(address, value);
+                for (int i = 0; i < 8; i++) {
+                    expected[(address + i) % expected.length] = (byte) (value >>> (56 - 8 * i));
+                }
+                assertArrayEquals(expected, core.getByteArray(0, expected.length));
+                for (int read = 0; read < expected.length; read++) {
+                    long wanted = 0;
+                    for (int i = 0; i < 8; i++) {
+                        wanted = (wanted << 8) | (expected[(read + i) % expected.length] & 0xFF);
+                    }
+                    assertEquals(wanted, core.getLongWord(read));
+                }
+            }
+        }
+    }
+
     @Test
     public void testGetWord24() {
         try {
@@ -334,6 +365,102 @@ public class ArrayMemoryStoreTest {
         }
     }
 
+    @Test
+    public void testGetSetBits() {
+        core = new ArrayMemoryStore(8);
+        byte[] expected = new byte[core.getBytes()];
+        Random random = new Random(1);
+        for (int bits = 1; bits <= 64; bits++) {
+            for (int pos = 0; pos <= 96; pos++) {
+                long value = random.nextLong();
+                core.setBits(pos, bits, value);
+                BitPacking.put(expected, pos, bits, value);
+                assertEquals(BitPacking.get(expected, pos, bits), core.getBits(pos, bits));
+                assertArrayEquals(expected, core.getByteArray(0, expected.length));
+            }
+        }
+        // Wrap at the end of the store
+        core.reset();
+        core.setBits(core.getBytes() * 8L, 8, 0xA5);
+        assertEquals(0xA5, core.getBits(0, 8));
+    }
+
+    @Test
+    public void testGetSetBitsUnchecked() {
+        // Unchecked access must read and write exactly what the checked access does, up to the end of the store
+        core = new ArrayMemoryStore(8);
+        byte[] expected = new byte[core.getBytes()];
+        Random random = new Random(5);
+        for (int bits = 1; bits <= 64; bits++) {
+            for (int pos = 0; pos <= expected.length * 8 - bits; pos++) {
+                long value = random.nextLong();
+                core.setBitsUnchecked(pos, bits, value);
+                BitPacking.put(expected, pos, bits, value);
+                assertEquals(core.getBits(pos, bits), core.getBitsUnchecked(pos, bits));
+                assertEquals(BitPacking.get(expected, pos, bits), core.getBitsUnchecked(pos, bits));
+                assertArrayEquals(expected, core.getByteArray(0, expected.length));
+            }
+        }
+    }
+
+    @Test
+    public void testGetSetBytes() {
+        core = new ArrayMemoryStore(8);
+        byte[] expected = new byte[core.getBytes()];
+        Random random = new Random(2);
+        for (int address = 0; address < expected.length; address++) {
+            for (int length = 0; length <= expected.length; length = length + 3) {
+                byte[] data = new byte[length + 2];
+                random.nextBytes(data);
+                core.setBytes(address, data, 1, length);
+                for (int i = 0; i < length; i++) {
+                    expected[(address + i) % expected.length] = data[i + 1];
+                }
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(expected[i], core.getByte(i));
+                }
+                byte[] read = new byte[length + 2];
+                core.getBytes(address, read, 1, length);
+                assertArrayEquals(Arrays.copyOfRange(data, 1, length + 1), Arrays.copyOfRange(read, 1, length + 1));
+                assertEquals(0, read[0]);
+                assertEquals(0, read[length + 1]);
+            }
+        }
+        try {
+            core.getBytes(0, new byte[4], 1, 4);
+            fail("Range past the end of the array should cause an error");
+        } catch (final IndexOutOfBoundsException e) {
+            assertEquals(e.getMessage(), "Array range out of bounds");
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        core = new ArrayMemoryStore(8);
+        Random random = new Random(3);
+        for (int src = 0; src < core.getBytes(); src++) {
+            for (int dst = 0; dst < core.getBytes(); dst++) {
+                for (int length = 0; length <= core.getBytes(); length = length + 5) {
+                    byte[] data = new byte[core.getBytes()];
+                    random.nextBytes(data);
+                    core.setByteArray(0, data);
+                    byte[] expected = data.clone();
+                    for (int i = 0; i < length; i++) {
+                        expected[(dst + i) % data.length] = data[(src + i) % data.length];
+                    }
+                    core.copy(src, dst, length);
+                    assertArrayEquals(expected, core.getByteArray(0, data.length));
+                }
+            }
+        }
+        try {
+            core.copy(0, 4, core.getBytes() + 1);
+            fail("Copy longer than memory should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Length out of range");
+        }
+    }
+
     @Test
     public void testDump() {
         try {
@@ -343,4 +470,93 @@ public class ArrayMemoryStoreTest {
         }
     }
 
+    @Test
+    public void testAtomicWord() {
+        core.setWord(0, 0x00112233);
+        core.setWord(4, 0x44556677);
+        assertEquals(core.getWordVolatile(0), 0x00112233);
+        assertEquals(core.getWordAcquire(4), 0x44556677);
+        assertEquals(core.getWordVolatile(16), 0x00112233);
+        //
+        assertFalse(core.compareAndSetWord(4, 0, 1));
+        assertTrue(core.compareAndSetWord(4, 0x44556677, 0x8899AABB));
+        assertEquals(core.getWord(4), 0x8899AABB);
+        assertEquals(core.getByte(4), (byte) 0x88);
+        //
+        assertEquals(core.getAndAddWord(0, 0x100), 0x00112233);
+        assertEquals(core.getWord(0), 0x00112333);
+        assertEquals(core.getAndAddWord(8, -1), 0);
+        assertEquals(core.getWord(8), 0xFFFFFFFF);
+        //
+        core.setWordVolatile(12, 0x01020304);
+        assertEquals(core.getShortWord(12), (short) 0x0102);
+        core.setWordRelease(12, 0x05060708);
+        assertEquals(core.getWord(12), 0x05060708);
+    }
+
+    @Test
+    public void testAtomicLongWord() {
+        core.setLongWord(0, 0x0011223344556677L);
+        assertEquals(core.getLongWordVolatile(0), 0x0011223344556677L);
+        assertEquals(core.getLongWordAcquire(0), 0x0011223344556677L);
+        //
+        assertFalse(core.compareAndSetLongWord(0, 0L, 1L));
+        assertTrue(core.compareAndSetLongWord(0, 0x0011223344556677L, 0x8899AABBCCDDEEFFL));
+        assertEquals(core.getWord(0), 0x8899AABB);
+        assertEquals(core.getWord(4), 0xCCDDEEFF);
+        //
+        core.setLongWord(8, 0x00000000FFFFFFFFL);
+        assertEquals(core.getAndAddLongWord(8, 1), 0x00000000FFFFFFFFL);
+        assertEquals(core.getWord(8), 1);
+        assertEquals(core.getWord(12), 0);
+        //
+        core.setLongWordVolatile(8, 0x0102030405060708L);
+        assertEquals(core.getLongWord(8), 0x0102030405060708L);
+        core.setLongWordRelease(8, -2L);
+        assertEquals(core.getLongWord(8), -2L);
+    }
+
+    @Test
+    public void testAtomicAddress() {
+        try {
+            core.getWordVolatile(-4);
+            fail("Negative address should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Address out of range");
+        }
+        try {
+            core.compareAndSetWord(2, 0, 1);
+            fail("Unaligned address should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Address must be 4 byte aligned");
+        }
+        try {
+            core.getAndAddLongWord(4, 1);
+            fail("Unaligned address should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Address must be 8 byte aligned");
+        }
+    }
+
+    @Test
+    public void testAtomicCounter() throws InterruptedException {
+        final int threads = 4;
+        final int increments = 10000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    core.getAndAddWord(4, 1);
+                    core.getAndAddLongWord(8, 1);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(core.getWord(4), threads * increments);
+        assertEquals(core.getLongWord(8), (long) threads * increments);
+    }
+
 }
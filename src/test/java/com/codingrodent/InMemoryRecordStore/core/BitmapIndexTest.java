@@ -0,0 +1,117 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BitmapIndexTest {
+
+    private final static int RECORDS = 1000;
+
+    private static List<Integer> locations(final RecordBitmap bitmap) {
+        List<Integer> locations = new ArrayList<>();
+        bitmap.iterator().forEachRemaining((int location) -> locations.add(location));
+        return locations;
+    }
+
+    @Test
+    public void filters() {
+        RecordDescriptor<TestRecordLong> descriptor = new RecordDescriptor<>(TestRecordLong.class);
+        IndexedRecordManager<TestRecordLong> manager = new IndexedRecordManager<>(new ArrayMemoryStore(), RECORDS, descriptor, "d");
+        for (int i = 0; i < RECORDS / 2; i++) {
+            manager.putRecord(i, new TestRecordLong((long) (i % 4), i % 3, 0, i));
+        }
+        BitmapIndex<TestRecordLong> colour = manager.addBitmapIndex("a");
+        BitmapIndex<TestRecordLong> size = manager.addBitmapIndex("b");
+        assertEquals("a", colour.getFieldName());
+        assertEquals(new TreeSet<>(Arrays.asList(0L, 1L, 2L, 3L)), colour.getValues());
+        for (int i = RECORDS / 2; i < RECORDS; i++) {
+            manager.putRecord(i, new TestRecordLong((long) (i % 4), i % 3, 0, i));
+        }
+        //
+        RecordBitmap red = colour.equalTo(1);
+        assertEquals(RECORDS / 4, red.cardinality());
+        // a = 1 and b = 2
+        RecordBitmap query = red.and(size.equalTo(2));
+        for (int location : locations(query))
+            assertTrue((location % 4 == 1) && (location % 3 == 2));
+        assertEquals(83, query.cardinality());
+        // a in (0, 3) and not b = 0
+        RecordBitmap inUse = manager.getLocationsInUse();
+        query = colour.in(0, 3).and(size.equalTo(0).not(RECORDS)).and(inUse);
+        int expected = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            boolean match = ((i % 4 == 0) || (i % 4 == 3)) && (i % 3 != 0);
+            assertEquals(match, query.contains(i));
+            expected = expected + (match ? 1 : 0);
+        }
+        assertEquals(expected, query.cardinality());
+        assertTrue(colour.equalTo(7).isEmpty());
+        // Looking up a value does not add it
+        assertFalse(colour.getValues().contains(7L));
+        //
+        // Writes and removals move records between bitmaps. Bitmaps already returned are not changed.
+        manager.putRecord(1, new TestRecordLong(3L, 0, 0, 1));
+        assertTrue(red.contains(1));
+        assertFalse(colour.equalTo(1).contains(1));
+        assertTrue(colour.equalTo(3).contains(1));
+        assertTrue(manager.removeByKey(5));
+        assertFalse(colour.equalTo(1).contains(5));
+        // A value is dropped when its last record changes
+        manager.putRecord(1, new TestRecordLong(9L, 0, 0, 1));
+        assertTrue(colour.getValues().contains(9L));
+        manager.putRecord(1, new TestRecordLong(3L, 0, 0, 1));
+        assertFalse(colour.getValues().contains(9L));
+        assertTrue(colour.equalTo(9).isEmpty());
+        assertFalse(manager.getLocationsInUse().contains(5));
+        assertEquals(RECORDS - 1, manager.getLocationsInUse().cardinality());
+        // Results of combining bitmaps are not live
+        assertEquals(RECORDS, inUse.cardinality());
+    }
+
+    @Test
+    public void booleanField() {
+        RecordDescriptor<TestRecordBytePack> descriptor = new RecordDescriptor<>(TestRecordBytePack.class);
+        IndexedRecordManager<TestRecordBytePack> manager = new IndexedRecordManager<>(new ArrayMemoryStore(), 32, descriptor, "a");
+        BitmapIndex<TestRecordBytePack> flag = manager.addBitmapIndex("d");
+        Boolean[] booleanArray = {true, false, true, true, false};
+        for (int i = 0; i < 32; i++) {
+            manager.putRecord(i, new TestRecordBytePack(i, 0, 0, 0 == i % 8, 0L, false, new UUID(i, i), new boolean[10], booleanArray));
+        }
+        assertEquals(Arrays.asList(0, 8, 16, 24), locations(flag.equalTo(true)));
+        assertEquals(28, flag.equalTo(false).cardinality());
+        try {
+            manager.addBitmapIndex("g");
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Bitmap index field (g) must be a boolean or integer field", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.*;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentRecordManagerTest {
+
+    private final static int RECORDS = 32;
+    private final static int THREADS = 4;
+    private final static int PASSES = 2000;
+
+    private RecordDescriptor<TestRecordLong> recordDescriptor;
+
+    @Before
+    public void setUp() throws Exception {
+        // 15 byte records, so neighbours share words
+        recordDescriptor = new RecordDescriptor<>(TestRecordLong.class);
+    }
+
+    @Test
+    public void putGetRecord() {
+        ConcurrentRecordManager<TestRecordLong> recordManager = new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor);
+        for (int i = 0; i < RECORDS; i++) {
+            recordManager.putRecord(i, record(i));
+        }
+        for (int i = 0; i < RECORDS; i++) {
+            assertConsistent(recordManager.getRecord(i), i);
+            assertConsistent(recordManager.getRecord(i, new TestRecordLong()), i);
+        }
+        assertEquals(ConcurrentRecordManager.DEFAULT_STRIPES, recordManager.getStripes());
+    }
+
+    @Test
+    public void stripes() {
+        ConcurrentRecordManager<TestRecordLong> recordManager = new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor, 8);
+        // 16 byte granules. Record 0 is bytes 0..14, plus overhang to 17
+        assertEquals(0b0000_0011L, recordManager.stripes(0));
+        // Record 1 is bytes 15..29, plus overhang to 32
+        assertEquals(0b0000_0111L, recordManager.stripes(1));
+        // Record 7 is bytes 105..122 so granules 6 and 7
+        assertEquals(0b1100_0000L, recordManager.stripes(7));
+        // Record 9 is bytes 135..152 so granules 8 and 9, which wrap to stripes 0 and 1
+        assertEquals(0b0000_0011L, recordManager.stripes(9));
+        // The last record overhangs the end of memory onto the first word
+        assertEquals(0b0010_0001L, recordManager.stripes(RECORDS - 1));
+    }
+
+    @Test
+    public void rangeStripes() {
+        ConcurrentRecordManager<TestRecordLong> recordManager = new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor, 8);
+        assertEquals(0L, recordManager.stripes(3, 0));
+        // Records 7 and 8 are bytes 105..119, plus overhang to 122, so granules 6 to 8
+        assertEquals(0b1100_0001L, recordManager.stripes(7, 2));
+        assertEquals(0b1111_1111L, recordManager.stripes(0, RECORDS));
+        assertEquals(0b1111_1111L, recordManager.stripes(4, 8));
+    }
+
+    @Test
+    public void bulkRecords() {
+        for (ConcurrentRecordManager.ReadMode readMode : ConcurrentRecordManager.ReadMode.values()) {
+            ConcurrentRecordManager<TestRecordLong> recordManager = new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor, 8, readMode);
+            List<TestRecordLong> written = new ArrayList<>();
+            for (int i = 0; i < RECORDS; i++) {
+                written.add(record(i));
+            }
+            recordManager.putRecords(0, written);
+            List<TestRecordLong> read = new ArrayList<>();
+            recordManager.getRecords(0, RECORDS, read::add);
+            for (int i = 0; i < RECORDS; i++) {
+                assertConsistent(read.get(i), i);
+            }
+            //
+            byte[] bytes = new byte[RECORDS * recordDescriptor.getByteLength()];
+            recordManager.copyRecordsTo(0, RECORDS, bytes, 0);
+            ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+            recordManager.copyRecordsTo(0, RECORDS, buffer);
+            assertArrayEquals(bytes, buffer.array());
+            recordManager.copyRecordsFrom(1, 2, bytes, 0);
+            buffer.position(0);
+            recordManager.copyRecordsFrom(3, 1, buffer);
+            assertConsistent(recordManager.getRecord(1), 0);
+            assertConsistent(recordManager.getRecord(2), 1);
+            assertConsistent(recordManager.getRecord(3), 0);
+            assertConsistent(recordManager.getRecord(4), 4);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void writeFromStream() {
+        // More records than a locked batch, so the stream reads several
+        final int records = 1000;
+        for (ConcurrentRecordManager.ReadMode readMode : ConcurrentRecordManager.ReadMode.values()) {
+            ConcurrentRecordManager<TestRecordLong> recordManager = new ConcurrentRecordManager<>(new ArrayMemoryStore(), records, recordDescriptor, 8, readMode);
+            for (int i = 0; i < records; i++) {
+                recordManager.putRecord(i, record(i % 100));
+            }
+            // The consumer writes back to the records being read, which must not deadlock on the read locks
+            int[] location = {0};
+            recordManager.stream().forEach(r -> recordManager.putRecord(location[0]++, record((int) r.c + 1)));
+            assertEquals(records, location[0]);
+            for (int i = 0; i < records; i++) {
+                assertConsistent(recordManager.getRecord(i), i % 100 + 1);
+            }
+        }
+    }
+
+    @Test
+    public void stripeCount() {
+        try {
+            new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor, 0);
+            fail("Zero stripes should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "The number of lock stripes must be between 1 and 64");
+        }
+        try {
+            new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor, 65);
+            fail("Too many stripes should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "The number of lock stripes must be between 1 and 64");
+        }
+    }
+
+    @Test
+    public void columnarLayout() {
+        try {
+            new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, new RecordDescriptor<>(TestRecordColumnar.class));
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Records with a columnar layout can't be managed concurrently");
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfBounds() {
+        new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor).getRecord(RECORDS);
+    }
+
+    @Test
+    public void optimisticPutGetRecord() {
+        ConcurrentRecordManager<TestRecordLong> recordManager = new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor, 8,
+                ConcurrentRecordManager.ReadMode.OPTIMISTIC);
+        for (int i = 0; i < RECORDS; i++) {
+            recordManager.putRecord(i, record(i));
+        }
+        TestRecordLong reuse = new TestRecordLong();
+        for (int i = 0; i < RECORDS; i++) {
+            assertConsistent(recordManager.getRecord(i), i);
+            assertSame(reuse, recordManager.getRecord(i, reuse));
+            assertConsistent(reuse, i);
+        }
+        assertEquals(ConcurrentRecordManager.ReadMode.OPTIMISTIC, recordManager.getReadMode());
+    }
+
+    @Test
+    public void adjacentWriters() throws InterruptedException {
+        adjacentWriters(new ArrayMemoryStore(), ConcurrentRecordManager.ReadMode.LOCKING);
+        adjacentWriters(new DirectMemoryStore(), ConcurrentRecordManager.ReadMode.LOCKING);
+    }
+
+    @Test
+    public void optimisticAdjacentWriters() throws InterruptedException {
+        adjacentWriters(new ArrayMemoryStore(), ConcurrentRecordManager.ReadMode.OPTIMISTIC);
+        adjacentWriters(new DirectMemoryStore(), ConcurrentRecordManager.ReadMode.OPTIMISTIC);
+    }
+
+    /**
+     * Each thread owns every fourth record and writes it over and over, while also reading its neighbours. Records
+     * share words with their neighbours, so without locking bytes are lost at the boundaries.
+     */
+    private void adjacentWriters(final IMemoryStore memoryStore, final ConcurrentRecordManager.ReadMode readMode) throws InterruptedException {
+        ConcurrentRecordManager<TestRecordLong> recordManager = new ConcurrentRecordManager<>(memoryStore, RECORDS, recordDescriptor, 4, readMode);
+        for (int i = 0; i < RECORDS; i++) {
+            recordManager.putRecord(i, record(0));
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    TestRecordLong reuse = new TestRecordLong();
+                    for (int pass = 1; pass <= PASSES; pass++) {
+                        for (int i = thread; i < RECORDS; i = i + THREADS) {
+                            recordManager.putRecord(i, record(pass & 0x7F));
+                            TestRecordLong neighbour = recordManager.getRecord((i + 1) % RECORDS, reuse);
+                            assertConsistent(neighbour, (int) neighbour.d);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure.get());
+        for (int i = 0; i < RECORDS; i++) {
+            assertConsistent(recordManager.getRecord(i), PASSES & 0x7F);
+        }
+    }
+
+    private static TestRecordLong record(final int value) {
+        return new TestRecordLong((long) value, value, value, value);
+    }
+
+    private static void assertConsistent(final TestRecordLong record, final int value) {
+        assertEquals(value, record.a.longValue());
+        assertEquals(value, record.b.longValue());
+        assertEquals(value, record.c);
+        assertEquals(value, record.d);
+    }
+
+}
@@ -0,0 +1,378 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.TestRecordBitPack;
+import com.codingrodent.InMemoryRecordStore.utility.BitPacking;
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DirectMemoryStoreTest {
+    private DirectMemoryStore core = null;
+
+    @Before
+    public void setUp() throws Exception {
+        core = new DirectMemoryStore(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        core = null;
+    }
+
+    @Test
+    public void testMemoryStore() {
+        try {
+            new DirectMemoryStore(0);
+            fail("Memory size of zero should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "The number of words requested was out of range");
+        }
+        try {
+            new DirectMemoryStore(-1);
+            fail("Negative memory size should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "The number of words requested was out of range");
+        }
+        assertEquals(core.getBytes(), 4 * 4);
+        assertEquals(core.getWords(), 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAlignmentExceptions() {
+        core.getWord(-1);
+    }
+
+    @Test
+    public void testGetWord() {
+        core.setWord(0, 0x00112233);
+        core.setWord(4, 0x44556677);
+        core.setWord(8, 0x8899AABB);
+        core.setWord(12, 0xCCDDEEFF);
+        //
+        assertEquals(core.getWord(0), 0x00112233);
+        assertEquals(core.getWord(1), 0x11223344);
+        assertEquals(core.getWord(2), 0x22334455);
+        assertEquals(core.getWord(3), 0x33445566);
+        assertEquals(core.getWord24(1), 0x112233);
+        assertEquals(core.getShortWord(3), (short) 0x3344);
+        assertEquals(core.getByte(5), (byte) 0x55);
+        assertEquals(core.getLongWord(3), 0x33445566_778899AAL);
+        //
+        // Reads that run off the end of memory wrap to the start
+        assertEquals(core.getWord(13), 0xDDEEFF00);
+        assertEquals(core.getWord24(14), 0xEEFF00);
+        assertEquals(core.getShortWord(15), (short) 0xFF00);
+        assertEquals(core.getLongWord(12), 0xCCDDEEFF_00112233L);
+        assertEquals(core.getWord(16), core.getWord(0));
+    }
+
+    @Test
+    public void testSetWrapped() {
+        core.setWord(14, 0x11223344);
+        assertEquals(core.getWord(12), 0x00001122);
+        assertEquals(core.getWord(0), 0x33440000);
+        core.setLongWord(12, 0x8899AABB_CCDDEEFFL);
+        assertEquals(core.getWord(0), 0xCCDDEEFF);
+        core.setWord24(15, 0x123456);
+        assertEquals(core.getWord(12), 0x8899AA12);
+        assertEquals(core.getWord(0), 0x3456EEFF);
+        core.setShort(31, (short) 0xABCD);
+        assertEquals(core.getWord(12), 0x8899AAAB);
+        assertEquals(core.getWord(0), 0xCD56EEFF);
+    }
+
+    @Test
+    public void testReset() {
+        for (int i = 0; i <= 15; i++) {
+            core.setByte(i, (byte) i);
+        }
+        assertEquals(core.getWord(0), 0x00010203);
+        core.reset();
+        for (int i = 0; i <= 15; i++) {
+            assertEquals(core.getByte(i), 0);
+        }
+    }
+
+    @Test
+    public void testGetByteArray() {
+        byte[] data = {0x00, 0x01, (byte) 0xFF, (byte) 0xFE, (byte) 0x80, 0x7F};
+        core.setByteArray(0, data);
+        assertArrayEquals(data, core.getByteArray(0, data.length));
+        // Wrapped
+        core.setByteArray(13, data);
+        assertArrayEquals(data, core.getByteArray(13, data.length));
+        assertEquals(core.getWord(0), 0xFE807F00 | (core.getWord(0) & 0xFF));
+    }
+
+    @Test
+    public void compareWithArrayStore() {
+        // Every operation should leave the same bytes as the heap based store
+        IMemoryStore heap = new ArrayMemoryStore(16);
+        IMemoryStore direct = new DirectMemoryStore(16);
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            int address = random.nextInt(80);
+            switch (random.nextInt(6)) {
+                case 0: {
+                    int v = random.nextInt();
+                    heap.setWord(address, v);
+                    direct.setWord(address, v);
+                    break;
+                }
+                case 1: {
+                    long v = random.nextLong();
+                    heap.setLongWord(address, v);
+                    direct.setLongWord(address, v);
+                    break;
+                }
+                case 2: {
+                    int v = random.nextInt();
+                    heap.setWord24(address, v);
+                    direct.setWord24(address, v);
+                    break;
+                }
+                case 3: {
+                    short v = (short) random.nextInt();
+                    heap.setShort(address, v);
+                    direct.setShort(address, v);
+                    break;
+                }
+                case 4: {
+                    byte v = (byte) random.nextInt();
+                    heap.setByte(address, v);
+                    direct.setByte(address, v);
+                    break;
+                }
+                default: {
+                    byte[] v = new byte[random.nextInt(20)];
+                    random.nextBytes(v);
+                    heap.setByteArray(address, v);
+                    direct.setByteArray(address, v);
+                }
+            }
+            address = random.nextInt(80);
+            assertEquals(heap.getWord(address), direct.getWord(address));
+            assertEquals(heap.getLongWord(address), direct.getLongWord(address));
+            assertEquals(heap.getWord24(address), direct.getWord24(address));
+            assertEquals(heap.getShortWord(address), direct.getShortWord(address));
+            assertEquals(heap.getByte(address), direct.getByte(address));
+            assertArrayEquals(heap.getByteArray(address, 11), direct.getByteArray(address, 11));
+        }
+    }
+
+    @Test
+    public void recordManager() {
+        boolean[] bitArray = {true, true, false, false, true, true, false, false, true, true};
+        Boolean[] booleanArray = {true, false, true, true, false};
+        RecordDescriptor<TestRecordBitPack> descriptor = new RecordDescriptor<>(TestRecordBitPack.class);
+        RecordManager<TestRecordBitPack> recordManager = new RecordManager<>(new DirectMemoryStore(), 100, descriptor);
+        for (int i = 0; i < 100; i++) {
+            recordManager.putRecord(i, new TestRecordBitPack(i, 456, -123, true, -12345, false, new UUID(i, i + 1), bitArray, booleanArray));
+        }
+        for (int i = 0; i < 100; i++) {
+            TestRecordBitPack record = recordManager.getRecord(i);
+            assertEquals(record.getA(), Integer.valueOf(i));
+            assertEquals(record.getE(), -12345);
+            assertEquals(record.getG(), new UUID(i, i + 1));
+            assertArrayEquals(record.getH(), bitArray);
+            assertArrayEquals(record.getI(), booleanArray);
+        }
+    }
+
+    @Test
+    public void testGetSetBitsUnchecked() {
+        // Unchecked access must read and write exactly what the checked access does, up to the end of the store
+        core = new DirectMemoryStore(8);
+        byte[] expected = new byte[core.getBytes()];
+        Random random = new Random(5);
+        for (int bits = 1; bits <= 64; bits++) {
+            for (int pos = 0; pos <= expected.length * 8 - bits; pos++) {
+                long value = random.nextLong();
+                core.setBitsUnchecked(pos, bits, value);
+                BitPacking.put(expected, pos, bits, value);
+                assertEquals(core.getBits(pos, bits), core.getBitsUnchecked(pos, bits));
+                assertEquals(BitPacking.get(expected, pos, bits), core.getBitsUnchecked(pos, bits));
+                assertArrayEquals(expected, core.getByteArray(0, expected.length));
+            }
+        }
+    }
+
+    @Test
+    public void testGetSetBytes() {
+        core = new DirectMemoryStore(8);
+        byte[] expected = new byte[core.getBytes()];
+        Random random = new Random(2);
+        for (int address = 0; address < expected.length; address++) {
+            for (int length = 0; length <= expected.length; length = length + 3) {
+                byte[] data = new byte[length + 2];
+                random.nextBytes(data);
+                core.setBytes(address, data, 1, length);
+                for (int i = 0; i < length; i++) {
+                    expected[(address + i) % expected.length] = data[i + 1];
+                }
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(expected[i], core.getByte(i));
+                }
+                byte[] read = new byte[length + 2];
+                core.getBytes(address, read, 1, length);
+                assertArrayEquals(Arrays.copyOfRange(data, 1, length + 1), Arrays.copyOfRange(read, 1, length + 1));
+                assertEquals(0, read[0]);
+                assertEquals(0, read[length + 1]);
+            }
+        }
+        try {
+            core.getBytes(0, new byte[4], 1, 4);
+            fail("Range past the end of the array should cause an error");
+        } catch (final IndexOutOfBoundsException e) {
+            assertEquals(e.getMessage(), "Array range out of bounds");
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        core = new DirectMemoryStore(8);
+        Random random = new Random(3);
+        for (int src = 0; src < core.getBytes(); src++) {
+            for (int dst = 0; dst < core.getBytes(); dst++) {
+                for (int length = 0; length <= core.getBytes(); length = length + 5) {
+                    byte[] data = new byte[core.getBytes()];
+                    random.nextBytes(data);
+                    core.setByteArray(0, data);
+                    byte[] expected = data.clone();
+                    for (int i = 0; i < length; i++) {
+                        expected[(dst + i) % data.length] = data[(src + i) % data.length];
+                    }
+                    core.copy(src, dst, length);
+                    assertArrayEquals(expected, core.getByteArray(0, data.length));
+                }
+            }
+        }
+        try {
+            core.copy(0, 4, core.getBytes() + 1);
+            fail("Copy longer than memory should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Length out of range");
+        }
+    }
+
+    @Test
+    public void testDump() {
+        core.dump(2);
+    }
+
+    @Test
+    public void testAtomicWord() {
+        core.setWord(0, 0x00112233);
+        core.setWord(4, 0x44556677);
+        assertEquals(core.getWordVolatile(0), 0x00112233);
+        assertEquals(core.getWordAcquire(4), 0x44556677);
+        assertEquals(core.getWordVolatile(16), 0x00112233);
+        //
+        assertFalse(core.compareAndSetWord(4, 0, 1));
+        assertTrue(core.compareAndSetWord(4, 0x44556677, 0x8899AABB));
+        assertEquals(core.getWord(4), 0x8899AABB);
+        assertEquals(core.getByte(4), (byte) 0x88);
+        //
+        assertEquals(core.getAndAddWord(0, 0x100), 0x00112233);
+        assertEquals(core.getWord(0), 0x00112333);
+        assertEquals(core.getAndAddWord(8, -1), 0);
+        assertEquals(core.getWord(8), 0xFFFFFFFF);
+        //
+        core.setWordVolatile(12, 0x01020304);
+        assertEquals(core.getShortWord(12), (short) 0x0102);
+        core.setWordRelease(12, 0x05060708);
+        assertEquals(core.getWord(12), 0x05060708);
+    }
+
+    @Test
+    public void testAtomicLongWord() {
+        core.setLongWord(0, 0x0011223344556677L);
+        assertEquals(core.getLongWordVolatile(0), 0x0011223344556677L);
+        assertEquals(core.getLongWordAcquire(0), 0x0011223344556677L);
+        //
+        assertFalse(core.compareAndSetLongWord(0, 0L, 1L));
+        assertTrue(core.compareAndSetLongWord(0, 0x0011223344556677L, 0x8899AABBCCDDEEFFL));
+        assertEquals(core.getWord(0), 0x8899AABB);
+        assertEquals(core.getWord(4), 0xCCDDEEFF);
+        //
+        core.setLongWord(8, 0x00000000FFFFFFFFL);
+        assertEquals(core.getAndAddLongWord(8, 1), 0x00000000FFFFFFFFL);
+        assertEquals(core.getWord(8), 1);
+        assertEquals(core.getWord(12), 0);
+        //
+        core.setLongWordVolatile(8, 0x0102030405060708L);
+        assertEquals(core.getLongWord(8), 0x0102030405060708L);
+        core.setLongWordRelease(8, -2L);
+        assertEquals(core.getLongWord(8), -2L);
+    }
+
+    @Test
+    public void testAtomicAddress() {
+        try {
+            core.getWordVolatile(-4);
+            fail("Negative address should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Address out of range");
+        }
+        try {
+            core.compareAndSetWord(2, 0, 1);
+            fail("Unaligned address should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Address must be 4 byte aligned");
+        }
+        try {
+            core.getAndAddLongWord(4, 1);
+            fail("Unaligned address should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Address must be 8 byte aligned");
+        }
+    }
+
+    @Test
+    public void testAtomicCounter() throws InterruptedException {
+        final int threads = 4;
+        final int increments = 10000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    core.getAndAddWord(4, 1);
+                    core.getAndAddLongWord(8, 1);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(core.getWord(4), threads * increments);
+        assertEquals(core.getLongWord(8), (long) threads * increments);
+    }
+
+}
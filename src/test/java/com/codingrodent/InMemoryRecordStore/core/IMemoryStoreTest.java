@@ -0,0 +1,234 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check the default atomic and bulk methods, used by stores that only provide plain access
+ */
+public class IMemoryStoreTest {
+    private IMemoryStore core = null;
+
+    @Before
+    public void setUp() throws Exception {
+        core = new PlainMemoryStore(4);
+    }
+
+    @Test
+    public void atomicWord() {
+        core.setWord(0, 0x00112233);
+        core.setWord(4, 0x44556677);
+        assertEquals(core.getWordVolatile(0), 0x00112233);
+        assertEquals(core.getWordAcquire(4), 0x44556677);
+        assertEquals(core.getWordVolatile(16), 0x00112233);
+        //
+        assertFalse(core.compareAndSetWord(4, 0, 1));
+        assertTrue(core.compareAndSetWord(4, 0x44556677, 0x8899AABB));
+        assertEquals(core.getWord(4), 0x8899AABB);
+        //
+        assertEquals(core.getAndAddWord(0, 0x100), 0x00112233);
+        assertEquals(core.getWord(0), 0x00112333);
+        //
+        core.setWordVolatile(12, 0x01020304);
+        assertEquals(core.getWord(12), 0x01020304);
+        core.setWordRelease(12, 0x05060708);
+        assertEquals(core.getWord(12), 0x05060708);
+    }
+
+    @Test
+    public void atomicLongWord() {
+        core.setLongWord(0, 0x0011223344556677L);
+        assertEquals(core.getLongWordVolatile(0), 0x0011223344556677L);
+        assertEquals(core.getLongWordAcquire(0), 0x0011223344556677L);
+        //
+        assertFalse(core.compareAndSetLongWord(0, 0L, 1L));
+        assertTrue(core.compareAndSetLongWord(0, 0x0011223344556677L, 0x8899AABBCCDDEEFFL));
+        assertEquals(core.getWord(0), 0x8899AABB);
+        assertEquals(core.getWord(4), 0xCCDDEEFF);
+        //
+        core.setLongWord(8, 0x00000000FFFFFFFFL);
+        assertEquals(core.getAndAddLongWord(8, 1), 0x00000000FFFFFFFFL);
+        assertEquals(core.getLongWord(8), 0x0000000100000000L);
+        //
+        core.setLongWordVolatile(8, 0x0102030405060708L);
+        assertEquals(core.getLongWord(8), 0x0102030405060708L);
+        core.setLongWordRelease(8, -2L);
+        assertEquals(core.getLongWord(8), -2L);
+    }
+
+    @Test
+    public void atomicAddress() {
+        try {
+            core.compareAndSetWord(2, 0, 1);
+            fail("Unaligned address should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Address must be 4 byte aligned");
+        }
+        try {
+            core.getAndAddLongWord(4, 1);
+            fail("Unaligned address should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Address must be 8 byte aligned");
+        }
+    }
+
+    @Test
+    public void atomicCounter() throws InterruptedException {
+        final int threads = 4;
+        final int increments = 10000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    core.getAndAddWord(4, 1);
+                    core.getAndAddLongWord(8, 1);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(core.getWord(4), threads * increments);
+        assertEquals(core.getLongWord(8), (long) threads * increments);
+    }
+
+    @Test
+    public void bulkBytes() {
+        core.setBytes(14, new byte[]{9, 1, 2, 3, 4, 9}, 1, 4);
+        assertEquals(core.getWord(14), 0x01020304);
+        // Runs past the end of memory wrap to the start
+        core.setBytes(15, new byte[]{5, 6}, 0, 2);
+        assertEquals(core.getByte(0), 6);
+        byte[] dst = new byte[6];
+        core.getBytes(14, dst, 1, 3);
+        assertArrayEquals(new byte[]{0, 1, 5, 6, 0, 0}, dst);
+        try {
+            core.getBytes(0, dst, 4, 3);
+            fail("Range past the end of the array should cause an error");
+        } catch (final IndexOutOfBoundsException e) {
+            assertEquals(e.getMessage(), "Array range out of bounds");
+        }
+        try {
+            core.setBytes(0, dst, -1, 2);
+            fail("Negative offset should cause an error");
+        } catch (final IndexOutOfBoundsException e) {
+            assertEquals(e.getMessage(), "Array range out of bounds");
+        }
+    }
+
+    /**
+     * A store with only the plain access methods, as an implementation outside the library might be
+     */
+    private static class PlainMemoryStore implements IMemoryStore {
+        private final ArrayMemoryStore store;
+
+        PlainMemoryStore(final int words) {
+            store = new ArrayMemoryStore(words);
+        }
+
+        @Override
+        public void build(final int words) {
+            store.build(words);
+        }
+
+        @Override
+        public void reset() {
+            store.reset();
+        }
+
+        @Override
+        public int getWords() {
+            return store.getWords();
+        }
+
+        @Override
+        public int getBytes() {
+            return store.getBytes();
+        }
+
+        @Override
+        public int getWord(final int address) {
+            return store.getWord(address);
+        }
+
+        @Override
+        public long getLongWord(final int address) {
+            return store.getLongWord(address);
+        }
+
+        @Override
+        public int getWord24(final int address) {
+            return store.getWord24(address);
+        }
+
+        @Override
+        public short getShortWord(final int address) {
+            return store.getShortWord(address);
+        }
+
+        @Override
+        public byte getByte(final int address) {
+            return store.getByte(address);
+        }
+
+        @Override
+        public byte[] getByteArray(final int address, final int length) {
+            return store.getByteArray(address, length);
+        }
+
+        @Override
+        public void setWord(final int address, final int value) {
+            store.setWord(address, value);
+        }
+
+        @Override
+        public void setLongWord(final int address, final long value) {
+            store.setLongWord(address, value);
+        }
+
+        @Override
+        public void setWord24(final int address, final int value) {
+            store.setWord24(address, value);
+        }
+
+        @Override
+        public void setShort(final int address, final short shortValue) {
+            store.setShort(address, shortValue);
+        }
+
+        @Override
+        public void setByte(final int address, final byte byteValue) {
+            store.setByte(address, byteValue);
+        }
+
+        @Override
+        public void setByteArray(final int address, final byte[] byteValues) {
+            store.setByteArray(address, byteValues);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class IndexedRecordManagerTest {
+
+    private final Boolean[] booleanArray = {true, false, true, true, false};
+
+    private IndexedRecordManager<TestRecordLong> longManager(final int records) {
+        RecordDescriptor<TestRecordLong> descriptor = new RecordDescriptor<>(TestRecordLong.class);
+        return new IndexedRecordManager<>(new ArrayMemoryStore(), records, descriptor, "d", new DirectMemoryStore());
+    }
+
+    @Test
+    public void putGetRemoveByKey() {
+        IndexedRecordManager<TestRecordLong> manager = longManager(100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, manager.putByKey(new TestRecordLong((long) (i & 0x7F), -1, i, i * 1_000_003L)));
+        }
+        assertEquals(100, manager.getKeyCount());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, manager.locationOf(i * 1_000_003L));
+            assertEquals(i, manager.getByKey(i * 1_000_003L).c);
+        }
+        assertNull(manager.getByKey(7L));
+        assertEquals(-1, manager.locationOf(7L));
+        try {
+            manager.putByKey(new TestRecordLong(0L, 0, 0, 7L));
+            fail("Expecting RecordStoreException to be thrown");
+        } catch (RecordStoreException e) {
+            assertEquals("No free record location", e.getMessage());
+        }
+        //
+        // Replace in place, then remove and reuse the location
+        assertEquals(40, manager.putByKey(new TestRecordLong(0L, 0, -40, 40 * 1_000_003L)));
+        assertEquals(-40, manager.getByKey(40 * 1_000_003L).c);
+        assertTrue(manager.removeByKey(40 * 1_000_003L));
+        assertFalse(manager.removeByKey(40 * 1_000_003L));
+        assertFalse(manager.isOccupied(40));
+        assertEquals(99, manager.getKeyCount());
+        for (int i = 0; i < 100; i++) {
+            if (40 != i)
+                assertEquals(i, manager.locationOf(i * 1_000_003L));
+        }
+        assertEquals(40, manager.putByKey(new TestRecordLong(0L, 0, 1, 7L)));
+        assertEquals(40, manager.locationOf(7L));
+        assertEquals(100, manager.getKeyCount());
+    }
+
+    @Test
+    public void writesKeepIndexInStep() {
+        IndexedRecordManager<TestRecordLong> manager = longManager(64);
+        manager.putRecord(3, new TestRecordLong(0L, 0, 0, 30L));
+        assertEquals(3, manager.locationOf(30L));
+        // Overwrite with a new key
+        manager.putRecord(3, new TestRecordLong(0L, 0, 0, 31L));
+        assertEquals(-1, manager.locationOf(30L));
+        assertEquals(3, manager.locationOf(31L));
+        // Writing a key to a new location moves it
+        manager.putRecord(5, new TestRecordLong(0L, 0, 0, 31L));
+        assertEquals(5, manager.locationOf(31L));
+        assertFalse(manager.isOccupied(3));
+        assertEquals(1, manager.getKeyCount());
+        //
+        TestRecordLong[] records = new TestRecordLong[8];
+        for (int i = 0; i < records.length; i++)
+            records[i] = new TestRecordLong(0L, 0, i, 100L + i);
+        manager.putRecords(10, records);
+        manager.putRecords(20, Arrays.asList(records).subList(0, 2));
+        assertEquals(20, manager.locationOf(100L));
+        assertEquals(21, manager.locationOf(101L));
+        assertEquals(12, manager.locationOf(102L));
+        assertFalse(manager.isOccupied(10));
+        assertEquals(9, manager.getKeyCount());
+        // Raw bytes copied in are indexed too
+        byte[] bytes = new byte[8 * 15];
+        manager.copyRecordsTo(10, 8, bytes, 0);
+        manager.copyRecordsFrom(40, 8, bytes, 0);
+        for (int i = 2; i < 8; i++)
+            assertEquals(40 + i, manager.locationOf(100L + i));
+        // A failed write leaves the index unchanged
+        try {
+            manager.putRecord(42, new TestRecordLong(null, 0, 0, 500L));
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field (a) is null. Unable to pack", e.getMessage());
+        }
+        assertEquals(42, manager.locationOf(102L));
+        assertEquals(-1, manager.locationOf(500L));
+    }
+
+    @Test
+    public void churn() {
+        // Random puts and removes checked against a map, to exercise probe runs and backward shift removal
+        IndexedRecordManager<TestRecordLong> manager = longManager(512);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(1024) * 0x1_0000_0000L;
+            if (random.nextBoolean()) {
+                if (expected.containsKey(key) || (expected.size() < 512)) {
+                    expected.put(key, manager.putByKey(new TestRecordLong(0L, 0, 0, key)));
+                }
+            } else {
+                assertEquals(null != expected.remove(key), manager.removeByKey(key));
+            }
+        }
+        assertEquals(expected.size(), manager.getKeyCount());
+        for (long key = 0; key < 1024; key++) {
+            Integer location = expected.get(key * 0x1_0000_0000L);
+            assertEquals(null == location ? -1 : location, manager.locationOf(key * 0x1_0000_0000L));
+        }
+    }
+
+    @Test
+    public void uuidKey() {
+        RecordDescriptor<TestRecordBytePack> descriptor = new RecordDescriptor<>(TestRecordBytePack.class);
+        IndexedRecordManager<TestRecordBytePack> manager = new IndexedRecordManager<>(new ArrayMemoryStore(), 32, descriptor, "g");
+        for (int i = 0; i < 32; i++) {
+            manager.putRecord(31 - i, new TestRecordBytePack(i, 456, -123, true, -12345L, false, new UUID(i, -i), new boolean[10], booleanArray));
+        }
+        for (int i = 0; i < 32; i++) {
+            assertEquals(31 - i, manager.locationOf(new UUID(i, -i)));
+            assertEquals(i, manager.getByKey(new UUID(i, -i)).a.intValue());
+        }
+        assertTrue(manager.removeByKey(new UUID(3, -3)));
+        assertNull(manager.getByKey(new UUID(3, -3)));
+        try {
+            manager.locationOf(3L);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Key is the wrong type for field (g)", e.getMessage());
+        }
+    }
+
+    @Test
+    public void badKeyField() {
+        RecordDescriptor<TestRecordBytePack> descriptor = new RecordDescriptor<>(TestRecordBytePack.class);
+        try {
+            new IndexedRecordManager<>(new ArrayMemoryStore(), 32, descriptor, "d");
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Key field (d) must be an integer or UUID field", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.*;
+import java.util.UUID;
+
+import static junit.framework.TestCase.fail;
+import static org.junit.Assert.*;
+
+public class MappedFileMemoryStoreTest {
+
+    private final static int RECORDS = 100;
+    private final Boolean[] booleanArray = {true, false, true, true, false};
+    private final boolean[] bitArray = {true, true, false, false, true, true, false, false, true, true};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private RecordDescriptor<TestRecordBitPack> descriptor;
+
+    @Before
+    public void setUp() throws Exception {
+        path = folder.getRoot().toPath().resolve("store.bin");
+        descriptor = new RecordDescriptor<>(TestRecordBitPack.class);
+    }
+
+    @Test
+    public void persistAndRestore() {
+        MappedFileMemoryStore store = new MappedFileMemoryStore(path, descriptor);
+        RecordManager<TestRecordBitPack> recordManager = new RecordManager<>(store, RECORDS, descriptor);
+        assertFalse(store.isRestored());
+        assertEquals(store.getPath(), path);
+        for (int i = 0; i < RECORDS; i++) {
+            recordManager.putRecord(i, new TestRecordBitPack(i, 456, -123, true, -12345, false, new UUID(i, i + 1), bitArray, booleanArray));
+        }
+        store.force();
+        store.close();
+        //
+        // Reopen and check everything is still there
+        store = new MappedFileMemoryStore(path, descriptor);
+        recordManager = new RecordManager<>(store, RECORDS, descriptor);
+        assertTrue(store.isRestored());
+        for (int i = 0; i < RECORDS; i++) {
+            TestRecordBitPack record = recordManager.getRecord(i);
+            assertEquals(record.getA(), Integer.valueOf(i));
+            assertEquals(record.getB(), 456);
+            assertEquals(record.getE(), -12345);
+            assertEquals(record.getG(), new UUID(i, i + 1));
+            assertArrayEquals(record.getH(), bitArray);
+        }
+        store.reset();
+        assertEquals(store.getLongWord(0), 0L);
+        store.close();
+    }
+
+    @Test
+    public void layoutMismatch() {
+        new RecordManager<>(new MappedFileMemoryStore(path, descriptor), RECORDS, descriptor);
+        RecordDescriptor<TestRecordBytePack> other = new RecordDescriptor<>(TestRecordBytePack.class);
+        try {
+            new RecordManager<>(new MappedFileMemoryStore(path, other), RECORDS, other);
+            fail("RecordStoreException expected");
+        } catch (RecordStoreException e) {
+            assertTrue(e.getMessage().startsWith("Store layout does not match record descriptor"));
+        }
+    }
+
+    @Test
+    public void sizeMismatch() {
+        new MappedFileMemoryStore(path, descriptor).build(100);
+        try {
+            new MappedFileMemoryStore(path, descriptor).build(101);
+            fail("RecordStoreException expected");
+        } catch (RecordStoreException e) {
+            assertEquals(e.getMessage(), "Store size does not match. Expected 101 words, found 100");
+        }
+    }
+
+    @Test
+    public void notAStore() throws Exception {
+        Files.write(path, new byte[64]);
+        try {
+            new MappedFileMemoryStore(path, descriptor).build(100);
+            fail("RecordStoreException expected");
+        } catch (RecordStoreException e) {
+            assertTrue(e.getMessage().startsWith("File is not a record store"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badSize() {
+        new MappedFileMemoryStore(path, descriptor).build(0);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RecordBitmapTest {
+
+    private final static int LIMIT = 300_000;
+
+    private static BitSet toBitSet(final RecordBitmap bitmap) {
+        BitSet bits = new BitSet();
+        bitmap.iterator().forEachRemaining((int location) -> bits.set(location));
+        return bits;
+    }
+
+    /**
+     * Random bitmap, with a dense chunk, a sparse chunk and an empty chunk
+     */
+    private static RecordBitmap random(final Random random, final BitSet expected) {
+        RecordBitmap bitmap = new RecordBitmap();
+        for (int i = 0; i < 40000; i++) {
+            int location = random.nextInt(65536);
+            bitmap.add(location);
+            expected.set(location);
+        }
+        for (int i = 0; i < 1000; i++) {
+            int location = 65536 * 2 + random.nextInt(LIMIT - 65536 * 2);
+            bitmap.add(location);
+            expected.set(location);
+        }
+        return bitmap;
+    }
+
+    @Test
+    public void addRemove() {
+        RecordBitmap bitmap = new RecordBitmap();
+        BitSet expected = new BitSet();
+        Random random = new Random(1);
+        // Grow a chunk past the array limit and shrink it back
+        for (int i = 0; i < 20000; i++) {
+            int location = 70000 + random.nextInt(10000);
+            bitmap.add(location);
+            expected.set(location);
+            assertTrue(bitmap.contains(location));
+        }
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        assertEquals(expected, toBitSet(bitmap));
+        for (int i = 0; i < 40000; i++) {
+            int location = 70000 + random.nextInt(10000);
+            bitmap.remove(location);
+            expected.clear(location);
+            assertFalse(bitmap.contains(location));
+        }
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        assertEquals(expected, toBitSet(bitmap));
+        for (int location = expected.nextSetBit(0); location >= 0; location = expected.nextSetBit(location + 1))
+            bitmap.remove(location);
+        assertTrue(bitmap.isEmpty());
+        assertFalse(bitmap.iterator().hasNext());
+        try {
+            bitmap.iterator().nextInt();
+            fail("Expecting NoSuchElementException to be thrown");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void combine() {
+        Random random = new Random(2);
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        RecordBitmap a = random(random, expectedA);
+        RecordBitmap b = random(random, expectedB);
+        b.add(65536 + 5);
+        expectedB.set(65536 + 5);
+        //
+        BitSet and = (BitSet) expectedA.clone();
+        and.and(expectedB);
+        assertEquals(and, toBitSet(a.and(b)));
+        BitSet or = (BitSet) expectedA.clone();
+        or.or(expectedB);
+        assertEquals(or, toBitSet(a.or(b)));
+        assertEquals(or.cardinality(), a.or(b).cardinality());
+        BitSet andNot = (BitSet) expectedA.clone();
+        andNot.andNot(expectedB);
+        assertEquals(andNot, toBitSet(a.andNot(b)));
+        BitSet not = (BitSet) expectedA.clone();
+        not.flip(0, LIMIT);
+        assertEquals(not, toBitSet(a.not(LIMIT)));
+        assertEquals(a, a.not(LIMIT).not(LIMIT));
+        assertEquals(a.hashCode(), a.not(LIMIT).not(LIMIT).hashCode());
+        assertNotEquals(a, b);
+        // Results don't share containers with their sources
+        RecordBitmap copy = a.or(new RecordBitmap());
+        copy.add(LIMIT);
+        assertFalse(a.contains(LIMIT));
+        assertTrue(new RecordBitmap().not(0).isEmpty());
+        assertEquals(3, new RecordBitmap().not(3).cardinality());
+    }
+
+    @Test
+    public void ofIterator() {
+        RecordBitmap bitmap = RecordBitmap.of(Arrays.stream(new int[]{5, 1, 100_000}).iterator());
+        assertEquals(3, bitmap.cardinality());
+        assertTrue(bitmap.contains(1));
+        assertTrue(bitmap.contains(100_000));
+        PrimitiveIterator.OfInt iterator = bitmap.iterator();
+        assertEquals(1, iterator.nextInt());
+        assertEquals(5, iterator.nextInt());
+        assertEquals(100_000, iterator.nextInt());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void copy() {
+        RecordBitmap bitmap = RecordBitmap.of(Arrays.stream(new int[]{5, 1, 100_000}).iterator());
+        RecordBitmap copy = bitmap.copy();
+        assertEquals(bitmap, copy);
+        // The copy does not share containers with the original
+        bitmap.remove(5);
+        bitmap.add(7);
+        assertTrue(copy.contains(5));
+        assertFalse(copy.contains(7));
+        assertTrue(new RecordBitmap().copy().isEmpty());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.collections.PackedArray;
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static com.codingrodent.InMemoryRecordStore.core.RecordFilter.field;
+import static org.junit.Assert.*;
+
+public class RecordFilterTest {
+
+    private final static int RECORDS = 200;
+
+    private RecordManager<TestRecordPrimitive> recordManager;
+    private List<TestRecordPrimitive> records;
+
+    private static TestRecordPrimitive record(final int i) {
+        return new TestRecordPrimitive((short) (i * 100 - 10000), i % 100, 0 == i % 3, (char) (0xFFF0 + i % 16), -i * 1000L, (byte) (i - 100), i / 4.0f, -i / 8.0);
+    }
+
+    @Before
+    public void setUp() {
+        recordManager = new RecordManager<>(new ArrayMemoryStore(), RECORDS, new RecordDescriptor<>(TestRecordPrimitive.class));
+        records = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            records.add(record(i));
+            recordManager.putRecord(i, records.get(i));
+        }
+    }
+
+    /**
+     * Check a filter selects the same records as a predicate on the decoded records
+     */
+    private void check(final RecordFilter filter, final Predicate<TestRecordPrimitive> expected) {
+        RecordBitmap selected = recordManager.select(filter);
+        int count = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            assertEquals("Location " + i, expected.test(records.get(i)), selected.contains(i));
+            count = count + (expected.test(records.get(i)) ? 1 : 0);
+        }
+        assertEquals(count, selected.cardinality());
+        List<TestRecordPrimitive> scanned = new ArrayList<>();
+        recordManager.scan(filter, scanned::add);
+        assertEquals(count, scanned.size());
+        for (TestRecordPrimitive record : scanned)
+            assertTrue(expected.test(record));
+    }
+
+    @Test
+    public void integerComparisons() {
+        check(field("b").gt(90), r -> r.b > 90);
+        check(field("b").ge(90), r -> r.b >= 90);
+        check(field("b").lt(5), r -> r.b < 5);
+        check(field("b").le(5), r -> r.b <= 5);
+        check(field("b").eq(42), r -> r.b == 42);
+        check(field("b").ne(42), r -> r.b != 42);
+        check(field("b").eq(1000), r -> false);
+        // Signed fields are compared sign extended, chars unsigned
+        check(field("a").lt(0), r -> r.a < 0);
+        check(field("f").between(-10, 10), r -> (r.f >= -10) && (r.f <= 10));
+        check(field("e").le(-150_000L), r -> r.e <= -150_000L);
+        check(field("d").ge(0xFFF8), r -> r.d >= 0xFFF8);
+    }
+
+    @Test
+    public void otherComparisons() {
+        check(field("c").eq(true), r -> r.c);
+        check(field("c").ne(true), r -> !r.c);
+        check(field("g").gt(10.0), r -> r.g > 10.0);
+        check(field("g").eq(2.5), r -> r.g == 2.5);
+        check(field("h").ge(-1.0), r -> r.h >= -1.0);
+        check(field("h").ne(-1.0), r -> r.h != -1.0);
+        check(field("h").lt(-20.0), r -> r.h < -20.0);
+        check(field("h").le(-20.0), r -> r.h <= -20.0);
+    }
+
+    @Test
+    public void combinations() {
+        check(field("b").gt(50).and(field("c").eq(true)), r -> (r.b > 50) && r.c);
+        check(field("b").gt(50).or(field("c").eq(true)), r -> (r.b > 50) || r.c);
+        check(field("b").gt(50).negate(), r -> r.b <= 50);
+        check(field("a").ge(0).and(field("g").lt(40.0).or(field("b").eq(99))).negate(), r -> !((r.a >= 0) && ((r.g < 40.0) || (r.b == 99))));
+    }
+
+    @Test
+    public void badFields() {
+        try {
+            recordManager.select(field("c").gt(1));
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field (c) of type Bit can't be compared with this type", e.getMessage());
+        }
+        try {
+            recordManager.select(field("b").gt(1.0));
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field (b) of type Word32 can't be compared with this type", e.getMessage());
+        }
+        try {
+            recordManager.select(field("z").eq(true));
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown field. z", e.getMessage());
+        }
+    }
+
+    @Test
+    public void otherManagers() {
+        RecordDescriptor<TestRecordPrimitive> descriptor = new RecordDescriptor<>(TestRecordPrimitive.class);
+        RecordManager<TestRecordPrimitive> concurrent = new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, descriptor);
+        RecordManager<TestRecordPrimitive> optimistic = new ConcurrentRecordManager<>(new ArrayMemoryStore(), RECORDS, descriptor, 8,
+                ConcurrentRecordManager.ReadMode.OPTIMISTIC);
+        PackedArray<TestRecordLong> array = new PackedArray<>(TestRecordLong.class, RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            concurrent.putRecord(i, records.get(i));
+            optimistic.putRecord(i, records.get(i));
+            array.putRecord(i, new TestRecordLong((long) (i & 0x7F), i % 7, i, i));
+        }
+        assertEquals(recordManager.select(field("b").ge(90)), concurrent.select(field("b").ge(90)));
+        assertEquals(recordManager.select(field("b").ge(90)), optimistic.select(field("b").ge(90)));
+        List<TestRecordPrimitive> scanned = new ArrayList<>();
+        concurrent.scan(field("c").eq(true), scanned::add);
+        assertEquals(67, scanned.size());
+        scanned.clear();
+        optimistic.scan(field("c").eq(true), scanned::add);
+        assertEquals(67, scanned.size());
+        for (TestRecordPrimitive record : scanned)
+            assertTrue(record.c);
+        assertEquals(RECORDS / 7 + 1, array.select(field("b").eq(0)).cardinality());
+        List<TestRecordLong> matches = new ArrayList<>();
+        array.scan(field("c").between(10, 12), matches::add);
+        assertEquals(3, matches.size());
+        assertEquals(10, matches.get(0).c);
+    }
+
+    @Test
+    public void indexedManager() {
+        RecordDescriptor<TestRecordLong> descriptor = new RecordDescriptor<>(TestRecordLong.class);
+        IndexedRecordManager<TestRecordLong> indexed = new IndexedRecordManager<>(new ArrayMemoryStore(), RECORDS, descriptor, "d");
+        for (int i = 0; i < RECORDS; i = i + 2) {
+            indexed.putRecord(i, new TestRecordLong((long) (i & 0x7F), i % 7, 0, i));
+        }
+        assertTrue(indexed.removeByKey(10));
+        // Free and never written locations also hold zero fields, but are not visited
+        RecordBitmap selected = indexed.select(field("c").eq(0));
+        assertEquals(indexed.getLocationsInUse(), selected);
+        assertEquals(RECORDS / 2 - 1, selected.cardinality());
+        List<TestRecordLong> scanned = new ArrayList<>();
+        indexed.scan(field("b").eq(0), scanned::add);
+        for (TestRecordLong record : scanned)
+            assertTrue((0 == record.d % 14) && (10 != record.d));
+        assertEquals((RECORDS - 1) / 14 + 1, scanned.size());
+        assertEquals(RECORDS / 2 - 1, indexed.stream().count());
+        assertEquals(RECORDS / 2 - 1, indexed.parallelStream().filter(record -> 0 == record.d % 2).count());
+        assertTrue(indexed.stream().noneMatch(record -> 10 == record.d));
+        Iterator<TestRecordLong> iterator = Spliterators.iterator(indexed.spliterator());
+        assertEquals(0, iterator.next().d);
+        assertEquals(2, iterator.next().d);
+    }
+}
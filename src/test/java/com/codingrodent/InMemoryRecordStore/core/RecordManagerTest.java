@@ -23,11 +23,13 @@
 */
 package com.codingrodent.InMemoryRecordStore.core;
 
-import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.*;
 import com.codingrodent.InMemoryRecordStore.record.records.*;
 import org.junit.*;
 
-import java.util.UUID;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -93,6 +95,38 @@ public class RecordManagerTest {
         recordManager.putRecord(RECORDS, new TestRecordBytePack(1, 456, -123, true, -12345, false, UUID.randomUUID(), new boolean[10], booleanArray));
     }
 
+    @Test
+    public void streamRecords() {
+        RecordDescriptor<TestRecordLong> recordDescriptor = new RecordDescriptor<>(TestRecordLong.class);
+        RecordManager<TestRecordLong> recordManager = new RecordManager<>(new ArrayMemoryStore(), 5000, recordDescriptor);
+        for (int i = 0; i < recordManager.getRecords(); i++)
+            recordManager.putRecord(i, new TestRecordLong((long) (i & 0x7F), -1, i, i * 3L));
+        //
+        // Splits are on location ranges, covering every record once
+        Spliterator<TestRecordLong> spliterator = recordManager.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+        assertEquals(5000, spliterator.getExactSizeIfKnown());
+        Spliterator<TestRecordLong> prefix = spliterator.trySplit();
+        assertEquals(2500, prefix.estimateSize());
+        assertEquals(2500, spliterator.estimateSize());
+        assertTrue(prefix.tryAdvance(record -> assertEquals(0, record.c)));
+        List<TestRecordLong> rest = new ArrayList<>();
+        spliterator.forEachRemaining(rest::add);
+        assertEquals(2500, rest.size());
+        assertEquals(2500, rest.get(0).c);
+        assertFalse(spliterator.tryAdvance(record -> fail("No records should remain")));
+        Spliterator<TestRecordLong> small = prefix.trySplit();
+        assertEquals(1250, prefix.estimateSize());
+        assertEquals(1249, small.estimateSize());
+        assertNull(small.trySplit());
+        //
+        assertEquals(3L * 4999 * 5000 / 2, recordManager.stream().mapToLong(record -> record.d).sum());
+        assertEquals(3L * 4999 * 5000 / 2, recordManager.parallelStream().mapToLong(record -> record.d).sum());
+        long[] ordered = recordManager.parallelStream().mapToLong(record -> record.c).toArray();
+        for (int i = 0; i < ordered.length; i++)
+            assertEquals(i, ordered[i]);
+    }
+
     @Test
     public void getLength() {
         RecordManager<Object> recordManager = new RecordManager<>(memoryStore, RECORDS, recordDescriptor);
@@ -187,4 +221,229 @@ public class RecordManagerTest {
             assertArrayEquals(testRecordbitPack.getI(), testRecordbitPack.getI());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void bulkPutGetRecords() {
+        final int records = 2000;
+        RecordDescriptor<TestRecordBitPack> recordDescriptor = new RecordDescriptor<>(TestRecordBitPack.class);
+        RecordManager<TestRecordBitPack> recordManager = new RecordManager<>(new ArrayMemoryStore(), records, recordDescriptor);
+        // 37 byte records, so more than one block is written and read
+        List<TestRecordBitPack> written = new ArrayList<>();
+        for (int i = 0; i < records - 1; i++) {
+            written.add(new TestRecordBitPack(i, 456, -123, true, -12345, false, new UUID(i, i + 1), bitArray, booleanArray));
+        }
+        recordManager.putRecords(1, written);
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.get(i).getA(), recordManager.getRecord(i + 1).getA());
+            assertEquals(written.get(i).getG(), recordManager.getRecord(i + 1).getG());
+        }
+        //
+        List<TestRecordBitPack> read = new ArrayList<>();
+        recordManager.getRecords(1, written.size(), read::add);
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.get(i).getA(), read.get(i).getA());
+            assertEquals(written.get(i).getE(), read.get(i).getE());
+            assertEquals(written.get(i).getG(), read.get(i).getG());
+            assertArrayEquals(written.get(i).getH(), read.get(i).getH());
+            assertArrayEquals(written.get(i).getI(), read.get(i).getI());
+        }
+        // The block buffer is reused across calls, a consumer reading records must not overwrite the outer block
+        read.clear();
+        recordManager.getRecords(1, written.size(), r -> {
+            recordManager.getRecords(records - 10, 10, x -> {
+            });
+            read.add(r);
+        });
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.get(i).getA(), read.get(i).getA());
+        }
+        //
+        recordManager.putRecords(0, new TestRecordBitPack[]{written.get(5)});
+        assertEquals(Integer.valueOf(5), recordManager.getRecord(0).getA());
+    }
+
+    @Test
+    public void bulkPutRecordsChecksFirst() {
+        RecordDescriptor<TestRecordBitPack> recordDescriptor = new RecordDescriptor<>(TestRecordBitPack.class);
+        RecordManager<TestRecordBitPack> recordManager = new RecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor);
+        TestRecordBitPack good = new TestRecordBitPack(7, 456, -123, true, -12345, false, new UUID(1, 2), bitArray, booleanArray);
+        TestRecordBitPack bad = new TestRecordBitPack(null, 456, -123, true, -12345, false, new UUID(1, 2), bitArray, booleanArray);
+        try {
+            recordManager.putRecords(0, Arrays.asList(good, good, bad));
+            fail("A null field should cause an error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field (a) is null. Unable to pack", e.getMessage());
+        }
+        assertEquals(Integer.valueOf(0), recordManager.getRecord(0).getA());
+        //
+        try {
+            recordManager.putRecords(RECORDS - 1, Arrays.asList(good, good));
+            fail("Writing past the last record should cause an error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+        try {
+            recordManager.getRecords(-1, 1, r -> fail());
+            fail("A negative location should cause an error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+        try {
+            recordManager.getRecords(0, -1, r -> fail());
+            fail("A negative count should cause an error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+        recordManager.getRecords(RECORDS, 0, r -> fail());
+    }
+
+    @Test
+    public void copyRecords() {
+        RecordDescriptor<TestRecordBitPack> recordDescriptor = new RecordDescriptor<>(TestRecordBitPack.class);
+        IMemoryStore memoryStore = new ArrayMemoryStore();
+        RecordManager<TestRecordBitPack> recordManager = new RecordManager<>(memoryStore, RECORDS, recordDescriptor);
+        for (int i = 0; i < RECORDS; i++) {
+            recordManager.putRecord(i, new TestRecordBitPack(i, 456, -123, true, -12345, false, new UUID(i, i + 1), bitArray, booleanArray));
+        }
+        final int length = recordDescriptor.getByteLength();
+        //
+        byte[] bytes = new byte[4 * length + 3];
+        recordManager.copyRecordsTo(10, 4, bytes, 3);
+        assertArrayEquals(memoryStore.getByteArray(10 * length, 4 * length), Arrays.copyOfRange(bytes, 3, bytes.length));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * length + 1);
+        buffer.put((byte) 0);
+        recordManager.copyRecordsTo(10, 4, buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+        //
+        RecordManager<TestRecordBitPack> copy = new RecordManager<>(new DirectMemoryStore(), RECORDS, recordDescriptor);
+        copy.copyRecordsFrom(0, 4, bytes, 3);
+        buffer.position(1);
+        copy.copyRecordsFrom(4, 4, buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Integer.valueOf(10 + i), copy.getRecord(i).getA());
+            assertEquals(Integer.valueOf(10 + i), copy.getRecord(4 + i).getA());
+            assertEquals(new UUID(10 + i, 11 + i), copy.getRecord(4 + i).getG());
+        }
+        //
+        try {
+            recordManager.copyRecordsTo(0, 5, bytes, 0);
+            fail("A short array should cause an error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Array too small for records", e.getMessage());
+        }
+        try {
+            copy.copyRecordsFrom(0, 5, ByteBuffer.allocate(length));
+            fail("A short buffer should cause an error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Buffer too small for records", e.getMessage());
+        }
+    }
+
+    @Test
+    public void columnarRecords() {
+        final int records = 2000;
+        RecordDescriptor<TestRecordColumnar> recordDescriptor = new RecordDescriptor<>(TestRecordColumnar.class);
+        RecordManager<TestRecordColumnar> recordManager = new RecordManager<>(new ArrayMemoryStore(), records, recordDescriptor);
+        assertEquals(recordDescriptor.getStorageBytes(records), recordManager.getLengthInBytes());
+        //
+        List<TestRecordColumnar> written = new ArrayList<>();
+        for (int i = 1; i < records; i++) {
+            written.add(columnar(i));
+        }
+        recordManager.putRecord(0, columnar(0));
+        recordManager.putRecords(1, written);
+        written.add(0, columnar(0));
+        for (int i = 0; i < records; i++) {
+            assertColumnar(written.get(i), recordManager.getRecord(i));
+        }
+        TestRecordColumnar reuse = new TestRecordColumnar();
+        assertSame(reuse, recordManager.getRecord(1234, reuse));
+        assertColumnar(written.get(1234), reuse);
+        List<TestRecordColumnar> read = new ArrayList<>();
+        recordManager.getRecords(0, records, read::add);
+        for (int i = 0; i < records; i++) {
+            assertColumnar(written.get(i), read.get(i));
+        }
+        assertEquals(3L * 1999 * 2000 / 2, recordManager.stream().mapToLong(record -> record.b).sum());
+        //
+        // Single fields are read and written in place in their columns
+        RecordView<TestRecordColumnar> view = recordManager.newView();
+        int b = recordDescriptor.getFieldId("b");
+        long sum = 0;
+        for (int i = 0; i < records; i++) {
+            sum = sum + view.moveTo(i).getInt(b);
+        }
+        assertEquals(3L * 1999 * 2000 / 2, sum);
+        view.moveTo(17).setInt("c", 12345);
+        view.setUUID("g", new UUID(1, 2));
+        TestRecordColumnar changed = recordManager.getRecord(17);
+        assertEquals(12345, changed.c);
+        assertEquals(new UUID(1, 2), changed.g);
+        assertEquals(17 * 3, changed.b);
+        assertEquals("r17", changed.j);
+        //
+        RecordBitmap selected = recordManager.select(RecordFilter.field("c").gt(-10).and(RecordFilter.field("d").eq(true)));
+        assertEquals(RecordBitmap.of(IntStream.of(0, 3, 6, 9).iterator()), selected);
+        try {
+            recordManager.getRecord(records);
+            fail("Reading past the last record should cause an error");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+    }
+
+    @Test
+    public void columnarCopyRecords() {
+        RecordDescriptor<TestRecordColumnar> recordDescriptor = new RecordDescriptor<>(TestRecordColumnar.class);
+        RecordManager<TestRecordColumnar> recordManager = new RecordManager<>(new ArrayMemoryStore(), RECORDS, recordDescriptor);
+        for (int i = 0; i < RECORDS; i++) {
+            recordManager.putRecord(i, columnar(i));
+        }
+        final int length = recordDescriptor.getByteLength();
+        //
+        // Records are copied out as rows, packed exactly as by a writer
+        byte[] bytes = new byte[4 * length + 3];
+        recordManager.copyRecordsTo(10, 4, bytes, 3);
+        Writer<TestRecordColumnar> writer = new Writer<>(new ArrayMemoryStore(), recordDescriptor, RECORDS);
+        byte[] row = new byte[length];
+        for (int i = 0; i < 4; i++) {
+            writer.pack(columnar(10 + i), row);
+            assertArrayEquals(row, Arrays.copyOfRange(bytes, 3 + i * length, 3 + (i + 1) * length));
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * length + 1);
+        buffer.put((byte) 0);
+        recordManager.copyRecordsTo(10, 4, buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+        //
+        RecordManager<TestRecordColumnar> copy = new RecordManager<>(new DirectMemoryStore(), RECORDS, recordDescriptor);
+        copy.copyRecordsFrom(0, 4, bytes, 3);
+        buffer.position(1);
+        copy.copyRecordsFrom(4, 4, buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+        for (int i = 0; i < 4; i++) {
+            assertColumnar(columnar(10 + i), copy.getRecord(i));
+            assertColumnar(columnar(10 + i), copy.getRecord(4 + i));
+        }
+        assertColumnar(new TestRecordColumnar(0, 0, 0, false, 0, false, new UUID(0, 0), new boolean[10], new Boolean[]{false, false, false, false, false}, ""),
+                copy.getRecord(8));
+    }
+
+    private TestRecordColumnar columnar(final int i) {
+        return new TestRecordColumnar(i, i * 3, -i, 0 == i % 3, -i * 100_000L, 1 == (i & 1), new UUID(i, -i), bitArray, booleanArray, "r" + i);
+    }
+
+    private void assertColumnar(final TestRecordColumnar expected, final TestRecordColumnar actual) {
+        assertEquals(expected.a, actual.a);
+        assertEquals(expected.b, actual.b);
+        assertEquals(expected.c, actual.c);
+        assertEquals(expected.d, actual.d);
+        assertEquals(expected.e, actual.e);
+        assertEquals(expected.f, actual.f);
+        assertEquals(expected.g, actual.g);
+        assertArrayEquals(expected.h, actual.h);
+        assertArrayEquals(expected.i, actual.i);
+        assertEquals(expected.j, actual.j);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import org.junit.*;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentedMemoryStoreTest {
+    private SegmentedMemoryStore core = null;
+
+    @Before
+    public void setUp() throws Exception {
+        core = new SegmentedMemoryStore();
+        core.build(4, 4);
+    }
+
+    @Test
+    public void testBuild() {
+        assertEquals(core.getWords(), 16);
+        assertEquals(core.getBytes(), 64);
+        assertEquals(core.getSegments(), 4);
+        assertEquals(core.getSegmentBytes(), 16);
+        assertEquals(core.getSegment(0).getBytes(), 16);
+        //
+        SegmentedMemoryStore large = new SegmentedMemoryStore(DirectMemoryStore::new);
+        large.build(10);
+        assertEquals(large.getSegments(), 1);
+        assertEquals(large.getWords(), 10);
+        try {
+            large.build(0);
+            fail("Memory size of zero should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "The number of words requested was out of range");
+        }
+        try {
+            large.build(10, 0);
+            fail("Zero segments should cause an error");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "At least one segment is required");
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAlignmentExceptions() {
+        core.getWord(-1);
+    }
+
+    @Test
+    public void testSpanningSegments() {
+        core.setLongWord(12, 0x00112233_44556677L);
+        assertEquals(core.getSegment(0).getWord(12), 0x00112233);
+        assertEquals(core.getSegment(1).getWord(0), 0x44556677);
+        assertEquals(core.getWord(14), 0x22334455);
+        assertEquals(core.getWord24(15), 0x334455);
+        assertEquals(core.getShortWord(15), (short) 0x3344);
+        // Wrap at end of memory
+        core.setWord(62, 0x8899AABB);
+        assertEquals(core.getShortWord(62), (short) 0x8899);
+        assertEquals(core.getShortWord(0), (short) 0xAABB);
+        assertEquals(core.getWord(64), core.getWord(0));
+        // Addresses above 2GB
+        assertEquals(core.getWord(0x1_0000_0000L + 12), 0x00112233);
+        core.reset();
+        assertEquals(core.getLongWord(12), 0L);
+    }
+
+    @Test
+    public void compareWithArrayStore() {
+        // Every operation should leave the same bytes as a single store of the same size
+        IMemoryStore single = new ArrayMemoryStore(16);
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            int address = random.nextInt(160);
+            switch (random.nextInt(7)) {
+                case 0: {
+                    int v = random.nextInt();
+                    single.setWord(address, v);
+                    core.setWord(address, v);
+                    break;
+                }
+                case 1: {
+                    long v = random.nextLong();
+                    single.setLongWord(address, v);
+                    core.setLongWord(address, v);
+                    break;
+                }
+                case 2: {
+                    int v = random.nextInt();
+                    single.setWord24(address, v);
+                    core.setWord24(address, v);
+                    break;
+                }
+                case 3: {
+                    short v = (short) random.nextInt();
+                    single.setShort(address, v);
+                    core.setShort(address, v);
+                    break;
+                }
+                case 4: {
+                    byte v = (byte) random.nextInt();
+                    single.setByte(address, v);
+                    core.setByte(address, v);
+                    break;
+                }
+                case 5: {
+                    byte[] v = new byte[random.nextInt(40) + 2];
+                    random.nextBytes(v);
+                    single.setBytes(address, v, 1, v.length - 2);
+                    core.setBytes(address, v, 1, v.length - 2);
+                    break;
+                }
+                default: {
+                    byte[] v = new byte[random.nextInt(40)];
+                    random.nextBytes(v);
+                    single.setByteArray(address, v);
+                    core.setByteArray(address, v);
+                }
+            }
+            address = random.nextInt(160);
+            assertEquals(single.getWord(address), core.getWord(address));
+            assertEquals(single.getLongWord(address), core.getLongWord(address));
+            assertEquals(single.getWord24(address), core.getWord24(address));
+            assertEquals(single.getShortWord(address), core.getShortWord(address));
+            assertEquals(single.getByte(address), core.getByte(address));
+            assertArrayEquals(single.getByteArray(address, 37), core.getByteArray(address, 37));
+            byte[] expected = new byte[41];
+            byte[] actual = new byte[41];
+            single.getBytes(address, expected, 4, 37);
+            core.getBytes(address, actual, 4, 37);
+            assertArrayEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.*;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class SegmentedRecordManagerTest {
+
+    private final static int RECORDS = 1000;
+    private final Boolean[] booleanArray = {true, false, true, true, false};
+    private final boolean[] bitArray = {true, true, false, false, true, true, false, false, true, true};
+
+    private RecordDescriptor<TestRecordBitPack> recordDescriptor;
+    private SegmentedMemoryStore memoryStore;
+
+    @Before
+    public void setUp() throws Exception {
+        recordDescriptor = new RecordDescriptor<>(TestRecordBitPack.class);
+        memoryStore = new SegmentedMemoryStore();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validationSize() {
+        new SegmentedRecordManager<>(memoryStore, 7, recordDescriptor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void validationSegment() {
+        new SegmentedRecordManager<>(memoryStore, RECORDS, recordDescriptor, 36);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getRecordBounds() {
+        new SegmentedRecordManager<>(memoryStore, RECORDS, recordDescriptor).getRecord(RECORDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putRecordBounds() {
+        new SegmentedRecordManager<>(memoryStore, RECORDS, recordDescriptor).putRecord(-1, new TestRecordBitPack());
+    }
+
+    @Test
+    public void sizing() {
+        SegmentedRecordManager<TestRecordBitPack> recordManager = new SegmentedRecordManager<>(memoryStore, RECORDS, recordDescriptor);
+        assertEquals(recordManager.getRecordsPerSegment(), 1024);
+        assertEquals(memoryStore.getSegments(), 1);
+        //
+        recordManager = new SegmentedRecordManager<>(memoryStore, RECORDS, recordDescriptor, 4096);
+        assertEquals(recordManager.getRecordsPerSegment(), 64);
+        assertEquals(memoryStore.getSegments(), 16);
+        assertEquals(memoryStore.getSegmentBytes(), 64 * 37);
+        assertEquals(recordManager.getLengthInBytes(), 16L * memoryStore.getSegmentBytes());
+        assertEquals(recordManager.getRecords(), RECORDS);
+    }
+
+    @Test
+    public void putGetRecordManySegments() {
+        SegmentedRecordManager<TestRecordBitPack> recordManager = new SegmentedRecordManager<>(memoryStore, RECORDS, recordDescriptor, 256);
+        assertEquals(recordManager.getRecordsPerSegment(), 4);
+        assertEquals(memoryStore.getSegments(), 250);
+        for (long i = 0; i < RECORDS; i++) {
+            recordManager.putRecord(i, new TestRecordBitPack((int) i, 456, -123, true, -12345, false, new UUID(i, i + 1), bitArray, booleanArray));
+        }
+        for (long i = 0; i < RECORDS; i++) {
+            TestRecordBitPack record = recordManager.getRecord(i);
+            assertEquals(record.getA(), Integer.valueOf((int) i));
+            assertEquals(record.getC(), -123);
+            assertEquals(record.getE(), -12345);
+            assertEquals(record.getG(), new UUID(i, i + 1));
+            assertArrayEquals(record.getH(), bitArray);
+            assertArrayEquals(record.getI(), booleanArray);
+        }
+    }
+
+    @Test
+    public void putGetRecordColumnar() {
+        RecordDescriptor<TestRecordColumnar> columnar = new RecordDescriptor<>(TestRecordColumnar.class);
+        SegmentedRecordManager<TestRecordColumnar> recordManager = new SegmentedRecordManager<>(memoryStore, RECORDS, columnar, 256);
+        // Each segment holds the columns of its own records
+        assertEquals(recordManager.getRecordsPerSegment(), 4);
+        assertEquals(memoryStore.getSegmentBytes(), columnar.getStorageBytes(4));
+        for (long i = 0; i < RECORDS; i++) {
+            recordManager.putRecord(i, new TestRecordColumnar((int) i, 456, -123, true, -12345, false, new UUID(i, i + 1), bitArray, booleanArray, "s" + i));
+        }
+        for (long i = 0; i < RECORDS; i++) {
+            TestRecordColumnar record = recordManager.getRecord(i);
+            assertEquals(record.a, Integer.valueOf((int) i));
+            assertEquals(record.c, -123);
+            assertEquals(record.e, Long.valueOf(-12345));
+            assertEquals(record.g, new UUID(i, i + 1));
+            assertArrayEquals(record.h, bitArray);
+            assertArrayEquals(record.i, booleanArray);
+            assertEquals(record.j, "s" + i);
+        }
+    }
+
+    @Test
+    public void columnarSegmentSize() {
+        RecordDescriptor<TestRecordColumnar> columnar = new RecordDescriptor<>(TestRecordColumnar.class);
+        // Four 48 byte records fit as rows, but their padded columns take 224 bytes
+        SegmentedRecordManager<TestRecordColumnar> recordManager = new SegmentedRecordManager<>(memoryStore, RECORDS, columnar, 200);
+        assertEquals(recordManager.getRecordsPerSegment(), 2);
+        assertTrue(memoryStore.getSegmentBytes() <= 200);
+        try {
+            new SegmentedRecordManager<>(memoryStore, RECORDS, columnar, 100);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Segment size must be between one record and 2147483644 bytes");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.core;
+
+import com.codingrodent.InMemoryRecordStore.record.RecordDescriptor;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SortedIndexTest {
+
+    private final static int RECORDS = 2000;
+
+    private IndexedRecordManager<TestRecordLong> manager() {
+        RecordDescriptor<TestRecordLong> descriptor = new RecordDescriptor<>(TestRecordLong.class);
+        return new IndexedRecordManager<>(new ArrayMemoryStore(), RECORDS, descriptor, "d");
+    }
+
+    private static List<Integer> locations(final PrimitiveIterator.OfInt iterator) {
+        List<Integer> locations = new ArrayList<>();
+        iterator.forEachRemaining((int location) -> locations.add(location));
+        return locations;
+    }
+
+    @Test
+    public void rangeQueries() {
+        IndexedRecordManager<TestRecordLong> manager = manager();
+        SortedIndex<TestRecordLong> index = manager.addSortedIndex("c");
+        assertEquals("c", index.getFieldName());
+        assertFalse(index.range(Long.MIN_VALUE, Long.MAX_VALUE).hasNext());
+        // Keys descend as locations rise, with each key used by two records
+        for (int i = 0; i < RECORDS; i++) {
+            manager.putRecord(i, new TestRecordLong(0L, 0, 1000 - i / 2, i));
+        }
+        assertEquals(RECORDS, index.size());
+        assertEquals(Arrays.asList(1998, 1999, 1996, 1997), locations(index.range(1, 2)));
+        assertEquals(Arrays.asList(10, 11), locations(index.equalTo(995)));
+        assertEquals(Collections.emptyList(), locations(index.range(1001, 5000)));
+        assertEquals(Collections.emptyList(), locations(index.range(10, 9)));
+        List<Integer> all = locations(index.range(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(RECORDS, all.size());
+        assertEquals(1998, all.get(0).intValue());
+        assertEquals(1, all.get(RECORDS - 1).intValue());
+        try {
+            index.range(5000, 6000).nextInt();
+            fail("Expecting NoSuchElementException to be thrown");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+        //
+        // Changing a record moves it, removing its key takes it out
+        manager.putRecord(10, new TestRecordLong(0L, 0, -5, 10));
+        assertEquals(Collections.singletonList(11), locations(index.equalTo(995)));
+        assertEquals(Collections.singletonList(10), locations(index.range(Long.MIN_VALUE, 0)));
+        assertTrue(manager.removeByKey(10));
+        assertEquals(Collections.emptyList(), locations(index.range(Long.MIN_VALUE, 0)));
+        assertEquals(RECORDS - 1, index.size());
+    }
+
+    @Test
+    public void addedIndexCoversExistingRecords() {
+        IndexedRecordManager<TestRecordLong> manager = manager();
+        for (int i = 0; i < 100; i++) {
+            manager.putByKey(new TestRecordLong(0L, 0, i % 10, i));
+        }
+        SortedIndex<TestRecordLong> index = manager.addSortedIndex("c", new DirectMemoryStore());
+        assertEquals(100, index.size());
+        assertEquals(Arrays.asList(3, 13, 23, 33, 43, 53, 63, 73, 83, 93), locations(index.equalTo(3)));
+        // Signed keys sort below zero
+        SortedIndex<TestRecordLong> signed = manager.addSortedIndex("b");
+        manager.putRecord(5, new TestRecordLong(0L, -200, 0, 5));
+        assertEquals(Collections.singletonList(5), locations(signed.range(-256, -1)));
+    }
+
+    @Test
+    public void churn() {
+        // Random writes and removals checked against a sorted set, to exercise block splits, merges and rebalancing
+        IndexedRecordManager<TestRecordLong> manager = manager();
+        SortedIndex<TestRecordLong> index = manager.addSortedIndex("c");
+        TreeSet<Long> expected = new TreeSet<>();
+        long[] keys = new long[RECORDS];
+        Random random = new Random(11);
+        for (int i = 0; i < 50000; i++) {
+            int location = random.nextInt(RECORDS);
+            long key = random.nextInt(i < 25000 ? 5000 : 50);
+            if (random.nextInt(3) > 0) {
+                if (manager.isOccupied(location))
+                    expected.remove((keys[location] << 32) | location);
+                manager.putRecord(location, new TestRecordLong(0L, 0, key, location));
+                keys[location] = key;
+                expected.add((key << 32) | location);
+            } else if (manager.removeByKey(location)) {
+                expected.remove((keys[location] << 32) | location);
+            }
+            if (0 == i % 5000) {
+                assertEquals(expected.size(), index.size());
+                List<Integer> all = locations(index.range(Long.MIN_VALUE, Long.MAX_VALUE));
+                Iterator<Long> iterator = expected.iterator();
+                for (int location2 : all)
+                    assertEquals(iterator.next() & 0xFFFF_FFFFL, location2);
+                assertFalse(iterator.hasNext());
+            }
+        }
+        long from = 10, to = 20;
+        List<Integer> range = new ArrayList<>();
+        for (long entry : expected.subSet(from << 32, (to + 1) << 32))
+            range.add((int) entry);
+        assertEquals(range, locations(index.range(from, to)));
+    }
+
+    @Test
+    public void badField() {
+        RecordDescriptor<TestRecordBytePack> descriptor = new RecordDescriptor<>(TestRecordBytePack.class);
+        IndexedRecordManager<TestRecordBytePack> manager = new IndexedRecordManager<>(new ArrayMemoryStore(), 32, descriptor, "a");
+        try {
+            manager.addSortedIndex("g");
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Sorted index field (g) must be an integer field", e.getMessage());
+        }
+    }
+}
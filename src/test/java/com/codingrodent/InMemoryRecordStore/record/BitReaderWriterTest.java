@@ -0,0 +1,129 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check the bit reader and writer against the original bit at a time implementation
+ */
+public class BitReaderWriterTest {
+
+    private final static int[] BIT_SET = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80};
+    private final static int[] BIT_TEST = {0x80, 0x40, 0x20, 0x10, 0x08, 0x04, 0x02, 0x01};
+
+    private final BitReader bitReader = new BitReader();
+    private final BitWriter bitWriter = new BitWriter();
+
+    @Test
+    public void unpack() throws Exception {
+        Random random = new Random(42);
+        byte[] source = new byte[24];
+        for (int bits = 1; bits <= 64; bits++) {
+            for (int offset = 0; offset < 64; offset++) {
+                random.nextBytes(source);
+                long expected = bits <= 32 ? referenceUnpack(source, offset, bits) & 0xFFFF_FFFFL : (referenceUnpack(source, offset, bits - 32) & 0xFFFF_FFFFL) << 32 |
+                        (referenceUnpack(source, offset + bits - 32, 32) & 0xFFFF_FFFFL);
+                assertEquals(expected, bitReader.unpackLong(source, offset, bits));
+                if (bits <= 32)
+                    assertEquals((int) expected, bitReader.unpack(source, offset, bits));
+            }
+        }
+        random.nextBytes(source);
+        assertEquals(referenceUnpack(source, 5, 32), bitReader.unpack32(source, 5));
+        assertEquals((long) referenceUnpack(source, 7, 32) << 32 | (referenceUnpack(source, 39, 32) & 0xFFFF_FFFFL), bitReader.unpack64(source, 7));
+    }
+
+    @Test
+    public void insert() throws Exception {
+        Random random = new Random(43);
+        for (int bits = 1; bits <= 64; bits++) {
+            for (int offset = 0; offset < 64; offset++) {
+                long value = random.nextLong();
+                byte[] source = new byte[8];
+                for (int i = 0; i < 8; i++)
+                    source[i] = (byte) (value >>> (56 - 8 * i));
+                byte[] expected = new byte[24];
+                byte[] actual = new byte[24];
+                referenceInsert(source, expected, offset, bits);
+                bitWriter.insert(value, actual, offset, bits);
+                assertArrayEquals(expected, actual);
+                // insertBits merges into existing data
+                random.nextBytes(expected);
+                actual = expected.clone();
+                referenceInsert(source, expected, offset, bits);
+                bitWriter.insertBits(source, actual, offset, bits);
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void insertLong() throws Exception {
+        Random random = new Random(44);
+        byte[] source = new byte[16];
+        random.nextBytes(source);
+        byte[] expected = new byte[24];
+        byte[] actual = new byte[24];
+        referenceInsert(source, expected, 3, 128);
+        bitWriter.insertBits(source, actual, 3, 128);
+        assertArrayEquals(expected, actual);
+    }
+
+    // Original implementations
+
+    private static int referenceUnpack(byte[] sourceArray, int readBitPosition, final int bitLength) {
+        int target = 0;
+        for (int i = 0; i < bitLength; i++) {
+            int readByte = sourceArray[readBitPosition >> 3];
+            int readMask = BIT_TEST[readBitPosition & 0x07];
+            target = target << 1;
+            if (0 != (readByte & readMask)) {
+                target = target | 0x01;
+            }
+            readBitPosition++;
+        }
+        return target;
+    }
+
+    private static void referenceInsert(final byte[] sourceArray, final byte[] targetArray, int writeBitPosition, final int bitLength) {
+        final int byteArrayOffset = sourceArray.length - 1;
+        for (int bit = bitLength - 1; bit >= 0; bit--) {
+            int readBit = bit & 0x07;
+            int readByte = byteArrayOffset - (bit >> 3);
+            int readMask = BIT_SET[readBit];
+            int val = (sourceArray[readByte] & readMask);
+            if (0 != val) {
+                int writeBit = 7 - (writeBitPosition & 0x07);
+                int writeByte = writeBitPosition >> 3;
+                targetArray[writeByte] = (byte) (targetArray[writeByte] | BIT_SET[writeBit]);
+            }
+            writeBitPosition++;
+        }
+    }
+}
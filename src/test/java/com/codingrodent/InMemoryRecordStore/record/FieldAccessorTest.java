@@ -0,0 +1,131 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class FieldAccessorTest {
+
+    @Test
+    public void methodHandleChosen() throws Exception {
+        assertTrue(FieldAccessor.of(TestRecordPrimitive.class.getField("a")) instanceof MethodHandleFieldAccessor);
+        assertTrue(FieldAccessor.of(TestRecordBytePack.class.getField("a")) instanceof MethodHandleFieldAccessor);
+    }
+
+    @Test
+    public void reflectiveFallback() throws Exception {
+        // Final fields can't be bound to a setter handle
+        FieldAccessor accessor = FieldAccessor.of(TestRecordNoPack.class.getField("c"));
+        assertTrue(accessor instanceof ReflectiveFieldAccessor);
+        TestRecordNoPack record = new TestRecordNoPack((byte) 1, (short) 2, 3, 4L, 'e');
+        assertEquals(3, accessor.getInt(record));
+        assertTrue(accessor.isPrimitive());
+    }
+
+    @Test
+    public void kind() {
+        assertEquals(int.class, FieldAccessor.kind(int.class));
+        assertEquals(int.class, FieldAccessor.kind(Integer.class));
+        assertEquals(boolean.class, FieldAccessor.kind(Boolean.class));
+        assertEquals(char.class, FieldAccessor.kind(Character.class));
+        assertEquals(Object.class, FieldAccessor.kind(String.class));
+        assertEquals(Object.class, FieldAccessor.kind(boolean[].class));
+    }
+
+    @Test
+    public void primitiveAccess() throws Exception {
+        for (boolean reflective : new boolean[]{false, true}) {
+            TestRecordPrimitive record = new TestRecordPrimitive();
+            accessor(TestRecordPrimitive.class, "a", reflective).setShort(record, (short) -2);
+            accessor(TestRecordPrimitive.class, "b", reflective).setInt(record, 123);
+            accessor(TestRecordPrimitive.class, "c", reflective).setBoolean(record, true);
+            accessor(TestRecordPrimitive.class, "d", reflective).setChar(record, 'x');
+            accessor(TestRecordPrimitive.class, "e", reflective).setLong(record, -5L);
+            accessor(TestRecordPrimitive.class, "f", reflective).setByte(record, (byte) 7);
+            accessor(TestRecordPrimitive.class, "g", reflective).setFloat(record, 1.5f);
+            accessor(TestRecordPrimitive.class, "h", reflective).setDouble(record, -2.5);
+            assertEquals(-2, accessor(TestRecordPrimitive.class, "a", reflective).getShort(record));
+            assertEquals(123, accessor(TestRecordPrimitive.class, "b", reflective).getInt(record));
+            assertTrue(accessor(TestRecordPrimitive.class, "c", reflective).getBoolean(record));
+            assertEquals('x', accessor(TestRecordPrimitive.class, "d", reflective).getChar(record));
+            assertEquals(-5L, accessor(TestRecordPrimitive.class, "e", reflective).getLong(record));
+            assertEquals(7, accessor(TestRecordPrimitive.class, "f", reflective).getByte(record));
+            assertEquals(1.5f, accessor(TestRecordPrimitive.class, "g", reflective).getFloat(record), 0.0f);
+            assertEquals(-2.5, accessor(TestRecordPrimitive.class, "h", reflective).getDouble(record), 0.0);
+            assertEquals(123, accessor(TestRecordPrimitive.class, "b", reflective).get(record));
+            assertTrue(accessor(TestRecordPrimitive.class, "b", reflective).isPrimitive());
+        }
+    }
+
+    @Test
+    public void wrapperAccess() throws Exception {
+        for (boolean reflective : new boolean[]{false, true}) {
+            TestRecordBytePack record = new TestRecordBytePack();
+            FieldAccessor a = accessor(TestRecordBytePack.class, "a", reflective);
+            FieldAccessor h = accessor(TestRecordBytePack.class, "h", reflective);
+            assertFalse(a.isPrimitive());
+            a.setInt(record, -77);
+            assertEquals(Integer.valueOf(-77), record.a);
+            assertEquals(-77, a.getInt(record));
+            a.set(record, null);
+            assertNull(a.get(record));
+            boolean[] bits = new boolean[10];
+            h.set(record, bits);
+            assertSame(bits, h.get(record));
+        }
+    }
+
+    @Test
+    public void reflectiveFailure() throws Exception {
+        // Private fields are not accessible, so every access path reports the same error
+        FieldAccessor hidden = new ReflectiveFieldAccessor(Hidden.class.getDeclaredField("value"));
+        Hidden record = new Hidden();
+        for (Runnable access : new Runnable[]{() -> hidden.get(record), () -> hidden.set(record, 1), () -> hidden.getInt(record), () -> hidden.setInt(record, 1)}) {
+            try {
+                access.run();
+                fail("Expecting RecordStoreException to be thrown");
+            } catch (RecordStoreException e) {
+                assertEquals("Unable to access field value", e.getMessage());
+            }
+        }
+    }
+
+    private static class Hidden {
+        private int value;
+    }
+
+    private static FieldAccessor accessor(final Class<?> clazz, final String name, final boolean reflective) throws Exception {
+        Field field = clazz.getField(name);
+        return reflective ? new ReflectiveFieldAccessor(field) : new MethodHandleFieldAccessor(field);
+    }
+}
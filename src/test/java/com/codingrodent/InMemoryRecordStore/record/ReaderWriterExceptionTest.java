@@ -30,6 +30,7 @@ import org.junit.*;
 import java.util.UUID;
 
 import static junit.framework.TestCase.fail;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class ReaderWriterExceptionTest {
@@ -74,6 +75,98 @@ public class ReaderWriterExceptionTest {
         } catch (Exception e) {
             assertEquals(e.getMessage(), "Write location beyond end of storage");
         }
+        try {
+            writer.putRecord(-1, testRecordBytePack);
+            fail("Expecting RecordStoreException to be thrown");
+        } catch (Exception e) {
+            assertEquals(e.getMessage(), "Write location beyond end of storage");
+        }
+        Reader<TestRecordBytePack> reader = new Reader<>(memory, descriptor);
+        reader.getRecord(maxRecords - 1);
+        for (int location : new int[]{maxRecords, -1}) {
+            try {
+                reader.getRecord(location);
+                fail("Expecting RecordStoreException to be thrown");
+            } catch (Exception e) {
+                assertEquals(e.getMessage(), "Read location beyond end of storage");
+            }
+        }
+    }
+
+    @Test
+    public void columnarExceptions() throws Exception {
+        RecordDescriptor<TestRecordColumnar> descriptor = new RecordDescriptor<>(TestRecordColumnar.class);
+        //
+        // Columns can't be placed without the number of records
+        try {
+            new Reader<>(memory, descriptor);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "A columnar record layout needs the number of records in the store");
+        }
+        try {
+            new Writer<>(memory, descriptor);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "A columnar record layout needs the number of records in the store");
+        }
+        //
+        // Storage limits
+        TestRecordColumnar record = new TestRecordColumnar(1, 2, 3, true, 4, false, UUID.randomUUID(), new boolean[10], booleanArray, "abc");
+        Writer<TestRecordColumnar> writer = new Writer<>(memory, descriptor, 16);
+        Reader<TestRecordColumnar> reader = new Reader<>(memory, descriptor, 16);
+        writer.putRecord(15, record);
+        assertEquals(record.g, reader.getRecord(15).g);
+        for (int location : new int[]{16, -1}) {
+            try {
+                writer.putRecord(location, record);
+                fail("Expecting RecordStoreException to be thrown");
+            } catch (Exception e) {
+                assertEquals(e.getMessage(), "Write location beyond end of storage");
+            }
+            try {
+                reader.getRecord(location);
+                fail("Expecting RecordStoreException to be thrown");
+            } catch (Exception e) {
+                assertEquals(e.getMessage(), "Read location beyond end of storage");
+            }
+        }
+        // Columns for this many records don't fit in the store
+        try {
+            new Writer<>(memory, descriptor, 1000).putRecord(0, record);
+            fail("Expecting RecordStoreException to be thrown");
+        } catch (Exception e) {
+            assertEquals(e.getMessage(), "Write location beyond end of storage");
+        }
+    }
+
+    @Test
+    public void failedWriteLeavesRecordUnchanged() throws Exception {
+        RecordDescriptor<TestRecordBytePack> descriptor = new RecordDescriptor<>(TestRecordBytePack.class);
+        Writer<TestRecordBytePack> writer = new Writer<>(memory, descriptor);
+        writer.putRecord(0, new TestRecordBytePack(1, -1, -32768, true, 0x0000_1234_5678_9ABCL, false, UUID.randomUUID(), new boolean[10], booleanArray));
+        byte[] before = memory.getByteArray(0, descriptor.getByteLength());
+        //
+        // Last field is the wrong size
+        try {
+            writer.putRecord(0, new TestRecordBytePack(2, -2, 0, false, 0L, true, UUID.randomUUID(), new boolean[10], new Boolean[4]));
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Array size does not match. Should be 5");
+        }
+        assertArrayEquals(before, memory.getByteArray(0, descriptor.getByteLength()));
+    }
+
+    @Test
+    public void stringTooLong() throws Exception {
+        RecordDescriptor<TestRecordString> descriptor = new RecordDescriptor<>(TestRecordString.class);
+        Writer<TestRecordString> writer = new Writer<>(memory, descriptor);
+        try {
+            writer.putRecord(0, new TestRecordString("ABCDEF", "", ""));
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "String too long. Maximum length is " + TestRecordString.SIZE_A);
+        }
     }
 
 }
\ No newline at end of file
@@ -24,12 +24,13 @@
 package com.codingrodent.InMemoryRecordStore.record;
 
 import com.codingrodent.InMemoryRecordStore.core.*;
+import com.codingrodent.InMemoryRecordStore.exception.RecordStoreException;
 import com.codingrodent.InMemoryRecordStore.record.records.*;
 import org.junit.*;
 
-import java.util.UUID;
+import java.util.*;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  *
@@ -170,6 +171,41 @@ public class ReaderWriterTest {
         assertEquals(read.b, write.b);
     }
 
+    @Test
+    public void writeReadRecordPrimitive() throws Exception {
+        RecordDescriptor<TestRecordPrimitive> descriptor = new RecordDescriptor<>(TestRecordPrimitive.class);
+        Writer<TestRecordPrimitive> writer = new Writer<>(memory, descriptor);
+        Reader<TestRecordPrimitive> reader = new Reader<>(memory, descriptor);
+        //
+        TestRecordPrimitive write = new TestRecordPrimitive((short) 0x1234, -3, true, 'A', 0x12_3456_789AL, (byte) -128, 1.0f, 2.0);
+        writer.putRecord(1, write);
+        byte[] packed = {0x12, 0x34, // a
+                -3, // b
+                0x01, // c
+                0x00, 0x41, // d
+                0x12, 0x34, 0x56, 0x78, (byte) 0x9A, // e
+                -128, // f
+                0x3F, (byte) 0x80, 0x00, 0x00, // g
+                0x40, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00 // h
+        };
+        assertEquals(packed.length, descriptor.getByteLength());
+        // Did record pack correctly ?
+        for (int i = 0; i < packed.length; i++) {
+            assertEquals(packed[i], memory.getByte(packed.length + i));
+        }
+        //
+        // Ok, see if we can get it back
+        TestRecordPrimitive read = reader.getRecord(1);
+        assertEquals(read.a, write.a);
+        assertEquals(read.b, write.b);
+        assertEquals(read.c, write.c);
+        assertEquals(read.d, write.d);
+        assertEquals(read.e, write.e);
+        assertEquals(read.f, write.f);
+        assertEquals(read.g, write.g, 0.0f);
+        assertEquals(read.h, write.h, 0.0);
+    }
+
     @Test
     public void writeReadRecordBytePos() throws Exception {
         RecordDescriptor<TestRecordByte> descriptor = new RecordDescriptor<>(TestRecordByte.class);
@@ -343,4 +379,97 @@ public class ReaderWriterTest {
         assertEquals(read.c, write.c);
     }
 
+    @Test
+    public void packUnpack() throws Exception {
+        UUID uuid = new UUID(0x8000_7000_6000_5000L, 0x4000_3000_2000_1000L);
+        boolean[] bits = {true, false, false, true, true, false, true, false, false, true};
+        packUnpack(TestRecordBytePack.class, new TestRecordBytePack(1, -1, -32768, true, 0x0000_1234_5678_9ABCL, false, uuid, bits, booleanArray));
+        packUnpack(TestRecordBitPack.class, new TestRecordBitPack(-5, 0x1234, -2, true, -3, true, uuid, bits, booleanArray));
+    }
+
+    private <T> void packUnpack(final Class<T> clazz, final T write) throws Exception {
+        RecordDescriptor<T> descriptor = new RecordDescriptor<>(clazz);
+        Writer<T> writer = new Writer<>(memory, descriptor);
+        Reader<T> reader = new Reader<>(memory, descriptor);
+        writer.putRecord(3, write);
+        //
+        // A packed buffer matches the store byte for byte
+        byte[] buffer = new byte[descriptor.getByteLength()];
+        Arrays.fill(buffer, (byte) -1);
+        writer.pack(write, buffer);
+        assertArrayEquals(memory.getByteArray(3 * buffer.length, buffer.length), buffer);
+        //
+        byte[] again = new byte[buffer.length];
+        writer.pack(reader.unpack(buffer), again);
+        assertArrayEquals(buffer, again);
+        //
+        // Copy out and unpack into an existing record
+        byte[] copy = new byte[buffer.length];
+        reader.copyRecord(3, copy);
+        assertArrayEquals(buffer, copy);
+        T reuse = descriptor.newInstance();
+        assertSame(reuse, reader.unpack(copy, reuse));
+        writer.pack(reuse, again);
+        assertArrayEquals(buffer, again);
+    }
+
+    @Test
+    public void getRecordReuse() throws Exception {
+        RecordDescriptor<TestRecordBytePack> descriptor = new RecordDescriptor<>(TestRecordBytePack.class);
+        Writer<TestRecordBytePack> writer = new Writer<>(memory, descriptor);
+        Reader<TestRecordBytePack> reader = new Reader<>(memory, descriptor);
+        UUID uuid = new UUID(0x8000_7000_6000_5000L, 0x4000_3000_2000_1000L);
+        boolean[] bits = {true, false, false, true, true, false, true, false, false, true};
+        writer.putRecord(0, new TestRecordBytePack(1, -1, -32768, true, 0x0000_1234_5678_9ABCL, false, uuid, bits, booleanArray));
+        writer.putRecord(1, new TestRecordBytePack(1000, 2, 3, false, -5L, true, uuid, new boolean[10], booleanArray));
+        //
+        TestRecordBytePack reuse = new TestRecordBytePack();
+        assertSame(reuse, reader.getRecord(0, reuse));
+        assertEquals(1, reuse.a.intValue());
+        assertArrayEquals(bits, reuse.h);
+        Integer a = reuse.a;
+        UUID g = reuse.g;
+        boolean[] h = reuse.h;
+        Boolean[] i = reuse.i;
+        // Arrays are refilled, unchanged objects kept
+        assertSame(reuse, reader.getRecord(1, reuse));
+        assertEquals(1000, reuse.a.intValue());
+        assertEquals(2, reuse.b);
+        assertEquals(-5L, reuse.e.longValue());
+        assertTrue(reuse.f);
+        assertSame(g, reuse.g);
+        assertSame(h, reuse.h);
+        assertArrayEquals(new boolean[10], reuse.h);
+        assertSame(i, reuse.i);
+        assertArrayEquals(booleanArray, reuse.i);
+        // A wrong sized array is replaced
+        reuse.h = new boolean[3];
+        reader.getRecord(0, reuse);
+        assertArrayEquals(bits, reuse.h);
+        assertEquals(a, reuse.a);
+    }
+
+    @Test
+    public void getRecordReuseString() throws Exception {
+        RecordDescriptor<TestRecordString> descriptor = new RecordDescriptor<>(TestRecordString.class);
+        Writer<TestRecordString> writer = new Writer<>(memory, descriptor);
+        Reader<TestRecordString> reader = new Reader<>(memory, descriptor);
+        writer.putRecord(0, new TestRecordString("A", "BB", "CCC"));
+        writer.putRecord(1, new TestRecordString("A", "XY", ""));
+        //
+        TestRecordString reuse = reader.getRecord(0, new TestRecordString());
+        String a = reuse.a;
+        reader.getRecord(1, reuse);
+        assertSame(a, reuse.a);
+        assertEquals("XY", reuse.b);
+        assertEquals("", reuse.c);
+    }
+
+    @Test(expected = RecordStoreException.class)
+    public void getRecordReuseWrongType() throws Exception {
+        RecordDescriptor<TestRecordBytePack> descriptor = new RecordDescriptor<>(TestRecordBytePack.class);
+        @SuppressWarnings("unchecked") Reader<Object> reader = (Reader<Object>) (Reader<?>) new Reader<>(memory, descriptor);
+        reader.getRecord(0, new TestRecordLong());
+    }
+
 }
\ No newline at end of file
@@ -58,6 +58,41 @@ public class RecordDescriptorTest {
         assertEquals(recordDescriptor.getBitLength(), 50 * 8);
     }
 
+    @Test
+    public void getFieldId() throws Exception {
+        assertEquals(recordDescriptor.getFieldId("a"), 0);
+        assertEquals(recordDescriptor.getFieldId("v1"), 2);
+        assertEquals(recordDescriptor.getFieldId("b"), 3);
+        assertEquals(recordDescriptor.getFieldDetails("b").getBitOffset(), 9 * 8);
+        assertEquals(recordDescriptor.getFieldDetails("b").getSlotBits(), 16);
+    }
+
+    @Test
+    public void getFieldLayout() throws Exception {
+        assertEquals(recordDescriptor.getFieldCount(), recordDescriptor.getFieldNames().size());
+        int bitOffset = 0;
+        for (int id = 0; id < recordDescriptor.getFieldCount(); id++) {
+            RecordDescriptor.FieldDetails field = recordDescriptor.getFieldDetails(id);
+            assertEquals(field.getFieldId(), id);
+            assertEquals(field.getFieldName(), recordDescriptor.getFieldNames().get(id));
+            assertSame(field, recordDescriptor.getFieldDetails(field.getFieldName()));
+            assertEquals(field.getBitOffset(), bitOffset);
+            assertEquals(field.getByteOffset(), bitOffset / 8);
+            bitOffset = bitOffset + field.getSlotBits() * field.getElements();
+        }
+        assertEquals(bitOffset, recordDescriptor.getBitLength());
+        // Bit packed offsets
+        RecordDescriptor<TestRecordBitPack> bitDescriptor = new RecordDescriptor<>(TestRecordBitPack.class);
+        assertEquals(bitDescriptor.getFieldDetails("c").getBitOffset(), 20);
+        assertEquals(bitDescriptor.getFieldDetails("v1").getBitOffset(), 36);
+        assertEquals(bitDescriptor.getFieldDetails("v1").getByteOffset(), 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getFieldIdUnknown() throws Exception {
+        recordDescriptor.getFieldId("z");
+    }
+
     @Test
     public void getClazz() throws Exception {
         assertEquals(recordDescriptor.getClazz(), TestRecordBytePack.class);
@@ -79,6 +114,40 @@ public class RecordDescriptorTest {
         assertFalse(names.hasNext());
     }
 
+    @Test
+    public void getLayoutSignature() throws Exception {
+        assertEquals(recordDescriptor.getLayoutSignature(), new RecordDescriptor<>(TestRecordBytePack.class).getLayoutSignature());
+        assertNotEquals(recordDescriptor.getLayoutSignature(), new RecordDescriptor<>(TestRecordBitPack.class).getLayoutSignature());
+    }
+
+    @Test
+    public void columnarLayout() throws Exception {
+        RecordDescriptor<TestRecordColumnar> columnar = new RecordDescriptor<>(TestRecordColumnar.class);
+        assertTrue(columnar.isColumnar());
+        assertFalse(recordDescriptor.isColumnar());
+        assertEquals(382, columnar.getBitLength());
+        assertEquals(48, columnar.getByteLength());
+        //
+        // Each column holds one field of every record, and starts on a long word boundary
+        long[] columns = columnar.getColumnOffsets(100);
+        long[] expected = {0, 2048, 3648, 4480, 6080, 6208, 10816, 11264, 24064, 27072, 29632, 38464};
+        assertArrayEquals(expected, columns);
+        assertEquals(38464 / 8, columnar.getStorageBytes(100));
+        assertEquals(50 * 100, recordDescriptor.getStorageBytes(100));
+        assertEquals(0, columnar.getStorageBytes(0));
+    }
+
+    @Test
+    public void getCodec() throws Exception {
+        assertNull(recordDescriptor.getCodec());
+        try {
+            new RecordDescriptor<>(TestRecordStaleCodec.class);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Generated codec does not match the record layout"));
+        }
+    }
+
     @Test
     public void exceptions() throws Exception {
         // Wrong record type
@@ -0,0 +1,201 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record;
+
+import com.codingrodent.InMemoryRecordStore.core.*;
+import com.codingrodent.InMemoryRecordStore.record.records.*;
+import org.junit.*;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class RecordViewTest {
+    private IMemoryStore memory;
+    private final Boolean[] booleanArray = {true, false, true, true, false};
+
+    @Before
+    public void setUp() throws Exception {
+        memory = new ArrayMemoryStore(1024);
+    }
+
+    @Test
+    public void readFields() throws Exception {
+        RecordDescriptor<TestRecordPrimitive> descriptor = new RecordDescriptor<>(TestRecordPrimitive.class);
+        Writer<TestRecordPrimitive> writer = new Writer<>(memory, descriptor);
+        TestRecordPrimitive write = new TestRecordPrimitive((short) -2, -3, true, '\u20AC', -0x12_3456_789AL, (byte) -128, 1.5f, -2.25);
+        writer.putRecord(2, write);
+        //
+        RecordView<TestRecordPrimitive> view = new RecordView<>(memory, descriptor).moveTo(2);
+        assertEquals(2, view.getLocation());
+        assertEquals(write.a, view.getShort("a"));
+        assertEquals(write.b, view.getInt("b"));
+        assertEquals(write.c, view.getBoolean("c"));
+        assertEquals(write.d, view.getChar("d"));
+        assertEquals(write.e, view.getLong("e"));
+        assertEquals(write.f, view.getByte("f"));
+        assertEquals(write.g, view.getFloat("g"), 0.0f);
+        assertEquals(write.h, view.getDouble("h"), 0.0);
+        // Widening
+        assertEquals(write.a, view.getLong(descriptor.getFieldId("a")));
+        assertEquals(write.d, view.getInt("d"));
+        assertEquals(write.f, view.getShort("f"));
+    }
+
+    @Test
+    public void writeFields() throws Exception {
+        RecordDescriptor<TestRecordBitPack> descriptor = new RecordDescriptor<>(TestRecordBitPack.class);
+        Writer<TestRecordBitPack> writer = new Writer<>(memory, descriptor);
+        Reader<TestRecordBitPack> reader = new Reader<>(memory, descriptor);
+        UUID uuid = new UUID(0x8000_7000_6000_5000L, 0x4000_3000_2000_1000L);
+        writer.putRecord(1, new TestRecordBitPack(1, 2, 3, false, 4, true, uuid, new boolean[10], booleanArray));
+        byte[] before = memory.getByteArray(0, descriptor.getByteLength());
+        //
+        RecordView<TestRecordBitPack> view = new RecordView<>(memory, descriptor).moveTo(1);
+        view.setInt("a", -5);
+        view.setInt(descriptor.getFieldId("b"), 0x1234);
+        view.setBoolean("d", true);
+        view.setLong("e", -0x1234_5678_9ABCL);
+        assertEquals(-5, view.getInt("a"));
+        assertEquals(0x1234, view.getInt("b"));
+        assertEquals(-0x1234_5678_9ABCL, view.getLong("e"));
+        //
+        TestRecordBitPack read = reader.getRecord(1);
+        assertEquals(-5, read.a.intValue());
+        assertEquals(0x1234, read.b);
+        assertEquals(3, read.c);
+        assertTrue(read.d);
+        assertEquals(-0x1234_5678_9ABCL, read.e.longValue());
+        assertTrue(read.f);
+        assertEquals(uuid, read.g);
+        assertArrayEquals(booleanArray, read.i);
+        assertEquals(uuid, view.getUUID("g"));
+        UUID other = new UUID(-1L, 0x0123_4567_89AB_CDEFL);
+        view.setUUID("g", other);
+        assertEquals(other, reader.getRecord(1).g);
+        assertEquals(3, view.getInt("c"));
+        // Values are truncated to the field width, neighbouring records untouched
+        view.setInt("a", 0x7FFFF + 1);
+        assertEquals(-0x80000, view.getInt("a"));
+        assertArrayEquals(before, memory.getByteArray(0, descriptor.getByteLength()));
+    }
+
+    @Test
+    public void recordManagerView() throws Exception {
+        RecordDescriptor<TestRecordLong> descriptor = new RecordDescriptor<>(TestRecordLong.class);
+        RecordManager<TestRecordLong> recordManager = new RecordManager<>(new ArrayMemoryStore(), 16, descriptor);
+        RecordView<TestRecordLong> view = recordManager.newView();
+        for (int i = 0; i < recordManager.getRecords(); i++) {
+            view.moveTo(i).setLong("d", i * 1000L);
+        }
+        for (int i = 0; i < recordManager.getRecords(); i++) {
+            assertEquals(i * 1000L, recordManager.getRecord(i).d);
+        }
+    }
+
+    @Test
+    public void columnarView() throws Exception {
+        RecordDescriptor<TestRecordColumnar> descriptor = new RecordDescriptor<>(TestRecordColumnar.class);
+        RecordView<TestRecordColumnar> view = new RecordView<>(memory, descriptor, 16);
+        long[] columns = descriptor.getColumnOffsets(16);
+        int b = descriptor.getFieldId("b");
+        //
+        // A field is written to its own column, next to the same field of the neighbouring records
+        view.moveTo(5).setInt(b, 0x1234);
+        view.moveTo(6).setInt(b, -2);
+        view.setUUID("g", new UUID(7, 8));
+        assertEquals(0x1234, memory.getBits(columns[b] + 5 * 16, 16));
+        assertEquals(0xFFFE, memory.getBits(columns[b] + 6 * 16, 16));
+        assertEquals(0, memory.getBits(columns[b] + 4 * 16, 16));
+        int g = descriptor.getFieldId("g");
+        assertEquals(7, memory.getBits(columns[g] + 6 * 128, 64));
+        assertEquals(8, memory.getBits(columns[g] + 6 * 128 + 64, 64));
+        assertEquals(0x1234, view.moveTo(5).getInt(b));
+        assertEquals(new UUID(7, 8), view.moveTo(6).getUUID(g));
+        try {
+            view.moveTo(16);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+        try {
+            new RecordView<>(memory, descriptor);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("A columnar record layout needs the number of records in the store", e.getMessage());
+        }
+    }
+
+    @Test
+    public void exceptions() throws Exception {
+        RecordDescriptor<TestRecordBytePack> descriptor = new RecordDescriptor<>(TestRecordBytePack.class);
+        RecordView<TestRecordBytePack> view = new RecordView<>(memory, descriptor);
+        try {
+            view.getInt("a");
+            fail("Expecting IllegalStateException to be thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("View has not been moved to a record", e.getMessage());
+        }
+        try {
+            view.moveTo(memory.getBytes() / descriptor.getByteLength());
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+        try {
+            view.moveTo(Integer.MAX_VALUE);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+        // A view for a fixed number of records stops at the last record, even with room left in the store
+        RecordView<TestRecordBytePack> bounded = new RecordView<>(memory, descriptor, 16);
+        bounded.moveTo(15);
+        try {
+            bounded.moveTo(16);
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Record location out of bounds", e.getMessage());
+        }
+        view.moveTo(0);
+        try {
+            view.getInt("missing");
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown field. missing", e.getMessage());
+        }
+        try {
+            view.getShort("a");
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field (a) of type Word32 can't be accessed as this type", e.getMessage());
+        }
+        try {
+            view.getLong("g");
+            fail("Expecting IllegalArgumentException to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Field (g) of type UUID can't be accessed as this type", e.getMessage());
+        }
+    }
+}
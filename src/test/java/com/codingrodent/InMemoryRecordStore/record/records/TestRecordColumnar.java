@@ -0,0 +1,85 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record.records;
+
+import com.codingrodent.InMemoryRecordStore.annotations.*;
+
+import java.util.UUID;
+
+/**
+ * Test data record, stored column by column
+ */
+@PackRecord(fieldByteAligned = false, columnar = true)
+public class TestRecordColumnar {
+
+    @PackField(order = 0, bits = 20)
+    public Integer a;
+
+    @PackField(order = 7, bits = 16)
+    public int b;
+
+    @PackField(order = 3, bits = 16)
+    public int c;
+
+    @PackField(order = 100)
+    public boolean d;
+
+    @Padding(order = 4, bits = 8)
+    public Void v1;
+
+    @PackField(order = 200, bits = 46)
+    public Long e;
+
+    @PackField(order = 201, bits = 4)
+    public Boolean f;
+
+    @PackField(order = 202)
+    public UUID g;
+
+    @PackArray(order = 301, elements = 10, bits = 3)
+    public boolean[] h;
+
+    @PackArray(order = 302, elements = 5, bits = 5)
+    public Boolean[] i;
+
+    @PackString(order = 400, elements = 8, bits = 7)
+    public String j;
+
+    public TestRecordColumnar() {
+    }
+
+    public TestRecordColumnar(Integer a, int b, int c, boolean d, long e, Boolean f, UUID g, boolean[] h, Boolean[] i, String j) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.e = e;
+        this.f = f;
+        this.g = g;
+        this.h = h;
+        this.i = i;
+        this.j = j;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.record.records;
+
+import com.codingrodent.InMemoryRecordStore.annotations.*;
+
+/**
+ * Test data record
+ */
+@PackRecord
+public class TestRecordPrimitive {
+
+    @PackField(order = 0, bits = 16)
+    public short a;
+
+    @PackField(order = 1, bits = 8)
+    public int b;
+
+    @PackField(order = 2)
+    public boolean c;
+
+    @PackField(order = 3, bits = 16)
+    public char d;
+
+    @PackField(order = 4, bits = 40)
+    public long e;
+
+    @PackField(order = 5, bits = 8)
+    public byte f;
+
+    @PackField(order = 6)
+    public float g;
+
+    @PackField(order = 7)
+    public double h;
+
+    public TestRecordPrimitive() {
+    }
+
+    public TestRecordPrimitive(short a, int b, boolean c, char d, long e, byte f, float g, double h) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.e = e;
+        this.f = f;
+        this.g = g;
+        this.h = h;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+* MIT License
+*
+*         Copyright (c) 2016
+*
+*         Permission is hereby granted, free of charge, to any person obtaining a copy
+*         of this software and associated documentation files (the "Software"), to deal
+*         in the Software without restriction, including without limitation the rights
+*         to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+*         copies of the Software, and to permit persons to whom the Software is
+*         furnished to do so, subject to the following conditions:
+*
+*         The above copyright notice and this permission notice shall be included in all
+*         copies or substantial portions of the Software.
+*
+*         THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+*         IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+*         FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+*         AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+*         LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+*         OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+*         SOFTWARE.
+*/
+package com.codingrodent.InMemoryRecordStore.utility;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BitPackingTest {
+
+    @Test
+    public void getPut() throws Exception {
+        Random random = new Random(1234);
+        for (int bits = 1; bits <= 64; bits++) {
+            long mask = bits == 64 ? -1L : (1L << bits) - 1;
+            for (int offset = 0; offset < 16; offset++) {
+                byte[] buffer = new byte[12];
+                random.nextBytes(buffer);
+                byte[] original = buffer.clone();
+                long value = random.nextLong();
+                BitPacking.put(buffer, offset, bits, value);
+                assertEquals(value & mask, BitPacking.get(buffer, offset, bits));
+                // Bits outside the field must not change
+                for (int bit = 0; bit < buffer.length * 8; bit++) {
+                    if (bit < offset || bit >= offset + bits)
+                        assertEquals(bitAt(original, bit), bitAt(buffer, bit));
+                    else
+                        assertEquals((value >>> (offset + bits - 1 - bit)) & 1, bitAt(buffer, bit));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bigEndian() throws Exception {
+        byte[] buffer = {(byte) 0x12, (byte) 0x34, (byte) 0x56};
+        assertEquals(0x1234, BitPacking.get(buffer, 0, 16));
+        assertEquals(0x234, BitPacking.get(buffer, 4, 12));
+        assertEquals(0x1, BitPacking.get(buffer, 3, 1));
+        BitPacking.put(buffer, 4, 16, 0xABCD);
+        assertArrayEquals(new byte[]{(byte) 0x1A, (byte) 0xBC, (byte) 0xD6}, buffer);
+    }
+
+    private static int bitAt(final byte[] buffer, final int bit) {
+        return (buffer[bit >> 3] >>> (7 - (bit & 0x07))) & 1;
+    }
+}